@@ -199,7 +199,7 @@ public class NodeGroupStoreRestController {
 			
 			if(tbl.getNumRows() > 0){
 				// we have a result. for now, let's assume that only the first result is valid.
-				ArrayList<String> tmpRow = tbl.getRows().get(0);
+				ArrayList<String> tmpRow = tbl.getRow(0);
 				int targetCol = tbl.getColumnIndex("NodeGroup");
 				
 				String ngJSONstr = tmpRow.get(targetCol);
@@ -28,6 +28,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.ge.research.semtk.ontologyTools.DataDictionaryGenerator;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.resultSet.Table;
 import com.ge.research.semtk.resultSet.TableResultSet;
@@ -57,7 +58,7 @@ public class OntologyInfoServiceRestController {
 	
     	TableResultSet res = new TableResultSet();	
 	    try {
-	    	OntologyInfo oInfo = new OntologyInfo(requestBody.getSparqlConnection());
+	    	OntologyInfo oInfo = OntologyInfoCache.getShared().get(requestBody.getSparqlConnection());
 	    	Table dataDictionaryTable = DataDictionaryGenerator.generate(oInfo, true);
 	    	res.addResults(dataDictionaryTable);
 	    	res.setSuccess(true);
@@ -118,8 +119,8 @@ public class OntologyInfoServiceRestController {
 		
 		try{
 			SparqlConnection conn = requestBody.getJsonRenderedSparqlConnection();
-			OntologyInfo oInfo = new OntologyInfo(conn);
-			JSONObject oInfoDetails = oInfo.toAdvancedClientJson();
+			OntologyInfo oInfo = OntologyInfoCache.getShared().get(conn);
+			JSONObject oInfoDetails = oInfo.toAdvancedClientJson(conn);
 			
 			retval = new SimpleResultSet();
 			retval.addResult("ontologyInfo", oInfoDetails);
@@ -30,6 +30,21 @@ public class IngestionProperties extends EasyLogEnabledConfigProperties{
 	private String sparqlUserName = "";
 	private String sparqlPassword = "";
 	private int batchSize = 50;
+	private int maxInsertChars = 1000000;	// 0 = no limit
+	private int maxInsertTriples = 0;		// 0 = no limit
+	private int targetInsertMsec = 0;		// 0 = fixed batch size and threads
+	private boolean bulkLoad = false;		// upload turtle instead of sparql inserts, where the triple store supports it
+	private boolean stagePreflight = false;	// keep the preflight's converted batches and load those, instead of reading the data again
+	private int parseThreads = 0;			// threads parsing each uploaded CSV file:  0 = parse on the loading thread
+	private String checkpointDir = "";		// where resumable loads record committed batches:  "" = java.io.tmpdir
+	private int asyncThreads = 2;			// async loads running at once
+	private int asyncQueueSize = 20;		// async loads waiting to run
+	private String statusServiceProtocol = "http";	// where async loads report progress
+	private String statusServiceServer = "localhost";
+	private int statusServicePort = 12051;
+	private String resultsServiceProtocol = "http";	// where async loads store their error report
+	private String resultsServiceServer = "localhost";
+	private int resultsServicePort = 12052;
 	
 	// get, set, etc
 	public String getSparqlUserName(){
@@ -55,4 +70,124 @@ public class IngestionProperties extends EasyLogEnabledConfigProperties{
 	public int getBatchSize(){
 		return this.batchSize;
 	}
+	
+	public void setMaxInsertChars(int maxInsertChars){
+		this.maxInsertChars = maxInsertChars;
+	}
+	
+	public int getMaxInsertChars(){
+		return this.maxInsertChars;
+	}
+	
+	public void setMaxInsertTriples(int maxInsertTriples){
+		this.maxInsertTriples = maxInsertTriples;
+	}
+	
+	public int getMaxInsertTriples(){
+		return this.maxInsertTriples;
+	}
+	
+	public void setTargetInsertMsec(int targetInsertMsec){
+		this.targetInsertMsec = targetInsertMsec;
+	}
+	
+	public int getTargetInsertMsec(){
+		return this.targetInsertMsec;
+	}
+	
+	public void setBulkLoad(boolean bulkLoad){
+		this.bulkLoad = bulkLoad;
+	}
+	
+	public boolean getBulkLoad(){
+		return this.bulkLoad;
+	}
+	
+	public void setStagePreflight(boolean stagePreflight){
+		this.stagePreflight = stagePreflight;
+	}
+	
+	public boolean getStagePreflight(){
+		return this.stagePreflight;
+	}
+	
+	public void setParseThreads(int parseThreads){
+		this.parseThreads = parseThreads;
+	}
+	
+	public int getParseThreads(){
+		return this.parseThreads;
+	}
+	
+	public void setCheckpointDir(String checkpointDir){
+		this.checkpointDir = checkpointDir;
+	}
+	
+	public String getCheckpointDir(){
+		return this.checkpointDir;
+	}
+	
+	public void setAsyncThreads(int asyncThreads){
+		this.asyncThreads = asyncThreads;
+	}
+	
+	public int getAsyncThreads(){
+		return this.asyncThreads;
+	}
+	
+	public void setAsyncQueueSize(int asyncQueueSize){
+		this.asyncQueueSize = asyncQueueSize;
+	}
+	
+	public int getAsyncQueueSize(){
+		return this.asyncQueueSize;
+	}
+	
+	public void setStatusServiceProtocol(String statusServiceProtocol){
+		this.statusServiceProtocol = statusServiceProtocol;
+	}
+	
+	public String getStatusServiceProtocol(){
+		return this.statusServiceProtocol;
+	}
+	
+	public void setStatusServiceServer(String statusServiceServer){
+		this.statusServiceServer = statusServiceServer;
+	}
+	
+	public String getStatusServiceServer(){
+		return this.statusServiceServer;
+	}
+	
+	public void setStatusServicePort(int statusServicePort){
+		this.statusServicePort = statusServicePort;
+	}
+	
+	public int getStatusServicePort(){
+		return this.statusServicePort;
+	}
+	
+	public void setResultsServiceProtocol(String resultsServiceProtocol){
+		this.resultsServiceProtocol = resultsServiceProtocol;
+	}
+	
+	public String getResultsServiceProtocol(){
+		return this.resultsServiceProtocol;
+	}
+	
+	public void setResultsServiceServer(String resultsServiceServer){
+		this.resultsServiceServer = resultsServiceServer;
+	}
+	
+	public String getResultsServiceServer(){
+		return this.resultsServiceServer;
+	}
+	
+	public void setResultsServicePort(int resultsServicePort){
+		this.resultsServicePort = resultsServicePort;
+	}
+	
+	public int getResultsServicePort(){
+		return this.resultsServicePort;
+	}
 }
@@ -18,11 +18,19 @@
 
 package com.ge.research.semtk.services.ingestion;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -40,9 +48,14 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ge.research.semtk.services.ingestion.IngestionFromStringsRequestBody;
 import com.ge.research.semtk.services.ingestion.IngestionProperties;
+import com.ge.research.semtk.edc.client.ResultsClient;
+import com.ge.research.semtk.edc.client.ResultsClientConfig;
+import com.ge.research.semtk.edc.client.StatusClient;
+import com.ge.research.semtk.edc.client.StatusClientConfig;
 import com.ge.research.semtk.sparqlX.SparqlConnection;
 import com.ge.research.semtk.utility.LocalLogger;
 import com.ge.research.semtk.load.DataLoader;
+import com.ge.research.semtk.load.LoadCheckpoint;
 import com.ge.research.semtk.load.dataset.CSVDataset;
 import com.ge.research.semtk.load.dataset.Dataset;
 import com.ge.research.semtk.load.dataset.ODBCDataset;
@@ -53,6 +66,7 @@ import com.ge.research.semtk.logging.easyLogger.LoggerClientConfig;
 import com.ge.research.semtk.query.rdb.OracleConnector;
 import com.ge.research.semtk.query.rdb.PostgresConnector;
 import com.ge.research.semtk.resultSet.RecordProcessResults;
+import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.resultSet.TableResultSet;
 
 /**
@@ -64,6 +78,10 @@ public class IngestionRestController {
  
 	@Autowired
 	IngestionProperties prop;
+	
+	static final long ASYNC_PROGRESS_MSEC = 2000;	// how often async loads update their status
+	static final long ASYNC_SHUTDOWN_SEC = 30;		// how long shutdown waits for running async loads
+	private ThreadPoolExecutor asyncLoads = null;
 			
 	/**
 	 * Load data from CSV
@@ -71,24 +89,61 @@ public class IngestionRestController {
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvFile", method= RequestMethod.POST)
 	public JSONObject fromCsvFile(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile ){
-		return this.fromAnyCsv(templateFile, dataFile, null, true, false);
+		return this.fromAnyCsv(templateFile, dataFile, null, true, false, null, false);
 	}
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvFileWithNewConnection", method= RequestMethod.POST)
 	public JSONObject fromCsvFile(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile , @RequestParam("connectionOverride") MultipartFile connection){
-		return this.fromAnyCsv(templateFile, dataFile, connection, true, false);
+		return this.fromAnyCsv(templateFile, dataFile, connection, true, false, null, false);
 	}
 	
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvFilePrecheck", method= RequestMethod.POST)
 	public JSONObject fromCsvFilePrecheck(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile ){
-		return this.fromAnyCsv(templateFile, dataFile, null, true, true);
+		return this.fromAnyCsv(templateFile, dataFile, null, true, true, null, false);
 	}
 	
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvFileWithNewConnectionPrecheck", method= RequestMethod.POST)
 	public JSONObject fromCsvFilePrecheck(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile,@RequestParam("connectionOverride") MultipartFile connection){
-		return this.fromAnyCsv(templateFile, dataFile, connection, true, true);
+		return this.fromAnyCsv(templateFile, dataFile, connection, true, true, null, false);
+	}
+	
+	/**
+	 * Load data from CSV, recording committed batches so the load can be resumed if it doesn't finish
+	 * @param loadId - optional id for the load, else one is generated.  Returned in the results' loadSettings.
+	 */
+	@CrossOrigin
+	@RequestMapping(value="/fromCsvFileCheckpointed", method= RequestMethod.POST)
+	public JSONObject fromCsvFileCheckpointed(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile, @RequestParam(value="loadId", required=false) String loadId){
+		return this.fromAnyCsv(templateFile, dataFile, null, true, false, (loadId == null || loadId.isEmpty()) ? UUID.randomUUID().toString() : loadId, false);
+	}
+	
+	/**
+	 * Resume a checkpointed load that didn't finish, given the same template and data.
+	 * Records already committed are skipped.
+	 */
+	@CrossOrigin
+	@RequestMapping(value="/fromCsvFileResume", method= RequestMethod.POST)
+	public JSONObject fromCsvFileResume(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile, @RequestParam("loadId") String loadId){
+		return this.fromAnyCsv(templateFile, dataFile, null, true, false, loadId, true);
+	}
+	
+	/**
+	 * Load data from CSV without waiting for the load.
+	 * Returns a jobId at once.  Progress (records processed, records/sec) is published to the status service under the jobId,
+	 * and when the load is done the error report table is stored in the results service.
+	 */
+	@CrossOrigin
+	@RequestMapping(value="/fromCsvFileAsync", method= RequestMethod.POST)
+	public JSONObject fromCsvFileAsync(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile){
+		return this.fromCsvFileAsync(templateFile, dataFile, false);
+	}
+	
+	@CrossOrigin
+	@RequestMapping(value="/fromCsvFilePrecheckAsync", method= RequestMethod.POST)
+	public JSONObject fromCsvFilePrecheckAsync(@RequestParam("template") MultipartFile templateFile, @RequestParam("data") MultipartFile dataFile){
+		return this.fromCsvFileAsync(templateFile, dataFile, true);
 	}
 	
 	/**
@@ -102,7 +157,7 @@ public class IngestionRestController {
 	public JSONObject fromCsv(@RequestBody String requestBody) throws JsonParseException, JsonMappingException, IOException{
 		// LocalLogger.logToStdErr("the request: " + requestBody);
 		IngestionFromStringsRequestBody deserialized = (new ObjectMapper()).readValue(requestBody, IngestionFromStringsRequestBody.class);
-		return this.fromAnyCsv(deserialized.getTemplate(), deserialized.getData(), null, false, false);
+		return this.fromAnyCsv(deserialized.getTemplate(), deserialized.getData(), null, false, false, null, false);
 	}
 	
 	@CrossOrigin
@@ -110,19 +165,19 @@ public class IngestionRestController {
 	public JSONObject fromCsvWithNewConnection(@RequestBody String requestBody) throws JsonParseException, JsonMappingException, IOException{
 		// LocalLogger.logToStdErr("the request: " + requestBody);
 		IngestionFromStringsWithNewConnectionRequestBody deserialized = (new ObjectMapper()).readValue(requestBody, IngestionFromStringsWithNewConnectionRequestBody.class);
-		return this.fromAnyCsv(deserialized.getTemplate(), deserialized.getData(), deserialized.getConnectionOverride(), false, false);
+		return this.fromAnyCsv(deserialized.getTemplate(), deserialized.getData(), deserialized.getConnectionOverride(), false, false, null, false);
 	}
 	
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvPrecheck", method= RequestMethod.POST)
 	public JSONObject fromCsvPrecheck(@RequestBody IngestionFromStringsRequestBody requestBody){
-		return this.fromAnyCsv(requestBody.getTemplate(), requestBody.getData(), null, false, true);
+		return this.fromAnyCsv(requestBody.getTemplate(), requestBody.getData(), null, false, true, null, false);
 	}
 
 	@CrossOrigin
 	@RequestMapping(value="/fromCsvWithNewConnectionPrecheck", method= RequestMethod.POST)
 	public JSONObject fromCsvPrecheck(@RequestBody IngestionFromStringsWithNewConnectionRequestBody requestBody){
-		return this.fromAnyCsv(requestBody.getTemplate(), requestBody.getData(), requestBody.getConnectionOverride(), false, true);
+		return this.fromAnyCsv(requestBody.getTemplate(), requestBody.getData(), requestBody.getConnectionOverride(), false, true, null, false);
 	}
 	
 	/**
@@ -132,8 +187,10 @@ public class IngestionRestController {
 	 * @param sparqlConnectionOverride SPARQL connection json (File if fromFiles=true, else String)  If non-null, will override the connection in the template.
 	 * @param fromFiles true to indicate that the 3 above parameters are Files, else Strings
 	 * @param safeLoad
+	 * @param loadId if non-null, checkpoint the load under this id (fromFiles only)
+	 * @param resume true if the load id's checkpoint must already exist
 	 */
-	private JSONObject fromAnyCsv(Object templateFile, Object dataFile, Object sparqlConnectionOverride, Boolean fromFiles, Boolean safeLoad){
+	private JSONObject fromAnyCsv(Object templateFile, Object dataFile, Object sparqlConnectionOverride, Boolean fromFiles, Boolean safeLoad, String loadId, Boolean resume){
 		DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 
 		int recordsProcessed = 0;
@@ -145,6 +202,7 @@ public class IngestionRestController {
 		logger = loggerConfigInitialization(logger, lcc);	// set up the logger. 
 		
 		RecordProcessResults retval = new RecordProcessResults();
+		File dataTempFile = null;
 		
 		try {
 			if(logger != null){	// always checking if we are actually logging. 
@@ -175,17 +233,21 @@ public class IngestionRestController {
 			SparqlGraphJson sgJson = new SparqlGraphJson(json);
 			
 		
+			// spool uploaded data to a temp file, to be streamed by the dataset instead of held in memory
 			String dataFileContent = null;
-			if(fromFiles) { dataFileContent = new String( ((MultipartFile)dataFile).getBytes() ); }
+			if(fromFiles) { 
+				dataTempFile = File.createTempFile("ingestion", ".csv");
+				((MultipartFile)dataFile).transferTo(dataTempFile);
+				LocalLogger.logToStdErr("data size: "  + dataTempFile.length() + " bytes");
+			}
 			else{ 
 				dataFileContent = (String)dataFile ; 
-			}
-			
-			if(dataFileContent != null){
-				LocalLogger.logToStdErr("data size: "  + dataFileContent.length());
-			}
-			else{
-				LocalLogger.logToStdErr("data content was null");
+				if(dataFileContent != null){
+					LocalLogger.logToStdErr("data size: "  + dataFileContent.length());
+				}
+				else{
+					LocalLogger.logToStdErr("data content was null");
+				}
 			}
 					
 			// get the connection override, if any
@@ -206,7 +268,14 @@ public class IngestionRestController {
 			}
 					
 			// get a CSV data set to use in the load. 
-			Dataset ds = new CSVDataset(dataFileContent, true);
+			Dataset ds = null;
+			if(dataTempFile != null){
+				CSVDataset csvDs = new CSVDataset(dataTempFile.getPath(), false);
+				csvDs.setParallelParsing(prop.getParseThreads());
+				ds = csvDs;
+			}else{
+				ds = new CSVDataset(dataFileContent, true);
+			}
 
 			// perform actual load
 			Calendar cal = Calendar.getInstance();
@@ -216,6 +285,27 @@ public class IngestionRestController {
 			}
 						
 			DataLoader dl = new DataLoader(sgJson, prop.getBatchSize(), ds, sparqlEndpointUser, sparqlEndpointPassword);
+			dl.setInsertBudget(prop.getMaxInsertChars(), prop.getMaxInsertTriples());
+			dl.setTargetInsertLatency(prop.getTargetInsertMsec());
+			dl.setBulkLoad(prop.getBulkLoad());
+			dl.setStagePreflight(prop.getStagePreflight());
+			
+			LoadCheckpoint checkpoint = null;
+			if(loadId != null){
+				if(dataTempFile == null){
+					throw new Exception("Checkpointed loads need the data as a file");
+				}
+				File checkpointDir = this.getCheckpointDir();
+				if(resume && !LoadCheckpoint.exists(checkpointDir, loadId)){
+					throw new Exception("No checkpoint for load " + loadId + ": it finished, or never started");
+				}
+				if(!resume && LoadCheckpoint.exists(checkpointDir, loadId)){
+					throw new Exception("Load " + loadId + " already has a checkpoint: use /fromCsvFileResume");
+				}
+				// same template and data:  resuming against anything else would skip the wrong records
+				checkpoint = new LoadCheckpoint(checkpointDir, loadId, LoadCheckpoint.fingerprint(templateContent, dataTempFile));
+				dl.setCheckpoint(checkpoint);
+			}
 			
 			recordsProcessed = dl.importData(safeLoad); 	// defaulting to preflight.
 	
@@ -226,10 +316,10 @@ public class IngestionRestController {
 			}
 			
 			// set success values
-			if(safeLoad && dl.getLoadingErrorReport().getRows().size() == 0){
+			if(safeLoad && dl.getLoadingErrorReport().getNumRows() == 0){
 				retval.setSuccess(true);
 			}
-			else if(safeLoad && dl.getLoadingErrorReport().getRows().size() != 0){
+			else if(safeLoad && dl.getLoadingErrorReport().getNumRows() != 0){
 				retval.setSuccess(false);
 			}
 			else if(!safeLoad && recordsProcessed > 0){
@@ -239,8 +329,14 @@ public class IngestionRestController {
 				retval.setSuccess(false);
 			}			
 			
+			if(checkpoint != null && dl.getLoadStats() != null && dl.getLoadStats().getInsertFailures() > 0){
+				retval.setSuccess(false);
+				retval.addRationaleMessage("ingestion", "fromCsvFile*", "Load " + loadId + " did not finish: resume it with /fromCsvFileResume");
+			}
+			
 			retval.setRecordsProcessed(recordsProcessed);
-			retval.setFailuresEncountered(dl.getLoadingErrorReport().getRows().size());
+			retval.setFailuresEncountered(dl.getLoadingErrorReport().getNumRows());
+			retval.setLoadSettings(dl.getLoadSettings());
 			retval.addResults(dl.getLoadingErrorReport());
 		} catch (Exception e) {
 			// TODO write failure JSONObject to return and return it.
@@ -248,6 +344,10 @@ public class IngestionRestController {
 			
 			retval.setSuccess(false);
 			retval.addRationaleMessage("ingestion", "fromCsv*", e);
+		} finally {
+			if(dataTempFile != null && !dataTempFile.delete()){
+				LocalLogger.logToStdErr("could not delete temp file " + dataTempFile.getPath());
+			}
 		}
 		if(logger != null){ // always checking if we are actually logging. 
 			// what are we returning
@@ -294,6 +394,10 @@ public class IngestionRestController {
 			
 			// perform actual load
 			DataLoader dl = new DataLoader(new SparqlGraphJson(json), prop.getBatchSize(), ds, sparqlEndpointUser, sparqlEndpointPassword);
+			dl.setInsertBudget(prop.getMaxInsertChars(), prop.getMaxInsertTriples());
+			dl.setTargetInsertLatency(prop.getTargetInsertMsec());
+			dl.setBulkLoad(prop.getBulkLoad());
+			dl.setStagePreflight(prop.getStagePreflight());
 			recordsProcessed = dl.importData(true);	// defaulting to preflight.
 	
 			retval.setSuccess(true);
@@ -340,6 +444,10 @@ public class IngestionRestController {
 			
 			// perform actual load
 			DataLoader dl = new DataLoader(new SparqlGraphJson(json), prop.getBatchSize(), ds, sparqlEndpointUser, sparqlEndpointPassword);
+			dl.setInsertBudget(prop.getMaxInsertChars(), prop.getMaxInsertTriples());
+			dl.setTargetInsertLatency(prop.getTargetInsertMsec());
+			dl.setBulkLoad(prop.getBulkLoad());
+			dl.setStagePreflight(prop.getStagePreflight());
 			recordsProcessed = dl.importData(true);	// defaulting to preflight.
 	
 			retval.setSuccess(true);
@@ -357,6 +465,143 @@ public class IngestionRestController {
 		return retval.toJson();
 	}	
 	
+	/**
+	 * Start an async load:  read the request here, since the uploaded files only last as long as the request,
+	 * then queue the load on the bounded async pool.
+	 */
+	private JSONObject fromCsvFileAsync(MultipartFile templateFile, MultipartFile dataFile, boolean safeLoad){
+		String jobId = "job_" + UUID.randomUUID();
+		SimpleResultSet retval = new SimpleResultSet(true);
+		retval.addResult("jobId", jobId);
+		File dataTempFile = null;
+		
+		try {
+			SparqlGraphJson sgJson = new SparqlGraphJson((JSONObject) (new JSONParser()).parse(new String(templateFile.getBytes())));
+			dataTempFile = File.createTempFile("ingestion", ".csv");
+			dataFile.transferTo(dataTempFile);
+			LocalLogger.logToStdErr(jobId + " data size: " + dataTempFile.length() + " bytes");
+			
+			this.getStatusClient(jobId).execSetPercentComplete(0, "Queued");
+			final File data = dataTempFile;
+			this.getAsyncLoads().execute(() -> this.runAsyncLoad(jobId, sgJson, data, safeLoad));
+			dataTempFile = null;		// the load deletes it
+			
+		} catch (Exception e) {
+			LocalLogger.printStackTrace(e);
+			retval.setSuccess(false);
+			if (e instanceof RejectedExecutionException) {
+				retval.addRationaleMessage("ingestion", "fromCsvFileAsync", "Too many loads queued: try again later");
+			} else {
+				retval.addRationaleMessage("ingestion", "fromCsvFileAsync", e);
+			}
+			this.setJobFailure(jobId, "Load was not started: " + e.getMessage());
+			
+		} finally {
+			if(dataTempFile != null && !dataTempFile.delete()){
+				LocalLogger.logToStdErr("could not delete temp file " + dataTempFile.getPath());
+			}
+		}
+		return retval.toJson();
+	}
+	
+	/**
+	 * Run an async load, reporting to the status and results services
+	 */
+	private void runAsyncLoad(String jobId, SparqlGraphJson sgJson, File dataTempFile, boolean safeLoad){
+		try {
+			StatusClient statusClient = this.getStatusClient(jobId);
+			statusClient.execSetPercentComplete(0, "Loading");
+			
+			CSVDataset ds = new CSVDataset(dataTempFile.getPath(), false);
+			ds.setParallelParsing(prop.getParseThreads());
+			DataLoader dl = new DataLoader(sgJson, prop.getBatchSize(), ds, prop.getSparqlUserName(), prop.getSparqlPassword());
+			dl.setInsertBudget(prop.getMaxInsertChars(), prop.getMaxInsertTriples());
+			dl.setTargetInsertLatency(prop.getTargetInsertMsec());
+			dl.setBulkLoad(prop.getBulkLoad());
+			dl.setStagePreflight(prop.getStagePreflight());
+			dl.setProgressListener((preflight, records, expected, recordsPerSec) -> {
+				// percent is only known once a preflight has counted the records
+				int percent = (!preflight && expected > 0) ? (int) Math.min(99, records * 100 / expected) : 0;
+				String message = String.format("%s: %d records, %.0f records/sec", preflight ? "Checking" : "Loading", records, recordsPerSec);
+				try {
+					statusClient.execSetPercentComplete(percent, message);
+				} catch (Exception e) {
+					LocalLogger.logToStdErr(jobId + " could not update status: " + e.getMessage());
+				}
+			}, ASYNC_PROGRESS_MSEC);
+			
+			int recordsProcessed = dl.importData(safeLoad);
+			
+			int failures = dl.getLoadingErrorReport().getNumRows();
+			ResultsClient resultsClient = new ResultsClient(new ResultsClientConfig(prop.getResultsServiceProtocol(), prop.getResultsServiceServer(), prop.getResultsServicePort()));
+			resultsClient.execStoreTableResults(jobId, dl.getLoadingErrorReport());
+			
+			long insertFailures = (dl.getLoadStats() == null) ? 0 : dl.getLoadStats().getInsertFailures();
+			String summary = "Records processed: " + recordsProcessed + ", failures: " + failures + ", failed inserts: " + insertFailures;
+			if (recordsProcessed > 0 && failures == 0 && insertFailures == 0) {
+				statusClient.execSetSuccess(summary);
+			} else {
+				statusClient.execSetFailure(summary);
+			}
+			LocalLogger.logToStdErr(jobId + " " + summary);
+			
+		} catch (Exception e) {
+			LocalLogger.printStackTrace(e);
+			this.setJobFailure(jobId, e.getMessage());
+			
+		} finally {
+			if(!dataTempFile.delete()){
+				LocalLogger.logToStdErr("could not delete temp file " + dataTempFile.getPath());
+			}
+		}
+	}
+	
+	private synchronized ThreadPoolExecutor getAsyncLoads(){
+		if(this.asyncLoads == null){
+			int threads = Math.max(1, prop.getAsyncThreads());
+			this.asyncLoads = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, prop.getAsyncQueueSize())), r -> {
+				Thread t = new Thread(r, "ingestion-async-load");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return this.asyncLoads;
+	}
+	
+	/**
+	 * Give running async loads a while to finish, then stop them.  Queued loads never start.
+	 */
+	@PreDestroy
+	public synchronized void shutdownAsyncLoads() throws InterruptedException {
+		if(this.asyncLoads != null){
+			this.asyncLoads.shutdown();
+			if(!this.asyncLoads.awaitTermination(ASYNC_SHUTDOWN_SEC, TimeUnit.SECONDS)){
+				int dropped = this.asyncLoads.shutdownNow().size();
+				LocalLogger.logToStdErr("Stopped running async loads at shutdown; " + dropped + " queued loads not started");
+			}
+		}
+	}
+	
+	private StatusClient getStatusClient(String jobId) throws Exception {
+		return new StatusClient(new StatusClientConfig(prop.getStatusServiceProtocol(), prop.getStatusServiceServer(), prop.getStatusServicePort(), jobId));
+	}
+	
+	private void setJobFailure(String jobId, String message){
+		try {
+			this.getStatusClient(jobId).execSetFailure(message != null ? message : "Load failed");
+		} catch (Exception e) {
+			LocalLogger.logToStdErr(jobId + " could not update status: " + e.getMessage());
+		}
+	}
+	
+	private File getCheckpointDir(){
+		String dir = prop.getCheckpointDir();
+		if(dir == null || dir.isEmpty()){
+			return new File(System.getProperty("java.io.tmpdir"), "ingestionCheckpoints");
+		}
+		return new File(dir);
+	}
+	
 	private LoggerRestClient loggerConfigInitialization(LoggerRestClient logger, LoggerClientConfig lcc){
 		// send a log of the load having occurred.
 		try{	// wrapped in a try block because logging never announces a failure.
@@ -21,6 +21,9 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
+import com.ge.research.semtk.sparqlX.SparqlHttpClientPool;
+import com.ge.research.semtk.utility.LocalLogger;
 import com.ge.research.semtk.utility.Utility;
 
 import java.util.TreeMap;
@@ -45,7 +48,21 @@ public class IngestionServiceStartup implements ApplicationListener<ApplicationR
 		  properties.put(propertyName, event.getApplicationContext().getEnvironment().getProperty(propertyName));
 	  }
 	  Utility.validatePropertiesAndExitOnFailure(properties); 
-	   
+	  
+	  // size the shared triple store connection pool
+	  try {
+		  SparqlHttpClientPool.configure(event.getApplicationContext().getEnvironment()::getProperty);
+	  } catch (Exception e) {
+		  LocalLogger.printStackTrace(e);
+	  }
+	  
+	  // ontology cache lifetime, change checks and warm-start snapshots
+	  try {
+		  OntologyInfoCache.configureShared(event.getApplicationContext().getEnvironment()::getProperty);
+	  } catch (Exception e) {
+		  LocalLogger.printStackTrace(e);
+	  }
+	  
 	  return;
   }
  
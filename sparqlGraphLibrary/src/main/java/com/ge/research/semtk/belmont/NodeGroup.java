@@ -50,6 +50,9 @@ public class NodeGroup {
 	private static final String JSON_KEY_NODELIST = "sNodeList";
 	
 	private static final int VERSION = 8;
+
+	// scheme of the URIs inserts give blank nodes:  iri() is handed this unexpanded, so they are absolute
+	public final static String BLANK_URI_PREFIX = "generateSparqlInsert:";
 	// actually used to keep track of our nodes and the nomenclature in use. 
 	private HashMap<String, String> sparqlNameHash = null;
 	private ArrayList<Node> nodes = new ArrayList<Node>();
@@ -2260,41 +2263,34 @@ public class NodeGroup {
 	 */
 	public static String generateCombinedSparqlInsert(ArrayList<NodeGroup> ngList, OntologyInfo oInfo) throws Exception {
 		
-		HashMap<String, String> prefixHash = new HashMap<String, String>();
-		String totalInsertHead = "";
-		String totalInsertWhere = "";
-		NodeGroup ng = null;
-		
-		for (int i=0; i < ngList.size(); i++) {
-			ng = ngList.get(i);
-			
-			// pass prefixHash on to next nodegroup
-			if(i > 0){
-				ng.rebuildPrefixHash(prefixHash);	// add new elements, as needed.
-			}
-			prefixHash = ng.getPrefixHash();
-			
-			String seq = "__" + i;
-			totalInsertHead  += ng.getInsertLeader(seq, oInfo);
-			totalInsertWhere += ng.getInsertWhereBody(seq, oInfo);
-				
+		SparqlInsertWriter writer = new SparqlInsertWriter(oInfo);
+		for (NodeGroup ng : ngList) {
+			writer.add(ng);
 		}
-		
-		// NOTE: the last NodeGroup should have all the prefixes of all the needed groups.
-		//       this way, we only need to get it's prefixes. 
-		
-		String query =  ng.generateSparqlPrefix() + " INSERT { " + totalInsertHead + " } WHERE { " + totalInsertWhere + " } ";
-		
-		return query;
+		return writer.getQuery().toString();
 	}
 
 	public String getInsertLeader(String sparqlIDSuffix, OntologyInfo oInfo) throws Exception  {
+		StringBuilder retval = new StringBuilder();
+		this.appendInsertLeader(retval, sparqlIDSuffix, oInfo);
+		return retval.toString();
+	}
+	
+	/**
+	 * Append the top section of the insert statement
+	 * @param retval - where to append
+	 * @param sparqlIDSuffix - post-fix for sparqlIDs, or null
+	 * @param oInfo
+	 * @return number of triples appended
+	 * @throws Exception
+	 */
+	public int appendInsertLeader(StringBuilder retval, String sparqlIDSuffix, OntologyInfo oInfo) throws Exception  {
 		// this method creates the top section of the insert statements.
 		// the single argument is used to post-fix the sparqlIDs, if required. 
 		// this is used in the generation of bulk insertions. 
 		this.buildPrefixHash();
 		
-		String retval = "";
+		int triples = 0;
 		if(sparqlIDSuffix == null){ sparqlIDSuffix = "";}
 		
 		// loop through the nodes and get any values we may need. 
@@ -2324,31 +2320,61 @@ public class NodeGroup {
 			// only add this node if the current instance should be included. 
 			if((!currIsEnum) || (currIsEnum && !currInstanceBlank)){   
 				if(!currIsEnum){	// do not include type info when the target is an enum...
-					retval += "\t" + sparqlID + " a " + this.getPrefixedUri(curr.getFullUriName()) + " . \n";
+					retval.append("\t").append(sparqlID).append(" a ").append(this.getPrefixedUri(curr.getFullUriName())).append(" . \n");
+					triples++;
 				}
 				// insert each property we know of. 
 				for(PropertyItem prop : curr.getPropertyItems()){
 					for(String inst : prop.getInstanceValues()){
-						retval += "\t" + sparqlID + " " + this.getPrefixedUri(prop.getUriRelationship()) + " \"" + inst + "\"^^" + this.getPrefixedUri("http://www.w3.org/2001/XMLSchema#" + prop.getValueType()) + " .\n";  
+						retval.append("\t").append(sparqlID).append(" ").append(this.getPrefixedUri(prop.getUriRelationship())).append(" \"").append(inst).append("\"^^").append(this.getPrefixedUri("http://www.w3.org/2001/XMLSchema#" + prop.getValueType())).append(" .\n");  
+						triples++;
 					}
 				}
 				
 				// insert a line for each node item
 				for(NodeItem ni : curr.getNodeItemList()){
 					for(Node currentConnection : ni.getNodeList()){
-						retval += "\t" + sparqlID + " " + this.getPrefixedUri(ni.getUriConnectBy()) + " " + currentConnection.getSparqlID() + sparqlIDSuffix + " .\n";
+						retval.append("\t").append(sparqlID).append(" ").append(this.getPrefixedUri(ni.getUriConnectBy())).append(" ").append(currentConnection.getSparqlID()).append(sparqlIDSuffix).append(" .\n");
+						triples++;
 					}
 				}
 			}
 		}
 		
-		return retval;
+		return triples;
 	}
 	
+	/**
+	 * URI an insert gives a node's instance value.
+	 * A value without a namespace goes in UriResolver.DEFAULT_URI_PREFIX, which makes it a relative IRI.
+	 */
+	public static String getInsertUri(String instanceValue) {
+		return instanceValue.contains("#") ? instanceValue : UriResolver.DEFAULT_URI_PREFIX + instanceValue;
+	}
+
+	/**
+	 * New URI for a blank node, the same as an insert creates:  BLANK_URI_PREFIX and a UUID.
+	 */
+	public static String generateBlankUri() {
+		return BLANK_URI_PREFIX + UUID.randomUUID().toString();
+	}
+
 	public String getInsertWhereBody(String sparqlIDSuffix, OntologyInfo oInfo) throws Exception  {
+		StringBuilder sparql = new StringBuilder();
+		this.appendInsertWhereBody(sparql, sparqlIDSuffix, oInfo);
+		return sparql.toString();
+	}
+	
+	/**
+	 * Append the where clause body of the insert statement
+	 * @param sparql - where to append
+	 * @param sparqlIDSuffix - post-fix for sparqlIDs, or null
+	 * @param oInfo
+	 * @throws Exception
+	 */
+	public void appendInsertWhereBody(StringBuilder sparql, String sparqlIDSuffix, OntologyInfo oInfo) throws Exception  {
 		
 		this.buildPrefixHash();
-		StringBuilder sparql = new StringBuilder();
 		
 		if (sparqlIDSuffix == null) {
 			sparqlIDSuffix = "";
@@ -2369,11 +2395,7 @@ public class NodeGroup {
 			// node was specified
 			if (!currInstanceBlank) {
 				
-				String nodeVal = node.getInstanceValue();
-				
-				if(!nodeVal.contains("#")){
-					nodeVal = UriResolver.DEFAULT_URI_PREFIX + nodeVal;
-				}
+				String nodeVal = getInsertUri(node.getInstanceValue());
 				
 //				sparql.append("\tBIND (<").append(nodeVal).append("> AS ").append(sparqlId).append(").\n");
 				sparql.append("\tBIND (").append(this.getPrefixedUri(nodeVal)).append(" AS ").append(sparqlId).append(").\n");
@@ -2413,7 +2435,7 @@ public class NodeGroup {
 						//	.append(UUID.randomUUID().toString()).append("\")) AS ")
 						//	.append(sparqlId).append(").\n");
 						
-						sparql.append("\tBIND (iri(concat(\"" + this.getPrefixedUri(UriResolver.DEFAULT_URI_PREFIX) + "\", \"")
+						sparql.append("\tBIND (iri(concat(\"" + BLANK_URI_PREFIX + "\", \"")
 							.append(UUID.randomUUID().toString()).append("\")) AS ")
 							.append(sparqlId).append(").\n");
 						
@@ -2423,8 +2445,6 @@ public class NodeGroup {
 			}
 			
 		}
-		
-		return sparql.toString();
 	}
 
 	public JSONObject toJson()  {
@@ -0,0 +1,135 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.belmont;
+
+import java.util.HashMap;
+
+import com.ge.research.semtk.ontologyTools.OntologyInfo;
+
+/**
+ * Builds one INSERT for a group of nodegroups, which must be identical except for their instance data.
+ *
+ * Nodegroups are added one at a time and their triples appended, so building is linear in the size of the insert,
+ * and the caller can send the insert once it reaches a size or triple budget:
+ *
+ *     writer.add(ng);
+ *     if (writer.isFull(maxChars, maxTriples)) {
+ *         endpoint.executeQuery(writer.getQueryParts(), SparqlResultTypes.CONFIRM);
+ *         writer.reset();
+ *     }
+ *
+ * getQueryParts() lets the endpoint encode the insert straight into the request body without joining it into one string.
+ */
+public class SparqlInsertWriter {
+
+	private OntologyInfo oInfo = null;
+
+	private HashMap<String, String> prefixHash = null;
+	private NodeGroup lastNodeGroup = null;    // holds prefixes of all nodegroups added
+	private StringBuilder insertHead = new StringBuilder();
+	private StringBuilder insertWhere = new StringBuilder();
+	private int nodeGroupCount = 0;
+	private int tripleCount = 0;
+
+	public SparqlInsertWriter(OntologyInfo oInfo) {
+		this.oInfo = oInfo;
+	}
+
+	/**
+	 * Add a nodegroup's triples to the insert
+	 * @param ng - WARNING: will add to prefixHash as side-effect
+	 * @throws Exception
+	 */
+	public void add(NodeGroup ng) throws Exception {
+
+		// pass prefixHash on to next nodegroup
+		if (this.lastNodeGroup != null) {
+			ng.rebuildPrefixHash(this.prefixHash);	// add new elements, as needed.
+		}
+		this.prefixHash = ng.getPrefixHash();
+
+		String seq = "__" + this.nodeGroupCount;
+		this.tripleCount += ng.appendInsertLeader(this.insertHead, seq, this.oInfo);
+		ng.appendInsertWhereBody(this.insertWhere, seq, this.oInfo);
+
+		this.lastNodeGroup = ng;
+		this.nodeGroupCount += 1;
+	}
+
+	public int getNodeGroupCount() {
+		return this.nodeGroupCount;
+	}
+
+	public int getTripleCount() {
+		return this.tripleCount;
+	}
+
+	/**
+	 * Length of the insert and where clauses, not counting prefixes
+	 */
+	public int getLength() {
+		return this.insertHead.length() + this.insertWhere.length();
+	}
+
+	/**
+	 * Has the insert reached either budget.
+	 * Budgets are checked after each nodegroup, so an insert may go over by one nodegroup.
+	 * @param maxChars - length budget, or 0 for none
+	 * @param maxTriples - triple budget, or 0 for none
+	 */
+	public boolean isFull(int maxChars, int maxTriples) {
+		return (maxChars > 0 && this.getLength() >= maxChars) || (maxTriples > 0 && this.tripleCount >= maxTriples);
+	}
+
+	/**
+	 * The insert as pieces that joined together make the whole query
+	 */
+	public CharSequence [] getQueryParts() {
+		// NOTE: the last NodeGroup should have all the prefixes of all the needed groups.
+		//       this way, we only need to get it's prefixes.
+		String prefix = (this.lastNodeGroup == null) ? "" : this.lastNodeGroup.generateSparqlPrefix();
+
+		return new CharSequence [] { prefix, " INSERT { ", this.insertHead, " } WHERE { ", this.insertWhere, " } " };
+	}
+
+	public StringBuilder getQuery() {
+		CharSequence [] parts = this.getQueryParts();
+		int len = 0;
+		for (CharSequence p : parts) {
+			len += p.length();
+		}
+		StringBuilder ret = new StringBuilder(len);
+		for (CharSequence p : parts) {
+			ret.append(p);
+		}
+		return ret;
+	}
+
+	/**
+	 * Start a new insert
+	 */
+	public void reset() {
+		this.prefixHash = null;
+		this.lastNodeGroup = null;
+		this.insertHead = new StringBuilder();
+		this.insertWhere = new StringBuilder();
+		this.nodeGroupCount = 0;
+		this.tripleCount = 0;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.belmont;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+import com.ge.research.semtk.ontologyTools.OntologyInfo;
+
+/**
+ * Writes instance-data nodegroups as turtle, one triple per line, for a triple store's bulk upload.
+ *
+ * Produces the same triples as NodeGroup.generateSparqlInsert() would insert:
+ *    node with an instance value      - NodeGroup.getInsertUri()
+ *    blank node                       - NodeGroup.generateBlankUri(), as the insert's BIND(iri(concat(...)))
+ *    blank enumeration                - dropped, with the edges to it
+ *    literal values                   - "value"^^xsd:type, already escaped by the import spec
+ *
+ * Some nodegroups can't be written, and are left to a SPARQL insert:  see canWrite().
+ * A blank node constrained by its property values only exists in the insert's WHERE clause
+ * (it matches data already in the triple store).
+ * A relative URI, e.g. an instance value in UriResolver.DEFAULT_URI_PREFIX, would be resolved against
+ * the upload's base rather than the query's, so the two loads would give it different URIs.
+ *
+ * Like SparqlInsertWriter, callers add nodegroups and send the chunk once it reaches a budget:
+ *
+ *     writer.add(ng);
+ *     if (writer.isFull(maxChars, maxTriples)) {
+ *         endpoint.executeAuthUploadTurtle(writer.getBytes());
+ *         writer.reset();
+ *     }
+ */
+public class TurtleWriter {
+
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+	private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+	private static final Pattern ABSOLUTE_URI = Pattern.compile("[A-Za-z][A-Za-z0-9+.-]*:");		// has a scheme
+
+	private OntologyInfo oInfo = null;
+
+	private StringBuilder turtle = new StringBuilder();
+	private int nodeGroupCount = 0;
+	private int tripleCount = 0;
+
+	public TurtleWriter(OntologyInfo oInfo) {
+		this.oInfo = oInfo;
+	}
+
+	/**
+	 * Can the nodegroup be written as turtle with the same URIs an insert would give it
+	 * @param ng
+	 * @return false if some blank node must be matched against the triple store, or some instance URI is relative
+	 */
+	public boolean canWrite(NodeGroup ng) {
+		for (Node node : ng.getNodeList()) {
+			String val = node.getInstanceValue();
+			if (isBlank(val)) {
+				if (!this.oInfo.classIsEnumeration(node.getFullUriName()) && !node.getConstrainedPropertyObjects().isEmpty()) {
+					return false;
+				}
+			} else if (!ABSOLUTE_URI.matcher(NodeGroup.getInsertUri(val)).lookingAt()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add a nodegroup's triples
+	 * @param ng
+	 * @throws Exception - if !canWrite(ng)
+	 */
+	public void add(NodeGroup ng) throws Exception {
+		if (!this.canWrite(ng)) {
+			throw new Exception("Nodegroup has a constrained node with no instance value, or a relative instance URI, which needs a SPARQL insert.");
+		}
+
+		// pick every node's URI first, so edges can point forward
+		HashMap<Node, String> uris = new HashMap<Node, String>();
+		for (Node node : ng.getNodeList()) {
+			String val = node.getInstanceValue();
+			if (!isBlank(val)) {
+				uris.put(node, NodeGroup.getInsertUri(val));
+			} else if (!this.oInfo.classIsEnumeration(node.getFullUriName())) {
+				uris.put(node, NodeGroup.generateBlankUri());
+			}
+		}
+
+		for (Node node : ng.getNodeList()) {
+			String subject = uris.get(node);
+			if (subject == null) {
+				continue;
+			}
+
+			if (!this.oInfo.classIsEnumeration(node.getFullUriName())) {
+				this.appendUri(subject).appendUri(RDF_TYPE).appendUri(node.getFullUriName()).endTriple();
+			}
+			for (PropertyItem prop : node.getPropertyItems()) {
+				for (String inst : prop.getInstanceValues()) {
+					this.appendUri(subject).appendUri(prop.getUriRelationship());
+					this.turtle.append('"').append(inst).append("\"^^<").append(XSD).append(prop.getValueType()).append("> ");
+					this.endTriple();
+				}
+			}
+			for (NodeItem ni : node.getNodeItemList()) {
+				for (Node target : ni.getNodeList()) {
+					String object = uris.get(target);
+					if (object != null) {
+						this.appendUri(subject).appendUri(ni.getUriConnectBy()).appendUri(object).endTriple();
+					}
+				}
+			}
+		}
+		this.nodeGroupCount += 1;
+	}
+
+	public int getNodeGroupCount() {
+		return this.nodeGroupCount;
+	}
+
+	public int getTripleCount() {
+		return this.tripleCount;
+	}
+
+	public int getLength() {
+		return this.turtle.length();
+	}
+
+	/**
+	 * Has the chunk reached either budget.
+	 * @param maxChars - length budget, or 0 for none
+	 * @param maxTriples - triple budget, or 0 for none
+	 */
+	public boolean isFull(int maxChars, int maxTriples) {
+		return (maxChars > 0 && this.getLength() >= maxChars) || (maxTriples > 0 && this.tripleCount >= maxTriples);
+	}
+
+	public String getTurtle() {
+		return this.turtle.toString();
+	}
+
+	public byte [] getBytes() {
+		return this.getTurtle().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Start a new chunk
+	 */
+	public void reset() {
+		this.turtle = new StringBuilder();
+		this.nodeGroupCount = 0;
+		this.tripleCount = 0;
+	}
+
+	private TurtleWriter appendUri(String uri) {
+		this.turtle.append('<').append(uri).append("> ");
+		return this;
+	}
+
+	private void endTriple() {
+		this.turtle.append(".\n");
+		this.tripleCount += 1;
+	}
+
+	private static boolean isBlank(String val) {
+		return val == null || val.isEmpty();
+	}
+}
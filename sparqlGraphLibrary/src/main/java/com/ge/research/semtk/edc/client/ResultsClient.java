@@ -18,22 +18,38 @@
 
 package com.ge.research.semtk.edc.client;
 
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
 import com.ge.research.semtk.load.dataset.CSVDataset;
+import com.ge.research.semtk.resultSet.ColumnarTable;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.NodeGroupResultSet;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.resultSet.Table;
 import com.ge.research.semtk.resultSet.TableResultSet;
 import com.ge.research.semtk.services.client.RestClient;
+import com.ge.research.semtk.sparqlX.TableCursor;
 import com.ge.research.semtk.utility.LocalLogger;
 import com.ge.research.semtk.utility.Utility;
 
@@ -42,6 +58,8 @@ public class ResultsClient extends RestClient implements Runnable {
 	// batch sizes for sending and retrieving results.  These can be tuned.
 	private int BATCH_SIZE_SEND = 5000;
 	private int BATCH_SIZE_RETRIEVE = 50000;
+	private int SEND_THREADS = 4;			// max batches being sent at once
+	private int FETCH_THREADS = 4;			// max row ranges being retrieved at once
 	
 	public ResultsClient (ResultsClientConfig config) {
 		this.conf = config;
@@ -139,6 +157,7 @@ public class ResultsClient extends RestClient implements Runnable {
 	/**
 	 * Store a table (as json).  
 	 * Uses 3 endpoints to initialize, incrementally add data, and finalize the result.
+	 * Batches of rows are encoded in parallel and several are sent at once.
 	 * @param contents
 	 * @throws Exception
 	 */
@@ -147,113 +166,192 @@ public class ResultsClient extends RestClient implements Runnable {
 		// chunk up the table by size and then send all the chunks. 
 		// hopefully, this will avoid sending anything too large to the results service
 		
-		int tableRowsDone = 0;
-		int totalRows     = table.getNumRows();
+		int totalRows = table.getNumRows();
 		
-		long startTime=0, endTime=0;
-		double prepSec = 0.0;
-		double sendSec = 0.0;
-		boolean timerFlag = false;
-		
-		Thread thread = null;
-
 		// write the start of the JSON
-		conf.setServiceEndpoint("results/storeTableResultsJsonInitialize"); 
-		this.parametersJSON.put("jobId", jobId);
-		this.parametersJSON.put("jsonRenderedHeader", createNewHeaderMap(table).toJSONString());
-		thread = new Thread(this);
-		thread.start();
+		JSONObject initParams = new JSONObject();
+		initParams.put("jobId", jobId);
+		initParams.put("jsonRenderedHeader", createNewHeaderMap(table).toJSONString());
 		
-		// do formatting tasks in parallel
-		formatTableElements(table);		// escapes double quotes
+		SegmentUploader uploader = new SegmentUploader(jobId, initParams);
+		try {
+			// write the data rows to JSON, in batches
+			for (int startRow = 0; startRow < totalRows; startRow += this.BATCH_SIZE_SEND) {
+				final int first = startRow;
+				final int last = Math.min(startRow + this.BATCH_SIZE_SEND, totalRows);
+				uploader.send(() -> encodeRows(table, first, last));
+			}
+			uploader.finish();
+		} finally {
+			uploader.shutdown();
+		}
 		
-		// write the data rows to JSON, in batches
-		while(tableRowsDone < totalRows){
-			if (timerFlag) { startTime = System.nanoTime();}
-			int tableRowsAtStart = tableRowsDone;
-			// get the next few rows.
-			StringBuilder resultsSoFar = new StringBuilder();
-
-			// get the next allocation of rows. 
-			for(int i = 0; i < this.BATCH_SIZE_SEND; i++){
+		// write the end of the JSON
+		JSONObject finalizeParams = new JSONObject();
+		finalizeParams.put("jobId", jobId);
+		this.execStoreCall("results/storeTableResultsJsonFinalize", finalizeParams);
+	}
+		
+	/**
+	 * Store a table (as json) while it is being read from a cursor, in constant memory.
+	 * Rows are read in batches on this thread, while earlier batches are encoded and sent.
+	 * The row count and column types are only known once the cursor is exhausted,
+	 * so the final header is sent with the finalize call.
+	 * Closes the cursor.
+	 * @return number of rows stored
+	 */
+	@SuppressWarnings("unchecked")
+	public long execStoreTableResults(String jobId, TableCursor cursor) throws ConnectException, EndpointNotFoundException, Exception {
+		long rowsDone = 0;
+		SegmentUploader uploader = null;
+		
+		try {
+			// the first batch gives the initial header some column types
+			Table batch = cursor.nextBatch(this.BATCH_SIZE_SEND);
+			
+			// write the start of the JSON
+			JSONObject header = createNewHeaderMap(batch);
+			header.put(Table.JSON_KEY_ROW_COUNT, batch.getNumRows());
+			JSONObject initParams = new JSONObject();
+			initParams.put("jobId", jobId);
+			initParams.put("jsonRenderedHeader", header.toJSONString());
+			uploader = new SegmentUploader(jobId, initParams);
+			
+			// write the data rows to JSON, in batches
+			while (batch.getNumRows() > 0) {
+				final Table rows = batch;
+				uploader.send(() -> encodeRows(rows, 0, rows.getNumRows()));
+				rowsDone += batch.getNumRows();
 				
-				if(!(tableRowsDone < table.getNumRows())){
-					break;	// processed all rows - we're done
-				}
-				try{
-
-					resultsSoFar.append("[");
-					ArrayList<String> row = table.getRow(tableRowsDone);
-					for(int j = 0; j < row.size(); j++){
-						resultsSoFar.append("\"").append(row.get(j)).append("\"");	// enclose in quotes (tried putting in thread, but resulted in worse performance)
-						if(j < row.size() - 1){
-							resultsSoFar.append(",");								// don't append comma to the last element of the row
-						}
-					}
-					resultsSoFar.append("]");
-					
-					// each row has: 1) internal double quotes escaped 2) elements surrounded by double quotes 3) enclosing brackets
-
-					tableRowsDone += 1;
-					
-					if(i < BATCH_SIZE_SEND - 1){
-						resultsSoFar.append("\n");
-					}
-				}
-				catch(IndexOutOfBoundsException eek){
-					// we have run out of rows. the remaining rows were fewer than the block size. just note this and move on.
-					i = this.BATCH_SIZE_SEND;
-				}
-
+				// read the next batch while earlier ones are encoded and sent
+				batch = cursor.nextBatch(this.BATCH_SIZE_SEND);
 			}
-
-			// fail if tableRowsDone has not changed. this implies that even the first result was too large.
-			if((tableRowsDone == tableRowsAtStart) && (tableRowsDone < totalRows)){
-				throw new Exception("unable to write results. there is a row size which is too large. row number was " + tableRowsDone + " of a total " + totalRows + ".");
+			uploader.finish();
+			
+			// write the end of the JSON, with the final header
+			header = createNewHeaderMap(batch);
+			header.put(Table.JSON_KEY_ROW_COUNT, rowsDone);
+			JSONObject finalizeParams = new JSONObject();
+			finalizeParams.put("jobId", jobId);
+			finalizeParams.put("rowCount", rowsDone);
+			finalizeParams.put("jsonRenderedHeader", header.toJSONString());
+			this.execStoreCall("results/storeTableResultsJsonFinalize", finalizeParams);
+			
+			return rowsDone;
+			
+		} finally {
+			cursor.close();
+			if (uploader != null) {
+				uploader.shutdown();
 			}
-
-			if (timerFlag) { 
-				endTime = System.nanoTime();
-				prepSec += ((endTime - startTime) / 1000000000.0);
-				LocalLogger.logToStdErr(String.format("tot prep=%.2f sec", prepSec));
-				startTime = endTime;
+		}
+	}
+	
+	/**
+	 * Encode rows as json rows, one per line.
+	 * Each row has: 1) internal double quotes escaped 2) elements surrounded by double quotes 3) enclosing brackets
+	 * The table is not changed.
+	 */
+	private static String encodeRows(Table table, int startRow, int endRow) throws Exception {
+		StringBuilder resultsSoFar = new StringBuilder();
+		for (int i = startRow; i < endRow; i++) {
+			ArrayList<String> row = table.getRow(i);
+			resultsSoFar.append("[");
+			for (int j = 0; j < row.size(); j++) {
+				resultsSoFar.append("\"").append(Utility.escapeJsonString(row.get(j))).append("\"");
+				if (j < row.size() - 1) {
+					resultsSoFar.append(",");		// don't append comma to the last element of the row
+				}
 			}
-
-			// wait for previous batch to finish
-			waitForThreadToFinish(thread);
-			conf.setServiceEndpoint(null);			
-			
-			// send the current batch  
-			conf.setServiceEndpoint("results/storeTableResultsJsonAddIncremental"); 
-			this.parametersJSON.put("contents", Utility.compress(resultsSoFar.toString())); 
-			this.parametersJSON.put("jobId", jobId);
-			thread = new Thread(this);
-			thread.start();
-
-			if (timerFlag) { 
-				endTime = System.nanoTime();
-				sendSec += ((endTime - startTime) / 1000000000.0);
-				LocalLogger.logToStdErr(String.format("tot send=%.2f sec", sendSec));
-				startTime = endTime;
+			resultsSoFar.append("]");
+			if (i < endRow - 1) {
+				resultsSoFar.append("\n");
+			}
+		}
+		return resultsSoFar.toString();
+	}
+	
+	/**
+	 * Make one call to a table storage endpoint on a client of its own, so calls can run concurrently.
+	 */
+	private void execStoreCall(String endpoint, JSONObject params) throws Exception {
+		ResultsClientConfig callConf = new ResultsClientConfig(conf.getServiceProtocol(), conf.getServiceServer(), conf.getServicePort());
+		callConf.setServiceEndpoint(endpoint);
+		ResultsClient client = new ResultsClient(callConf);
+		client.parametersJSON = params;
+		SimpleResultSet res = SimpleResultSet.fromJson((JSONObject) client.execute(false));
+		res.throwExceptionIfUnsuccessful();
+	}
+	
+	/**
+	 * Bounded pipeline that sends batches of rows to storeTableResultsJsonAddIncremental:
+	 * batches are encoded and compressed in parallel, up to SEND_THREADS are in flight at once,
+	 * and each carries a segment number so the results service stores them in order.
+	 * send() blocks once too many batches are waiting, so memory stays bounded.
+	 */
+	private class SegmentUploader {
+		private final String jobId;
+		private final ExecutorService encoders;
+		private final ExecutorService senders;
+		private final Future<?> initialize;
+		private final ArrayDeque<Future<?>> inFlight = new ArrayDeque<Future<?>>();
+		private int nextSegment = 0;
+		
+		/**
+		 * Starts the initialize call.  Segments are not sent until it succeeds.
+		 */
+		public SegmentUploader(String jobId, JSONObject initParams) {
+			this.jobId = jobId;
+			this.encoders = Executors.newFixedThreadPool(Math.max(1, Math.min(SEND_THREADS, Runtime.getRuntime().availableProcessors())));
+			this.senders = Executors.newFixedThreadPool(SEND_THREADS);
+			this.initialize = this.senders.submit(() -> {
+				execStoreCall("results/storeTableResultsJsonInitialize", initParams);
+				return null;
+			});
+		}
+		
+		@SuppressWarnings("unchecked")
+		public void send(Callable<String> rowEncoder) throws Exception {
+			while (this.inFlight.size() >= 2 * SEND_THREADS) {
+				waitFor(this.inFlight.removeFirst());
 			}
-		} // end of while loop.
+			final int segment = this.nextSegment++;
+			final Future<String> contents = this.encoders.submit(() -> Utility.compress(rowEncoder.call()));
+			this.inFlight.addLast(this.senders.submit(() -> {
+				waitFor(this.initialize);
+				JSONObject params = new JSONObject();
+				params.put("jobId", this.jobId);
+				params.put("segmentNumber", segment);
+				params.put("contents", waitFor(contents));
+				execStoreCall("results/storeTableResultsJsonAddIncremental", params);
+				return null;
+			}));
+		}
 		
-		// wait for the final batch to finish
-		waitForThreadToFinish(thread);
+		/**
+		 * Wait for everything to be stored.  Throws the first failure.
+		 */
+		public void finish() throws Exception {
+			waitFor(this.initialize);
+			while (!this.inFlight.isEmpty()) {
+				waitFor(this.inFlight.removeFirst());
+			}
+		}
 		
-		// write the end of the JSON
-		conf.setServiceEndpoint("results/storeTableResultsJsonFinalize"); 
-		this.parametersJSON.put("jobId", jobId);
-		thread = new Thread(this);
-		thread.start();
-		// wait for the finalize run to finish
-		waitForThreadToFinish(thread);
-
-		if (timerFlag) { LocalLogger.logToStdErr(String.format("prep=%.2f sec   send=%.2f sec", prepSec, sendSec)); }
+		public void shutdown() {
+			this.encoders.shutdownNow();
+			this.senders.shutdownNow();
+		}
 		
-		return;
+		private <T> T waitFor(Future<T> future) throws Exception {
+			try {
+				return future.get();
+			} catch (ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
 	}
-		
+	
 	private JSONObject createNewHeaderMap(Table table) throws Exception {
 		return table.getHeaderJson();
 	}
@@ -263,100 +361,199 @@ public class ResultsClient extends RestClient implements Runnable {
 	 * Get results (possibly truncated) in JSON format for a job
 	 * @return a TableResultSet object
 	 */
-	@SuppressWarnings("unchecked")
 	public TableResultSet execTableResultsJson(String jobId, Integer maxRows) throws ConnectException, EndpointNotFoundException, Exception {
-
-		ArrayList<Thread> threads = new ArrayList<Thread>();	
-		ArrayList<ResultsClient> clients = new ArrayList<ResultsClient>();
-		try {
-			int numRowsToRetrieve = getNumRows(jobId);
-			if(maxRows != null && maxRows < numRowsToRetrieve){
-				numRowsToRetrieve = maxRows.intValue();
-			}
-			int numBatches = (int)Math.ceil((double)numRowsToRetrieve / (double)BATCH_SIZE_RETRIEVE);  
-			
-			if(numBatches == 0){
-				// fixes an issue where the results cannot be returned when the result set had no rows. 
-				numBatches = 1;
-			}
-			
-			ArrayList<TableResultSet> resultSets = new ArrayList<TableResultSet>();
-			
-			// kick off all threads
-			for(int i = 0; i < numBatches; i++){
-				
-				// set request parameters
-				conf.setServiceEndpoint("results/getTableResultsJson");
-				this.parametersJSON.put("jobId", jobId);
-				this.parametersJSON.put("startRow", i * BATCH_SIZE_RETRIEVE);
-				if(i < numBatches - 1){
-					this.parametersJSON.put("maxRows", BATCH_SIZE_RETRIEVE); 
-				}else{
-					this.parametersJSON.put("maxRows", numRowsToRetrieve - (i * BATCH_SIZE_RETRIEVE)); // last batch
-				}		
-				
-				// kick off a thread using a "copy" of the client (necessary to avoid overwrites)  TODO find a cleaner way
-				ResultsClient client = new ResultsClient((ResultsClientConfig) conf); 
-				client.parametersJSON = (JSONObject) this.parametersJSON.clone(); 
-				Thread thread = new Thread(client);
-				clients.add(client);
-				threads.add(thread);
-				thread.start();						// execute
-				this.parametersJSON.clear();  		// clear parameters for next time	
-			}
-			
-			// wait for threads to finish
-			for(int i = 0; i < threads.size(); i++){
-				threads.get(i).join();
-				TableResultSet resultSet = clients.get(i).getRunResAsTableResultSet();
-				resultSet.throwExceptionIfUnsuccessful();
-				resultSets.add(resultSet);
-			}
-			
-			// merge batch results into a single TableResultSets
-			TableResultSet ret = TableResultSet.merge(resultSets);		
-			
-			// clean up
-			for(TableResultSet trs : resultSets){
-				trs = null;
-			}
-			for(ResultsClient client : clients){
-				client = null;
+		final ArrayList<ColumnarTable> table = new ArrayList<ColumnarTable>(1);
+		
+		this.execTableResultsJson(jobId, maxRows, new TableRowSink() {
+			public void startTable(String[] colNames, String[] colTypes) throws Exception {
+				table.add(new ColumnarTable(colNames, colTypes));
 			}
-			for(Thread thread : threads){
-				thread = null;
+			public void addRow(String[] row) throws Exception {
+				table.get(0).addRow(row);
 			}
-			
-			return ret;			
-		} finally {
-			// reset conf and parametersJSON
-			conf.setServiceEndpoint(null);
-			this.parametersJSON.clear();
-		}
-	}		
+		});
+		
+		TableResultSet ret = new TableResultSet(true);
+		ret.setTable(table.get(0));
+		return ret;
+	}
+	
+	/**
+	 * Get results (possibly truncated) in JSON format for a job, passing rows to a sink instead of building a Table.
+	 * Ranges of BATCH_SIZE_RETRIEVE rows are fetched concurrently and decoded as they arrive.
+	 * The sink gets them in row order.
+	 * @return the number of rows
+	 */
+	@SuppressWarnings("unchecked")
+	public long execTableResultsJson(String jobId, Integer maxRows, TableRowSink sink) throws ConnectException, EndpointNotFoundException, Exception {
+		return this.fetchRangesInOrder(jobId, maxRows, 
+				(startRow, numRows) -> {
+					JSONObject params = new JSONObject();
+					params.put("jobId", jobId);
+					params.put("startRow", startRow);
+					params.put("maxRows", numRows);
+					CloseableHttpResponse response = this.postForStream("results/getTableResultsJson", params);
+					try {
+						TableResultsJsonDecoder decoder = new TableResultsJsonDecoder(response.getEntity().getContent());
+						Table ret = decoder.decodeTable();
+						decoder.close();
+						// service writes status last, and only when the whole table was written
+						if (!"success".equals(decoder.getStatus())) {
+							throw new Exception("Failed retrieving results for job " + jobId + " at row " + startRow + ": status " + decoder.getStatus());
+						}
+						if (ret.getNumRows() != numRows) {
+							throw new Exception("Failed retrieving results for job " + jobId + " at row " + startRow + ": expected " + numRows + " rows, got " + ret.getNumRows());
+						}
+						return ret;
+					} finally {
+						response.close();
+					}
+				},
+				(range, rows) -> {
+					if (range == 0) {
+						sink.startTable(rows.getColumnNames(), rows.getColumnTypes());
+					}
+					for (int i = 0; i < rows.getNumRows(); i++) {
+						String [] row = new String[rows.getNumColumns()];
+						for (int j = 0; j < row.length; j++) {
+							row[j] = rows.getCell(i, j);
+						}
+						sink.addRow(row);
+					}
+				});
+	}
 
 	/**
 	 * Get results (possibly truncated) in CSV format for a job
 	 * @return a CSVDataset object
 	 */
-	@SuppressWarnings("unchecked")
 	public CSVDataset execTableResultsCsv(String jobId, Integer maxRows) throws ConnectException, EndpointNotFoundException, Exception {
-		conf.setServiceEndpoint("results/getTableResultsCsv");
-		this.parametersJSON.put("jobId", jobId);
-		if(maxRows != null){
-			this.parametersJSON.put("maxRows", maxRows.intValue());
+		StringWriter writer = new StringWriter();
+		this.execTableResultsCsv(jobId, maxRows, writer);
+		return new CSVDataset(writer.toString(), true);
+	}
+	
+	/**
+	 * Write results (possibly truncated) in CSV format for a job.
+	 * Ranges of BATCH_SIZE_RETRIEVE rows are fetched concurrently and written in row order:
+	 * the output is the same as a single getTableResultsCsv call.
+	 * @return the number of rows
+	 */
+	@SuppressWarnings("unchecked")
+	public long execTableResultsCsv(String jobId, Integer maxRows, Writer sink) throws ConnectException, EndpointNotFoundException, Exception {
+		final boolean [] rowsWritten = { false };
+		
+		long ret = this.fetchRangesInOrder(jobId, maxRows, 
+				(startRow, numRows) -> {
+					JSONObject params = new JSONObject();
+					params.put("jobId", jobId);
+					params.put("startRow", startRow);
+					params.put("maxRows", numRows);
+					params.put("appendDownloadHeaders", false);
+					CloseableHttpResponse response = this.postForStream("results/getTableResultsCsv", params);
+					try {
+						return EntityUtils.toString(response.getEntity(), "UTF-8");
+					} finally {
+						response.close();
+					}
+				},
+				(range, csv) -> {
+					// each range is a header line followed by rows separated by newlines
+					int headerEnd = csv.indexOf('\n');
+					if (headerEnd < 0) {
+						throw new Exception("Unexpected CSV results for job " + jobId + ": " + csv.substring(0, Math.min(csv.length(), 200)));
+					}
+					if (range == 0) {
+						sink.write(csv, 0, headerEnd + 1);
+					}
+					if (headerEnd + 1 < csv.length()) {
+						if (rowsWritten[0]) {
+							sink.write("\n");
+						}
+						sink.write(csv, headerEnd + 1, csv.length() - headerEnd - 1);
+						rowsWritten[0] = true;
+					}
+				});
+		sink.flush();
+		return ret;
+	}
+	
+	private interface RangeFetcher<T> {
+		T fetch(int startRow, int numRows) throws Exception;
+	}
+	
+	private interface RangeConsumer<T> {
+		void consume(int range, T result) throws Exception;
+	}
+	
+	/**
+	 * Split a job's rows into ranges of BATCH_SIZE_RETRIEVE, fetch up to FETCH_THREADS at once,
+	 * and hand each result to the consumer in row order.  At most 2 * FETCH_THREADS results are held at once.
+	 * There is always at least one range, so the consumer sees the table header even if there are no rows.
+	 * @return the number of rows
+	 */
+	private <T> long fetchRangesInOrder(String jobId, Integer maxRows, RangeFetcher<T> fetcher, RangeConsumer<T> consumer) throws Exception {
+		int numRowsToRetrieve = getNumRows(jobId);
+		if(maxRows != null && maxRows < numRowsToRetrieve){
+			numRowsToRetrieve = maxRows.intValue();
 		}
-		this.parametersJSON.put("appendDownloadHeaders", false);
-
+		final int totalRows = numRowsToRetrieve;
+		int numRanges = Math.max(1, (int)Math.ceil((double)totalRows / (double)BATCH_SIZE_RETRIEVE));
+		
+		ExecutorService fetchers = Executors.newFixedThreadPool(Math.min(FETCH_THREADS, numRanges));
 		try {
-			String s = (String) super.execute(true);  // true to return raw response (not parseable into JSON)
-			return new CSVDataset(s, true);
+			ArrayDeque<Future<T>> inFlight = new ArrayDeque<Future<T>>();
+			int nextToFetch = 0;
+			for (int range = 0; range < numRanges; range++) {
+				while (nextToFetch < numRanges && inFlight.size() < 2 * FETCH_THREADS) {
+					final int startRow = nextToFetch * BATCH_SIZE_RETRIEVE;
+					inFlight.addLast(fetchers.submit(() -> fetcher.fetch(startRow, Math.min(BATCH_SIZE_RETRIEVE, totalRows - startRow))));
+					nextToFetch++;
+				}
+				
+				T result;
+				try {
+					result = inFlight.removeFirst().get();
+				} catch (ExecutionException e) {
+					throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				}
+				consumer.consume(range, result);
+			}
+			return totalRows;
 		} finally {
-			// reset conf and parametersJSON
-			conf.setServiceEndpoint(null);
-			this.parametersJSON.clear();
+			fetchers.shutdownNow();
 		}
-	}	
+	}
+	
+	/**
+	 * Post to a results service endpoint over a pooled connection (see ResultsHttpClient), leaving the response open to be streamed.
+	 * Caller must close the response.
+	 * @throws Exception if the service does not return HTTP 200
+	 */
+	private CloseableHttpResponse postForStream(String endpoint, JSONObject params) throws Exception {
+		HttpPost post = new HttpPost(conf.getServiceProtocol() + "://" + conf.getServiceServer() + ":" + conf.getServicePort() + "/" + endpoint);
+		post.setEntity(new ByteArrayEntity(params.toJSONString().getBytes("UTF-8")));
+		post.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+		
+		CloseableHttpResponse response;
+		try {
+			response = ResultsHttpClient.get((ResultsClientConfig) this.conf).execute(post);
+		} catch (Exception e) {
+			throw new Exception(String.format("Error connecting to %s", post.getURI()), e);
+		}
+		
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode != HttpStatus.SC_OK) {
+			String body;
+			try {
+				body = EntityUtils.toString(response.getEntity(), "UTF-8");
+			} finally {
+				response.close();
+			}
+			throw new Exception(String.format("%s returned HTTP %d: %s", post.getURI(), statusCode, body.substring(0, Math.min(body.length(), 200))));
+		}
+		return response;
+	}
 	
 	/**
 	 * This is for backwards compatibility only.
@@ -398,45 +595,6 @@ public class ResultsClient extends RestClient implements Runnable {
 		}
 	}
 	
-	/**
-	 * Iterate through each table element, and format: 1) escape internal quotes
-	 */
-	private void formatTableElements(Table table) throws InterruptedException{
-		
-		int THREAD_BATCH_SIZE = 100;	// number of rows for each thread to handle
-		ArrayList<TableFormatter> threads = new ArrayList<TableFormatter>();
-		
-		for(int i = 0; i < table.getNumRows(); i += THREAD_BATCH_SIZE){
-			int startIndex = i;
-			int endIndex = i + THREAD_BATCH_SIZE;
-			if(endIndex > table.getNumRows()){
-				endIndex = table.getNumRows();
-			}
-			TableFormatter thread = new TableFormatter(table.getRows(), startIndex, endIndex);
-			threads.add(thread);
-			thread.start();
-		}
-		
-		// wait for all threads to finish
-		for(TableFormatter t : threads){
-			t.join();
-		}
-	}
-
-	/**
-	 * Waits for the thread to finish, and throws an exception if not successful
-	 */
-	private void waitForThreadToFinish(Thread thread) throws Exception{
-		if (thread != null) {
-			thread.join();
-			(this.getRunResAsSimpleResultSet()).throwExceptionIfUnsuccessful();
-			if (this.getRunException() != null) {
-				throw this.getRunException();
-			}
-		}
-		this.parametersJSON.clear();  // clear parameters for next time
-	}
-	
 	/**
 	 * Execute a service call to get number of result rows for a given job.
 	 * @throws Exception 
@@ -456,30 +614,3 @@ public class ResultsClient extends RestClient implements Runnable {
 
 }
 
-
-/**
- * Thread to format a subset of a table
- * Note: tried enclosing each element in double quotes here as well, but resulted in overall worse performance
- */
-class TableFormatter extends Thread{  
-
-	private ArrayList<ArrayList<String>> rows;
-	private int startIndex, endIndex;
-
-	public TableFormatter(ArrayList<ArrayList<String>> rows, int startIndex, int endIndex){
-		this.rows = rows;
-		this.startIndex = startIndex;
-		this.endIndex = endIndex;
-	}
-
-	public void run(){  
-		// Make regular strings into legal json strings
-		for(int i = startIndex; i < endIndex; i++){
-			for(int j = 0; j < rows.get(i).size(); j++){	
-				String curr = rows.get(i).get(j);
-				rows.get(i).set(j, Utility.escapeJsonString(curr));
-			}
-		}
-	} 
-}
-
@@ -26,11 +26,57 @@ import com.ge.research.semtk.services.client.RestClientConfig;
  * Identical to the StatusClientConfig at the moment
  */
 public class ResultsClientConfig extends RestClientConfig {
+	
+	// connections that ResultsClient streams table results over, pooled per results service and settings
+	public static final int DEFAULT_MAX_CONNECTIONS = 20;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MSEC = 10 * 1000;
+	public static final int DEFAULT_SOCKET_TIMEOUT_MSEC = 5 * 60 * 1000;
+	
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	private int connectTimeoutMsec = DEFAULT_CONNECT_TIMEOUT_MSEC;
+	private int socketTimeoutMsec = DEFAULT_SOCKET_TIMEOUT_MSEC;
+	
 	public ResultsClientConfig(String serviceProtocol,String serviceServer, int servicePort) throws Exception {
 		super(serviceProtocol, serviceServer, servicePort, "fake");
 		this.setServiceEndpoint(null); // TODO this is a wonky way to circumvent the service endpoint -PEC
 	}
 	
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+	
+	/**
+	 * Max pooled connections to the results service for streaming table results
+	 */
+	public void setMaxConnections(int maxConnections) throws Exception {
+		if (maxConnections < 1) {
+			throw new Exception("Max connections must be at least 1: " + maxConnections);
+		}
+		this.maxConnections = maxConnections;
+	}
+	
+	public int getConnectTimeoutMsec() {
+		return connectTimeoutMsec;
+	}
+	
+	/**
+	 * Timeout for connecting, and for waiting on a free pooled connection
+	 */
+	public void setConnectTimeoutMsec(int connectTimeoutMsec) {
+		this.connectTimeoutMsec = connectTimeoutMsec;
+	}
+	
+	public int getSocketTimeoutMsec() {
+		return socketTimeoutMsec;
+	}
+	
+	/**
+	 * Read timeout while streaming table results
+	 */
+	public void setSocketTimeoutMsec(int socketTimeoutMsec) {
+		this.socketTimeoutMsec = socketTimeoutMsec;
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void addParameters(JSONObject param) {
 		
@@ -0,0 +1,69 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.edc.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Pooled, keep-alive HTTP clients that ResultsClient streams table results over.
+ *
+ * ResultsClients are made per request, so the clients are shared:  one per results service
+ * and ResultsClientConfig connection settings, kept for the life of the JVM.
+ */
+class ResultsHttpClient {
+
+	private static final int IDLE_EVICT_SEC = 60;
+
+	private static final ConcurrentHashMap<String, CloseableHttpClient> clients = new ConcurrentHashMap<String, CloseableHttpClient>();
+
+	/**
+	 * Get the client for a results service, creating it if needed
+	 */
+	static CloseableHttpClient get(ResultsClientConfig conf) {
+		String key = String.format("%s://%s:%d %d %d %d", conf.getServiceProtocol(), conf.getServiceServer(), conf.getServicePort(),
+				conf.getMaxConnections(), conf.getConnectTimeoutMsec(), conf.getSocketTimeoutMsec());
+		return clients.computeIfAbsent(key, k -> create(conf));
+	}
+
+	private static CloseableHttpClient create(ResultsClientConfig conf) {
+		// everything goes to one host, so the route and total limits are the same
+		PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+		connManager.setMaxTotal(conf.getMaxConnections());
+		connManager.setDefaultMaxPerRoute(conf.getMaxConnections());
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(conf.getConnectTimeoutMsec())
+				.setConnectionRequestTimeout(conf.getConnectTimeoutMsec())
+				.setSocketTimeout(conf.getSocketTimeoutMsec())
+				.build();
+
+		return HttpClients.custom()
+				.setConnectionManager(connManager)
+				.setDefaultRequestConfig(requestConfig)
+				.evictExpiredConnections()
+				.evictIdleConnections((long) IDLE_EVICT_SEC, TimeUnit.SECONDS)
+				.build();
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.edc.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import com.ge.research.semtk.resultSet.ColumnarTable;
+import com.ge.research.semtk.resultSet.Table;
+import com.ge.research.semtk.utility.JsonTokenizer;
+
+/**
+ * Streaming decoder for a results service getTableResultsJson response.
+ * Rows are handed back one at a time as they arrive.
+ *
+ * Sample input:
+ * {"message":"operations succeeded.","table":{"@table":{"row_count" : 2,"col_count" : 2,
+ *    "col_names" : ["colA","colB"],"col_type" : ["String","String"],"rows" : [["a1","b1"],["a2","b2"]]}},"status":"success"}
+ */
+public class TableResultsJsonDecoder implements Closeable {
+
+	private static final String ERROR_PREFIX = "Cannot parse table results into JSON";
+
+	private final JsonTokenizer json;
+
+	private String[] colNames = null;
+	private String[] colTypes = null;
+	private String status = null;
+
+	private boolean inRows = false;
+
+	public TableResultsJsonDecoder(InputStream is) {
+		this(new InputStreamReader(is, StandardCharsets.UTF_8));
+	}
+
+	public TableResultsJsonDecoder(Reader reader) {
+		this.json = new JsonTokenizer(reader, ERROR_PREFIX);
+	}
+
+	public String[] getColumnNames() throws Exception {
+		this.advanceToRows();
+		return this.colNames;
+	}
+
+	public String[] getColumnTypes() throws Exception {
+		this.advanceToRows();
+		return this.colTypes;
+	}
+
+	/**
+	 * Read the next row
+	 * @return cell values, or null when there are no more rows
+	 */
+	public String[] nextRow() throws Exception {
+		this.advanceToRows();
+		if (!this.inRows) {
+			return null;
+		}
+
+		String [] row = new String[this.colNames.length];
+		this.json.expect('[');
+		int col = 0;
+		if (!this.json.atEnd(']')) {
+			do {
+				if (col >= row.length) {
+					throw new Exception("Table results row has more than " + row.length + " cells");
+				}
+				row[col++] = this.json.readString();
+			} while (this.json.nextElement(']'));
+		}
+		if (col != row.length) {
+			throw new Exception("Table results row has " + col + " cells, expected " + row.length);
+		}
+
+		if (!this.json.nextElement(']')) {
+			this.inRows = false;
+			this.finishDocument();
+		}
+		return row;
+	}
+
+	/**
+	 * Read all remaining rows into a (columnar) Table
+	 */
+	public Table decodeTable() throws Exception {
+		ColumnarTable table = new ColumnarTable(this.getColumnNames(), this.getColumnTypes());
+		String [] row;
+		while ((row = this.nextRow()) != null) {
+			table.addRow(row);
+		}
+		return table;
+	}
+
+	/**
+	 * The response's "status", once all rows have been read
+	 */
+	public String getStatus() {
+		return this.status;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.json.close();
+	}
+
+	/**
+	 * Walk into {"table":{"@table":{ ... "rows":[ reading the column names and types on the way
+	 */
+	private void advanceToRows() throws Exception {
+		if (this.colNames != null) {
+			return;
+		}
+		if (this.json.peekNonWs() != '{') {
+			throw new Exception(ERROR_PREFIX + ": " + this.json.readErrorText());
+		}
+		this.json.next();
+		if (this.json.atEnd('}')) {
+			throw new Exception("Table results response has no table");
+		}
+
+		do {
+			String key = this.json.readString();
+			this.json.expect(':');
+			if (key.equals("table")) {
+				this.json.expect('{');
+				if (!this.json.atEnd('}')) {
+					do {
+						String tableKey = this.json.readString();
+						this.json.expect(':');
+						if (tableKey.equals("@table")) {
+							this.readTableHeader();
+							return;
+						}
+						this.json.skipValue();
+					} while (this.json.nextElement('}'));
+				}
+			} else if (key.equals("status")) {
+				this.status = this.json.readString();
+			} else {
+				this.json.skipValue();
+			}
+		} while (this.json.nextElement('}'));
+
+		throw new Exception("Table results response has no table (status: " + this.status + ")");
+	}
+
+	/**
+	 * Read the table's keys up to and into its rows array
+	 */
+	private void readTableHeader() throws Exception {
+		this.json.expect('{');
+		if (!this.json.atEnd('}')) {
+			do {
+				String key = this.json.readString();
+				this.json.expect(':');
+				if (key.equals(Table.JSON_KEY_COL_NAMES)) {
+					this.colNames = this.readStringArray();
+				} else if (key.equals(Table.JSON_KEY_COL_TYPES)) {
+					this.colTypes = this.readStringArray();
+				} else if (key.equals(Table.JSON_KEY_ROWS)) {
+					if (this.colNames == null || this.colTypes == null) {
+						throw new Exception("Table results rows arrived before column names and types");
+					}
+					this.json.expect('[');
+					if (this.json.atEnd(']')) {
+						this.finishDocument();
+					} else {
+						this.inRows = true;
+					}
+					return;
+				} else {
+					this.json.skipValue();
+				}
+			} while (this.json.nextElement('}'));
+		}
+		if (this.colNames == null || this.colTypes == null) {
+			throw new Exception("Table results response has no column names or types");
+		}
+		// no rows key:  the table object is already closed
+		this.finishTableObject();
+	}
+
+	/**
+	 * After the rows array:  close the table objects and read the remaining top-level keys
+	 */
+	private void finishDocument() throws Exception {
+		// rest of @table
+		while (this.json.nextElement('}')) {
+			this.json.readString();
+			this.json.expect(':');
+			this.json.skipValue();
+		}
+		this.finishTableObject();
+	}
+
+	private void finishTableObject() throws Exception {
+		// rest of table
+		while (this.json.nextElement('}')) {
+			this.json.readString();
+			this.json.expect(':');
+			this.json.skipValue();
+		}
+		// rest of the response
+		while (this.json.nextElement('}')) {
+			String key = this.json.readString();
+			this.json.expect(':');
+			if (key.equals("status")) {
+				this.status = this.json.readString();
+			} else {
+				this.json.skipValue();
+			}
+		}
+	}
+
+	private String[] readStringArray() throws Exception {
+		ArrayList<String> ret = new ArrayList<String>();
+		this.json.expect('[');
+		if (!this.json.atEnd(']')) {
+			do {
+				ret.add(this.json.readString());
+			} while (this.json.nextElement(']'));
+		}
+		return ret.toArray(new String[ret.size()]);
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.edc.client;
+
+/**
+ * Receives table results a row at a time, in row order (e.g. to write them out without building a Table)
+ */
+public interface TableRowSink {
+
+	/**
+	 * Called once, before any rows
+	 */
+	public void startTable(String[] colNames, String[] colTypes) throws Exception;
+
+	public void addRow(String[] row) throws Exception;
+}
@@ -45,12 +45,8 @@ public abstract class GeneralResultsStorage {
 		if(contents == null){ contents = ""; }
 		else{ contents += "\n"; }
 		
-		String filename = "results_" + jobID;
-		
-		if(writeToResultsFile){ filename = filename + "_data.dat";}
-		else{ filename = filename + "_metadata.json"; }
-		
-		Path path = Paths.get(fileLocation, filename);
+		Path path = getFilePath(jobID, writeToResultsFile);
+		String filename = path.getFileName().toString();
 		
 		try {
 			Files.write(path, contents.getBytes(), StandardOpenOption.APPEND);
@@ -72,6 +68,33 @@ public abstract class GeneralResultsStorage {
 		else{ return path.toString(); }
 	}
 	
+	/**
+	 * Replace the contents of the results file for a given job id.
+	 * @param jobID the job id
+	 * @param contents the data to write
+	 * @param writeToResultsFile "true" if writing to the results data, "false" for writing to the metadata file
+	 * @return the file name
+	 */
+	protected String rewriteFile(String jobID, String contents, Boolean writeToResultsFile) throws Exception {
+		Path path = getFilePath(jobID, writeToResultsFile);
+		Files.write(path, (contents + "\n").getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		
+		if(!writeToResultsFile){ return path.getFileName().toString(); }
+		else{ return path.toString(); }
+	}
+	
+	/**
+	 * Get the path of the data or metadata file for a given job id
+	 */
+	protected Path getFilePath(String jobID, Boolean resultsFile) {
+		String filename = "results_" + jobID;
+		
+		if(resultsFile){ filename = filename + "_data.dat";}
+		else{ filename = filename + "_metadata.json"; }
+		
+		return Paths.get(fileLocation, filename);
+	}
+	
 	/**
 	 * Get a URL for a given file name
 	 */
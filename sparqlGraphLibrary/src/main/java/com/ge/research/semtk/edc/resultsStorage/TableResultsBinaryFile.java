@@ -0,0 +1,415 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.edc.resultsStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary data file for table results:  a sequence of compressed row groups ("blocks").
+ *
+ * Rows arrive as json row lines ["a1","b1","c1"] and are served back as exactly the same lines,
+ * so the JSON and CSV downloads are unchanged.  Each storeTableResultsJsonAddIncremental batch becomes one block.
+ *
+ * File layout:
+ *    MAGIC
+ *    block*
+ * Block layout:
+ *    byte type, int numRows, int uncompressedLength, int compressedLength, deflated payload
+ * DICT payload:  cells of each column are dictionary-encoded (cell text is stored still json-escaped)
+ *    int numCols
+ *    per column:  int dictSize, dictSize strings, byte codeWidth (1, 2 or 4), numRows codes
+ * LINES payload:  fallback for rows that aren't simple lists of quoted strings
+ *    numRows strings
+ * Strings are int byte length and UTF-8 bytes.
+ */
+public class TableResultsBinaryFile {
+
+	private static final byte[] MAGIC = "SEMTKTB1".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte BLOCK_DICT = 0;
+	private static final byte BLOCK_LINES = 1;
+	private static final int BLOCK_HEADER_BYTES = 13;
+
+	/**
+	 * Start a new, empty binary data file
+	 */
+	public static void createFile(File dataFile) throws IOException {
+		FileOutputStream out = new FileOutputStream(dataFile, false);
+		try {
+			out.write(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Is this a binary data file
+	 */
+	public static boolean isBinaryFile(File dataFile) throws IOException {
+		if (dataFile.length() < MAGIC.length) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+		try {
+			byte [] head = new byte[MAGIC.length];
+			raf.readFully(head);
+			return Arrays.equals(head, MAGIC);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Append rows as one block
+	 * @param contents json row lines separated by newlines.  Blank lines are not rows.
+	 */
+	public static void appendRows(File dataFile, String contents) throws IOException {
+		ArrayList<String> lines = new ArrayList<String>();
+		for (String line : contents.split("\n")) {
+			if (!line.isEmpty()) {
+				lines.add(line);
+			}
+		}
+		if (lines.size() == 0) {
+			return;
+		}
+
+		// try to split every row into cells
+		ArrayList<String[]> rows = new ArrayList<String[]>(lines.size());
+		for (String line : lines) {
+			String [] cells = splitRowLine(line);
+			if (cells == null || (rows.size() > 0 && cells.length != rows.get(0).length)) {
+				rows = null;
+				break;
+			}
+			rows.add(cells);
+		}
+
+		ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(contents.length());
+		DataOutputStream payload = new DataOutputStream(payloadBytes);
+		byte type;
+		if (rows != null) {
+			type = BLOCK_DICT;
+			writeDictPayload(payload, rows);
+		} else {
+			type = BLOCK_LINES;
+			for (String line : lines) {
+				writeString(payload, line);
+			}
+		}
+		payload.flush();
+		byte [] uncompressed = payloadBytes.toByteArray();
+		byte [] compressed = deflate(uncompressed);
+
+		ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(BLOCK_HEADER_BYTES + compressed.length);
+		DataOutputStream block = new DataOutputStream(blockBytes);
+		block.writeByte(type);
+		block.writeInt(lines.size());
+		block.writeInt(uncompressed.length);
+		block.writeInt(compressed.length);
+		block.write(compressed);
+		block.flush();
+
+		FileOutputStream out = new FileOutputStream(dataFile, true);
+		try {
+			out.write(blockBytes.toByteArray());
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Count rows by reading only block headers
+	 */
+	public static long countRows(File dataFile) throws IOException {
+		RowReader reader = new RowReader(dataFile, Long.MAX_VALUE);
+		try {
+			return reader.rowsSkipped;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads json row lines from a binary data file, starting at any row.
+	 * Skipped blocks are never read or decompressed.
+	 */
+	public static class RowReader implements Closeable {
+		private final RandomAccessFile raf;
+		private long rowsSkipped = 0;
+
+		// current block
+		private byte blockType;
+		private int blockRows = 0;
+		private int nextRow = 0;
+		private String [] lines;        // LINES block
+		private String [][] dicts;      // DICT block, per column
+		private int [][] codes;         // DICT block, per column
+
+		public RowReader(File dataFile, long startRow) throws IOException {
+			this.raf = new RandomAccessFile(dataFile, "r");
+			try {
+				byte [] head = new byte[MAGIC.length];
+				this.raf.readFully(head);
+				if (!Arrays.equals(head, MAGIC)) {
+					throw new IOException("Not a binary table results file: " + dataFile.getPath());
+				}
+				// hop over whole blocks before startRow
+				while (this.raf.getFilePointer() < this.raf.length()) {
+					this.raf.skipBytes(1);
+					int numRows = this.raf.readInt();
+					if (this.rowsSkipped + numRows > startRow) {
+						this.raf.seek(this.raf.getFilePointer() - 5);
+						break;
+					}
+					this.raf.skipBytes(4);
+					int compressedLength = this.raf.readInt();
+					this.raf.seek(this.raf.getFilePointer() + compressedLength);
+					this.rowsSkipped += numRows;
+				}
+				// position within the block
+				if (startRow > this.rowsSkipped && this.readBlock()) {
+					this.nextRow = (int) (startRow - this.rowsSkipped);
+				}
+			} catch (IOException e) {
+				this.raf.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Get the next row as a json row line
+		 * @return the line, or null at the end of the file
+		 */
+		public String readRowLine() throws IOException {
+			if (this.nextRow >= this.blockRows && !this.readBlock()) {
+				return null;
+			}
+			int row = this.nextRow++;
+			if (this.blockType == BLOCK_LINES) {
+				return this.lines[row];
+			}
+			StringBuilder ret = new StringBuilder("[");
+			for (int c = 0; c < this.dicts.length; c++) {
+				if (c > 0) {
+					ret.append(",");
+				}
+				ret.append("\"").append(this.dicts[c][this.codes[c][row]]).append("\"");
+			}
+			return ret.append("]").toString();
+		}
+
+		private boolean readBlock() throws IOException {
+			if (this.raf.getFilePointer() >= this.raf.length()) {
+				return false;
+			}
+			this.blockType = this.raf.readByte();
+			this.blockRows = this.raf.readInt();
+			int uncompressedLength = this.raf.readInt();
+			byte [] compressed = new byte[this.raf.readInt()];
+			this.raf.readFully(compressed);
+			this.nextRow = 0;
+
+			DataInputStream payload = new DataInputStream(new ByteArrayInputStream(inflate(compressed, uncompressedLength)));
+			if (this.blockType == BLOCK_LINES) {
+				this.lines = new String[this.blockRows];
+				for (int r = 0; r < this.blockRows; r++) {
+					this.lines[r] = readString(payload);
+				}
+			} else if (this.blockType == BLOCK_DICT) {
+				int numCols = payload.readInt();
+				this.dicts = new String[numCols][];
+				this.codes = new int[numCols][];
+				for (int c = 0; c < numCols; c++) {
+					this.dicts[c] = new String[payload.readInt()];
+					for (int d = 0; d < this.dicts[c].length; d++) {
+						this.dicts[c][d] = readString(payload);
+					}
+					this.codes[c] = readCodes(payload, this.blockRows);
+				}
+			} else {
+				throw new IOException("Unknown table results block type: " + this.blockType);
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.raf.close();
+		}
+	}
+
+	/**
+	 * Split a json row line of quoted strings into cell text, still escaped.
+	 * @return cells, or null if the line isn't exactly ["a","b",...]
+	 */
+	private static String[] splitRowLine(String line) {
+		int len = line.length();
+		if (len < 2 || line.charAt(0) != '[' || line.charAt(len - 1) != ']') {
+			return null;
+		}
+		ArrayList<String> cells = new ArrayList<String>();
+		int i = 1;
+		if (len == 2) {
+			return new String[0];
+		}
+		while (true) {
+			if (i >= len || line.charAt(i) != '"') {
+				return null;
+			}
+			int start = ++i;
+			while (i < len && line.charAt(i) != '"') {
+				i += (line.charAt(i) == '\\') ? 2 : 1;
+			}
+			if (i >= len) {
+				return null;
+			}
+			cells.add(line.substring(start, i));
+			i++;
+			if (i == len - 1) {
+				return cells.toArray(new String[cells.size()]);
+			} else if (line.charAt(i) == ',') {
+				i++;
+			} else {
+				return null;
+			}
+		}
+	}
+
+	private static void writeDictPayload(DataOutputStream payload, ArrayList<String[]> rows) throws IOException {
+		int numCols = rows.get(0).length;
+		payload.writeInt(numCols);
+		for (int c = 0; c < numCols; c++) {
+			HashMap<String, Integer> codeHash = new HashMap<String, Integer>();
+			ArrayList<String> dict = new ArrayList<String>();
+			int [] codes = new int[rows.size()];
+			for (int r = 0; r < rows.size(); r++) {
+				String cell = rows.get(r)[c];
+				Integer code = codeHash.get(cell);
+				if (code == null) {
+					code = dict.size();
+					dict.add(cell);
+					codeHash.put(cell, code);
+				}
+				codes[r] = code;
+			}
+			payload.writeInt(dict.size());
+			for (String s : dict) {
+				writeString(payload, s);
+			}
+			writeCodes(payload, codes, dict.size());
+		}
+	}
+
+	private static void writeCodes(DataOutputStream out, int[] codes, int dictSize) throws IOException {
+		int width = (dictSize <= 0xFF) ? 1 : (dictSize <= 0xFFFF) ? 2 : 4;
+		out.writeByte(width);
+		for (int code : codes) {
+			if (width == 1) {
+				out.writeByte(code);
+			} else if (width == 2) {
+				out.writeShort(code);
+			} else {
+				out.writeInt(code);
+			}
+		}
+	}
+
+	private static int[] readCodes(DataInputStream in, int numRows) throws IOException {
+		int width = in.readByte();
+		int [] ret = new int[numRows];
+		for (int r = 0; r < numRows; r++) {
+			if (width == 1) {
+				ret[r] = in.readUnsignedByte();
+			} else if (width == 2) {
+				ret[r] = in.readUnsignedShort();
+			} else {
+				ret[r] = in.readInt();
+			}
+		}
+		return ret;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte [] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte [] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] deflate(byte[] input) {
+		Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(input);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+			byte [] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(byte[] input, int uncompressedLength) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(input);
+			byte [] ret = new byte[uncompressedLength];
+			int done = 0;
+			while (done < uncompressedLength && !inflater.finished()) {
+				int count = inflater.inflate(ret, done, uncompressedLength - done);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				done += count;
+			}
+			if (done != uncompressedLength) {
+				throw new IOException("Corrupt table results block: expected " + uncompressedLength + " bytes, got " + done);
+			}
+			return ret;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt table results block: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.edc.resultsStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Sidecar index for a table results data file, so paged reads can seek instead of reading every earlier row.
+ *
+ * The data file holds one row per line.  The index file holds longs:
+ *    row count
+ *    byte offset of row 0
+ *    byte offset of row ROWS_PER_ENTRY
+ *    byte offset of row 2 * ROWS_PER_ENTRY
+ *    ...
+ *
+ * Rows are appended one batch at a time (as in storeTableResultsJsonAddIncremental), never concurrently for one job.
+ */
+public class TableResultsIndex {
+
+	public static final int ROWS_PER_ENTRY = 1000;
+
+	private static final int HEADER_BYTES = 8;
+
+	/**
+	 * Get the index file for a data file
+	 */
+	public static File getIndexFile(String dataFileLocation) {
+		return new File(dataFileLocation + ".index");
+	}
+
+	/**
+	 * Index rows that were just appended to the data file.
+	 * @param indexFile the index file
+	 * @param dataStartOffset size of the data file before contents was appended
+	 * @param contents bytes appended:  rows separated by newlines.  Blank lines are not rows.
+	 */
+	public static void addRows(File indexFile, long dataStartOffset, byte[] contents) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "rw");
+		try {
+			long rowCount = 0;
+			if (raf.length() >= HEADER_BYTES) {
+				raf.seek(0);
+				rowCount = raf.readLong();
+			}
+
+			ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+			DataOutputStream entries = new DataOutputStream(entryBytes);
+			boolean lineStart = true;
+			for (int i = 0; i < contents.length; i++) {
+				if (contents[i] == '\n') {
+					lineStart = true;
+				} else if (lineStart) {
+					lineStart = false;
+					if (rowCount % ROWS_PER_ENTRY == 0) {
+						entries.writeLong(dataStartOffset + i);
+					}
+					rowCount++;
+				}
+			}
+
+			raf.seek(Math.max(raf.length(), HEADER_BYTES));
+			raf.write(entryBytes.toByteArray());
+			raf.seek(0);
+			raf.writeLong(rowCount);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Get the number of rows indexed
+	 * @return row count, or -1 if there is no usable index
+	 */
+	public static long getRowCount(File indexFile) throws IOException {
+		if (!indexFile.exists()) {
+			return -1;
+		}
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			return isValid(raf) ? readRowCount(raf) : -1;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Find the nearest indexed row at or before a row
+	 * @return { byte offset, row number } or null if there is no usable index
+	 */
+	public static long[] seek(File indexFile, long row) throws IOException {
+		if (!indexFile.exists()) {
+			return null;
+		}
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			if (!isValid(raf) || row < 0 || row >= readRowCount(raf)) {
+				return null;
+			}
+			long entry = row / ROWS_PER_ENTRY;
+			raf.seek(HEADER_BYTES + entry * 8);
+			long [] ret = { raf.readLong(), entry * ROWS_PER_ENTRY };
+			return ret;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static long readRowCount(RandomAccessFile raf) throws IOException {
+		raf.seek(0);
+		return raf.readLong();
+	}
+
+	/**
+	 * Check the number of entries matches the row count
+	 */
+	private static boolean isValid(RandomAccessFile raf) throws IOException {
+		if (raf.length() < HEADER_BYTES) {
+			return false;
+		}
+		long rowCount = readRowCount(raf);
+		long entries = (rowCount + ROWS_PER_ENTRY - 1) / ROWS_PER_ENTRY;
+		return raf.length() == HEADER_BYTES + entries * 8;
+	}
+}
@@ -18,6 +18,7 @@
 package com.ge.research.semtk.edc.resultsStorage;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -25,6 +26,10 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
 import javax.activation.UnsupportedDataTypeException;
@@ -41,6 +46,7 @@ import com.ge.research.semtk.utility.LocalLogger;
 public class TableResultsSerializer {
 	
 	private static final int FLUSHFREQUENCY = 100;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
 	private JSONObject headerInfo = null;
 	private File dataFile = null;
 	private TableResultsStorageTypes frmt = null;
@@ -122,17 +128,14 @@ public class TableResultsSerializer {
 		int processedRows = 0;
 		boolean endOfInput = false;
 		
-		FileReader fr = new FileReader(dataFile);
-		BufferedReader bfr = new BufferedReader(fr);
-		
-		// fast foward
-		bfr = this.fastForwardResultsFile(bfr);
+		// open at the starting row
+		RowLineReader bfr = this.openResultsFileAtStartingRow();
 		
 		
 		while(processedRows < stopRowNumber && !endOfInput){
 			// read the next row from the data set and write to the stream. 
 
-			String currRow = bfr.readLine();
+			String currRow = bfr.readRowLine();
 			// conversion should not be required in this case as it was read as written.
 			aOutputStream.write(currRow.substring(1, currRow.length() - 1));
 			
@@ -201,16 +204,13 @@ public class TableResultsSerializer {
 		// process the data file rows until the cutoff is reached.
 		int processedRows = 0;
 		
-		FileReader fr = new FileReader(dataFile);
-		BufferedReader bfr = new BufferedReader(fr);
-		
-		// fast foward
-		bfr = this.fastForwardResultsFile(bfr);
+		// open at the starting row
+		RowLineReader bfr = this.openResultsFileAtStartingRow();
 				
 		while(processedRows < stopRowNumber){
 			// read the next row from the data set and write to the stream. 
 			
-			String currRow = bfr.readLine();
+			String currRow = bfr.readRowLine();
 			// conversion should not be required in this case as it was read as written.
 			aOutputStream.write(currRow);
 			
@@ -233,10 +233,57 @@ public class TableResultsSerializer {
 		
 	}
 	
-	private BufferedReader fastForwardResultsFile(BufferedReader bfr) throws IOException{
+	/**
+	 * Source of json row lines ["a1","b1","c1"], whatever the data file format
+	 */
+	private interface RowLineReader extends Closeable {
+		String readRowLine() throws IOException;
+	}
+	
+	/**
+	 * Open the data file, positioned at the starting row.
+	 * Binary files skip whole blocks.
+	 * Json files seek using the row index if there is one, else read past every earlier row.
+	 */
+	private RowLineReader openResultsFileAtStartingRow() throws IOException{
+		if(TableResultsBinaryFile.isBinaryFile(this.dataFile)){
+			final TableResultsBinaryFile.RowReader reader = new TableResultsBinaryFile.RowReader(this.dataFile, this.startingRowNumber);
+			return new RowLineReader() {
+				public String readRowLine() throws IOException { return reader.readRowLine(); }
+				public void close() throws IOException { reader.close(); }
+			};
+		}
+		
+		final BufferedReader bfr = this.openTextFileAtStartingRow();
+		return new RowLineReader() {
+			public String readRowLine() throws IOException { return bfr.readLine(); }
+			public void close() throws IOException { bfr.close(); }
+		};
+	}
+	
+	private BufferedReader openTextFileAtStartingRow() throws IOException{
+		long [] seekPos = TableResultsIndex.seek(TableResultsIndex.getIndexFile(this.dataFile.getPath()), this.startingRowNumber);
+		
+		if(seekPos == null){
+			BufferedReader bfr = new BufferedReader(new FileReader(this.dataFile), READ_BUFFER_SIZE);
+			return this.fastForwardResultsFile(bfr, this.startingRowNumber);
+		}
+		
+		FileChannel channel = FileChannel.open(this.dataFile.toPath(), StandardOpenOption.READ);
+		channel.position(seekPos[0]);
+		BufferedReader bfr = new BufferedReader(Channels.newReader(channel, Charset.defaultCharset().name()), READ_BUFFER_SIZE);  // same charset FileReader uses
+		return this.fastForwardResultsFile(bfr, this.startingRowNumber - seekPos[1]);
+	}
+	
+	/**
+	 * Skip rows.  Blank lines are not rows.
+	 */
+	private BufferedReader fastForwardResultsFile(BufferedReader bfr, long rowsToSkip) throws IOException{
 		
-		for(int i = 0; i < this.startingRowNumber; i += 1){
-			bfr.readLine();
+		for(long i = 0; i < rowsToSkip; ){
+			String line = bfr.readLine();
+			if(line == null){ break; }
+			if(!line.isEmpty()){ i += 1; }
 		}
 		return bfr;
 	}
@@ -22,11 +22,13 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.crypto.dsig.keyinfo.RetrievalMethod;
 
@@ -38,16 +40,33 @@ import com.ge.research.semtk.utility.Utility;
 
 /**
  * Utilities to:
- * 1) store a table result set as a JSON file 
+ * 1) store a table result set as a JSON file, or as a compressed BINARY file
  * 2) retrieve results as CSV or JSON (possibly truncated)
  */
 public class TableResultsStorage extends GeneralResultsStorage{
 
-	public static enum TableResultsStorageTypes { JSON, CSV };
+	public static enum TableResultsStorageTypes { JSON, CSV, BINARY };
+	
+	private TableResultsStorageTypes dataFormat = TableResultsStorageTypes.JSON;
+	
+	// one lock per data file, for putting concurrently sent segments back in order
+	private static final ConcurrentHashMap<String, Object> segmentLocks = new ConcurrentHashMap<String, Object>();
 	 
 	public TableResultsStorage(String file_location) {
 		super(file_location);
 	}
+	
+	/**
+	 * @param dataFormat format of new data files:  JSON rows or BINARY (see TableResultsBinaryFile).
+	 *                   Existing data files are always read and appended in their own format.
+	 */
+	public TableResultsStorage(String file_location, TableResultsStorageTypes dataFormat) throws Exception {
+		super(file_location);
+		if (dataFormat != TableResultsStorageTypes.JSON && dataFormat != TableResultsStorageTypes.BINARY) {
+			throw new Exception("Unsupported table results data format: " + dataFormat);
+		}
+		this.dataFormat = dataFormat;
+	}
 
 	/**
 	 * Call 1 of 3 to store table result as JSON
@@ -67,6 +86,16 @@ public class TableResultsStorage extends GeneralResultsStorage{
 		// create the results data file
 		String dataFileName = writeToFile(jobID, null, true);
 		
+		// a fresh data file must not pick up a stale row index
+		File dataFile = new File(dataFileName);
+		if (dataFile.length() == 0) {
+			Files.deleteIfExists(TableResultsIndex.getIndexFile(dataFileName).toPath());
+			Files.deleteIfExists(getNextSegmentPath(dataFile));
+			if (this.dataFormat == TableResultsStorageTypes.BINARY) {
+				TableResultsBinaryFile.createFile(dataFile);
+			}
+		}
+		
 		// write it to file
 		resultsTableMetaData.put(DATARESULTSFILELOCATION, dataFileName);
 		
@@ -76,7 +105,8 @@ public class TableResultsStorage extends GeneralResultsStorage{
 	
 	/**
 	 * Call 2 of 3 to store table result as JSON
-	 * Write table rows to json file. 
+	 * Write table rows to json file, and add them to the row index.
+	 * Binary data files get one compressed block instead.
 	 * Each row has quoted elements, no spaces after delimiter commas, and enclosing brackets.
 	 * Each row will be followed by a comma, except for the last row of the last segment.
 	 * 
@@ -88,7 +118,53 @@ public class TableResultsStorage extends GeneralResultsStorage{
 	 * @throws Exception
 	 */
 	public void storeTableResultsJsonAddIncremental(String jobID, String contents) throws Exception {				
-		writeToFile(jobID, contents, true);
+		File dataFile = getFilePath(jobID, true).toFile();
+		if (TableResultsBinaryFile.isBinaryFile(dataFile)) {
+			TableResultsBinaryFile.appendRows(dataFile, contents);
+			return;
+		}
+		
+		long dataStartOffset = dataFile.length();
+		String dataFileName = writeToFile(jobID, contents, true);
+		TableResultsIndex.addRows(TableResultsIndex.getIndexFile(dataFileName), dataStartOffset, contents.getBytes());
+	}
+	
+	/**
+	 * Call 2 of 3 to store table result as JSON, when rows are sent in numbered segments that may arrive in any order.
+	 * Segments are stored in order 0, 1, 2...  A segment that arrives early is held in a file until its turn.
+	 *
+	 * @param jobID the job id
+	 * @param contents a string containing a set of rows, formatted as above
+	 * @param segmentNumber the position of these rows in the results, starting at 0
+	 * @throws Exception
+	 */
+	public void storeTableResultsJsonAddIncremental(String jobID, String contents, int segmentNumber) throws Exception {
+		File dataFile = getFilePath(jobID, true).toFile();
+		
+		synchronized (getSegmentLock(dataFile)) {
+			Path nextSegmentPath = getNextSegmentPath(dataFile);
+			int nextSegment = Files.exists(nextSegmentPath) ? Integer.parseInt(new String(Files.readAllBytes(nextSegmentPath)).trim()) : 0;
+			
+			if (segmentNumber < nextSegment) {
+				throw new Exception("Segment " + segmentNumber + " was already stored for job " + jobID);
+			} else if (segmentNumber > nextSegment) {
+				// early: hold it until the segments before it arrive
+				Files.write(getPendingSegmentPath(dataFile, segmentNumber), contents.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			
+			// store this segment and any held ones that follow it
+			storeTableResultsJsonAddIncremental(jobID, contents);
+			nextSegment += 1;
+			Path pendingPath = getPendingSegmentPath(dataFile, nextSegment);
+			while (Files.exists(pendingPath)) {
+				storeTableResultsJsonAddIncremental(jobID, new String(Files.readAllBytes(pendingPath), StandardCharsets.UTF_8));
+				Files.delete(pendingPath);
+				nextSegment += 1;
+				pendingPath = getPendingSegmentPath(dataFile, nextSegment);
+			}
+			Files.write(nextSegmentPath, String.valueOf(nextSegment).getBytes());
+		}
 	}
 	
 	/**
@@ -102,10 +178,62 @@ public class TableResultsStorage extends GeneralResultsStorage{
 	 * @param rowCount the number of rows written
 	 */
 	public URL storeTableResultsJsonFinalize(String jobID) throws Exception {				
+		finishSegments(jobID);
 		String fileName = writeToFile(jobID, null, false);
 		return getURL(fileName);
 	}
 	
+	/**
+	 * Call 3 of 3 to store table result as JSON, replacing the metadata sent by initialize.
+	 * Used when rows are streamed and the row count and column types weren't known up front.
+	 *
+	 * @param jobID the job id
+	 * @param resultsTableMetaData final metadata (column names, column types, column count, row count)
+	 */
+	public URL storeTableResultsJsonFinalize(String jobID, JSONObject resultsTableMetaData) throws Exception {
+		finishSegments(jobID);
+		JSONObject initMetaData = Utility.getJSONObjectFromFilePath(getFilePath(jobID, false).toString());
+		resultsTableMetaData.put(DATARESULTSFILELOCATION, initMetaData.get(DATARESULTSFILELOCATION));
+		
+		String fileName = rewriteFile(jobID, resultsTableMetaData.toJSONString(), false);
+		return getURL(fileName);
+	}
+	
+	
+	/**
+	 * Check that no numbered segment is still waiting for an earlier one, and clean up segment tracking
+	 */
+	private void finishSegments(String jobID) throws Exception {
+		File dataFile = getFilePath(jobID, true).toFile();
+		
+		synchronized (getSegmentLock(dataFile)) {
+			try {
+				File [] pending = dataFile.getAbsoluteFile().getParentFile().listFiles((dir, name) -> name.startsWith(dataFile.getName() + ".segment."));
+				if (pending != null && pending.length > 0) {
+					Path nextSegmentPath = getNextSegmentPath(dataFile);
+					String nextSegment = Files.exists(nextSegmentPath) ? new String(Files.readAllBytes(nextSegmentPath)).trim() : "0";
+					throw new Exception("Results for job " + jobID + " are missing segment " + nextSegment);
+				}
+				Files.deleteIfExists(getNextSegmentPath(dataFile));
+			} finally {
+				segmentLocks.remove(dataFile.getPath());
+			}
+		}
+	}
+	
+	private static Object getSegmentLock(File dataFile) {
+		Object lock = new Object();
+		Object prev = segmentLocks.putIfAbsent(dataFile.getPath(), lock);
+		return (prev != null) ? prev : lock;
+	}
+	
+	private static Path getNextSegmentPath(File dataFile) {
+		return Paths.get(dataFile.getPath() + ".segment");
+	}
+	
+	private static Path getPendingSegmentPath(File dataFile, int segmentNumber) {
+		return Paths.get(dataFile.getPath() + ".segment." + segmentNumber);
+	}
 	
 	/**
 	 * Get the full result set as json.
@@ -186,6 +314,16 @@ public class TableResultsStorage extends GeneralResultsStorage{
 		try{
 			JSONObject jsonObj = Utility.getJSONObjectFromFilePath(urlToPath(url).toString());	// read json from url
 			Long val = (Long) jsonObj.get(Table.JSON_KEY_ROW_COUNT);
+			if (val == null) {
+				// fall back to the data file's block headers, or the row index
+				String dataFileLocation = (String) jsonObj.get(DATARESULTSFILELOCATION);
+				File dataFile = new File(dataFileLocation);
+				if (TableResultsBinaryFile.isBinaryFile(dataFile)) {
+					val = TableResultsBinaryFile.countRows(dataFile);
+				} else {
+					val = TableResultsIndex.getRowCount(TableResultsIndex.getIndexFile(dataFileLocation));
+				}
+			}
 			int retval = val.intValue();
 			return retval;
 		}
@@ -0,0 +1,210 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Tunes batch size and worker concurrency during a load, from what the workers measure.
+ *
+ *    batch size  - steered so each insert takes about the target latency,
+ *                  using the triple store's observed time per record
+ *    concurrency - hill-climbs on throughput:  keeps adding (or removing) a worker
+ *                  while records/sec improves, turns around when it doesn't
+ *    failures    - halve both, and pause new batches with exponential back-off
+ *
+ * The reader calls getBatchSize() and acquire() before each batch, the worker calls
+ * reportInsert() or reportFailure(), then release().
+ *
+ * Thread-safe.
+ */
+public class AdaptiveBatchController {
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 10000;
+	private static final long MIN_BACKOFF_MSEC = 1000;
+	private static final long MAX_BACKOFF_MSEC = 30000;
+	private static final double RATE_GAIN = 1.05;		// throughput must improve this much to keep climbing
+
+	private final long targetNanos;
+	private final int maxBatchSize;
+	private final int maxConcurrency;
+
+	private int batchSize;
+	private int concurrency;
+	private int inFlight = 0;
+
+	private long backoffMsec = 0;
+	private long resumeNanos = 0;
+
+	// concurrency hill-climb
+	private int concurrencyStep = 1;
+	private long windowStartNanos = System.nanoTime();
+	private long windowRecords = 0;
+	private int windowInserts = 0;
+	private double lastWindowRate = 0.0;
+
+	private long inserts = 0;
+	private long failures = 0;
+	private long lastInsertNanos = 0;
+	private int lastInsertChars = 0;
+
+	/**
+	 * @param startBatchSize - records per batch to start with
+	 * @param maxConcurrency - most batches inserting at once (the worker pool size)
+	 * @param targetLatencyMsec - how long each insert should take
+	 */
+	public AdaptiveBatchController(int startBatchSize, int maxConcurrency, long targetLatencyMsec) {
+		this(startBatchSize, Math.max(startBatchSize, DEFAULT_MAX_BATCH_SIZE), maxConcurrency, targetLatencyMsec);
+	}
+
+	public AdaptiveBatchController(int startBatchSize, int maxBatchSize, int maxConcurrency, long targetLatencyMsec) {
+		this.targetNanos = targetLatencyMsec * 1000000L;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.batchSize = clamp(startBatchSize, 1, this.maxBatchSize);
+		this.concurrency = Math.max(1, this.maxConcurrency / 2);
+	}
+
+	public synchronized int getBatchSize() {
+		return this.batchSize;
+	}
+
+	public synchronized int getConcurrency() {
+		return this.concurrency;
+	}
+
+	public synchronized long getFailures() {
+		return this.failures;
+	}
+
+	/**
+	 * Wait until another batch may start:  fewer than getConcurrency() in flight and not backing off
+	 * @throws InterruptedException
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		while (true) {
+			long backoffLeft = this.resumeNanos - System.nanoTime();
+			if (backoffLeft > 0) {
+				this.wait(Math.max(1, backoffLeft / 1000000L));
+			} else if (this.inFlight >= this.concurrency) {
+				this.wait();
+			} else {
+				break;
+			}
+		}
+		this.inFlight += 1;
+	}
+
+	public synchronized void release() {
+		this.inFlight -= 1;
+		this.notifyAll();
+	}
+
+	/**
+	 * A successful insert
+	 * @param records - records in the insert
+	 * @param chars - length of the insert
+	 * @param nanos - time the triple store took
+	 */
+	public synchronized void reportInsert(int records, int chars, long nanos) {
+		if (records < 1) {
+			return;
+		}
+		this.inserts += 1;
+		this.lastInsertNanos = nanos;
+		this.lastInsertChars = chars;
+		this.backoffMsec = 0;
+
+		// batch size:  move halfway toward the size that would take the target time, at most doubling or halving
+		double nanosPerRecord = Math.max(1.0, (double) nanos / records);
+		int ideal = (int) Math.min(this.maxBatchSize, this.targetNanos / nanosPerRecord);
+		int next = (this.batchSize + ideal + 1) / 2;
+		this.batchSize = clamp(next, Math.max(1, this.batchSize / 2), this.batchSize * 2);
+		this.batchSize = clamp(this.batchSize, 1, this.maxBatchSize);
+
+		// concurrency:  judge each step after a window of inserts
+		this.windowRecords += records;
+		this.windowInserts += 1;
+		if (this.windowInserts >= Math.max(4, 2 * this.concurrency)) {
+			long now = System.nanoTime();
+			double rate = this.windowRecords / Math.max(1.0, (now - this.windowStartNanos) / 1000000000.0);
+
+			if (nanos > 2 * this.targetNanos) {
+				// triple store is struggling even at this concurrency
+				this.concurrencyStep = -1;
+			} else if (this.lastWindowRate > 0 && rate < this.lastWindowRate * RATE_GAIN) {
+				// last step didn't help
+				this.concurrencyStep = -this.concurrencyStep;
+			}
+			this.concurrency = clamp(this.concurrency + this.concurrencyStep, 1, this.maxConcurrency);
+			this.notifyAll();
+
+			this.lastWindowRate = rate;
+			this.windowStartNanos = now;
+			this.windowRecords = 0;
+			this.windowInserts = 0;
+		}
+	}
+
+	/**
+	 * A failed insert:  back off
+	 */
+	public synchronized void reportFailure() {
+		this.failures += 1;
+		this.batchSize = Math.max(1, this.batchSize / 2);
+		this.concurrency = Math.max(1, this.concurrency / 2);
+		this.concurrencyStep = 1;
+
+		this.backoffMsec = (this.backoffMsec == 0) ? MIN_BACKOFF_MSEC : Math.min(MAX_BACKOFF_MSEC, this.backoffMsec * 2);
+		this.resumeNanos = System.nanoTime() + this.backoffMsec * 1000000L;
+
+		// start measuring throughput over
+		this.lastWindowRate = 0.0;
+		this.windowStartNanos = System.nanoTime();
+		this.windowRecords = 0;
+		this.windowInserts = 0;
+	}
+
+	/**
+	 * Settings reached so far, for the load results
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized JSONObject toJson() {
+		JSONObject ret = new JSONObject();
+		ret.put("adaptive", true);
+		ret.put("batchSize", this.batchSize);
+		ret.put("workerThreads", this.concurrency);
+		ret.put("targetInsertMsec", this.targetNanos / 1000000L);
+		ret.put("inserts", this.inserts);
+		ret.put("insertFailures", this.failures);
+		ret.put("lastInsertMsec", this.lastInsertNanos / 1000000L);
+		ret.put("lastInsertChars", this.lastInsertChars);
+		return ret;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("batch size=%d worker threads=%d target=%d msec inserts=%d failures=%d",
+				this.batchSize, this.concurrency, this.targetNanos / 1000000L, this.inserts, this.failures);
+	}
+
+	private static int clamp(int val, int min, int max) {
+		return Math.max(min, Math.min(max, val));
+	}
+}
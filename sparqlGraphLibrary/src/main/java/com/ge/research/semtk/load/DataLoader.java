@@ -20,6 +20,12 @@ package com.ge.research.semtk.load;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.json.simple.JSONObject;
 
@@ -28,6 +34,7 @@ import com.ge.research.semtk.load.dataset.Dataset;
 import com.ge.research.semtk.load.utility.DataSetExhaustedException;
 import com.ge.research.semtk.load.utility.DataToModelTransformer;
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
+import com.ge.research.semtk.load.utility.UriCache;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
 import com.ge.research.semtk.resultSet.Table;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
@@ -50,11 +57,30 @@ public class DataLoader {
 	OntologyInfo oInfo = null;
 	
 	int MAX_WORKER_THREADS = 10;
+	int maxInFlightBatches = 20;	// batches read but not yet inserted (queued + running)
+	int maxInsertChars = DEFAULT_MAX_INSERT_CHARS;
+	int maxInsertTriples = 0;
+	long targetInsertMsec = 0;		// > 0 = tune batch size and worker threads toward this insert latency
+	JSONObject loadSettings = null;
+	boolean bulkLoad = false;		// upload turtle chunks instead of sending inserts
+	boolean stagePreflight = false;	// keep preflight's converted batches and load them, instead of a second pass
+	LoadCheckpoint checkpoint = null;	// committed records of this load, from any earlier run
+	long recordsSkipped = 0;			// records already committed by an earlier run
+	IngestionProgressListener progressListener = null;
+	long progressIntervalMsec = 0;
+	long lastProgressNanos = 0;
+	long phaseStartNanos = 0;
+	long recordsExpected = 0;			// records the preflight found, or 0
+	
+	// size an insert may reach before the rest of its batch goes into another insert.
+	// Keeps requests under triple store limits regardless of batch size.
+	public final static int DEFAULT_MAX_INSERT_CHARS = 1000000;
 	
 	public final static String FAILURE_CAUSE_COLUMN_NAME = "Failure Cause";
 	public final static String FAILURE_RECORD_COLUMN_NAME = "Failure Record Number";
 
 	int totalRecordsProcessed = 0;
+	IngestionStats loadStats = null;
 	
 	public DataLoader(){
 		// default and does nothing special 
@@ -99,6 +125,13 @@ public class DataLoader {
 		return this.totalRecordsProcessed;
 	}
 	
+	/**
+	 * Throughput of each stage of the last importData(), or null
+	 */
+	public IngestionStats getLoadStats(){
+		return this.loadStats;
+	}
+	
 	private void validateColumns(Dataset ds) throws Exception {
 		// validate that the columns specified in the template are present in the dataset
 		String[] colNamesToIngest = dttmf.getImportColNames();   // col names from JSON		
@@ -152,6 +185,114 @@ public class DataLoader {
 		this.dttmf.setBatchSize(rBatchSize);
 	}
 	
+	/**
+	 * Set the number of threads transforming and inserting batches
+	 */
+	public void setMaxWorkerThreads(int threads){
+		this.MAX_WORKER_THREADS = threads;
+	}
+	
+	/**
+	 * Set how many batches may be read ahead of the triple store (queued plus being inserted).
+	 * The dataset is not read while this many are in flight.
+	 */
+	public void setMaxInFlightBatches(int batches){
+		this.maxInFlightBatches = batches;
+	}
+	
+	/**
+	 * Set the budget for each insert query.  A batch that goes over it is split into several inserts.
+	 * @param maxChars - insert length, or 0 for no limit
+	 * @param maxTriples - triples per insert, or 0 for no limit
+	 */
+	public void setInsertBudget(int maxChars, int maxTriples){
+		this.maxInsertChars = maxChars;
+		this.maxInsertTriples = maxTriples;
+	}
+	
+	/**
+	 * Tune batch size and worker threads during the load, aiming for inserts that take this long.
+	 * The batch size and worker threads set on this loader are the starting point and the maximum threads.
+	 * @param msec - target insert latency, or 0 to keep them fixed
+	 */
+	public void setTargetInsertLatency(long msec){
+		this.targetInsertMsec = msec;
+	}
+	
+	/**
+	 * Load through the triple store's bulk upload instead of SPARQL inserts.
+	 * Nodegroups needing an insert's WHERE clause, or with relative instance URIs (no user URI prefix), are still inserted:
+	 * see TurtleWriter.canWrite().
+	 * Falls back to inserts if the endpoint has no upload (e.g. Fuseki, or Virtuoso without a login).
+	 */
+	public void setBulkLoad(boolean bulkLoad){
+		this.bulkLoad = bulkLoad;
+	}
+	
+	/**
+	 * Have importData(true) keep the batches its preflight converts, and load those if the preflight succeeds,
+	 * instead of reading and converting the dataset a second time.
+	 * Batches beyond StagedBatches.DEFAULT_MAX_IN_MEMORY_RECORDS are spilled to a temp file.
+	 */
+	public void setStagePreflight(boolean stage){
+		this.stagePreflight = stage;
+	}
+	
+	/**
+	 * Record committed batches in a checkpoint, and skip the records it already holds.
+	 * Resuming a load is running importData() again with the same load's checkpoint and the same data:
+	 * every record is read again (and preflighted), but only those not yet committed are loaded.
+	 * The checkpoint is deleted once a load finishes with no insert failures.
+	 * Staged preflight is not used with a checkpoint.
+	 * @param checkpoint - or null for none
+	 */
+	public void setCheckpoint(LoadCheckpoint checkpoint){
+		this.checkpoint = checkpoint;
+	}
+	
+	/**
+	 * Records the last importData() skipped because its checkpoint held them
+	 */
+	public long getRecordsSkipped(){
+		return this.recordsSkipped;
+	}
+	
+	/**
+	 * Report progress during importData(), at most once per interval plus once at the end of each phase
+	 * @param listener - or null for none
+	 * @param intervalMsec
+	 */
+	public void setProgressListener(IngestionProgressListener listener, long intervalMsec){
+		this.progressListener = listener;
+		this.progressIntervalMsec = intervalMsec;
+	}
+	
+	/**
+	 * Batch size and worker threads used by the last importData(), or null
+	 */
+	public JSONObject getLoadSettings(){
+		return this.loadSettings;
+	}
+	
+	/**
+	 * Share URI lookup results with other loads to the same graph, instead of starting each load with an empty cache.
+	 * The shared cache is emptied by deletes made through this process:  see UriCache.
+	 */
+	public void setShareUriCache(boolean share){
+		if (share) {
+			this.dttmf.setUriCache(UriCache.getShared(this.endpoint.getServerAndPort(), this.endpoint.getDataset()));
+		} else {
+			this.dttmf.setUriCache(new UriCache());
+		}
+	}
+	
+	/**
+	 * URI lookup cache, for its hit/miss counts
+	 */
+	public UriCache getUriCache(){
+		return this.dttmf.getUriCache();
+	}
+	
 	
 	public int importData(Boolean checkFirst) throws Exception{
 
@@ -163,74 +304,276 @@ public class DataLoader {
 		
 		Boolean dataCheckSucceeded = true;
 		this.totalRecordsProcessed = 0;	// reset the counter.
+		this.recordsSkipped = 0;
+		this.recordsExpected = 0;
 		
 		// preflight the data to make sure everything seems okay before a load.
-		int totalPreflightRecordsChecked = 0;
-		if(checkFirst){
-			// try structuring around model but do not load. 	
-			while(true){
-				try{					
-					this.dttmf.getNextNodeGroups(1, false);
-					totalPreflightRecordsChecked++;
-				}
-				catch(DataSetExhaustedException e){
-					break;
+		// staged batches don't keep their record numbers, which a checkpoint needs
+		StagedBatches staged = (checkFirst && this.stagePreflight && this.checkpoint == null) ? new StagedBatches() : null;
+		try {
+			if(checkFirst){
+				// try structuring around model but do not load. 	
+				this.preflight(staged);
+				this.recordsExpected = this.dttmf.getTotalRecordsProcessed();
+			
+				// inspect the transformer to determine if the checks succeeded
+				Table errorReport = this.dttmf.getErrorReport();
+				if(errorReport.getNumRows() != 0){
+					dataCheckSucceeded = false;
 				}
 			}
-			// inspect the transformer to determine if the checks succeeded
-			Table errorReport = this.dttmf.getErrorReport();
-			if(errorReport.getRows().size() != 0){
-				dataCheckSucceeded = false;
-			}
-		}
 				
-		if (dataCheckSucceeded) {
-			this.dttmf.resetDataSet();
-			// orchestrate the retrieval of new nodegroups and the flushing of
-			// that data
-			System.out.print("Records processed:");
-			long timeMillis = System.currentTimeMillis();  // use this to report # recs loaded every X sec
+			if (dataCheckSucceeded) {
+				if (staged != null) {
+					staged.finishStaging();
+					LocalLogger.logToStdOut("Loading " + staged.getRecordCount() + " staged records");
+				} else {
+					this.dttmf.resetDataSet();
+				}
+				// orchestrate the retrieval of new nodegroups and the flushing of
+				// that data
+				System.out.print("Records processed:");
+				this.loadStats = new IngestionStats();
+				this.startProgress();
+				AdaptiveBatchController controller = null;
+				if (this.targetInsertMsec > 0) {
+					controller = new AdaptiveBatchController(this.dttmf.getBatchSize(), Math.max(1, this.MAX_WORKER_THREADS), this.targetInsertMsec);
+				}
+				final AdaptiveBatchController batchController = controller;
+				boolean bulk = this.bulkLoad && this.canBulkLoad();
 			
-			ArrayList<IngestionWorkerThread> wrkrs = new ArrayList<IngestionWorkerThread>();
+				// producer/consumer:  this thread reads batches, a fixed pool transforms and inserts them.
+				// The semaphore bounds the batches in flight, so reading never runs far ahead of the triple store.
+				ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, this.MAX_WORKER_THREADS));
+				Semaphore inFlight = new Semaphore(Math.max(1, Math.max(this.MAX_WORKER_THREADS, this.maxInFlightBatches)));
+				try {
+					while (true) {
+						// get the next set of records from the data set, or the next staged batch
+						ArrayList<ArrayList<String>> nextRecords = null;
+						ArrayList<String[][]> nextStaged = null;
+						int batchRecords = 0;
+						long readStart = System.nanoTime();
 			
-			while (true) {
-				// get the next set of records from the data set.
-				ArrayList<ArrayList<String>> nextRecords = null;
-		
-				try{
-					nextRecords = this.dttmf.getNextRecordsFromDataSet();
-				}catch(Exception e){ break; } // record set exhausted
-				
-				if(nextRecords == null || nextRecords.size() == 0 ){ break; }
-				
-				// spin up a thread to do the work.
-				if(wrkrs.size() < this.MAX_WORKER_THREADS){
-					// spin up the thread and do the work. 
-					IngestionWorkerThread neo = new IngestionWorkerThread(this.endpoint.copy(), this.dttmf, nextRecords, this.oInfo, checkFirst);
-					wrkrs.add(neo);
-					neo.start();
-					this.totalRecordsProcessed += nextRecords.size();
+						if (staged != null) {
+							nextStaged = staged.next();
+							if (nextStaged == null) { break; }
+							batchRecords = nextStaged.size();
+						} else {
+							try{
+								if (batchController == null) {
+									nextRecords = this.dttmf.getNextRecordsFromDataSet();
+								} else {
+									nextRecords = this.dttmf.getNextRecordsFromDataSet(batchController.getBatchSize());
+								}
+							}catch(DataSetExhaustedException e){ break; } // record set exhausted:  other read errors fail the load
+						
+							if(nextRecords == null || nextRecords.size() == 0 ){ break; }
+							batchRecords = nextRecords.size();
+						}
+						this.loadStats.addRead(batchRecords, System.nanoTime() - readStart);
+					
+						ArrayList<IngestionWorkerThread> batchWorkers = new ArrayList<IngestionWorkerThread>();
+						if (nextStaged != null) {
+							IngestionWorkerThread worker = this.newWorker(null, checkFirst, batchController, bulk);
+							worker.setStagedValues(nextStaged);
+							batchWorkers.add(worker);
+						} else {
+							int firstRecordNumber = this.dttmf.reserveRecordNumbers(batchRecords);
+							if (this.checkpoint == null) {
+								IngestionWorkerThread worker = this.newWorker(nextRecords, checkFirst, batchController, bulk);
+								worker.setFirstRecordNumber(firstRecordNumber);
+								batchWorkers.add(worker);
+							} else {
+								// load only the runs of the batch an earlier run didn't commit
+								int toLoad = 0;
+								for (int [] run : this.checkpoint.getUncommitted(firstRecordNumber, batchRecords)) {
+									int offset = run[0] - firstRecordNumber;
+									IngestionWorkerThread worker = this.newWorker(new ArrayList<ArrayList<String>>(nextRecords.subList(offset, offset + run[1])), checkFirst, batchController, bulk);
+									worker.setFirstRecordNumber(run[0]);
+									worker.setCheckpoint(this.checkpoint);
+									batchWorkers.add(worker);
+									toLoad += run[1];
+								}
+								this.recordsSkipped += batchRecords - toLoad;
+							}
+						}
+					
+						for (IngestionWorkerThread worker : batchWorkers) {
+							// wait for room, then hand the batch to the next free worker
+							long waitStart = System.nanoTime();
+							inFlight.acquire();
+							if (batchController != null) {
+								batchController.acquire();
+							}
+							this.loadStats.addWait(System.nanoTime() - waitStart);
+						
+							try {
+								workers.execute(() -> {
+									try {
+										worker.run();
+									} finally {
+										if (batchController != null) {
+											batchController.release();
+										}
+										inFlight.release();
+									}
+								});
+							} catch (RejectedExecutionException e) {
+								if (batchController != null) {
+									batchController.release();
+								}
+								inFlight.release();
+								throw e;
+							}
+						}
+						this.totalRecordsProcessed += batchRecords;
+						this.reportProgress(false, this.totalRecordsProcessed, false);
+					}
+				} finally {
+					// await any still running batches
+					workers.shutdown();
+					workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
 				}
-				// wait until we free up.
-				if(wrkrs.size() == this.MAX_WORKER_THREADS){
-					for(int counter = 0; counter < wrkrs.size(); counter++){
-						wrkrs.get(counter).join();
+				this.dttmf.sortErrorReport();
+				this.reportProgress(false, this.totalRecordsProcessed, true);
+				if (this.checkpoint != null) {
+					if (this.loadStats.getInsertFailures() == 0) {
+						this.checkpoint.delete();
+					} else {
+						LocalLogger.logToStdErr("Load " + this.checkpoint.getLoadId() + " has " + this.checkpoint.getCommittedRecordCount() + " records committed:  resume it to load the rest");
 					}
-					// reset it all 
-					wrkrs.clear();
 				}
+				LocalLogger.logToStdOut("Load stats: " + this.loadStats.toString());
+				this.loadSettings = this.buildLoadSettings(batchController, bulk);
+				LocalLogger.logToStdOut("Load settings: " + this.loadSettings.toJSONString());
+				LocalLogger.logToStdOut("URI cache: " + this.dttmf.getUriCache().toString());
+
 			}
-			// await any still running threads:
-			for(int counter = 0; counter < wrkrs.size(); counter++){
-				wrkrs.get(counter).join();
+		} finally {
+			if (staged != null) {
+				staged.close();
 			}
-
 		}
 		LocalLogger.logToStdOut("..." + this.totalRecordsProcessed + "(DONE)");
 		this.dttmf.closeDataSet();			// close all connections and clean up
 		return this.totalRecordsProcessed;  // report.
 	}
 	
+	/**
+	 * Convert every record without loading, on the worker pool, filling the error report
+	 * @param staged - if not null, gets the converted batches
+	 */
+	private void preflight(StagedBatches staged) throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, this.MAX_WORKER_THREADS));
+		Semaphore inFlight = new Semaphore(Math.max(1, Math.max(this.MAX_WORKER_THREADS, this.maxInFlightBatches)));
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		this.startProgress();
+		try {
+			while (failure.get() == null) {
+				ArrayList<ArrayList<String>> nextRecords = this.dttmf.getNextRecordsFromDataSet();
+				if(nextRecords == null || nextRecords.size() == 0 ){ break; }
+				int firstRecordNumber = this.dttmf.reserveRecordNumbers(nextRecords.size());
+				this.reportProgress(true, firstRecordNumber + nextRecords.size() - 1, false);
+				
+				inFlight.acquire();
+				try {
+					workers.execute(() -> {
+						try {
+							ArrayList<String[][]> values = (staged == null) ? null : new ArrayList<String[][]>();
+							this.dttmf.convertToNodeGroups(nextRecords, firstRecordNumber, false, values);
+							if (staged != null) {
+								staged.add(values);
+							}
+						} catch (Exception e) {
+							failure.compareAndSet(null, e);
+						} finally {
+							inFlight.release();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					inFlight.release();
+					throw e;
+				}
+			}
+		} finally {
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		this.dttmf.sortErrorReport();
+		this.reportProgress(true, this.dttmf.getTotalRecordsProcessed(), true);
+	}
+	
+	private void startProgress(){
+		this.phaseStartNanos = System.nanoTime();
+		this.lastProgressNanos = this.phaseStartNanos;
+	}
+	
+	/**
+	 * Tell the progress listener, if there is one and the interval has passed
+	 * @param force - report regardless of the interval
+	 */
+	private void reportProgress(boolean preflight, long records, boolean force){
+		if (this.progressListener == null) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (!force && now - this.lastProgressNanos < this.progressIntervalMsec * 1000000L) {
+			return;
+		}
+		this.lastProgressNanos = now;
+		double sec = (now - this.phaseStartNanos) / 1000000000.0;
+		try {
+			this.progressListener.progress(preflight, records, this.recordsExpected, sec > 0 ? records / sec : 0.0);
+		} catch (Exception e) {
+			LocalLogger.logToStdErr("progress listener failed: " + e.getMessage());
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private JSONObject buildLoadSettings(AdaptiveBatchController controller, boolean bulk) throws Exception {
+		JSONObject ret = null;
+		if (controller != null) {
+			ret = controller.toJson();
+		} else {
+			ret = new JSONObject();
+			ret.put("adaptive", false);
+			ret.put("batchSize", this.dttmf.getBatchSize());
+			ret.put("workerThreads", this.MAX_WORKER_THREADS);
+		}
+		ret.put("bulkLoad", bulk);
+		if (this.checkpoint != null) {
+			ret.put("loadId", this.checkpoint.getLoadId());
+			ret.put("recordsSkipped", this.recordsSkipped);
+			ret.put("complete", this.loadStats.getInsertFailures() == 0);
+		}
+		return ret;
+	}
+	
+	private IngestionWorkerThread newWorker(ArrayList<ArrayList<String>> records, boolean checkFirst, AdaptiveBatchController controller, boolean bulk) throws Exception {
+		IngestionWorkerThread worker = new IngestionWorkerThread(this.endpoint.copy(), this.dttmf, records, this.oInfo, checkFirst, this.loadStats);
+		worker.setInsertBudget(this.maxInsertChars, this.maxInsertTriples);
+		worker.setController(controller);
+		worker.setBulkLoad(bulk);
+		return worker;
+	}
+	
+	/**
+	 * Does the endpoint have an upload path we can log in to
+	 */
+	private boolean canBulkLoad(){
+		try {
+			this.endpoint.getUploadURL();
+			this.endpoint.executeTestQuery();
+			return true;
+		} catch (Exception e) {
+			LocalLogger.logToStdErr("Bulk load not available, using inserts: " + e.getMessage());
+			return false;
+		}
+	}
+	
 	public void insertToTripleStore() throws Exception{
 		// take the values from the current collection of node groups and then send them off to the store. 
 
@@ -254,9 +597,8 @@ public class DataLoader {
 		Table errorReport = this.dttmf.getErrorReport();
 		int failureCauseIndex = errorReport.getColumnIndex(FAILURE_CAUSE_COLUMN_NAME);
 		int failureRowIndex = errorReport.getColumnIndex(FAILURE_RECORD_COLUMN_NAME);
-		ArrayList<ArrayList<String>> rows = errorReport.getRows();
-		for(ArrayList<String> row:rows){
-			s += "Error in row " + row.get(failureRowIndex) + ": " + row.get(failureCauseIndex) + "\n";
+		for(int i = 0; i < errorReport.getNumRows(); i++){
+			s += "Error in row " + errorReport.getCell(i, failureRowIndex) + ": " + errorReport.getCell(i, failureCauseIndex) + "\n";
 		}
 		return s;
 	}
@@ -0,0 +1,34 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load;
+
+/**
+ * Receives a load's progress from DataLoader.importData(), on the thread reading the dataset
+ * (e.g. to publish it to the status service).  Should return quickly:  the load waits for it.
+ */
+public interface IngestionProgressListener {
+
+	/**
+	 * @param preflight - true while checking the data, false while loading it
+	 * @param records - records read so far in this phase
+	 * @param expected - records in the dataset, or 0 if not known (no preflight yet)
+	 * @param recordsPerSec - records read per second of this phase
+	 */
+	public void progress(boolean preflight, long records, long expected, double recordsPerSec);
+}
@@ -0,0 +1,123 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput counters for each stage of a load:
+ *    read       - records read from the dataset (one thread)
+ *    transform  - records turned into nodegroups and an insert query (worker threads)
+ *    insert     - records sent to the triple store (worker threads)
+ * plus the time the reader spent waiting for a free worker.
+ *
+ * Stage rates are records per second of time spent in that stage, summed over threads.
+ * A long reader wait means the workers (usually the triple store) are the bottleneck.
+ *
+ * Thread-safe.
+ */
+public class IngestionStats {
+
+	private final long startNanos = System.nanoTime();
+
+	private final AtomicLong recordsRead = new AtomicLong();
+	private final AtomicLong readNanos = new AtomicLong();
+	private final AtomicLong recordsTransformed = new AtomicLong();
+	private final AtomicLong transformNanos = new AtomicLong();
+	private final AtomicLong recordsInserted = new AtomicLong();
+	private final AtomicLong insertNanos = new AtomicLong();
+	private final AtomicLong insertFailures = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	public void addRead(int records, long nanos) {
+		this.recordsRead.addAndGet(records);
+		this.readNanos.addAndGet(nanos);
+	}
+
+	public void addTransform(int records, long nanos) {
+		this.recordsTransformed.addAndGet(records);
+		this.transformNanos.addAndGet(nanos);
+	}
+
+	public void addInsert(int records, long nanos) {
+		this.recordsInserted.addAndGet(records);
+		this.insertNanos.addAndGet(nanos);
+	}
+
+	public void addInsertFailure() {
+		this.insertFailures.incrementAndGet();
+	}
+
+	public void addWait(long nanos) {
+		this.waitNanos.addAndGet(nanos);
+	}
+
+	public long getRecordsRead() {
+		return this.recordsRead.get();
+	}
+
+	public long getRecordsTransformed() {
+		return this.recordsTransformed.get();
+	}
+
+	public long getRecordsInserted() {
+		return this.recordsInserted.get();
+	}
+
+	public long getInsertFailures() {
+		return this.insertFailures.get();
+	}
+
+	public double getReadRate() {
+		return rate(this.recordsRead.get(), this.readNanos.get());
+	}
+
+	public double getTransformRate() {
+		return rate(this.recordsTransformed.get(), this.transformNanos.get());
+	}
+
+	public double getInsertRate() {
+		return rate(this.recordsInserted.get(), this.insertNanos.get());
+	}
+
+	/**
+	 * Records inserted per second of elapsed time
+	 */
+	public double getOverallRate() {
+		return rate(this.recordsInserted.get(), System.nanoTime() - this.startNanos);
+	}
+
+	public double getWaitSec() {
+		return this.waitNanos.get() / 1000000000.0;
+	}
+
+	public double getElapsedSec() {
+		return (System.nanoTime() - this.startNanos) / 1000000000.0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("elapsed=%.1f sec overall=%.0f rec/sec  read=%.0f rec/sec  transform=%.0f rec/sec/thread  insert=%.0f rec/sec/thread  reader wait=%.1f sec  insert failures=%d",
+				this.getElapsedSec(), this.getOverallRate(), this.getReadRate(), this.getTransformRate(), this.getInsertRate(), this.getWaitSec(), this.getInsertFailures());
+	}
+
+	private static double rate(long records, long nanos) {
+		return (nanos <= 0) ? 0.0 : records / (nanos / 1000000000.0);
+	}
+}
@@ -4,22 +4,45 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import com.ge.research.semtk.belmont.NodeGroup;
+import com.ge.research.semtk.belmont.SparqlInsertWriter;
+import com.ge.research.semtk.belmont.TurtleWriter;
 import com.ge.research.semtk.load.utility.DataToModelTransformer;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
 import com.ge.research.semtk.sparqlX.SparqlResultTypes;
 import com.ge.research.semtk.utility.LocalLogger;
 
-public class IngestionWorkerThread extends Thread {
+/**
+ * Transforms one batch of records into nodegroups and inserts them,
+ * in as many inserts as needed to keep each within the insert budget.
+ * In bulk mode, nodegroups are uploaded as turtle chunks instead, except
+ * any that TurtleWriter can't write with the URIs an insert would give them.
+ * Run on DataLoader's worker pool.
+ */
+public class IngestionWorkerThread implements Runnable {
 
 	OntologyInfo oInfo = null;
 	SparqlEndpointInterface endpoint = null;
 	DataToModelTransformer dtmtf = null;
 	ArrayList<ArrayList<String>> dataToLoad = null;
 	Boolean skipChecks = false;
+	IngestionStats stats = null;
+	int maxInsertChars = 0;		// 0 = no limit
+	int maxInsertTriples = 0;	// 0 = no limit
+	AdaptiveBatchController controller = null;
+	boolean bulkLoad = false;
+	int firstRecordNumber = 0;				// 0 = claim record numbers when converting
+	ArrayList<String[][]> stagedValues = null;	// converted by a preflight:  load these instead of dataToLoad
+	LoadCheckpoint checkpoint = null;
 	
 	public IngestionWorkerThread(SparqlEndpointInterface endpoint, DataToModelTransformer dtmtf, ArrayList<ArrayList<String>> dataSetRecords, OntologyInfo oInfo, Boolean skipChecks){
+		this(endpoint, dtmtf, dataSetRecords, oInfo, skipChecks, new IngestionStats());
+	}
+	
+	public IngestionWorkerThread(SparqlEndpointInterface endpoint, DataToModelTransformer dtmtf, ArrayList<ArrayList<String>> dataSetRecords, OntologyInfo oInfo, Boolean skipChecks, IngestionStats stats){
 		
+		this.stats = stats;
 		this.dtmtf = dtmtf;
 		this.dataToLoad = dataSetRecords;
 		this.skipChecks = skipChecks;
@@ -27,15 +50,141 @@ public class IngestionWorkerThread extends Thread {
 		this.endpoint = endpoint;
 	}
 	
+	/**
+	 * Split the batch into inserts that stop growing once either limit is reached
+	 * @param maxChars - insert length, or 0 for no limit
+	 * @param maxTriples - triples per insert, or 0 for no limit
+	 */
+	public void setInsertBudget(int maxChars, int maxTriples){
+		this.maxInsertChars = maxChars;
+		this.maxInsertTriples = maxTriples;
+	}
+	
+	/**
+	 * Report each insert's latency and size, and any failure, to a controller tuning the load
+	 */
+	public void setController(AdaptiveBatchController controller){
+		this.controller = controller;
+	}
+	
+	/**
+	 * Upload turtle chunks through the endpoint's upload path instead of sending SPARQL inserts
+	 */
+	public void setBulkLoad(boolean bulkLoad){
+		this.bulkLoad = bulkLoad;
+	}
+	
+	/**
+	 * Record number of the batch's first record, for the error report
+	 * @param firstRecordNumber - from DataToModelTransformer.reserveRecordNumbers()
+	 */
+	public void setFirstRecordNumber(int firstRecordNumber){
+		this.firstRecordNumber = firstRecordNumber;
+	}
+	
+	/**
+	 * Load a batch already converted by a preflight, instead of converting dataToLoad
+	 */
+	public void setStagedValues(ArrayList<String[][]> stagedValues){
+		this.stagedValues = stagedValues;
+	}
+	
+	/**
+	 * Record the batch in a checkpoint once all its inserts succeed.
+	 * Needs setFirstRecordNumber().
+	 */
+	public void setCheckpoint(LoadCheckpoint checkpoint){
+		this.checkpoint = checkpoint;
+	}
+	
 	public void run(){
 		try {
-			ArrayList<NodeGroup> subGraphsToLoad = this.dtmtf.convertToNodeGroups(dataToLoad, skipChecks);
-			String query = NodeGroup.generateCombinedSparqlInsert(subGraphsToLoad, oInfo);
-			this.endpoint.executeQuery(query, SparqlResultTypes.CONFIRM);
+			long startNanos = System.nanoTime();
+			ArrayList<NodeGroup> subGraphsToLoad = null;
+			int records = 0;
+			if (this.stagedValues != null) {
+				subGraphsToLoad = this.dtmtf.buildNodeGroups(this.stagedValues);
+				records = this.stagedValues.size();
+			} else if (this.firstRecordNumber > 0) {
+				subGraphsToLoad = this.dtmtf.convertToNodeGroups(this.dataToLoad, this.firstRecordNumber, this.skipChecks, null);
+				records = this.dataToLoad.size();
+			} else {
+				subGraphsToLoad = this.dtmtf.convertToNodeGroups(this.dataToLoad, this.skipChecks);
+				records = this.dataToLoad.size();
+			}
+			this.stats.addTransform(records, System.nanoTime() - startNanos);
+			
+			if (this.bulkLoad) {
+				subGraphsToLoad = this.uploadTurtle(subGraphsToLoad);
+			}
+			
+			SparqlInsertWriter writer = new SparqlInsertWriter(this.oInfo);
+			int next = 0;
+			while (next < subGraphsToLoad.size()) {
+				long writeNanos = System.nanoTime();
+				while (next < subGraphsToLoad.size() && !writer.isFull(this.maxInsertChars, this.maxInsertTriples)) {
+					writer.add(subGraphsToLoad.get(next++));
+				}
+				long insertNanos = System.nanoTime();
+				this.stats.addTransform(0, insertNanos - writeNanos);
+				
+				this.endpoint.executeQuery(writer.getQueryParts(), SparqlResultTypes.CONFIRM);
+				long nanos = System.nanoTime() - insertNanos;
+				this.stats.addInsert(writer.getNodeGroupCount(), nanos);
+				if (this.controller != null) {
+					this.controller.reportInsert(writer.getNodeGroupCount(), writer.getLength(), nanos);
+				}
+				writer.reset();
+			}
+			
+			if (this.checkpoint != null && this.firstRecordNumber > 0) {
+				this.checkpoint.commit(this.firstRecordNumber, records);
+			}
 		} catch (Exception e) {
+			this.stats.addInsertFailure();
+			if (this.controller != null) {
+				this.controller.reportFailure();
+			}
 			LocalLogger.printStackTrace(e);
 		}
 	}
 	
+	/**
+	 * Upload the nodegroups that can be written as turtle, in chunks within the insert budget
+	 * @return the rest, which still need SPARQL inserts
+	 */
+	private ArrayList<NodeGroup> uploadTurtle(ArrayList<NodeGroup> nodeGroups) throws Exception {
+		ArrayList<NodeGroup> needInsert = new ArrayList<NodeGroup>();
+		TurtleWriter writer = new TurtleWriter(this.oInfo);
+		
+		long writeNanos = System.nanoTime();
+		for (int i=0; i < nodeGroups.size(); i++) {
+			NodeGroup ng = nodeGroups.get(i);
+			if (writer.canWrite(ng)) {
+				writer.add(ng);
+			} else {
+				needInsert.add(ng);
+			}
+			
+			if (writer.getNodeGroupCount() > 0 && (writer.isFull(this.maxInsertChars, this.maxInsertTriples) || i == nodeGroups.size() - 1)) {
+				long uploadNanos = System.nanoTime();
+				this.stats.addTransform(0, uploadNanos - writeNanos);
+				
+				byte [] chunk = writer.getBytes();
+				SimpleResultSet res = SimpleResultSet.fromJson(this.endpoint.executeAuthUploadTurtle(chunk));
+				res.throwExceptionIfUnsuccessful("Turtle upload failed");
+				
+				long nanos = System.nanoTime() - uploadNanos;
+				this.stats.addInsert(writer.getNodeGroupCount(), nanos);
+				if (this.controller != null) {
+					this.controller.reportInsert(writer.getNodeGroupCount(), chunk.length, nanos);
+				}
+				writer.reset();
+				writeNanos = System.nanoTime();
+			}
+		}
+		return needInsert;
+	}
+	
 	
 }
@@ -0,0 +1,240 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import com.ge.research.semtk.utility.LocalLogger;
+
+/**
+ * Records which records of a load have been committed to the triple store, so a load that
+ * stopped part way can be resumed without loading them again.
+ *
+ * Kept as ranges of record numbers (counting from 1, as in the error report) in a small json file
+ * per load id, rewritten after each committed batch.  A batch is committed once all its inserts succeeded.
+ * A batch that failed part way is loaded again in full on resume:  triples with instance URIs are
+ * not duplicated, but nodes given new URIs by the load will be.
+ *
+ * The fingerprint identifies the template and data, so a load id can't be resumed against different ones:
+ * see fingerprint().
+ */
+public class LoadCheckpoint {
+
+	private final File file;
+	private final String loadId;
+	private final String fingerprint;
+	private TreeMap<Integer, Integer> ranges = new TreeMap<Integer, Integer>();	// first record -> last record, non-adjacent
+
+	/**
+	 * Open a load's checkpoint, creating it if there is none
+	 * @param dir - checkpoint directory
+	 * @param loadId - letters, digits, '-' and '_'
+	 * @param fingerprint - identifies the template and data
+	 * @throws Exception - bad id, unreadable file, or a checkpoint with another fingerprint
+	 */
+	public LoadCheckpoint(File dir, String loadId, String fingerprint) throws Exception {
+		if (!isValidId(loadId)) {
+			throw new Exception("Invalid load id: " + loadId);
+		}
+		this.file = new File(dir, "load_" + loadId + ".json");
+		this.loadId = loadId;
+		this.fingerprint = fingerprint;
+
+		if (this.file.exists()) {
+			this.read();
+		} else {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new Exception("Can't create checkpoint directory " + dir.getPath());
+			}
+			this.write();
+		}
+	}
+
+	/**
+	 * SHA-256 digest of a load's template and data file, in hex
+	 * @param template - template json
+	 * @param data - data file, read in full
+	 */
+	public static String fingerprint(String template, File data) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		byte [] templateBytes = template.getBytes(StandardCharsets.UTF_8);
+		digest.update(ByteBuffer.allocate(8).putLong(templateBytes.length).array());	// so bytes can't move between the two
+		digest.update(templateBytes);
+		try (InputStream in = new FileInputStream(data)) {
+			byte [] buf = new byte[64 * 1024];
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				digest.update(buf, 0, n);
+			}
+		}
+		StringBuilder ret = new StringBuilder();
+		for (byte b : digest.digest()) {
+			ret.append(String.format("%02x", b));
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Does a checkpoint exist for this load id
+	 */
+	public static boolean exists(File dir, String loadId) {
+		return isValidId(loadId) && new File(dir, "load_" + loadId + ".json").exists();
+	}
+
+	public String getLoadId() {
+		return this.loadId;
+	}
+
+	/**
+	 * Runs of records not yet committed
+	 * @param first - first record number
+	 * @param count - number of records
+	 * @return { firstRecord, count } of each run, in order
+	 */
+	public synchronized ArrayList<int[]> getUncommitted(int first, int count) {
+		ArrayList<int[]> ret = new ArrayList<int[]>();
+		int next = first;
+		int end = first + count;		// exclusive
+
+		Map.Entry<Integer, Integer> range = this.ranges.floorEntry(next);
+		if (range == null || range.getValue() < next) {
+			range = this.ranges.higherEntry(next);
+		}
+		while (next < end) {
+			if (range == null || range.getKey() >= end) {
+				ret.add(new int[] { next, end - next });
+				break;
+			}
+			if (range.getKey() > next) {
+				ret.add(new int[] { next, range.getKey() - next });
+			}
+			next = Math.max(next, range.getValue() + 1);
+			range = this.ranges.higherEntry(range.getKey());
+		}
+		return ret;
+	}
+
+	/**
+	 * Record a batch as committed, and save the checkpoint
+	 * @param first - first record number
+	 * @param count - number of records
+	 */
+	public synchronized void commit(int first, int count) throws Exception {
+		if (count <= 0) {
+			return;
+		}
+		int start = first;
+		int last = first + count - 1;
+
+		// absorb any range overlapping or adjacent
+		Map.Entry<Integer, Integer> before = this.ranges.floorEntry(start);
+		if (before != null && before.getValue() >= start - 1) {
+			start = before.getKey();
+			last = Math.max(last, before.getValue());
+		}
+		Map.Entry<Integer, Integer> after = this.ranges.ceilingEntry(start);
+		while (after != null && after.getKey() <= last + 1) {
+			last = Math.max(last, after.getValue());
+			this.ranges.remove(after.getKey());
+			after = this.ranges.ceilingEntry(start);
+		}
+		this.ranges.put(start, last);
+		this.write();
+	}
+
+	public synchronized long getCommittedRecordCount() {
+		long ret = 0;
+		for (Map.Entry<Integer, Integer> range : this.ranges.entrySet()) {
+			ret += range.getValue() - range.getKey() + 1;
+		}
+		return ret;
+	}
+
+	/**
+	 * Remove the checkpoint, once the load is complete
+	 */
+	public synchronized void delete() {
+		if (this.file.exists() && !this.file.delete()) {
+			LocalLogger.logToStdErr("could not delete checkpoint " + this.file.getPath());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized JSONObject toJson() {
+		JSONObject ret = new JSONObject();
+		ret.put("loadId", this.loadId);
+		ret.put("fingerprint", this.fingerprint);
+		JSONArray arr = new JSONArray();
+		for (Map.Entry<Integer, Integer> range : this.ranges.entrySet()) {
+			JSONArray r = new JSONArray();
+			r.add(range.getKey());
+			r.add(range.getValue());
+			arr.add(r);
+		}
+		ret.put("committed", arr);
+		return ret;
+	}
+
+	private void read() throws Exception {
+		JSONObject json = null;
+		try (Reader reader = new InputStreamReader(new FileInputStream(this.file), StandardCharsets.UTF_8)) {
+			json = (JSONObject) new JSONParser().parse(reader);
+		}
+		String saved = (String) json.get("fingerprint");
+		if (saved != null && this.fingerprint != null && !saved.equals(this.fingerprint)) {
+			throw new Exception("Checkpoint for load " + this.loadId + " was made with a different template or data");
+		}
+		for (Object o : (JSONArray) json.get("committed")) {
+			JSONArray r = (JSONArray) o;
+			this.ranges.put(((Number) r.get(0)).intValue(), ((Number) r.get(1)).intValue());
+		}
+	}
+
+	private static boolean isValidId(String loadId) {
+		return loadId != null && loadId.matches("[A-Za-z0-9_\\-]+");
+	}
+
+	// write a temp file and move it over the old one, so a crash never leaves a partial checkpoint
+	private void write() throws Exception {
+		File tmp = new File(this.file.getPath() + ".tmp");
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+			writer.write(this.toJson().toJSONString());
+		}
+		Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
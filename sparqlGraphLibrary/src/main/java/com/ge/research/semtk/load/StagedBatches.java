@@ -0,0 +1,187 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import com.ge.research.semtk.utility.LocalLogger;
+
+/**
+ * Converted batches kept by a preflight, to be loaded without reading and converting the data again.
+ * Each record is its values from ImportSpecHandler.buildImportValues().
+ *
+ * Batches are kept in memory until maxInMemoryRecords, then spilled to a temp file.
+ * Replayed in the order they were staged (memory first, then the file),
+ * which may differ from the dataset's order when batches are staged from several threads.
+ *
+ * add() is thread-safe.  next() is for one reader, after finishStaging().
+ */
+public class StagedBatches {
+
+	public static final int DEFAULT_MAX_IN_MEMORY_RECORDS = 100000;
+
+	private final int maxInMemoryRecords;
+	private ArrayDeque<ArrayList<String[][]>> memory = new ArrayDeque<ArrayList<String[][]>>();
+	private int inMemoryRecords = 0;
+
+	private File spillFile = null;
+	private DataOutputStream spillOut = null;
+	private DataInputStream spillIn = null;
+	private int spilledBatches = 0;
+	private long spilledRecords = 0;
+
+	public StagedBatches() {
+		this(DEFAULT_MAX_IN_MEMORY_RECORDS);
+	}
+
+	public StagedBatches(int maxInMemoryRecords) {
+		this.maxInMemoryRecords = maxInMemoryRecords;
+	}
+
+	public synchronized void add(ArrayList<String[][]> batch) throws IOException {
+		if (this.spillOut == null && this.inMemoryRecords + batch.size() <= this.maxInMemoryRecords) {
+			this.memory.add(batch);
+			this.inMemoryRecords += batch.size();
+			return;
+		}
+
+		if (this.spillOut == null) {
+			this.spillFile = File.createTempFile("stagedBatches", ".bin");
+			this.spillFile.deleteOnExit();
+			this.spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.spillFile), 1 << 16));
+			LocalLogger.logToStdErr("staging more than " + this.maxInMemoryRecords + " records:  spilling to " + this.spillFile.getPath());
+		}
+		this.spillOut.writeInt(batch.size());
+		for (String[][] record : batch) {
+			this.spillOut.writeInt(record.length);
+			for (String[] values : record) {
+				this.spillOut.writeInt(values.length);
+				for (String v : values) {
+					writeString(this.spillOut, v);
+				}
+			}
+		}
+		this.spilledBatches += 1;
+		this.spilledRecords += batch.size();
+	}
+
+	/**
+	 * Done adding:  ready to replay
+	 */
+	public synchronized void finishStaging() throws IOException {
+		if (this.spillOut != null) {
+			this.spillOut.close();
+			this.spillOut = null;
+			this.spillIn = new DataInputStream(new BufferedInputStream(new FileInputStream(this.spillFile), 1 << 16));
+		}
+	}
+
+	/**
+	 * Next staged batch
+	 * @return batch, or null when all have been replayed
+	 */
+	public synchronized ArrayList<String[][]> next() throws IOException {
+		ArrayList<String[][]> ret = this.memory.poll();
+		if (ret != null || this.spillIn == null) {
+			return ret;
+		}
+
+		int size;
+		try {
+			size = this.spillIn.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		ret = new ArrayList<String[][]>(size);
+		for (int i=0; i < size; i++) {
+			String[][] record = new String[this.spillIn.readInt()][];
+			for (int j=0; j < record.length; j++) {
+				record[j] = new String[this.spillIn.readInt()];
+				for (int k=0; k < record[j].length; k++) {
+					record[j][k] = readString(this.spillIn);
+				}
+			}
+			ret.add(record);
+		}
+		return ret;
+	}
+
+	public synchronized long getRecordCount() {
+		return this.inMemoryRecords + this.spilledRecords;
+	}
+
+	public synchronized int getSpilledBatchCount() {
+		return this.spilledBatches;
+	}
+
+	/**
+	 * Drop everything staged, and the temp file
+	 */
+	public synchronized void close() {
+		this.memory.clear();
+		try {
+			if (this.spillOut != null) {
+				this.spillOut.close();
+			}
+			if (this.spillIn != null) {
+				this.spillIn.close();
+			}
+		} catch (IOException e) {
+			LocalLogger.printStackTrace(e);
+		}
+		this.spillOut = null;
+		this.spillIn = null;
+		if (this.spillFile != null && !this.spillFile.delete()) {
+			LocalLogger.logToStdErr("could not delete temp file " + this.spillFile.getPath());
+		}
+		this.spillFile = null;
+	}
+
+	// strings of any length, and null
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte [] b = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int len = in.readInt();
+		if (len < 0) {
+			return null;
+		}
+		byte [] b = new byte[len];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -18,8 +18,9 @@
 
 package com.ge.research.semtk.load.dataset;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
@@ -31,7 +32,6 @@ import java.util.Set;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.FileUtils;
 import org.json.simple.JSONObject;
 
 import com.ge.research.semtk.load.dataset.Dataset;
@@ -39,13 +39,22 @@ import com.ge.research.semtk.utility.LocalLogger;
 
 /*
  * Load and read a CSV data file.
+ * Files are streamed:  only the records being read are held in memory.
  */
 public class CSVDataset extends Dataset {
 
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+	
 	private String csvPath;						// will have either path to a CSV file OR a string containing CSV
 	private String csvString;					// will have either path to a CSV file OR a string containing CSV
+	private CSVParser parser;					// open on csvPath or csvString
 	private Iterator<CSVRecord> recordIterator;	// iterator of CSV records
 	private String[] headers;					// ordered list of headers to return
+	private String[] fileHeaders;				// all headers in the file, in order
+	
+	private int parseThreads = 0;				// > 1 parses files in parallel
+	private int parseChunkBytes = ParallelCSVReader.DEFAULT_CHUNK_BYTES;
+	private ParallelCSVReader parallelReader = null;
 	
 	/**
 	 * Constructor that takes a path to a CSV file
@@ -82,14 +91,9 @@ public class CSVDataset extends Dataset {
 			
 			this.csvString = filePathOrContent;	
 		}else{
-			this.csvString = FileUtils.readFileToString(new File(filePathOrContent));
-			if(this.csvString.charAt(0) == 65279){
-				LocalLogger.logToStdErr("first header is led by a Byte Order Marker. it has been removed to prevent issues in parsing.");
-				this.csvString = this.csvString.substring(1);
-			}
+			this.csvPath = filePathOrContent;
 		}
-		CSVParser parser = getParser(new StringReader(this.csvString));
-		this.recordIterator = parser.iterator();
+		CSVParser parser = this.open();
 		
 		// get and set the headr info
 		Map<String, Integer> headerMap = parser.getHeaderMap();		
@@ -129,8 +133,7 @@ public class CSVDataset extends Dataset {
 	 */
 	private void initialize(String path, String[] headers) throws Exception {
 		this.csvPath = path;
-		CSVParser parser = getParser(new FileReader(path));
-		this.recordIterator = parser.iterator();
+		CSVParser parser = this.open();
 		this.headers = headers;				
 		
 		// confirm that headers passed in are available in the CSVParser (case-insensitive)
@@ -153,12 +156,111 @@ public class CSVDataset extends Dataset {
 		Set<String> parserHeaders = parser.getHeaderMap().keySet();
 	}
 	
+	/**
+	 * (Re)open the parser on the file or string, from the first record
+	 */
+	private CSVParser open() throws Exception {
+		this.closeParser();
+		Reader reader = null;
+		if(this.csvPath != null){
+			reader = openFile(this.csvPath);
+		}else if(this.csvString != null){
+			reader = new StringReader(this.csvString);
+		}else{
+			throw new Exception("No CSV path or content available");
+		}
+		this.parser = getParser(reader);
+		this.recordIterator = this.parser.iterator();
+		
+		Map<String, Integer> headerMap = this.parser.getHeaderMap();
+		this.fileHeaders = new String[headerMap.size()];
+		for (String s : headerMap.keySet()) {
+			this.fileHeaders[headerMap.get(s)] = s;
+		}
+		return this.parser;
+	}
+	
+	/**
+	 * Parse a CSV file on several threads, handing back records in the same order.
+	 * Call before reading any records.  Has no effect on CSV content, or if the default charset can't be split by bytes.
+	 * Threads and read-ahead are capped:  see ParallelCSVReader.
+	 * @param threads - parsing threads, or 0 to parse on the reading thread
+	 */
+	public void setParallelParsing(int threads) {
+		this.setParallelParsing(threads, ParallelCSVReader.DEFAULT_CHUNK_BYTES);
+	}
+	
+	/**
+	 * @param threads - parsing threads, or 0 to parse on the reading thread
+	 * @param chunkBytes - approximate size of the chunks each thread parses
+	 */
+	public void setParallelParsing(int threads, int chunkBytes) {
+		if (threads > 1 && !ParallelCSVReader.isSupported()) {
+			LocalLogger.logToStdErr("default charset can't be split for parallel CSV parsing:  parsing sequentially");
+			threads = 0;
+		}
+		this.parseThreads = threads;
+		this.parseChunkBytes = chunkBytes;
+	}
+	
+	/**
+	 * Buffered reader on a CSV file, past any Byte Order Marker
+	 */
+	private static Reader openFile(String path) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(path), READ_BUFFER_SIZE);
+		reader.mark(1);
+		if(reader.read() == 65279){
+			LocalLogger.logToStdErr("first header is led by a Byte Order Marker. it has been removed to prevent issues in parsing.");
+		}else{
+			reader.reset();
+		}
+		return reader;
+	}
+	
+	private void closeParser() throws IOException {
+		if(this.parser != null){
+			this.parser.close();
+			this.parser = null;
+		}
+		if(this.parallelReader != null){
+			this.parallelReader.close();
+			this.parallelReader = null;
+		}
+	}
+	
 	private CSVParser getParser(Reader reader) throws Exception{
 		// return (CSVFormat.EXCEL.withHeader().withIgnoreHeaderCase(true).parse(reader));
-		return (CSVFormat.EXCEL.withHeader().withIgnoreHeaderCase(true).withQuote('"').withEscape('\\').withIgnoreEmptyLines(true).parse(reader)); // changed toward handling quotes in stream. the were breaking
+		return (getFormat().withHeader().parse(reader));
+	}
+	
+	private static CSVFormat getFormat() {
+		return CSVFormat.EXCEL.withIgnoreHeaderCase(true).withQuote('"').withEscape('\\').withIgnoreEmptyLines(true); // changed toward handling quotes in stream. the were breaking
 																										// solution suggestion: http://stackoverflow.com/questions/26729799/invalid-char-between-encapsulated-token-and-delimiter-in-apache-commons-csv-libr
 	}
 	
+	/**
+	 * The values of headers from a record
+	 * @return row, or null if record is an empty line
+	 */
+	static ArrayList<String> toRow(CSVRecord record, String[] headers) {
+		if(record.size() == 1 && record.get(0).trim().isEmpty()) {
+			LocalLogger.logToStdOut("Empty CSV row, continuing...");
+			return null;  // this is an empty line, skip it
+		}
+		
+		ArrayList<String> currRow = new ArrayList<String>();
+		for(int j = 0; j < headers.length; j++){
+			// add the next entry to the list. 
+			try{
+			currRow.add(record.get(headers[j]) );
+			}
+			catch( Exception eee){
+				LocalLogger.logToStdOut("exception getting data for header");
+			}
+		}
+		return currRow;
+	}
+	
 	@Override
 	/**
 	 * Read the next set of rows from the CSV file
@@ -167,26 +269,22 @@ public class CSVDataset extends Dataset {
 		if(headers == null){
 			throw new Exception("Dataset headers are not available");
 		}
+		if(this.parseThreads > 1 && this.csvPath != null){
+			if(this.parallelReader == null){
+				this.parallelReader = new ParallelCSVReader(this.csvPath, getFormat(), this.fileHeaders, this.headers, this.parseThreads, this.parseChunkBytes);
+			}
+			return this.parallelReader.getNextRecords(numRecords);
+		}
+		
 		ArrayList<ArrayList<String>> rows = new ArrayList<ArrayList<String>>();
 		CSVRecord record;
 		
 		for(int i = 0; i < numRecords; i++){ // read the specified number of records
 			try{
-				ArrayList<String> currRow = new ArrayList<String>();
 				record = this.recordIterator.next();
-                if(record.size() == 1 && record.get(0).trim().isEmpty()) {
-                	LocalLogger.logToStdOut("Empty CSV row, continuing...");
-                	continue;  // this is an empty line, skip it
-                }
-				
-				for(int j = 0; j < headers.length; j++){
-					// add the next entry to the list. 
-					try{
-					currRow.add(record.get(headers[j]) );
-					}
-					catch( Exception eee){
-						LocalLogger.logToStdOut("exception getting data for header");
-					}
+				ArrayList<String> currRow = toRow(record, this.headers);
+				if(currRow == null){
+					continue;
 				}
 				rows.add(currRow);
 			}catch(NoSuchElementException e){
@@ -219,20 +317,14 @@ public class CSVDataset extends Dataset {
 	 */
 	@Override
 	public void reset() throws Exception {
-		if(csvPath != null){
-			this.recordIterator = getParser(new FileReader(this.csvPath)).iterator();
-		}else if(csvString != null){
-			this.recordIterator = getParser(new StringReader(this.csvString)).iterator();
-		}else{
-			throw new Exception("No CSV path or content available");
-		}
+		this.open();
 	}	
 	
 	/**
 	 * Close the dataset
 	 */
-	public void close(){
-		// no action needed
+	public void close() throws Exception {
+		this.closeParser();
 	}
 
 }
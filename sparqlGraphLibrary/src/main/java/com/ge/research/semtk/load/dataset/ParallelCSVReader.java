@@ -0,0 +1,294 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load.dataset;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads a CSV file's records in order, parsing chunks of it in parallel.
+ *
+ * The calling thread splits the file into chunks of about chunkBytes, cutting only at a newline
+ * that ends a record.  Finding those is a byte scan following the parser's quote and escape rules,
+ * so quoted newlines don't split a record.  A pool parses the chunks, and getNextRecords() hands
+ * back their rows in file order, so row numbers are the same as reading sequentially.
+ *
+ * At most (threads * 2) chunks are read ahead of the caller, and no more than MAX_READ_AHEAD_BYTES of them.
+ * Threads are capped at MAX_THREADS.
+ *
+ * Needs a charset where newline, comma, quote and backslash are their single ASCII bytes
+ * (UTF-8, ISO-8859-*, etc.):  see isSupported().
+ */
+public class ParallelCSVReader {
+
+	public static final int DEFAULT_CHUNK_BYTES = 4 * 1024 * 1024;
+	public static final int MAX_THREADS = 8;
+	public static final int MAX_READ_AHEAD_BYTES = 64 * 1024 * 1024;
+
+	// splitter states
+	private static final int FIELD_START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	private static final int QUOTED_QUOTE = 3;		// quote inside a quoted field: doubled quote or end of field
+	private static final int ESCAPED = 4;
+	private static final int QUOTED_ESCAPED = 5;
+
+	private final CSVFormat format;
+	private final String [] fileHeaders;
+	private final String [] headers;
+	private final Charset charset;
+	private final int chunkBytes;
+	private final int maxChunksAhead;
+
+	private InputStream in;
+	private ExecutorService pool;
+	private ArrayDeque<Future<ArrayList<ArrayList<String>>>> chunks = new ArrayDeque<Future<ArrayList<ArrayList<String>>>>();
+	private ArrayList<ArrayList<String>> rows = null;	// rows of the chunk being handed out
+	private int rowIndex = 0;
+
+	// splitter
+	private byte [] carry = new byte[0];		// bytes after the last record boundary
+	private boolean eof = false;
+	private boolean firstChunk = true;
+
+	/**
+	 * @param path - CSV file, with a header row
+	 * @param format - format of the file, without headers
+	 * @param fileHeaders - every header in the file, in order
+	 * @param headers - headers to return, in the order to return them
+	 * @param threads - parsing threads, at most MAX_THREADS
+	 * @param chunkBytes - approximate chunk size, at most MAX_READ_AHEAD_BYTES
+	 */
+	public ParallelCSVReader(String path, CSVFormat format, String [] fileHeaders, String [] headers, int threads, int chunkBytes) throws IOException {
+		this.format = format;
+		this.fileHeaders = fileHeaders;
+		this.headers = headers;
+		this.charset = Charset.defaultCharset();
+		this.chunkBytes = Math.max(1, Math.min(chunkBytes, MAX_READ_AHEAD_BYTES));
+		threads = Math.max(1, Math.min(threads, MAX_THREADS));
+		this.maxChunksAhead = Math.max(1, Math.min(threads * 2, MAX_READ_AHEAD_BYTES / this.chunkBytes));
+		this.in = new FileInputStream(path);
+		this.pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "csv-parse");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Can files in the default charset be split on their bytes
+	 */
+	public static boolean isSupported() {
+		return Arrays.equals("\n,\"\\".getBytes(Charset.defaultCharset()), new byte [] { '\n', ',', '"', '\\' });
+	}
+
+	/**
+	 * Next rows, in file order
+	 * @param numRecords
+	 * @return up to numRecords rows, empty when the file is done
+	 * @throws Exception - parse errors
+	 */
+	public ArrayList<ArrayList<String>> getNextRecords(int numRecords) throws Exception {
+		ArrayList<ArrayList<String>> ret = new ArrayList<ArrayList<String>>();
+		while (ret.size() < numRecords) {
+			if (this.rows == null || this.rowIndex >= this.rows.size()) {
+				this.rows = this.nextChunkRows();
+				this.rowIndex = 0;
+				if (this.rows == null) {
+					break;
+				}
+				continue;
+			}
+			int n = Math.min(numRecords - ret.size(), this.rows.size() - this.rowIndex);
+			ret.addAll(this.rows.subList(this.rowIndex, this.rowIndex + n));
+			this.rowIndex += n;
+		}
+		return ret;
+	}
+
+	public void close() throws IOException {
+		this.pool.shutdownNow();
+		this.chunks.clear();
+		this.in.close();
+	}
+
+	/**
+	 * Rows of the next chunk, or null at end of file
+	 */
+	private ArrayList<ArrayList<String>> nextChunkRows() throws Exception {
+		this.fillAhead();
+		Future<ArrayList<ArrayList<String>>> next = this.chunks.poll();
+		if (next == null) {
+			return null;
+		}
+		this.fillAhead();
+		try {
+			return next.get();
+		} catch (ExecutionException e) {
+			throw new Exception("Error parsing CSV", e.getCause());
+		}
+	}
+
+	private void fillAhead() throws IOException {
+		while (this.chunks.size() < this.maxChunksAhead) {
+			byte [] chunk = this.nextChunk();
+			if (chunk == null) {
+				return;
+			}
+			final boolean hasHeader = this.firstChunk;
+			this.firstChunk = false;
+			this.chunks.add(this.pool.submit(() -> this.parse(chunk, hasHeader)));
+		}
+	}
+
+	private ArrayList<ArrayList<String>> parse(byte [] chunk, boolean hasHeader) throws IOException {
+		String text = new String(chunk, this.charset);
+		if (hasHeader && text.length() > 0 && text.charAt(0) == 65279) {
+			text = text.substring(1);    // Byte Order Marker
+		}
+		CSVFormat chunkFormat = hasHeader ? this.format.withHeader() : this.format.withHeader(this.fileHeaders);
+		ArrayList<ArrayList<String>> ret = new ArrayList<ArrayList<String>>();
+		try (CSVParser parser = chunkFormat.parse(new StringReader(text))) {
+			for (CSVRecord record : parser) {
+				ArrayList<String> row = CSVDataset.toRow(record, this.headers);
+				if (row != null) {
+					ret.add(row);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Read the next chunk, ending at a record boundary
+	 * @return chunk, or null at end of file
+	 */
+	private byte [] nextChunk() throws IOException {
+		while (true) {
+			int boundary = this.scan();
+			if (boundary > 0 && (this.carry.length >= this.chunkBytes || this.eof)) {
+				return this.take(boundary);
+			}
+			if (this.eof) {
+				return (this.carry.length > 0) ? this.take(this.carry.length) : null;
+			}
+			this.read();
+		}
+	}
+
+	/**
+	 * Read another block onto carry
+	 */
+	private void read() throws IOException {
+		byte [] buf = new byte[this.chunkBytes];
+		int len = 0;
+		while (len < buf.length) {
+			int n = this.in.read(buf, len, buf.length - len);
+			if (n < 0) {
+				this.eof = true;
+				break;
+			}
+			len += n;
+		}
+		byte [] grown = Arrays.copyOf(this.carry, this.carry.length + len);
+		System.arraycopy(buf, 0, grown, this.carry.length, len);
+		this.carry = grown;
+	}
+
+	/**
+	 * Split off the first len bytes of carry
+	 */
+	private byte [] take(int len) {
+		byte [] ret = Arrays.copyOfRange(this.carry, 0, len);
+		this.carry = Arrays.copyOfRange(this.carry, len, this.carry.length);
+		return ret;
+	}
+
+	/**
+	 * Scan carry, which starts at a record since everything up to the last boundary was taken.
+	 * @return offset just past the last record-ending newline in carry, or 0 if none
+	 */
+	private int scan() {
+		int boundary = 0;
+		int s = FIELD_START;
+
+		for (int i = 0; i < this.carry.length; i++) {
+			byte b = this.carry[i];
+			switch (s) {
+			case FIELD_START:
+			case UNQUOTED:
+				if (b == '\n') {
+					s = FIELD_START;
+					boundary = i + 1;
+				} else if (b == ',' || b == '\r') {
+					s = FIELD_START;
+				} else if (b == '\\') {
+					s = ESCAPED;
+				} else if (b == '"' && s == FIELD_START) {
+					s = QUOTED;
+				} else {
+					s = UNQUOTED;
+				}
+				break;
+			case ESCAPED:
+				s = UNQUOTED;
+				break;
+			case QUOTED:
+				if (b == '"') {
+					s = QUOTED_QUOTE;
+				} else if (b == '\\') {
+					s = QUOTED_ESCAPED;
+				}
+				break;
+			case QUOTED_ESCAPED:
+				s = QUOTED;
+				break;
+			case QUOTED_QUOTE:
+				if (b == '"') {
+					s = QUOTED;
+				} else if (b == '\n') {
+					s = FIELD_START;
+					boundary = i + 1;
+				} else if (b == ',' || b == '\r') {
+					s = FIELD_START;
+				} else if (b == '\\') {
+					s = ESCAPED;
+				} else {
+					s = UNQUOTED;
+				}
+				break;
+			}
+		}
+		return boundary;
+	}
+}
@@ -19,6 +19,8 @@
 package com.ge.research.semtk.load.utility;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 
 import com.ge.research.semtk.belmont.NodeGroup;
 import com.ge.research.semtk.load.DataLoader;
@@ -28,6 +30,7 @@ import com.ge.research.semtk.load.utility.ImportSpecHandler;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
 import com.ge.research.semtk.resultSet.Table;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
+import com.ge.research.semtk.utility.LocalLogger;
 /*
  * Takes multiple data records and uses them to populate NodeGroups.
  */
@@ -105,6 +108,14 @@ public class DataToModelTransformer {
 		this.batchSize = bSize;
 	}
 	
+	public void setUriCache(UriCache uriCache){
+		this.importSpec.setUriCache(uriCache);
+	}
+	
+	public UriCache getUriCache(){
+		return this.importSpec.getUriCache();
+	}
+	
 	public ArrayList<ArrayList<String>> getNextRecordsFromDataSet(int nRecordsRequested) throws Exception{
 		 return this.ds.getNextRecords(nRecordsRequested);
 	}
@@ -134,6 +145,30 @@ public class DataToModelTransformer {
 	}
 
 	public ArrayList<NodeGroup> convertToNodeGroups(ArrayList<ArrayList<String>> resp, boolean skipValidation) throws Exception {
+		int firstRecordNumber = this.reserveRecordNumbers(resp == null ? 0 : resp.size());
+		return this.convertToNodeGroups(resp, firstRecordNumber, skipValidation, null);
+	}
+	
+	/**
+	 * Claim record numbers for a batch, so batches converted on different threads report the right rows
+	 * @param count - records in the batch
+	 * @return record number of the batch's first record, counting from 1
+	 */
+	public synchronized int reserveRecordNumbers(int count) {
+		int first = this.totalRecordsProcessed + 1;
+		this.totalRecordsProcessed += count;
+		return first;
+	}
+	
+	/**
+	 * Convert a batch of records.  Thread-safe:  failures are added to the error report.
+	 * @param resp - records
+	 * @param firstRecordNumber - record number of the first record, from reserveRecordNumbers()
+	 * @param skipValidation
+	 * @param values - if not null, gets each converted record's values, to build again later with buildNodeGroups()
+	 * @return nodegroups for records that converted
+	 */
+	public ArrayList<NodeGroup> convertToNodeGroups(ArrayList<ArrayList<String>> resp, int firstRecordNumber, boolean skipValidation, ArrayList<String[][]> values) throws Exception {
 		// take the response we received and build the result node groups we care about.
 		ArrayList<NodeGroup> retval = new ArrayList<NodeGroup>();
 		
@@ -142,18 +177,35 @@ public class DataToModelTransformer {
 			return retval;
 		}
 		
+		// look up the batch's URIs together
+		HashMap<String, String> lookupFailures = null;
+		if(this.importSpec.hasUriLookups()){
+			try{
+				lookupFailures = this.importSpec.lookupUris(resp);
+			}
+			catch(Exception e){
+				// each record will look up its own URIs
+				LocalLogger.printStackTrace(e);
+			}
+		}
+		
+		int recordNumber = firstRecordNumber - 1;
 		for(ArrayList<String> curr : resp){
-			this.totalRecordsProcessed += 1;
+			recordNumber += 1;
 			
 			// get our new node group
 			NodeGroup cng = null;
 			
 			// add the values from the results to it.
 			try{
-				cng = this.importSpec.buildImportNodegroup(curr, skipValidation);
+				String[][] recordValues = this.importSpec.buildImportValues(curr, skipValidation, lookupFailures);
+				cng = this.importSpec.buildImportNodegroup(recordValues);
 			
 				// add the new group to the output arraylist, only if it succceeded
 				retval.add(cng);
+				if(values != null){
+					values.add(recordValues);
+				}
 			}
 			catch(Exception e){
 				// some variety of failure occured.
@@ -164,13 +216,41 @@ public class DataToModelTransformer {
 				}
 				// add error report columns
 				newErrorReport.add(e.getMessage());
-				newErrorReport.add(this.totalRecordsProcessed + "");
-				this.failuresEncountered.addRow(newErrorReport);
+				newErrorReport.add(recordNumber + "");
+				synchronized(this.failuresEncountered){
+					this.failuresEncountered.addRow(newErrorReport);
+				}
 			}
 		}
 			
 		return retval;
 	}
+	
+	/**
+	 * Build nodegroups from values kept by convertToNodeGroups()
+	 */
+	public ArrayList<NodeGroup> buildNodeGroups(ArrayList<String[][]> values) throws Exception {
+		ArrayList<NodeGroup> retval = new ArrayList<NodeGroup>();
+		for(String[][] recordValues : values){
+			retval.add(this.importSpec.buildImportNodegroup(recordValues));
+		}
+		return retval;
+	}
+	
+	/**
+	 * Put the error report in record order, since batches may finish out of order
+	 */
+	public void sortErrorReport() throws Exception {
+		synchronized(this.failuresEncountered){
+			int col = this.failuresEncountered.getColumnIndex(DataLoader.FAILURE_RECORD_COLUMN_NAME);
+			ArrayList<ArrayList<String>> rows = new ArrayList<ArrayList<String>>(this.failuresEncountered.getRows());
+			Collections.sort(rows, (a, b) -> Integer.compare(Integer.parseInt(a.get(col)), Integer.parseInt(b.get(col))));
+			this.failuresEncountered.clearRows();
+			for(ArrayList<String> row : rows){
+				this.failuresEncountered.addRow(row);
+			}
+		}
+	}
 
 	public void closeDataSet() throws Exception {
 		this.ds.close();
@@ -22,7 +22,12 @@ import java.net.URI;
 import java.sql.Time;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -48,6 +53,9 @@ import com.ge.research.semtk.utility.Utility;
 
 public class ImportSpecHandler {
 	
+	// most keys resolved by one batched URI lookup query
+	public static final int URI_LOOKUP_BATCH_MAX = 500;
+	
 	JSONObject importspec = null; 
 	
 	JSONObject ngJson = null;
@@ -60,12 +68,18 @@ public class ImportSpecHandler {
 	ImportMapping mappings[] = null;
 	String [] colsUsedKeys = null;
 	
+	// nodegroup compiled for per-record instantiation, and the template slot of each mapping
+	ImportTemplate template = null;
+	int mappingSlots[] = null;
+	int uriLookupNodeIndexes[] = null;
+	
 	UriResolver uriResolver;
 	OntologyInfo oInfo;
 	
 	// for each node index, the mappings that do URI lookup
 	HashMap<Integer, ArrayList<ImportMapping>> uriLookup = new HashMap<Integer, ArrayList<ImportMapping>>();
-	HashMap<String, String> uriCache = new HashMap<String, String>();
+	UriCache uriCache = new UriCache();
+	String uriCacheScope = null;    // separates this import's lookup keys from others sharing the cache
 	
 	// TODO questionable design
 	SparqlEndpointInterface endpoint = null;
@@ -77,6 +91,7 @@ public class ImportSpecHandler {
 		NodeGroup ng = NodeGroup.getInstanceFromJson(ngJson);
 		ng.reset();
 		this.ngJson = ng.toJson();
+		this.uriCacheScope = UUID.nameUUIDFromBytes((this.ngJson.toJSONString() + importSpecJson.toJSONString()).getBytes()).toString();
 		
 		this.oInfo = oInfo;
 		
@@ -101,6 +116,17 @@ public class ImportSpecHandler {
 		this.endpoint = endpoint;
 	}
 	
+	/**
+	 * Use a cache for URI lookups, e.g. one shared by all loads to the same graph
+	 */
+	public void setUriCache(UriCache uriCache) {
+		this.uriCache = uriCache;
+	}
+	
+	public UriCache getUriCache() {
+		return this.uriCache;
+	}
+	
 	public void setHeaders(ArrayList<String> headers) throws Exception{
 		int counter = 0;
 		for(String h : headers){
@@ -265,7 +291,35 @@ public class ImportSpecHandler {
 		// create some final efficient arrays
 		this.mappings = mappingsList.toArray(new ImportMapping[mappingsList.size()]);
 		this.colsUsedKeys = this.colsUsed.keySet().toArray(new String[this.colsUsed.size()]);
-
+		
+		this.setupTemplate();
+	}
+	
+	/**
+	 * Compile the nodegroup and mappings into a template, so records don't have to copy the whole nodegroup
+	 * @throws Exception
+	 */
+	private void setupTemplate() throws Exception {
+		NodeGroup tmpNodegroup = NodeGroup.getInstanceFromJson(this.ngJson);
+		this.template = new ImportTemplate(tmpNodegroup, this.mappings, this.uriLookup.keySet());
+		
+		this.mappingSlots = new int[this.mappings.length];
+		for (int i=0; i < this.mappings.length; i++) {
+			ImportMapping mapping = this.mappings[i];
+			if (mapping.isProperty()) {
+				this.mappingSlots[i] = this.template.getPropertySlot(mapping.getsNodeIndex(), mapping.getPropItemIndex());
+			} else {
+				this.mappingSlots[i] = this.template.getNodeSlot(mapping.getsNodeIndex());
+			}
+		}
+		
+		// lookups happen in node order
+		ArrayList<Integer> lookupList = new ArrayList<Integer>(this.uriLookup.keySet());
+		Collections.sort(lookupList);
+		this.uriLookupNodeIndexes = new int[lookupList.size()];
+		for (int i=0; i < lookupList.size(); i++) {
+			this.uriLookupNodeIndexes[i] = lookupList.get(i);
+		}
 	}
 	
 	/**
@@ -347,35 +401,48 @@ public class ImportSpecHandler {
 	 * Create a nodegroup from a single record (row) of data
 	 */
 	public NodeGroup buildImportNodegroup(ArrayList<String> record, boolean skipValidation) throws Exception{
+		return this.buildImportNodegroup(record, skipValidation, null);
+	}
+	
+	/**
+	 * Create a nodegroup from a single record (row) of data
+	 * @param lookupFailures - URI lookup errors from lookupUris(), or null
+	 */
+	public NodeGroup buildImportNodegroup(ArrayList<String> record, boolean skipValidation, HashMap<String, String> lookupFailures) throws Exception{
+		return this.buildImportNodegroup(this.buildImportValues(record, skipValidation, lookupFailures));
+	}
+	
+	/**
+	 * Look up, build and validate a record's values:  everything but building the nodegroup.
+	 * Lets a converted record be kept compactly, then built with buildImportNodegroup(String[][]).
+	 * @param lookupFailures - URI lookup errors from lookupUris(), or null
+	 * @return { node values, property values } by template slot
+	 */
+	public String[][] buildImportValues(ArrayList<String> record, boolean skipValidation, HashMap<String, String> lookupFailures) throws Exception{
 
-		// create a new nodegroup copy
-		NodeGroup retVal = NodeGroup.getInstanceFromJson(this.ngJson);
-		retVal.clearOrderBy();
-		
 		if(record  == null){ throw new Exception("incoming record cannot be null for ImportSpecHandler.getValues"); }
 		if(this.colIndexHash.isEmpty()){ throw new Exception("the header positions were never set for the importspechandler"); }
 		
+		// values for this record, by template slot
+		String [] nodeValues = new String[this.template.getNodeCount()];
+		String [] propValues = new String[this.template.getPropertyCount()];
+		
 		// do URI lookups first
-		for (int i=0; i < retVal.getNodeCount(); i++) {
-			if (this.uriLookup.containsKey(i)) {
-				String uri = this.lookupUri(i, record);
-				retVal.getNode(i).setInstanceValue(uri);
-			}
+		for (int nodeIndex : this.uriLookupNodeIndexes) {
+			nodeValues[this.template.getNodeSlot(nodeIndex)] = this.lookupUri(nodeIndex, record, lookupFailures);
 		}
 		
 		// do mappings second
 		for (int i=0; i < this.mappings.length; i++) {
 			ImportMapping mapping = mappings[i];
+			int slot = this.mappingSlots[i];
 			String builtString = mapping.buildString(record);
-			Node node = retVal.getNode(mapping.getsNodeIndex());
-			PropertyItem propItem = null;
 			
 			if (mapping.isProperty()) {
 				// ---- property ----
 				if(builtString.length() > 0) {
-					propItem = node.getPropertyItem(mapping.getPropItemIndex());
-					builtString = validateDataType(builtString, propItem.getValueType(), skipValidation);						
-					propItem.addInstanceValue(builtString);
+					builtString = validateDataType(builtString, this.template.getPropertyValueType(slot), skipValidation);						
+					propValues[slot] = builtString;
 				}
 				
 			} else {				
@@ -384,26 +451,34 @@ public class ImportSpecHandler {
 				
 				// if node has uri lookup
 				if (this.uriLookup.containsKey(mapping.getsNodeIndex())) {
-					LocalLogger.logToStdErr("Node has uriLookup and mapping: " + node.getSparqlID());
+					LocalLogger.logToStdErr("Node has uriLookup and mapping: " + this.template.getNodeSparqlID(slot));
 				}
 				
 				// if build string is null
 				else if(builtString.length() < 1){
-					node.setInstanceValue(null);
+					nodeValues[slot] = null;
 				}
 				
 				// use built string
 				else{
-					String uri = this.uriResolver.getInstanceUriWithPrefix(node.getFullUriName(), builtString);
+					String uri = this.uriResolver.getInstanceUriWithPrefix(this.template.getNodeClassUri(slot), builtString);
 					if (! SparqlToXUtils.isLegalURI(uri)) { throw new Exception("Attempting to insert ill-formed URI: " + uri); }
-					node.setInstanceValue(uri);
+					nodeValues[slot] = uri;
 				}
 			}
 			
 		}
 			
-		// prune nodes that no longer belong (no uri and no properties)
-		retVal.pruneAllUnused(true);
+		return new String[][] { nodeValues, propValues };
+	}
+	
+	/**
+	 * Create a nodegroup from values built by buildImportValues()
+	 */
+	public NodeGroup buildImportNodegroup(String[][] values) throws Exception{
+		
+		// build the nodegroup, pruning nodes that no longer belong (no uri and no properties)
+		NodeGroup retVal = this.template.buildNodegroup(values[0], values[1]);
 		
 		// set URI for nulls
 		retVal = this.setURIsForBlankNodes(retVal);
@@ -411,36 +486,171 @@ public class ImportSpecHandler {
 		return retVal;
 	}
 	
+	public boolean hasUriLookups() {
+		return this.uriLookupNodeIndexes.length > 0;
+	}
+	
+	/**
+	 * Look up the URIs for a batch of records:  one VALUES-constrained query per lookup node
+	 * instead of one query per record.
+	 * Found URIs are cached for buildImportNodegroup().
+	 * @param records
+	 * @return error message for each lookup key that is missing or ambiguous, so each record using it can report it
+	 * @throws Exception
+	 */
+	public HashMap<String, String> lookupUris(ArrayList<ArrayList<String>> records) throws Exception {
+		HashMap<String, String> failures = new HashMap<String, String>();
+		
+		for (int nodeIndex : this.uriLookupNodeIndexes) {
+			ArrayList<ImportMapping> lookupMappings = this.uriLookup.get(nodeIndex);
+			
+			// distinct keys that aren't cached yet
+			LinkedHashMap<String, String[]> keys = new LinkedHashMap<String, String[]>();
+			for (ArrayList<String> record : records) {
+				String [] builtStrings = new String[lookupMappings.size()];
+				try {
+					for (int j=0; j < builtStrings.length; j++) {
+						builtStrings[j] = lookupMappings.get(j).buildString(record);
+					}
+				} catch (Exception e) {
+					// record will report this when it is built
+					continue;
+				}
+				String cacheKey = buildLookupCacheKey(nodeIndex, builtStrings);
+				if (!this.uriCache.contains(cacheKey)) {
+					keys.put(cacheKey, builtStrings);
+				}
+			}
+			
+			ArrayList<String> keyList = new ArrayList<String>(keys.keySet());
+			for (int start=0; start < keyList.size(); start += URI_LOOKUP_BATCH_MAX) {
+				List<String> chunk = keyList.subList(start, Math.min(start + URI_LOOKUP_BATCH_MAX, keyList.size()));
+				this.lookupUriBatch(nodeIndex, chunk, keys, failures);
+			}
+		}
+		return failures;
+	}
+	
+	/**
+	 * Run one lookup query for a set of keys
+	 * @param nodeIndex - node being looked up
+	 * @param chunk - cache keys to look up
+	 * @param keys - built strings for each cache key
+	 * @param failures - add errors for missing or ambiguous keys
+	 * @throws Exception
+	 */
+	private void lookupUriBatch(int nodeIndex, List<String> chunk, HashMap<String, String[]> keys, HashMap<String, String> failures) throws Exception {
+		ArrayList<ImportMapping> lookupMappings = this.uriLookup.get(nodeIndex);
+		
+		NodeGroup tmpNodegroup = NodeGroup.getInstanceFromJson(this.ngJson);
+		tmpNodegroup.clearOrderBy();
+		Node lookupNode = tmpNodegroup.getNode(nodeIndex);
+		tmpNodegroup.setIsReturned(lookupNode, true);
+		
+		// return each lookup item, constrained to all its values in the chunk
+		String [] itemIDs = new String[lookupMappings.size()];
+		ArrayList<HashSet<String>> itemValues = new ArrayList<HashSet<String>>();
+		for (int j=0; j < lookupMappings.size(); j++) {
+			ImportMapping mapping = lookupMappings.get(j);
+			LinkedHashSet<String> vals = new LinkedHashSet<String>();
+			for (String key : chunk) {
+				vals.add(keys.get(key)[j]);
+			}
+			itemValues.add(vals);
+			
+			if (mapping.isNode()) {
+				Node node = tmpNodegroup.getNode(mapping.getsNodeIndex());
+				tmpNodegroup.setIsReturned(node, true);
+				node.setValueConstraint(new ValueConstraint(ValueConstraint.buildValuesConstraint(node, new ArrayList<String>(vals))));
+				itemIDs[j] = node.getSparqlID();
+			} else {
+				PropertyItem prop = tmpNodegroup.getNode(mapping.getsNodeIndex()).getPropertyItem(mapping.getPropItemIndex());
+				tmpNodegroup.setIsReturned(prop, true);
+				prop.setValueConstraint(new ValueConstraint(ValueConstraint.buildValuesConstraint(prop, new ArrayList<String>(vals))));
+				itemIDs[j] = prop.getSparqlID();
+			}
+		}
+		
+		String query = tmpNodegroup.generateSparql(AutoGeneratedQueryTypes.QUERY_DISTINCT, false, 0, null);
+		SparqlEndpointInterface endpointCopy = this.endpoint.copy();
+		TableResultSet res = (TableResultSet) endpointCopy.executeQueryAndBuildResultSet(query, SparqlResultTypes.TABLE);
+		res.throwExceptionIfUnsuccessful();
+		Table tab = res.getTable();
+		
+		int uriCol = tab.getColumnIndex(lookupNode.getSparqlID().substring(1));
+		int [] itemCols = new int[itemIDs.length];
+		for (int j=0; j < itemIDs.length; j++) {
+			itemCols[j] = tab.getColumnIndex(itemIDs[j].substring(1));
+		}
+		
+		// match answers back to keys
+		HashSet<String> chunkKeys = new HashSet<String>(chunk);
+		HashMap<String, String> found = new HashMap<String, String>();
+		HashSet<String> ambiguous = new HashSet<String>();
+		boolean unmatchedValues = false;
+		for (int r=0; r < tab.getNumRows(); r++) {
+			String [] vals = new String[itemCols.length];
+			boolean requestedValues = true;
+			for (int j=0; j < itemCols.length; j++) {
+				vals[j] = tab.getCell(r, itemCols[j]);
+				requestedValues = requestedValues && itemValues.get(j).contains(vals[j]);
+			}
+			String key = buildLookupCacheKey(nodeIndex, vals);
+			
+			if (chunkKeys.contains(key)) {
+				String uri = tab.getCell(r, uriCol);
+				if (found.containsKey(key) && !found.get(key).equals(uri)) {
+					ambiguous.add(key);
+				}
+				found.put(key, uri);
+			} else if (!requestedValues) {
+				// triple store returned a value in a different form than requested (e.g. 01 vs 1)
+				unmatchedValues = true;
+			}
+			// else: a combination of requested values that no record asked for
+		}
+		
+		for (String key : chunk) {
+			if (ambiguous.contains(key)) {
+				failures.put(key, "URI lookup found multiple URI's");
+			} else if (found.containsKey(key)) {
+				this.uriCache.put(key, found.get(key));
+			} else if (!unmatchedValues) {
+				failures.put(key, "URI lookup failed.");
+			}
+			// else: leave it for lookupUri() to query by itself
+		}
+	}
+	
 	/**
-	 * POC ONLY
 	 * Look up a URI
-	 * @param lookupMappings
+	 * @param lookupFailures - errors from lookupUris(), or null
 	 * @return
 	 * @throws Exception 
 	 */
-	private String lookupUri(int nodeIndex, ArrayList<String> record) throws Exception {
+	private String lookupUri(int nodeIndex, ArrayList<String> record, HashMap<String, String> lookupFailures) throws Exception {
 		
 		// create a new nodegroup copy:  
 		// TODO this is too expensive.  cache one Nodegroup per nodeIndex and wipe constraints
 		ArrayList<String> builtStrings = new ArrayList<String>();
 		
 		// Build the mapping results into builtStrings
-		// and build a cacheKey
-		StringBuffer cacheKey0 = new StringBuffer();
-		cacheKey0.append(((Integer)nodeIndex).toString() + "-");
 		for (ImportMapping mapping : this.uriLookup.get(nodeIndex)) {
-			String builtStr = mapping.buildString(record);
-			builtStrings.add(builtStr);
-			cacheKey0.append(builtStr + "-");
+			builtStrings.add(mapping.buildString(record));
+		}
+		String cacheKey = buildLookupCacheKey(nodeIndex, builtStrings.toArray(new String[builtStrings.size()]));
+		
+		if (lookupFailures != null && lookupFailures.containsKey(cacheKey)) {
+			throw new Exception(lookupFailures.get(cacheKey));
 		}
-		String cacheKey = cacheKey0.toString();
 				
 		// return quickly if answer is already cached
 		// In virtuoso, saves remarkably little time.
 		// Running 1000 queries twice takes 10.5 seconds.
 		// Running them once takes 8.8 seconds
-		if (this.uriCache.containsKey(cacheKey)) {
-			return this.uriCache.get(cacheKey);
+		String cached = this.uriCache.get(cacheKey);
+		if (cached != null) {
+			return cached;
 			
 		} else {
 			// build a nodegroup and do the lookup
@@ -492,6 +702,15 @@ public class ImportSpecHandler {
 	
 	
 	
+	private String buildLookupCacheKey(int nodeIndex, String [] builtStrings) {
+		StringBuilder cacheKey = new StringBuilder();
+		cacheKey.append(this.uriCacheScope).append("-").append(nodeIndex).append("-");
+		for (String builtStr : builtStrings) {
+			cacheKey.append(builtStr).append("-");
+		}
+		return cacheKey.toString();
+	}
+	
 	/**
 	 * Return a pointer to every PropertyItem in ng that has a mapping in the import spec
 	 * @param ng
@@ -0,0 +1,289 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load.utility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+import com.ge.research.semtk.belmont.Node;
+import com.ge.research.semtk.belmont.NodeGroup;
+import com.ge.research.semtk.belmont.NodeItem;
+import com.ge.research.semtk.belmont.PropertyItem;
+import com.ge.research.semtk.ontologyTools.OntologyName;
+
+/**
+ * An import nodegroup compiled once, so that each record only fills in values.
+ *
+ * Keeps only the nodes that can receive instance data (plus the nodes needed to connect them)
+ * and, of their properties, only the mapped ones.
+ *
+ * Each record's values go into two arrays:
+ *    node values     - instance URI per node slot
+ *    property values - instance value per property slot
+ * and buildNodegroup() turns them into a small nodegroup ready for insert generation.
+ *
+ * Immutable once built, so it is shared by all ingestion threads.
+ */
+public class ImportTemplate {
+
+	// per node slot, in nodegroup order
+	private final String [] nodeSparqlIDs;
+	private final String [] nodeNames;
+	private final String [] nodeClassUris;
+	private final int [][] nodePropSlots;        // property slots owned by each node, in property order
+	private final int [][] nodeConnections;      // connection indexes owned by each node, in node item order
+
+	// per property slot
+	private final String [] propKeyNames;
+	private final String [] propValueTypes;
+	private final String [] propValueTypeUris;
+	private final String [] propUriRelations;
+
+	// per connection (one node item and the template nodes it links to)
+	private final String [] connKeyNames;
+	private final String [] connValueTypes;
+	private final String [] connValueTypeUris;
+	private final String [] connUris;
+	private final String [] connLocalNames;
+	private final int [][] connTargetSlots;
+
+	// original nodegroup index -> node slot, or -1 if the node can never hold data
+	private final int [] slotByNodeIndex;
+	// original "nodeIndex.propIndex" -> property slot
+	private final HashMap<String, Integer> slotByPropIndex = new HashMap<String, Integer>();
+
+	/**
+	 * Compile a template
+	 * @param ng - reset nodegroup.  WARNING: it is pruned down to the template as a side-effect.
+	 * @param mappings - mappings that put data into the nodegroup
+	 * @param uriLookupNodeIndexes - indexes of nodes whose URI is looked up
+	 * @throws Exception
+	 */
+	public ImportTemplate(NodeGroup ng, ImportMapping [] mappings, Set<Integer> uriLookupNodeIndexes) throws Exception {
+		ArrayList<Node> origNodes = new ArrayList<Node>(ng.getNodeList());
+
+		// mark every node that might get data, and let the nodegroup prune the rest
+		boolean [] hasData = new boolean[origNodes.size()];
+		for (ImportMapping m : mappings) {
+			hasData[m.getsNodeIndex()] = true;
+		}
+		for (Integer i : uriLookupNodeIndexes) {
+			hasData[i] = true;
+		}
+		for (int i=0; i < origNodes.size(); i++) {
+			origNodes.get(i).setInstanceValue(hasData[i] ? "template" : null);
+		}
+		ng.pruneAllUnused(true);
+
+		ArrayList<Node> kept = ng.getNodeList();
+		int nodeCount = kept.size();
+
+		this.slotByNodeIndex = new int[origNodes.size()];
+		HashMap<Node, Integer> slotByNode = new HashMap<Node, Integer>();
+		for (int i=0; i < origNodes.size(); i++) {
+			this.slotByNodeIndex[i] = kept.indexOf(origNodes.get(i));
+			if (this.slotByNodeIndex[i] > -1) {
+				slotByNode.put(origNodes.get(i), this.slotByNodeIndex[i]);
+			}
+		}
+
+		// mapped properties
+		ArrayList<PropertyItem> props = new ArrayList<PropertyItem>();
+		this.nodePropSlots = new int[nodeCount][];
+		for (int slot=0; slot < nodeCount; slot++) {
+			int nodeIndex = origNodes.indexOf(kept.get(slot));
+			ArrayList<PropertyItem> nodeProps = kept.get(slot).getPropertyItems();
+			ArrayList<Integer> slots = new ArrayList<Integer>();
+
+			for (int p=0; p < nodeProps.size(); p++) {
+				for (ImportMapping m : mappings) {
+					if (m.isProperty() && m.getsNodeIndex() == nodeIndex && m.getPropItemIndex() == p) {
+						this.slotByPropIndex.put(nodeIndex + "." + p, props.size());
+						slots.add(props.size());
+						props.add(nodeProps.get(p));
+						break;
+					}
+				}
+			}
+			this.nodePropSlots[slot] = toIntArray(slots);
+		}
+
+		int propCount = props.size();
+		this.propKeyNames = new String[propCount];
+		this.propValueTypes = new String[propCount];
+		this.propValueTypeUris = new String[propCount];
+		this.propUriRelations = new String[propCount];
+		for (int i=0; i < propCount; i++) {
+			PropertyItem p = props.get(i);
+			this.propKeyNames[i] = p.getKeyName();
+			this.propValueTypes[i] = p.getValueType();
+			this.propValueTypeUris[i] = p.getValueTypeURI();
+			this.propUriRelations[i] = p.getUriRelationship();
+		}
+
+		// connections between template nodes
+		ArrayList<NodeItem> items = new ArrayList<NodeItem>();
+		ArrayList<int[]> targets = new ArrayList<int[]>();
+		this.nodeConnections = new int[nodeCount][];
+		for (int slot=0; slot < nodeCount; slot++) {
+			ArrayList<Integer> conns = new ArrayList<Integer>();
+
+			for (NodeItem item : kept.get(slot).getNodeItemList()) {
+				ArrayList<Integer> itemTargets = new ArrayList<Integer>();
+				for (Node target : item.getNodeList()) {
+					if (slotByNode.containsKey(target)) {
+						itemTargets.add(slotByNode.get(target));
+					}
+				}
+				if (itemTargets.size() > 0) {
+					conns.add(items.size());
+					items.add(item);
+					targets.add(toIntArray(itemTargets));
+				}
+			}
+			this.nodeConnections[slot] = toIntArray(conns);
+		}
+
+		int connCount = items.size();
+		this.connKeyNames = new String[connCount];
+		this.connValueTypes = new String[connCount];
+		this.connValueTypeUris = new String[connCount];
+		this.connUris = new String[connCount];
+		this.connLocalNames = new String[connCount];
+		this.connTargetSlots = targets.toArray(new int[connCount][]);
+		for (int i=0; i < connCount; i++) {
+			NodeItem item = items.get(i);
+			this.connKeyNames[i] = item.getKeyName();
+			this.connValueTypes[i] = item.getValueType();
+			this.connValueTypeUris[i] = item.getUriValueType();
+			this.connUris[i] = item.getUriConnectBy();
+			this.connLocalNames[i] = new OntologyName(item.getUriConnectBy()).getLocalName();
+		}
+
+		// nodes
+		this.nodeSparqlIDs = new String[nodeCount];
+		this.nodeNames = new String[nodeCount];
+		this.nodeClassUris = new String[nodeCount];
+		for (int slot=0; slot < nodeCount; slot++) {
+			Node n = kept.get(slot);
+			this.nodeSparqlIDs[slot] = n.getSparqlID();
+			this.nodeNames[slot] = n.getUri(true);
+			this.nodeClassUris[slot] = n.getFullUriName();
+		}
+	}
+
+	public int getNodeCount() {
+		return this.nodeSparqlIDs.length;
+	}
+
+	public int getPropertyCount() {
+		return this.propKeyNames.length;
+	}
+
+	/**
+	 * @param nodeIndex - index in the original nodegroup
+	 * @return node slot, or -1 if the node can never hold data
+	 */
+	public int getNodeSlot(int nodeIndex) {
+		return this.slotByNodeIndex[nodeIndex];
+	}
+
+	/**
+	 * @param nodeIndex - node index in the original nodegroup
+	 * @param propIndex - property index within that node
+	 * @return property slot, or -1 if the property is not mapped
+	 */
+	public int getPropertySlot(int nodeIndex, int propIndex) {
+		Integer slot = this.slotByPropIndex.get(nodeIndex + "." + propIndex);
+		return slot == null ? -1 : slot;
+	}
+
+	public String getNodeSparqlID(int nodeSlot) {
+		return this.nodeSparqlIDs[nodeSlot];
+	}
+
+	public String getNodeClassUri(int nodeSlot) {
+		return this.nodeClassUris[nodeSlot];
+	}
+
+	public String getPropertyValueType(int propSlot) {
+		return this.propValueTypes[propSlot];
+	}
+
+	/**
+	 * Build the nodegroup for one record, pruning nodes that got no data
+	 * @param nodeValues - instance URI (or null) per node slot
+	 * @param propValues - instance value (or null) per property slot
+	 * @return new nodegroup
+	 * @throws Exception
+	 */
+	public NodeGroup buildNodegroup(String [] nodeValues, String [] propValues) throws Exception {
+		NodeGroup ng = new NodeGroup();
+		int nodeCount = this.nodeSparqlIDs.length;
+		Node [] nodes = new Node[nodeCount];
+		boolean allHaveData = true;
+
+		for (int slot=0; slot < nodeCount; slot++) {
+			ArrayList<PropertyItem> props = new ArrayList<PropertyItem>(this.nodePropSlots[slot].length);
+			for (int p : this.nodePropSlots[slot]) {
+				if (propValues[p] != null) {
+					PropertyItem prop = new PropertyItem(this.propKeyNames[p], this.propValueTypes[p], this.propValueTypeUris[p], this.propUriRelations[p]);
+					prop.addInstanceValue(propValues[p]);
+					props.add(prop);
+				}
+			}
+
+			nodes[slot] = new Node(this.nodeNames[slot], props, null, this.nodeClassUris[slot], ng);
+			nodes[slot].setSparqlID(this.nodeSparqlIDs[slot]);
+			nodes[slot].setInstanceValue(nodeValues[slot]);
+			allHaveData = allHaveData && (nodeValues[slot] != null || props.size() > 0);
+		}
+
+		for (int slot=0; slot < nodeCount; slot++) {
+			ArrayList<NodeItem> items = new ArrayList<NodeItem>(this.nodeConnections[slot].length);
+			for (int c : this.nodeConnections[slot]) {
+				NodeItem item = new NodeItem(this.connKeyNames[c], this.connValueTypes[c], this.connValueTypeUris[c]);
+				item.setConnected(true);
+				item.setConnectBy(this.connLocalNames[c]);
+				item.setUriConnectBy(this.connUris[c]);
+				for (int target : this.connTargetSlots[c]) {
+					item.pushNode(nodes[target]);
+				}
+				items.add(item);
+			}
+			nodes[slot].setNodeItems(items);
+			ng.addOneNode(nodes[slot], null, null, null);
+		}
+
+		// usual case:  every node got data and there is nothing to prune
+		if (!allHaveData) {
+			ng.pruneAllUnused(true);
+		}
+		return ng;
+	}
+
+	private static int [] toIntArray(ArrayList<Integer> list) {
+		int [] ret = new int[list.size()];
+		for (int i=0; i < ret.length; i++) {
+			ret[i] = list.get(i);
+		}
+		return ret;
+	}
+}
@@ -25,6 +25,7 @@ import org.json.simple.parser.ParseException;
 
 import com.ge.research.semtk.belmont.NodeGroup;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.sparqlX.SparqlConnection;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
 
@@ -177,7 +178,7 @@ public class SparqlGraphJson {
 	
 	public OntologyInfo getOntologyInfo() throws Exception {
 		if (oInfo == null) {
-			oInfo = new OntologyInfo(this.getSparqlConn());
+			oInfo = OntologyInfoCache.getShared().get(this.getSparqlConn());
 		}
 		return oInfo;
 	}
@@ -0,0 +1,185 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.load.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of URIs found by import URI lookups.
+ *
+ * Bounded by size (least recently used entry is evicted) and by age (entries expire ttl after they are put),
+ * so a long-lived cache can't grow without limit or keep answering long after the data changed.
+ *
+ * Loads to the same graph on the same server may share one cache through getShared().
+ * A shared cache must be emptied when its graph loses data:  the query service's dropGraph, clearPrefix,
+ * clearModel* and clearAll call clearShared(), as do SparqlQueryClient.dropGraph() and clearAll() and TestGraph.
+ * So do SparqlEndpointInterface.executeQuery() and SparqlQueryClient.execute() after any query that
+ * SparqlToXUtils.isDeleteQuery().  Clears only reach this process:  a delete sent to the triple store
+ * some other way is only caught by the ttl.
+ *
+ * Thread-safe.
+ */
+public class UriCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+	public static final long DEFAULT_TTL_MSEC = 10 * 60 * 1000;
+
+	// shared caches, by server and graph
+	private static final ConcurrentHashMap<String, UriCache> sharedCaches = new ConcurrentHashMap<String, UriCache>();
+
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final LinkedHashMap<String, Entry> map;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	private static class Entry {
+		final String uri;
+		final long expireNanos;
+
+		Entry(String uri, long expireNanos) {
+			this.uri = uri;
+			this.expireNanos = expireNanos;
+		}
+	}
+
+	public UriCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MSEC);
+	}
+
+	/**
+	 * @param maxEntries - most entries held
+	 * @param ttlMsec - how long an entry stays valid after it is put
+	 */
+	public UriCache(int maxEntries, long ttlMsec) {
+		this.maxEntries = maxEntries;
+		this.ttlNanos = ttlMsec * 1000000L;
+
+		// access order:  eldest is least recently used
+		this.map = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > UriCache.this.maxEntries) {
+					UriCache.this.evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get the cache shared by all loads to a graph
+	 * @param serverAndPort
+	 * @param graph
+	 * @return
+	 */
+	public static UriCache getShared(String serverAndPort, String graph) {
+		return sharedCaches.computeIfAbsent(serverAndPort + " " + graph, k -> new UriCache());
+	}
+	
+	/**
+	 * Empty the shared cache of one graph, e.g. after it is cleared or dropped
+	 */
+	public static void clearShared(String serverAndPort, String graph) {
+		UriCache c = sharedCaches.get(serverAndPort + " " + graph);
+		if (c != null) {
+			c.clear();
+		}
+	}
+
+	/**
+	 * Empty every shared cache, e.g. after a graph is cleared
+	 */
+	public static void clearShared() {
+		for (UriCache c : sharedCaches.values()) {
+			c.clear();
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return uri, or null if missing or expired
+	 */
+	public synchronized String get(String key) {
+		Entry e = this.map.get(key);
+		if (e != null && e.expireNanos - System.nanoTime() <= 0) {
+			this.map.remove(key);
+			this.expirations.incrementAndGet();
+			e = null;
+		}
+		if (e == null) {
+			this.misses.incrementAndGet();
+			return null;
+		} else {
+			this.hits.incrementAndGet();
+			return e.uri;
+		}
+	}
+
+	/**
+	 * Check for a live entry without counting a hit or miss
+	 */
+	public synchronized boolean contains(String key) {
+		Entry e = this.map.get(key);
+		return e != null && e.expireNanos - System.nanoTime() > 0;
+	}
+
+	public synchronized void put(String key, String uri) {
+		this.map.put(key, new Entry(uri, System.nanoTime() + this.ttlNanos));
+	}
+
+	public synchronized void clear() {
+		this.map.clear();
+	}
+
+	public synchronized int size() {
+		return this.map.size();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	public long getExpirations() {
+		return this.expirations.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("size=%d hits=%d misses=%d evictions=%d expirations=%d",
+				this.size(), this.getHits(), this.getMisses(), this.getEvictions(), this.getExpirations());
+	}
+}
@@ -19,10 +19,22 @@
 package com.ge.research.semtk.ontologyTools;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -35,7 +47,6 @@ import com.ge.research.semtk.resultSet.TableResultSet;
 import com.ge.research.semtk.sparqlX.SparqlConnection;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
 import com.ge.research.semtk.sparqlX.SparqlResultTypes;
-import com.ge.research.semtk.sparqlX.client.SparqlQueryAuthClientConfig;
 import com.ge.research.semtk.sparqlX.client.SparqlQueryClient;
 import com.ge.research.semtk.sparqlX.client.SparqlQueryClientConfig;
 import com.ge.research.semtk.utility.LocalLogger;
@@ -59,15 +70,54 @@ public class OntologyInfo {
 	private HashMap<String, ArrayList<OntologyClass>> subclassHash = new HashMap<String, ArrayList<OntologyClass>>();
 	// a list of all the enumerations available for a given class. these are handled as full uris for convenience sake. 
 	private HashMap<String, ArrayList<String>> enumerationHash = new HashMap<String, ArrayList<String>>();
+	// for each enumerated class, its values keyed by both full uri and local fragment (first value wins a fragment)
+	private HashMap<String, HashMap<String, String>> enumerationIndex = new HashMap<String, HashMap<String, String>>();
 		
-	// --- temporary hashes during path-finding ---
+	// --- temporary hashes during path-finding:  concurrent, since OntologyInfoCache shares an OntologyInfo between threads ---
 	// for each class, the collection of valid, single-hop paths to and from other classes. 
-	private HashMap<String, ArrayList<OntologyPath>> connHash = new HashMap<String, ArrayList<OntologyPath>>();
-	private ArrayList<String> pathWarnings = new ArrayList<String>();  // problems incurred searching for a path.	
+	private ConcurrentHashMap<String, ArrayList<OntologyPath>> connHash = new ConcurrentHashMap<String, ArrayList<OntologyPath>>();
+
+	// --- indexes built on first use, and cleared by clearIndexes() whenever a class or property is added ---
+	// for each class, the results of the recursive getSuperclassNames(), getSubclassNames() and getInheritedProperties()
+	private ConcurrentHashMap<String, ArrayList<String>> superclassNamesIndex = new ConcurrentHashMap<String, ArrayList<String>>();
+	private ConcurrentHashMap<String, ArrayList<String>> subclassNamesIndex = new ConcurrentHashMap<String, ArrayList<String>>();
+	private ConcurrentHashMap<String, ArrayList<OntologyProperty>> inheritedPropertiesIndex = new ConcurrentHashMap<String, ArrayList<OntologyProperty>>();
+	// transitive closure of the hierarchy:  a bit per class, set for the class and every ancestor
+	private volatile HashMap<String, Integer> classBits = null;
+	private ConcurrentHashMap<String, BitSet> ancestorBits = new ConcurrentHashMap<String, BitSet>();
+	// range class -> every (class, inherited property) with that range, for the HadBy side of getConnList()
+	private volatile HashMap<String, ArrayList<HadBy>> rangeIndex = null;
+	// findAllPaths() results, by from class, domain and targets
+	// least recently used is dropped past MAX_PATH_INDEX_SIZE.  Synchronize on it.
+	private LinkedHashMap<String, ArrayList<OntologyPath>> pathIndex = new LinkedHashMap<String, ArrayList<OntologyPath>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ArrayList<OntologyPath>> eldest) {
+			return size() > MAX_PATH_INDEX_SIZE;
+		}
+	};
+	private final static int MAX_PATH_INDEX_SIZE = 1000;
+	// bumped by clearIndexes(), so a search begun before a change isn't indexed after it.  Synchronize on pathIndex.
+	private long pathIndexGeneration = 0;
+	
+	private static class HadBy {
+		final int order;				// position in a scan of every class's inherited properties
+		final String className;
+		final OntologyProperty prop;
+		
+		HadBy(int order, String className, OntologyProperty prop) {
+			this.order = order;
+			this.className = className;
+			this.prop = prop;
+		}
+	}
 
 	private final static int MAXPATHLENGTH = 50;	// how many hops, max, allowed in a returned path between arbitrary nodes
 	private static int restCount = 0;               // a list counter
 	private final static long JSON_VERSION = 2;
+	private final static int LOAD_THREADS = 8;          // load queries running at once, over all OntologyInfos
+	private static ExecutorService loadPool = null;
 	// used in the serialization and have to be held internally in the event that an oInfo is generated 
 	// be de-serializing a json blob.
 	private SparqlConnection modelConnection;
@@ -110,9 +160,18 @@ public class OntologyInfo {
 			throw new Exception("OntologyInfo can not load a connection with an empty domain.");
 		}
 		
-		for (int i = 0; i < modelInterfaces.size(); i++) {
-    		this.load(modelInterfaces.get(i), conn.getDomain());
-    	}
+		// run every model's queries at once, then merge in model order
+		ArrayList<ArrayList<Future<String[][]>>> results = new ArrayList<ArrayList<Future<String[][]>>>();
+		try {
+			for (int i = 0; i < modelInterfaces.size(); i++) {
+				results.add(submitLoadQueries(modelInterfaces.get(i), conn.getDomain()));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				this.mergeLoadResults(results.get(i));
+			}
+		} finally {
+			cancelAllLoadQueries(results);
+		}
     }
 
 	public void loadSparqlConnection(SparqlQueryClientConfig clientConfig, SparqlConnection conn) throws Exception {
@@ -123,18 +182,19 @@ public class OntologyInfo {
 		if (conn.getDomain().isEmpty()) {
 			throw new Exception("OntologyInfo can not load a connection with an empty domain.");
 		}
-		for (int i = 0; i < configs.size(); i++) {
-			
-			// check if this is an authorized connection or not. this can be done by looking at the config files.
-			SparqlQueryClientConfig curr = configs.get(i);
-			
-			if(curr instanceof SparqlQueryAuthClientConfig){ 
-				this.load(new SparqlQueryClient( (SparqlQueryAuthClientConfig)curr ), conn.getDomain()); 
+		// run every model's queries at once, then merge in model order
+		ArrayList<ArrayList<Future<String[][]>>> results = new ArrayList<ArrayList<Future<String[][]>>>();
+		try {
+			for (int i = 0; i < configs.size(); i++) {
+				// authorized or not is decided by the config's class
+				results.add(submitLoadQueries(configs.get(i), conn.getDomain()));
 			}
-			else{ 
-				this.load(new SparqlQueryClient(curr), conn.getDomain()); 
+			for (int i = 0; i < results.size(); i++) {
+				this.mergeLoadResults(results.get(i));
 			}
-    	}
+		} finally {
+			cancelAllLoadQueries(results);
+		}
     }
 	
 	
@@ -145,7 +205,6 @@ public class OntologyInfo {
 	 **/
 	public void addClass(OntologyClass oClass){
 		String classnameStr = oClass.getNameString(false);	// get the full name of the class and do not strip URI info.
-		this.connHash.clear(); 
 		
 		this.classHash.put(classnameStr, oClass);	// silently overwrites if the class is already present.
 		// store info on the related subclasses
@@ -163,10 +222,37 @@ public class OntologyInfo {
 				this.subclassHash.get(scn).add(oClass);
 			}
 		}
+		this.clearIndexes();
+	}
+	
+	/**
+	 * Drop everything computed from the class and property hashes, after they change
+	 */
+	private void clearIndexes() {
+		this.connHash.clear();
+		this.superclassNamesIndex.clear();
+		this.subclassNamesIndex.clear();
+		this.inheritedPropertiesIndex.clear();
+		this.classBits = null;
+		this.ancestorBits.clear();
+		this.rangeIndex = null;
+		synchronized (this.pathIndex) {
+			this.pathIndex.clear();
+			this.pathIndexGeneration++;
+		}
 	}
 	
+	/**
+	 * return a list of subclass names for a given class, from the index.
+	 * if there are no known subclasses, an empty list is returned.
+	 **/
 	public ArrayList<String> getSubclassNames(String superClassName) {
-		return this.getSubclassNames(superClassName, null);
+		ArrayList<String> ret = this.subclassNamesIndex.get(superClassName);
+		if (ret == null) {
+			ret = this.getSubclassNames(superClassName, null);
+			this.subclassNamesIndex.put(superClassName, ret);
+		}
+		return new ArrayList<String>(ret);
 	}
 	/**
 	 * return a list of subclass names for a given class.
@@ -188,8 +274,16 @@ public class OntologyInfo {
 		return retval;
 	}
 	
+	/**
+	 * return a list of the superclasses for a given class, from the index.
+	 **/
 	public ArrayList<String> getSuperclassNames(String subClassName) {
-		return this.getSuperclassNames(subClassName, null);
+		ArrayList<String> ret = this.superclassNamesIndex.get(subClassName);
+		if (ret == null) {
+			ret = this.getSuperclassNames(subClassName, null);
+			this.superclassNamesIndex.put(subClassName, ret);
+		}
+		return new ArrayList<String>(ret);
 	}
 	/**
 	 * return a list of the superclasses for a given class.
@@ -218,10 +312,6 @@ public class OntologyInfo {
 		return retval;
 	}
 	
-	public ArrayList<String> getPathWarnings() {
-		return pathWarnings;
-	}
-	
 	public ArrayList<String> getPropNames() {
 		return new ArrayList<String>(this.propertyHash.keySet());
 	}
@@ -277,44 +367,28 @@ public class OntologyInfo {
 			
 			//--- calculate HadBy: class which HasA classNameStr
 			
-			// store all superclasses of target class
-			ArrayList<String> supList = this.getSuperclassNames(classNameStr);
+			// HadBy:  cName -> hasA -> class
+			// IsA + HadBy:   cName -> hasA -> superClass(class)
+			// Issue 50 : uses inherited properties
+			HashMap<String, ArrayList<HadBy>> ranges = this.getRangeIndex();
+			ArrayList<HadBy> hadBy = new ArrayList<HadBy>();
+			ArrayList<String> rangeNames = this.getSuperclassNames(classNameStr);
+			rangeNames.add(classNameStr);
+			for (String rangeName : rangeNames) {
+				if (ranges.containsKey(rangeName)) {
+					hadBy.addAll(ranges.get(rangeName));
+				}
+			}
+			// same order as scanning every class's properties
+			Collections.sort(hadBy, (h1, h2) -> Integer.compare(h1.order, h2.order));
 			
-			// loop through every single class in oInfo
-			for (String cname : this.classHash.keySet() ) {
-				
-				// loop through every property
-				// Issue 50 : fixed this to get inherited properties
-				// var cprops = this.classHash[cname].getProperties();
-				ArrayList<OntologyProperty> cprops = this.getInheritedProperties(this.classHash.get(cname));
-				
-				for (int i=0; i < cprops.size(); i++) {
-					OntologyProperty prop = cprops.get(i);
-					String rangeClassStr = prop.getRangeStr();
-					
-					// HadBy:  cName -> hasA -> class
-					if (rangeClassStr.equals(classNameStr)) {
-						path = new OntologyPath(classNameStr);
-						path.addTriple(cname, prop.getNameStr(), classNameStr);
-						hashStr = path.asString();
-						if (! foundHash.containsKey(hashStr)) {
-							ret.add(path);
-							foundHash.put(hashStr, 1);
-						}
-					}
-					
-					// IsA + HadBy:   cName -> hasA -> superClass(class)
-					for (int j = 0; j < supList.size(); j++) {
-						if (rangeClassStr.equals(supList.get(j))) {
-							path = new OntologyPath(classNameStr);
-							path.addTriple(cname, prop.getNameStr(), classNameStr);
-							hashStr = path.asString();
-							if (! foundHash.containsKey(hashStr)) {
-								ret.add(path);
-								foundHash.put(hashStr, 1);
-							}
-						}
-					}
+			for (HadBy h : hadBy) {
+				path = new OntologyPath(classNameStr);
+				path.addTriple(h.className, h.prop.getNameStr(), classNameStr);
+				hashStr = path.asString();
+				if (! foundHash.containsKey(hashStr)) {
+					ret.add(path);
+					foundHash.put(hashStr, 1);
 				}
 			}
 			this.connHash.put(classNameStr, ret);
@@ -322,6 +396,28 @@ public class OntologyInfo {
 		
 		return this.connHash.get(classNameStr);
 	}
+	
+	/**
+	 * Every class's inherited properties, indexed by range
+	 */
+	private synchronized HashMap<String, ArrayList<HadBy>> getRangeIndex() {
+		if (this.rangeIndex == null) {
+			HashMap<String, ArrayList<HadBy>> index = new HashMap<String, ArrayList<HadBy>>();
+			int order = 0;
+			for (String cname : this.classHash.keySet()) {
+				for (OntologyProperty prop : this.getInheritedProperties(this.classHash.get(cname))) {
+					String rangeClassStr = prop.getRangeStr();
+					if (! index.containsKey(rangeClassStr)) {
+						index.put(rangeClassStr, new ArrayList<HadBy>());
+					}
+					index.get(rangeClassStr).add(new HadBy(order++, cname, prop));
+				}
+			}
+			this.rangeIndex = index;
+		}
+		return this.rangeIndex;
+	}
+	
 	/**
 	 * Return a list of all the classes that are not in the range of some property.
 	 * these would always appear on the left side of a tuple (S, P, O) (except where another class is
@@ -344,8 +440,7 @@ public class OntologyInfo {
 				// the property seems to have only a single range at current. this is represented here as well
 				ArrayList<String> rangeClasses = new ArrayList<String>();
 				rangeClasses.add(currProp.getRangeStr());
-				ArrayList<String> tempSubList = null;
-				for(String sClassName : this.getSubclassNames(currProp.getRangeStr(), tempSubList)){
+				for(String sClassName : this.getSubclassNames(currProp.getRangeStr())){
 					rangeClasses.add(sClassName); // add the names.
 				}
 				
@@ -448,19 +543,41 @@ public class OntologyInfo {
 	public int getNumberOfProperties(){
 		return this.propertyHash.size();
 	}
+
+	/**
+	 * names of the enumerated classes, for OntologyInfoSnapshot
+	 **/
+	ArrayList<String> getEnumerationClassNames(){
+		return new ArrayList<String>(this.enumerationHash.keySet());
+	}
+
+	/**
+	 * index a property that OntologyInfoSnapshot has added to its classes with OntologyClass.addProperty()
+	 **/
+	void addProperty(OntologyProperty prop){
+		this.propertyHash.put(prop.getNameStr(), prop);
+		this.clearIndexes();
+	}
 	
 	/**
 	 * for a given class, return all of its properties and properties it inherits.
 	 **/
 	public ArrayList<OntologyProperty> getInheritedProperties(OntologyClass oClass){
+		String className = oClass.getNameString(false);
+		
+		// indexed only for the class object in the hash:  another with the same name may have other properties
+		boolean indexed = (this.classHash.get(className) == oClass);
+		if (indexed && this.inheritedPropertiesIndex.containsKey(className)) {
+			return new ArrayList<OntologyProperty>(this.inheritedPropertiesIndex.get(className));
+		}
+		
 		ArrayList<OntologyProperty> retval = new ArrayList<OntologyProperty>();
 		HashMap<String, OntologyProperty> tempRetval = new HashMap<String, OntologyProperty>();
 		
 		// get the full list...
 		// walk up the parent chain and then add all the properties we need. 
-		ArrayList<String> fullParentList = null; 
-		fullParentList = this.getSuperclassNames(oClass.getNameString(false), fullParentList);
-		fullParentList.add(oClass.getNameString(false));
+		ArrayList<String> fullParentList = this.getSuperclassNames(className);
+		fullParentList.add(className);
 		
 		// go through the superclass list and gather all of the properties.
 		for(String scn : fullParentList){
@@ -477,6 +594,9 @@ public class OntologyInfo {
 		for(Object propKey : keys){
 			retval.add(tempRetval.get((String)propKey));
 		}
+		if (indexed) {
+			this.inheritedPropertiesIndex.put(className, new ArrayList<OntologyProperty>(retval));
+		}
 		return retval;
 	}
 	
@@ -488,8 +608,7 @@ public class OntologyInfo {
 		HashMap<String, OntologyProperty> tempRetval = new HashMap<String, OntologyProperty>();
 		// get the full list...
 		// walk up the parent chain and then add all the properties we need. 
-		ArrayList<String> fullChildList = null; 
-		fullChildList = this.getSubclassNames(oClass.getNameString(false), fullChildList);
+		ArrayList<String> fullChildList = this.getSubclassNames(oClass.getNameString(false));
 		
 		// go through the superclass list and gather all of the properties.
 		for(String scn : fullChildList){
@@ -627,6 +746,18 @@ public class OntologyInfo {
 				ArrayList<String> enumList = new ArrayList<String>();
 				enumList.add(enumVal);
 				this.enumerationHash.put(className, enumList);
+				this.enumerationIndex.put(className, new HashMap<String, String>());
+			}
+			
+			// index enumVal by full uri and by fragment.  Values without '#' can't be matched either way.
+			int hash = enumVal.lastIndexOf("#");
+			if (hash > -1) {
+				HashMap<String, String> index = this.enumerationIndex.get(className);
+				index.put(enumVal, enumVal);
+				String fragment = enumVal.substring(hash + 1);
+				if (!index.containsKey(fragment)) {
+					index.put(fragment, enumVal);
+				}
 			}
 		}
 		
@@ -815,6 +946,7 @@ public class OntologyInfo {
 			
 			this.propertyHash.put(propertyList[i], prop);
 		}
+		this.clearIndexes();
 	}
 
 	/**
@@ -853,30 +985,23 @@ public class OntologyInfo {
 		// returns Null if classURI is not enumerated or if none of its enumeration values end in enumeration string
 		
 		// this handles both the case where the user gives just a fragment as well as the fully qualified URI value.
-		String retval = null;
-		
-		if(this.enumerationHash.containsKey(classURI)){
-			ArrayList<String> candidates = this.enumerationHash.get(classURI);
-			for(String candidate : candidates){
-				// fragment passed
-				if(!enumerationString.contains("#") && candidate.endsWith("#" + enumerationString )){
-					// found the one we want. 
-					retval = candidate;
-					break;
-				}
-				// fully qualified URI passed.
-				else if(enumerationString.contains("#") && candidate.equals(enumerationString )){
-					// found the one we want. 
-					retval = candidate;
-					break;
-				}
-			}
+		// Fragments never contain '#' and full URIs always do, so one index holds both.
+		HashMap<String, String> index = this.enumerationIndex.get(classURI);
+		if (index == null) {
+			return null;
 		}
-		// return an answer
-		return retval;
+		return index.get(enumerationString);
 	}
 	
 	public ArrayList<OntologyPath> findAllPaths(String fromClassName, ArrayList<String> targetClassNames, String domain) throws PathException, ClassException {
+		return this.findAllPaths(fromClassName, targetClassNames, domain, null);
+	}
+	
+	/**
+	 * Find paths from fromClassName to any of targetClassNames, through classes in domain
+	 * @param warnings - gets any problems incurred by this search, e.g. timing out, or null
+	 */
+	public ArrayList<OntologyPath> findAllPaths(String fromClassName, ArrayList<String> targetClassNames, String domain, ArrayList<String> warnings) throws PathException, ClassException {
 		//   NOTE:  lots of [sic] stuff in here so that this will match the Javascript VERY CLOSELY
 		//   A form of A* path finding algorithm
 		//   See getConnList() for the types of connections that are allowed
@@ -884,11 +1009,9 @@ public class OntologyInfo {
 		//        pathX.getStartClassName() == fromClassName
 		//        pathX.getEndClassName() == member of targetClassNames
 		//        pathX.asList() returns list of triple lists [[className0, att, className1], [className1, attName, className2]...]
+		//   Completed searches are remembered until the ontology changes.  Only incomplete ones have warnings.
 			
 		long t0 = System.currentTimeMillis();
-		this.pathWarnings = new ArrayList<String>();
-		ArrayList<OntologyPath> waitingList = new ArrayList<OntologyPath>();
-		waitingList.add(new OntologyPath(fromClassName));
 		ArrayList<OntologyPath> ret = new ArrayList<OntologyPath>();
 		HashMap<String, Integer> targetHash = new HashMap<String,Integer>(); // hash of all possible ending classes:  targetHash[className] = 1
 		
@@ -906,93 +1029,86 @@ public class OntologyInfo {
 		// return if there is no endpoint
 		if (targetClassNames.isEmpty()) { return ret; }
 		
-		// PEC CONFUSED:  comment placeholder 
-		// so this looks
-		// like the javascript
-		
 		// set up targetHash[targetClass] = 1
 		for (int i=0; i < targetClassNames.size(); i++) {
 			targetHash.put(targetClassNames.get(i), 1);
 		}
 		
+		String key = getPathIndexKey(fromClassName, targetHash, domain);
+		ArrayList<OntologyPath> indexed;
+		long generation;
+		synchronized (this.pathIndex) {
+			indexed = this.pathIndex.get(key);
+			generation = this.pathIndexGeneration;
+		}
+		if (indexed != null) {
+			return copyPaths(indexed);
+		}
+		
+		// waiting list of paths, each its last hop and a pointer to the rest
+		ArrayDeque<PathNode> waitingList = new ArrayDeque<PathNode>();
+		waitingList.add(new PathNode(null, null, fromClassName));
+		ArrayList<PathNode> found = new ArrayList<PathNode>();
+		boolean complete = true;
+		
 		// STOP CRITERIA A: search as long as there is a waiting list 
 		while (! waitingList.isEmpty()) {
 			// pull one off waiting list
-			OntologyPath item = waitingList.remove(0);
-			String waitClass = item.getEndClassName();
-			OntologyPath waitPath = item;
+			PathNode waitPath = waitingList.poll();
+			String waitClass = waitPath.endClass;
 			
 			// STOP CRITERIA B:  Also stop searching if:
 			//    this final path (with 1 added connection) will be longer than the first (shortest) already found path
-			if (!ret.isEmpty() && 
-				(waitPath.getLength() + 1  > ret.get(0).getLength() + LENGTH_RANGE)) {
+			if (!found.isEmpty() && 
+				(waitPath.length + 1  > found.get(0).length + LENGTH_RANGE)) {
 				break;
 			} 
 			
 			// STOP CRITERIA C: stop if path is too long
-			if (waitPath.getLength() > LONGEST_PATH) {
+			if (waitPath.length > LONGEST_PATH) {
 				break;
 			}
 			
 			// STOP CRITERIA D: too much time spent searching
-			long tt = System.currentTimeMillis();
-			// PEC TODO: false && turns it off for debugging
-			if (tt - t0 > SEARCH_TIME_MSEC) {
-				this.pathWarnings.add("Note: Path-finding timing out.  Search incomplete.");
+			if (System.currentTimeMillis() - t0 > SEARCH_TIME_MSEC) {
+				if (warnings != null) {
+					warnings.add("Note: Path-finding timing out.  Search incomplete.");
+				}
+				complete = false;
+				break;
 			}
 			
 			// get all one hop connections and loop through them
 			ArrayList<OntologyPath> conn = this.getConnList(waitClass); 
 			for (int i=0; i < conn.size(); i++) {
 				
-				//  each connection is a path with only one node (the 0th)
+				//  each connection is a path with only one triple, starting at waitClass
 				//  grab the name of the newly found class
-				String newClass = "";
-				OntologyPath newPath = null;
-				boolean loopFlag = false;
-				
-				// if the newfound class is pointed to by an attribute of one on the wait list
-				if (conn.get(i).getStartClassName().equals(waitClass)) {
-					newClass = conn.get(i).getEndClassName();
-					
-				} else {
-					newClass = conn.get(i).getStartClassName();
-				}
-				
-				// check for loops in the path before adding the class
-				if (waitPath.containsClass(newClass)) {
-					loopFlag = true;
-				} 
-				
-				// build the new path
-				Triple t = conn.get(i).getTriple(0);
-				newPath = waitPath.deepCopy();
-				newPath.addTriple(t.getSubject(), t.getPredicate(), t.getObject());
+				String newClass = conn.get(i).getEndClassName();
 				
 				// if path leads anywhere in domain, store it
 				OntologyName name = new OntologyName(newClass);
 				if (name.isInDomain(domain)) {
+					PathNode newPath = new PathNode(waitPath, conn.get(i).getTriple(0), newClass);
 					
 					// if path leads to a target, push onto the ret list
 					if (targetHash.containsKey(newClass)) {
-						ret.add(newPath);
-						if (CONSOLE_LOG) { LocalLogger.logToStdOut(">>>found path " + newPath.debugString()); }
+						found.add(newPath);
 						
-					// PEC CONFUSED: this used to happen every time without any "else" or "else if"
-					
 					// if path doens't lead to target, add to waiting list
 					// But if it is a loop (that didn't end at the targetHash) then stop
-					}  else if (loopFlag == false){
+					}  else if (! waitPath.containsClass(newClass)){
 					    // try extending already-found paths
 						waitingList.add(newPath);
-						if (CONSOLE_LOG) { LocalLogger.logToStdOut("searching " + newPath.debugString()); }
 					}
-					
 				}
-				
 			}
 		}
 		
+		for (PathNode p : found) {
+			ret.add(p.toOntologyPath(fromClassName));
+		}
+		
 		if (CONSOLE_LOG) {
 			LocalLogger.logToStdOut("These are the paths I found:");
 			for (int i=0; i < ret.size(); i++) {
@@ -1002,8 +1118,72 @@ public class OntologyInfo {
 			long t1 = System.currentTimeMillis();
 			LocalLogger.logToStdOut("findAllPaths time is: " + (t1-t0) + " msec");
 		}
+		
+		if (complete) {
+			synchronized (this.pathIndex) {
+				if (this.pathIndexGeneration == generation) {
+					this.pathIndex.put(key, ret);
+				}
+			}
+			return copyPaths(ret);
+		}
 		return ret;	
 	}
+	
+	/**
+	 * A path being searched:  its last hop, and the path before it
+	 */
+	private static class PathNode {
+		final PathNode parent;
+		final Triple triple;		// hop from the parent's end class, or null at the start
+		final String endClass;
+		final int length;
+		
+		PathNode(PathNode parent, Triple triple, String endClass) {
+			this.parent = parent;
+			this.triple = triple;
+			this.endClass = endClass;
+			this.length = (parent == null) ? 0 : parent.length + 1;
+		}
+		
+		/**
+		 * Is the class anywhere along the path.  Paths are short, so walking them is cheaper than a set per path.
+		 */
+		boolean containsClass(String className) {
+			for (PathNode n = this; n != null; n = n.parent) {
+				if (n.endClass.equals(className)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		OntologyPath toOntologyPath(String startClassName) throws PathException {
+			Triple [] triples = new Triple[this.length];
+			for (PathNode n = this; n.parent != null; n = n.parent) {
+				triples[n.length - 1] = n.triple;
+			}
+			OntologyPath ret = new OntologyPath(startClassName);
+			for (Triple t : triples) {
+				ret.addTriple(t.getSubject(), t.getPredicate(), t.getObject());
+			}
+			return ret;
+		}
+	}
+	
+	private static String getPathIndexKey(String fromClassName, HashMap<String, Integer> targetHash, String domain) {
+		ArrayList<String> targets = new ArrayList<String>(targetHash.keySet());
+		Collections.sort(targets);
+		return fromClassName + "\n" + domain + "\n" + String.join("\n", targets);
+	}
+	
+	private static ArrayList<OntologyPath> copyPaths(ArrayList<OntologyPath> paths) throws PathException {
+		ArrayList<OntologyPath> ret = new ArrayList<OntologyPath>();
+		for (OntologyPath p : paths) {
+			ret.add(p.deepCopy());
+		}
+		return ret;
+	}
 	/**
 	 * returns true/false indicating whether the classCompared is a subclass of the classComparedTo
 	 * @param classCompared
@@ -1016,6 +1196,13 @@ public class OntologyInfo {
 
 		if (classCompared.equals(classComparedTo)) { return true; }
 		
+		// look up the closure for classes in the hash
+		BitSet ancestors = this.getAncestorBits(classCompared);
+		Integer bit = this.getClassBits().get(classComparedTo.getNameString(false));
+		if (ancestors != null && bit != null) {
+			return ancestors.get(bit);
+		}
+		
 		ArrayList<OntologyClass> allParents = this.getClassParents(classCompared);
 		
 		// recursively classCompared parents
@@ -1028,6 +1215,54 @@ public class OntologyInfo {
 		return false;
 	}
 	
+	/**
+	 * Bit number of each class in the hash, for the sets from getAncestorBits().
+	 * Built on first use, and dropped by clearIndexes().
+	 */
+	private HashMap<String, Integer> getClassBits() {
+		HashMap<String, Integer> ret = this.classBits;
+		if (ret == null) {
+			ret = new HashMap<String, Integer>();
+			for (String name : this.classHash.keySet()) {
+				ret.put(name, ret.size());
+			}
+			this.classBits = ret;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Set of a class and all its ancestors, as getClassBits() numbers, following parents that are in the hash (as classIsA() does).
+	 * Remembered per class until clearIndexes().
+	 * @return null if oClass isn't the class object in the hash
+	 */
+	private BitSet getAncestorBits(OntologyClass oClass) {
+		String name = oClass.getNameString(false);
+		if (this.classHash.get(name) != oClass) {
+			return null;
+		}
+		BitSet ret = this.ancestorBits.get(name);
+		if (ret == null) {
+			HashMap<String, Integer> bits = this.getClassBits();
+			ret = new BitSet(bits.size());
+			ArrayList<OntologyClass> stack = new ArrayList<OntologyClass>();
+			ret.set(bits.get(name));
+			stack.add(oClass);
+			while (! stack.isEmpty()) {
+				OntologyClass c = stack.remove(stack.size() - 1);
+				for (String parentName : c.getParentNameStrings(false)) {
+					Integer bit = bits.get(parentName);
+					if (bit != null && ! ret.get(bit)) {
+						ret.set(bit);
+						stack.add(this.classHash.get(parentName));
+					}
+				}
+			}
+			this.ancestorBits.put(name, ret);
+		}
+		return ret;
+	}
+	
 	/**
 	 * checks if the classToCheck is in the given range
 	 * @param classToCheck
@@ -1066,25 +1301,12 @@ public class OntologyInfo {
 	 * @throws Exception
 	 */
 	public void load(SparqlEndpointInterface endpoint, String domain) throws Exception {
-		// execute each sub-query in order
-		endpoint.executeQuery(OntologyInfo.getSuperSubClassQuery(domain), SparqlResultTypes.TABLE);
-		this.loadSuperSubClasses(endpoint.getStringResultsColumn("x"), endpoint.getStringResultsColumn("y"));
-		
-		endpoint.executeQuery(OntologyInfo.getTopLevelClassQuery(domain), SparqlResultTypes.TABLE);
-		this.loadTopLevelClasses(endpoint.getStringResultsColumn("Class"));
-		
-		endpoint.executeQuery(OntologyInfo.getLoadPropertiesQuery(domain), SparqlResultTypes.TABLE);
-		this.loadProperties(endpoint.getStringResultsColumn("Class"),endpoint.getStringResultsColumn("Property"),endpoint.getStringResultsColumn("Range"));
-		
-		endpoint.executeQuery(OntologyInfo.getEnumQuery(domain), SparqlResultTypes.TABLE);
-		this.loadEnums(endpoint.getStringResultsColumn("Class"),endpoint.getStringResultsColumn("EnumVal"));
-		
-		endpoint.executeQuery(OntologyInfo.getAnnotationLabelsQuery(domain), SparqlResultTypes.TABLE);
-		this.loadAnnotationLabels(endpoint.getStringResultsColumn("Elem"), endpoint.getStringResultsColumn("Label"));
-		
-		endpoint.executeQuery(OntologyInfo.getAnnotationCommentsQuery(domain), SparqlResultTypes.TABLE);
-		this.loadAnnotationComments(endpoint.getStringResultsColumn("Elem"), endpoint.getStringResultsColumn("Comment"));
-		
+		ArrayList<Future<String[][]>> results = submitLoadQueries(endpoint, domain);
+		try {
+			this.mergeLoadResults(results);
+		} finally {
+			cancelLoadQueries(results);
+		}
 	}
 	
 	/**
@@ -1094,27 +1316,129 @@ public class OntologyInfo {
 	 * @throws Exception
 	 */
 	public void load(SparqlQueryClient client, String domain) throws Exception {
-		
-		// execute each sub-query in order
-		TableResultSet tableRes;
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getSuperSubClassQuery(domain), SparqlResultTypes.TABLE);
-		this.loadSuperSubClasses(tableRes.getTable().getColumn("x"), tableRes.getTable().getColumn("y"));
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getTopLevelClassQuery(domain), SparqlResultTypes.TABLE);
-		this.loadTopLevelClasses(tableRes.getTable().getColumn("Class"));
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getLoadPropertiesQuery(domain), SparqlResultTypes.TABLE);
-		this.loadProperties(tableRes.getTable().getColumn("Class"), tableRes.getTable().getColumn("Property"), tableRes.getTable().getColumn("Range"));
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getEnumQuery(domain), SparqlResultTypes.TABLE);
-		this.loadEnums(tableRes.getTable().getColumn("Class"), tableRes.getTable().getColumn("EnumVal"));
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getAnnotationLabelsQuery(domain), SparqlResultTypes.TABLE);
-		this.loadAnnotationLabels(tableRes.getTable().getColumn("Elem"), tableRes.getTable().getColumn("Label"));
-		
-		tableRes = (TableResultSet) client.execute(OntologyInfo.getAnnotationCommentsQuery(domain), SparqlResultTypes.TABLE);
-		this.loadAnnotationComments(tableRes.getTable().getColumn("Elem"), tableRes.getTable().getColumn("Comment"));
+		ArrayList<Future<String[][]>> results = submitLoadQueries(client.getConfig(), domain);
+		try {
+			this.mergeLoadResults(results);
+		} finally {
+			cancelLoadQueries(results);
+		}
+	}
+	
+	/*
+	 * The load queries, in the order their results are merged, and the columns read from each.
+	 * Each query is independent, so they run at once on the load pool.
+	 */
+	private static String [] getLoadQueries(String domain) {
+		return new String [] {
+				OntologyInfo.getSuperSubClassQuery(domain),
+				OntologyInfo.getTopLevelClassQuery(domain),
+				OntologyInfo.getLoadPropertiesQuery(domain),
+				OntologyInfo.getEnumQuery(domain),
+				OntologyInfo.getAnnotationLabelsQuery(domain),
+				OntologyInfo.getAnnotationCommentsQuery(domain) };
+	}
+	
+	private final static String [][] LOAD_COLUMNS = {
+			{ "x", "y" },
+			{ "Class" },
+			{ "Class", "Property", "Range" },
+			{ "Class", "EnumVal" },
+			{ "Elem", "Label" },
+			{ "Elem", "Comment" } };
+	
+	/**
+	 * Pool shared by every load in the process.  Its threads exit after a minute idle, since nothing owns it to shut it down.
+	 */
+	private static synchronized ExecutorService getLoadPool() {
+		if (loadPool == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(LOAD_THREADS, LOAD_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+				Thread t = new Thread(r, "oinfo-load");
+				t.setDaemon(true);
+				return t;
+			});
+			pool.allowCoreThreadTimeOut(true);
+			loadPool = pool;
+		}
+		return loadPool;
+	}
+	
+	/**
+	 * Start the load queries against an endpoint, each on its own copy since an endpoint holds its last results
+	 */
+	private static ArrayList<Future<String[][]>> submitLoadQueries(SparqlEndpointInterface endpoint, String domain) throws Exception {
+		String [] queries = getLoadQueries(domain);
+		ArrayList<Future<String[][]>> ret = new ArrayList<Future<String[][]>>();
+		for (int i = 0; i < queries.length; i++) {
+			final String query = queries[i];
+			final String [] cols = LOAD_COLUMNS[i];
+			final SparqlEndpointInterface sei = endpoint.copy();
+			ret.add(getLoadPool().submit(() -> {
+				sei.executeQuery(query, SparqlResultTypes.TABLE);
+				String [][] columns = new String[cols.length][];
+				for (int j = 0; j < cols.length; j++) {
+					columns[j] = sei.getStringResultsColumn(cols[j]);
+				}
+				return columns;
+			}));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Start the load queries through the query service, each with its own client since a client holds its parameters
+	 */
+	private static ArrayList<Future<String[][]>> submitLoadQueries(SparqlQueryClientConfig config, String domain) throws Exception {
+		String [] queries = getLoadQueries(domain);
+		ArrayList<Future<String[][]>> ret = new ArrayList<Future<String[][]>>();
+		for (int i = 0; i < queries.length; i++) {
+			final String query = queries[i];
+			final String [] cols = LOAD_COLUMNS[i];
+			final SparqlQueryClient client = new SparqlQueryClient(config);
+			ret.add(getLoadPool().submit(() -> {
+				TableResultSet tableRes = (TableResultSet) client.execute(query, SparqlResultTypes.TABLE);
+				String [][] columns = new String[cols.length][];
+				for (int j = 0; j < cols.length; j++) {
+					columns[j] = tableRes.getTable().getColumn(cols[j]);
+				}
+				return columns;
+			}));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Wait for all of one model's load queries, then add their results in the same order as a serial load
+	 */
+	private void mergeLoadResults(ArrayList<Future<String[][]>> results) throws Exception {
+		String [][][] r = new String[results.size()][][];
+		for (int i = 0; i < r.length; i++) {
+			try {
+				r[i] = results.get(i).get();
+			} catch (ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
+		this.loadSuperSubClasses(r[0][0], r[0][1]);
+		this.loadTopLevelClasses(r[1][0]);
+		this.loadProperties(r[2][0], r[2][1], r[2][2]);
+		this.loadEnums(r[3][0], r[3][1]);
+		this.loadAnnotationLabels(r[4][0], r[4][1]);
+		this.loadAnnotationComments(r[5][0], r[5][1]);
+	}
+	
+	/**
+	 * Stop any queries still running after a failure
+	 */
+	private static void cancelLoadQueries(ArrayList<Future<String[][]>> results) {
+		for (Future<String[][]> f : results) {
+			f.cancel(true);
+		}
+	}
+	
+	private static void cancelAllLoadQueries(ArrayList<ArrayList<Future<String[][]>>> results) {
+		for (ArrayList<Future<String[][]>> r : results) {
+			cancelLoadQueries(r);
+		}
 	}
 		
 	/*
@@ -1430,6 +1754,14 @@ public class OntologyInfo {
     
     // --------------------------------------------------------- Advanced Client Json ---------------------------------------------
     public JSONObject toAdvancedClientJson() throws ClassException, PathException{
+    	return this.toAdvancedClientJson(this.modelConnection);
+    }
+    
+    /**
+     * Advanced client Json, reporting conn as the connection it was loaded from (e.g. for an OntologyInfo shared by OntologyInfoCache)
+     * @param conn - connection, or null for none
+     */
+    public JSONObject toAdvancedClientJson(SparqlConnection conn) throws ClassException, PathException{
     	// return the advanced client Json format
     	JSONObject retval = new JSONObject();
     	
@@ -1583,8 +1915,8 @@ public class OntologyInfo {
     	retval.put("version", this.JSON_VERSION);
     	retval.put("generated", creationTime);
     	
-    	if(this.modelConnection != null){
-    		retval.put("sparqlConn", this.modelConnection.toJson());
+    	if(conn != null){
+    		retval.put("sparqlConn", conn.toJson());
     	}
     	
     	JSONObject jsonOInfo = new JSONObject();
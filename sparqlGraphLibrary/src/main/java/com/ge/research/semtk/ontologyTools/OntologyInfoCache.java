@@ -0,0 +1,511 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.ontologyTools;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.ge.research.semtk.resultSet.TableResultSet;
+import com.ge.research.semtk.sparqlX.SparqlConnection;
+import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
+import com.ge.research.semtk.sparqlX.SparqlResultTypes;
+import com.ge.research.semtk.sparqlX.SparqlToXUtils;
+import com.ge.research.semtk.sparqlX.client.SparqlQueryClient;
+import com.ge.research.semtk.sparqlX.client.SparqlQueryClientConfig;
+import com.ge.research.semtk.utility.LocalLogger;
+
+/**
+ * Cache of loaded OntologyInfo, keyed by a connection's model interfaces and domain,
+ * so each job doesn't run the load queries again.
+ *
+ * Every get() of a model returns the same OntologyInfo, shared between threads, so its lazily built indexes
+ * and path-finding results are reused.  Callers must not change it (addJson(), load*(), addClass()...):
+ * one that needs to should change a copy, new OntologyInfo(oInfo.toJson()).
+ * Concurrent gets of the same model wait for a single load.
+ *
+ * Entries expire ttl after they were loaded, and invalidate() drops those using a graph:
+ * the query service's uploadOwl, clearPrefix, clearModel* and clearAll call it, as do
+ * SparqlEndpointInterface.executeAuthUploadOwl(), SparqlQueryClient and TestGraph.  Invalidation only reaches
+ * this process, so the get()s that load from a connection also count the model graphs' triples, at most once
+ * per check interval, and load again if a count changed.
+ *
+ * With a snapshot directory, each load is also saved as an OntologyInfoSnapshot, with the triple counts.
+ * The first get of a model after startup is answered from its snapshot, and the model is loaded again in the background.
+ * A snapshot whose triple counts no longer match, because another process changed the model, is not used.
+ * invalidate() deletes the snapshots of the graph.
+ *
+ * Thread-safe.
+ */
+public class OntologyInfoCache {
+
+	public static final long DEFAULT_TTL_MSEC = 60 * 1000;
+	public static final long DEFAULT_CHECK_MSEC = 5 * 1000;
+
+	private static final OntologyInfoCache shared = new OntologyInfoCache(DEFAULT_TTL_MSEC);
+
+	private volatile long ttlNanos;
+	private volatile long checkNanos = DEFAULT_CHECK_MSEC * 1000000L;
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	// version of each graph, bumped by invalidate(), so a load that raced an invalidation isn't kept
+	private final ConcurrentHashMap<String, AtomicLong> graphVersions = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong modelChanges = new AtomicLong();
+	private final AtomicLong warmStarts = new AtomicLong();
+
+	private volatile File snapshotDir = null;
+	private final Set<String> loadedKeys = ConcurrentHashMap.newKeySet();		// keys loaded from the triple store by this process
+	private ExecutorService refreshPool = null;
+
+	private static class Entry {
+		final String [] graphs;
+		final long [] versions;
+		final long expireNanos;
+		final FutureTask<Loaded> load;
+		final AtomicLong checkedNanos = new AtomicLong(System.nanoTime());	// last triple count check
+
+		Entry(String [] graphs, long [] versions, long expireNanos, FutureTask<Loaded> load) {
+			this.graphs = graphs;
+			this.versions = versions;
+			this.expireNanos = expireNanos;
+			this.load = load;
+		}
+	}
+
+	private static class Loaded {
+		final OntologyInfo oInfo;
+		final String tripleCounts;		// model graphs' triple counts before the load, or null if not counted
+
+		Loaded(OntologyInfo oInfo, String tripleCounts) {
+			this.oInfo = oInfo;
+			this.tripleCounts = tripleCounts;
+		}
+	}
+
+	/**
+	 * @param ttlMsec - how long a loaded model is used before it is loaded again
+	 */
+	public OntologyInfoCache(long ttlMsec) {
+		this.setTtl(ttlMsec);
+	}
+
+	/**
+	 * The cache shared by everything in this process
+	 */
+	public static OntologyInfoCache getShared() {
+		return shared;
+	}
+
+	/**
+	 * Configure the shared cache from service properties.  Unset properties keep their defaults.
+	 *     oInfoCache.ttlSec   - how long a loaded model is used
+	 *     oInfoCache.checkSec - how often a model's triples are counted to see if another process changed it
+	 *     oInfoCache.snapshotDir - directory of snapshots to warm-start from, see setSnapshotDir()
+	 * @param properties - property lookup, e.g. a Spring Environment's getProperty
+	 * @throws Exception - a property isn't an integer, or the snapshot directory can't be created
+	 */
+	public static void configureShared(Function<String, String> properties) throws Exception {
+		long ttlSec = getLongProperty(properties, "oInfoCache.ttlSec", DEFAULT_TTL_MSEC / 1000);
+		long checkSec = getLongProperty(properties, "oInfoCache.checkSec", DEFAULT_CHECK_MSEC / 1000);
+		String snapshotDir = properties.apply("oInfoCache.snapshotDir");
+		if (snapshotDir != null && snapshotDir.trim().isEmpty()) {
+			snapshotDir = null;
+		}
+		shared.setTtl(ttlSec * 1000);
+		shared.setCheckInterval(checkSec * 1000);
+		shared.setSnapshotDir(snapshotDir == null ? null : new File(snapshotDir.trim()));
+		LocalLogger.logToStdOut(String.format("OntologyInfoCache: ttlSec=%d checkSec=%d snapshotDir=%s", ttlSec, checkSec, snapshotDir));
+	}
+
+	private static long getLongProperty(Function<String, String> properties, String name, long defaultValue) throws Exception {
+		String value = properties.apply(name);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new Exception(name + " is not an integer: " + value);
+		}
+	}
+
+	/**
+	 * @param ttlMsec - how long a loaded model is used.  Applies to entries loaded from now on.
+	 */
+	public void setTtl(long ttlMsec) {
+		this.ttlNanos = ttlMsec * 1000000L;
+	}
+
+	/**
+	 * @param checkMsec - how often a cached model's triples are counted, to catch changes made by other processes
+	 */
+	public void setCheckInterval(long checkMsec) {
+		this.checkNanos = checkMsec * 1000000L;
+	}
+
+	/**
+	 * Save loads to, and warm-start from, snapshots in a directory
+	 * @param dir - directory, created if needed, or null to stop using snapshots
+	 */
+	public void setSnapshotDir(File dir) throws Exception {
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new Exception("Can't create ontology snapshot directory " + dir.getPath());
+		}
+		this.snapshotDir = dir;
+	}
+
+	/**
+	 * Get the ontology of a connection, querying its model interfaces directly if not cached.
+	 * The returned OntologyInfo is shared:  don't change it.
+	 */
+	public OntologyInfo get(SparqlConnection conn) throws Exception {
+		return this.get(conn, () -> new OntologyInfo(conn), () -> countTriples(conn));
+	}
+
+	/**
+	 * Get the ontology of a connection, loading through a query service if not cached.
+	 * The returned OntologyInfo is shared:  don't change it.
+	 */
+	public OntologyInfo get(SparqlQueryClientConfig clientConfig, SparqlConnection conn) throws Exception {
+		return this.get(conn, () -> new OntologyInfo(clientConfig, conn), () -> countTriples(clientConfig, conn));
+	}
+
+	/**
+	 * Get the ontology of a connection, calling loader if not cached.  Changes by other processes are only seen on expiry.
+	 */
+	public OntologyInfo get(SparqlConnection conn, Callable<OntologyInfo> loader) throws Exception {
+		return this.get(conn, loader, null);
+	}
+
+	/**
+	 * Get the ontology of a connection, calling loader if not cached
+	 * @param tripleCounter - if not null, returns the model graphs' triple counts:
+	 *        called before each load, and at most once per check interval for a cached model, which is loaded again if they changed
+	 */
+	public OntologyInfo get(SparqlConnection conn, Callable<OntologyInfo> loader, Callable<String> tripleCounter) throws Exception {
+		String [] graphs = getGraphs(conn);
+		String key = conn.getDomain() + "|" + String.join("|", graphs);
+		long [] versions = this.getVersions(graphs);
+
+		Entry entry = null;
+		boolean mustLoad = false;
+		synchronized (this) {
+			entry = this.entries.get(key);
+			if (entry == null || entry.expireNanos - System.nanoTime() <= 0 || !Arrays.equals(entry.versions, versions)) {
+				entry = new Entry(graphs, versions, System.nanoTime() + this.ttlNanos, new FutureTask<Loaded>(() -> this.load(key, graphs, versions, loader, tripleCounter)));
+				this.entries.put(key, entry);
+				mustLoad = true;
+				this.misses.incrementAndGet();
+			}
+		}
+
+		if (mustLoad) {
+			entry.load.run();
+		} else if (this.isModelChanged(entry, tripleCounter)) {
+			this.modelChanges.incrementAndGet();
+			this.remove(key, entry);
+			return this.get(conn, loader, tripleCounter);
+		} else {
+			this.hits.incrementAndGet();
+		}
+		
+		try {
+			return entry.load.get().oInfo;
+		} catch (ExecutionException e) {
+			this.remove(key, entry);
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+
+	private synchronized void remove(String key, Entry entry) {
+		if (this.entries.get(key) == entry) {
+			this.entries.remove(key);
+		}
+	}
+
+	/**
+	 * Have the entry's triple counts changed since it was loaded.
+	 * Only one caller per check interval counts:  the rest, and any caller while the count fails, use the entry.
+	 */
+	private boolean isModelChanged(Entry entry, Callable<String> tripleCounter) {
+		if (tripleCounter == null || !entry.load.isDone()) {
+			return false;
+		}
+		long now = System.nanoTime();
+		long checked = entry.checkedNanos.get();
+		if (now - checked < this.checkNanos || !entry.checkedNanos.compareAndSet(checked, now)) {
+			return false;
+		}
+		try {
+			String loadedCounts = entry.load.get().tripleCounts;
+			return loadedCounts != null && !loadedCounts.equals(tripleCounter.call());
+		} catch (Exception e) {
+			LocalLogger.logToStdErr("Could not check ontology for changes: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Load from the snapshot if this process hasn't loaded the key yet, else with the loader.
+	 * A snapshot written from other triple counts, e.g. before another process changed the model, is deleted and not used.
+	 * If the triples can't be counted, the snapshot is used unchecked until the background refresh replaces it.
+	 */
+	private Loaded load(String key, String [] graphs, long [] versions, Callable<OntologyInfo> loader, Callable<String> tripleCounter) throws Exception {
+		String tripleCounts = null;
+		File snapshot = this.getSnapshotFile(key);
+		if (snapshot != null && snapshot.exists() && !this.loadedKeys.contains(key)) {
+			try {
+				tripleCounts = (tripleCounter == null) ? null : tripleCounter.call();
+			} catch (Exception e) {
+				LocalLogger.logToStdErr("Could not check ontology snapshot for changes: " + e.getMessage());
+			}
+			try {
+				OntologyInfo oInfo = OntologyInfoSnapshot.read(snapshot, key, tripleCounts);
+				this.warmStarts.incrementAndGet();
+				this.getRefreshPool().submit(() -> this.refresh(key, graphs, versions, loader, tripleCounter));
+				return new Loaded(oInfo, tripleCounts);
+			} catch (Exception e) {
+				LocalLogger.logToStdErr("Ignoring ontology snapshot: " + e.getMessage());
+				snapshot.delete();
+			}
+		}
+		if (tripleCounts == null && tripleCounter != null) {
+			tripleCounts = tripleCounter.call();
+		}
+		OntologyInfo oInfo = loader.call();
+		this.loadedKeys.add(key);
+		this.writeSnapshot(key, graphs, versions, oInfo, tripleCounts);
+		return new Loaded(oInfo, tripleCounts);
+	}
+
+	/**
+	 * Load a model that was answered from its snapshot, and replace the entry unless the model was invalidated since.
+	 * On failure, the snapshot is used until the entry expires, then tried again.
+	 */
+	private void refresh(String key, String [] graphs, long [] versions, Callable<OntologyInfo> loader, Callable<String> tripleCounter) {
+		try {
+			String tripleCounts = (tripleCounter == null) ? null : tripleCounter.call();
+			OntologyInfo oInfo = loader.call();
+			FutureTask<Loaded> done = new FutureTask<Loaded>(() -> new Loaded(oInfo, tripleCounts));
+			done.run();
+			synchronized (this) {
+				Entry entry = this.entries.get(key);
+				if (entry != null && Arrays.equals(entry.versions, versions) && Arrays.equals(this.getVersions(graphs), versions)) {
+					this.entries.put(key, new Entry(graphs, versions, System.nanoTime() + this.ttlNanos, done));
+				}
+			}
+			this.loadedKeys.add(key);
+			this.writeSnapshot(key, graphs, versions, oInfo, tripleCounts);
+		} catch (Exception e) {
+			LocalLogger.logToStdErr("Ontology refresh failed, using snapshot: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Save a load, unless it raced an invalidation.  Failures are only logged.
+	 */
+	private void writeSnapshot(String key, String [] graphs, long [] versions, OntologyInfo oInfo, String tripleCounts) {
+		File snapshot = this.getSnapshotFile(key);
+		if (snapshot == null) {
+			return;
+		}
+		try {
+			OntologyInfoSnapshot.write(oInfo, key, tripleCounts, snapshot);
+			if (!Arrays.equals(this.getVersions(graphs), versions)) {
+				snapshot.delete();
+			}
+		} catch (Exception e) {
+			LocalLogger.logToStdErr("Could not write ontology snapshot " + snapshot.getPath() + ": " + e.getMessage());
+		}
+	}
+
+	private File getSnapshotFile(String key) {
+		File dir = this.snapshotDir;
+		if (dir == null) {
+			return null;
+		}
+		return new File(dir, "oinfo_" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString() + ".bin");
+	}
+
+	private synchronized ExecutorService getRefreshPool() {
+		if (this.refreshPool == null) {
+			this.refreshPool = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "oinfo-refresh");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return this.refreshPool;
+	}
+
+	/**
+	 * Wait for the background refreshes of warm-started models submitted so far
+	 */
+	public void awaitRefreshes() throws Exception {
+		this.getRefreshPool().submit(() -> { }).get();
+	}
+
+	/**
+	 * Drop every cached ontology loaded from a graph, e.g. after its model changed
+	 */
+	public void invalidate(String serverAndPort, String graph) {
+		String g = graphKey(serverAndPort, graph);
+		this.graphVersions.computeIfAbsent(g, k -> new AtomicLong()).incrementAndGet();
+		this.invalidations.incrementAndGet();
+
+		synchronized (this) {
+			Iterator<Entry> it = this.entries.values().iterator();
+			while (it.hasNext()) {
+				if (Arrays.asList(it.next().graphs).contains(g)) {
+					it.remove();
+				}
+			}
+		}
+		this.deleteSnapshots(g);
+	}
+
+	public void invalidate(SparqlEndpointInterface sei) {
+		this.invalidate(sei.getServerAndPort(), sei.getDataset());
+	}
+
+	public void invalidateAll() {
+		synchronized (this) {
+			for (String g : this.graphVersions.keySet()) {
+				this.graphVersions.get(g).incrementAndGet();
+			}
+			this.entries.clear();
+			this.invalidations.incrementAndGet();
+		}
+		this.deleteSnapshots(null);
+	}
+
+	/**
+	 * Delete the snapshots using a graph
+	 * @param g - graph key, or null for all
+	 */
+	private void deleteSnapshots(String g) {
+		File dir = this.snapshotDir;
+		File [] files = (dir == null) ? null : dir.listFiles((d, name) -> name.startsWith("oinfo_") && name.endsWith(".bin"));
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			try {
+				if (g == null || Arrays.asList(OntologyInfoSnapshot.readKey(f).split("\\|")).contains(g)) {
+					f.delete();
+				}
+			} catch (Exception e) {
+				f.delete();		// unreadable:  would never be used anyway
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * How many misses were answered from a snapshot
+	 */
+	public long getWarmStarts() {
+		return this.warmStarts.get();
+	}
+
+	/**
+	 * How many cached models were loaded again because their triple counts changed
+	 */
+	public long getModelChanges() {
+		return this.modelChanges.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("size=%d hits=%d misses=%d warmStarts=%d invalidations=%d modelChanges=%d", this.size(), this.getHits(), this.getMisses(), this.getWarmStarts(), this.invalidations.get(), this.getModelChanges());
+	}
+
+	private static String graphKey(String serverAndPort, String graph) {
+		return serverAndPort + " " + graph;
+	}
+
+	private static String [] getGraphs(SparqlConnection conn) {
+		ArrayList<SparqlEndpointInterface> modelInterfaces = conn.getModelInterfaces();
+		String [] ret = new String[modelInterfaces.size()];
+		for (int i=0; i < ret.length; i++) {
+			ret[i] = graphKey(modelInterfaces.get(i).getServerAndPort(), modelInterfaces.get(i).getDataset());
+		}
+		return ret;
+	}
+
+	/**
+	 * Triple count of each model graph, queried directly
+	 */
+	private static String countTriples(SparqlConnection conn) throws Exception {
+		StringBuilder ret = new StringBuilder();
+		for (SparqlEndpointInterface sei : conn.getModelInterfaces()) {
+			ret.append(sei.copy().executeCountTriples()).append(" ");
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Triple count of each model graph, queried through a query service
+	 */
+	private static String countTriples(SparqlQueryClientConfig clientConfig, SparqlConnection conn) throws Exception {
+		StringBuilder ret = new StringBuilder();
+		for (SparqlQueryClientConfig config : clientConfig.getArrayForEndpoints(conn.getModelInterfaces())) {
+			TableResultSet res = (TableResultSet) new SparqlQueryClient(config).execute(SparqlToXUtils.generateCountTriplesQuery(), SparqlResultTypes.TABLE);
+			res.throwExceptionIfUnsuccessful();
+			ret.append(res.getTable().getCell(0, 0)).append(" ");
+		}
+		return ret.toString();
+	}
+
+	private long [] getVersions(String [] graphs) {
+		long [] ret = new long[graphs.length];
+		for (int i=0; i < graphs.length; i++) {
+			ret[i] = this.graphVersions.computeIfAbsent(graphs[i], k -> new AtomicLong()).get();
+		}
+		return ret;
+	}
+}
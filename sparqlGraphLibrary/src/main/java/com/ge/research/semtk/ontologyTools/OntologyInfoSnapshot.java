@@ -0,0 +1,302 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.ontologyTools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Binary snapshot of an OntologyInfo, so a service can start from local disk instead of the model triple store.
+ *
+ * Holds OntologyInfo's own structures rather than its json tables, with each URI and annotation stored once,
+ * so read() builds the classes and shared properties straight from the file without parsing, prefixing or load*() lookups:
+ *     int magic, int version
+ *     key                              - what was loaded, e.g. OntologyInfoCache's connection key
+ *     triple counts                    - the model graphs' triple counts when loaded, or "" if not counted
+ *     int n, n strings                 - every distinct string
+ *     int n, n properties              - name, range, labels, comments
+ *     int n, n classes                 - name, parents, properties (indexes into the properties), labels, comments
+ *     int n, n enumerations            - class, values
+ * Strings are an int byte length then UTF-8.  Everything else is ints:  a string is its index, a list is its length then its items.
+ *
+ * Files are written to a temp file and moved into place, and read through a memory map.
+ */
+public class OntologyInfoSnapshot {
+
+	private static final int MAGIC = 0x4f496e66;		// "OInf"
+	private static final int VERSION = 2;
+
+	/**
+	 * Write a snapshot
+	 * @param oInfo
+	 * @param key - identifies what was loaded, checked by read()
+	 * @param file
+	 */
+	public static void write(OntologyInfo oInfo, String key, File file) throws Exception {
+		write(oInfo, key, null, file);
+	}
+
+	/**
+	 * Write a snapshot
+	 * @param oInfo
+	 * @param key - identifies what was loaded, checked by read()
+	 * @param tripleCounts - the model graphs' triple counts when oInfo was loaded, checked by read(), or null
+	 * @param file
+	 */
+	public static void write(OntologyInfo oInfo, String key, String tripleCounts, File file) throws Exception {
+		// intern every string while writing the records, since the strings go first
+		HashMap<String, Integer> stringIndex = new HashMap<String, Integer>();
+		ArrayList<String> strings = new ArrayList<String>();
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream rec = new DataOutputStream(records);
+
+		ArrayList<String> classNames = oInfo.getClassNames();
+		HashMap<String, Integer> propIndex = new HashMap<String, Integer>();
+		ArrayList<OntologyProperty> props = new ArrayList<OntologyProperty>();
+		for (String c : classNames) {
+			for (OntologyProperty p : oInfo.getClass(c).getProperties()) {
+				if (!propIndex.containsKey(p.getNameStr())) {
+					propIndex.put(p.getNameStr(), props.size());
+					props.add(p);
+				}
+			}
+		}
+
+		rec.writeInt(props.size());
+		for (OntologyProperty p : props) {
+			writeIndex(rec, p.getNameStr(), stringIndex, strings);
+			writeIndex(rec, p.getRangeStr(), stringIndex, strings);
+			writeIndexes(rec, p.getAnnotationLabels(), stringIndex, strings);
+			writeIndexes(rec, p.getAnnotationComments(), stringIndex, strings);
+		}
+
+		rec.writeInt(classNames.size());
+		for (String c : classNames) {
+			OntologyClass oClass = oInfo.getClass(c);
+			writeIndex(rec, c, stringIndex, strings);
+			writeIndexes(rec, oClass.getParentNameStrings(false), stringIndex, strings);
+			ArrayList<OntologyProperty> classProps = oClass.getProperties();
+			rec.writeInt(classProps.size());
+			for (OntologyProperty p : classProps) {
+				rec.writeInt(propIndex.get(p.getNameStr()));
+			}
+			writeIndexes(rec, oClass.getAnnotationLabels(), stringIndex, strings);
+			writeIndexes(rec, oClass.getAnnotationComments(), stringIndex, strings);
+		}
+
+		ArrayList<String> enumClassNames = oInfo.getEnumerationClassNames();
+		rec.writeInt(enumClassNames.size());
+		for (String c : enumClassNames) {
+			writeIndex(rec, c, stringIndex, strings);
+			writeIndexes(rec, oInfo.getEnumerationStrings(c), stringIndex, strings);
+		}
+		rec.flush();
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, key);
+			writeString(out, tripleCounts == null ? "" : tripleCounts);
+			out.writeInt(strings.size());
+			for (String s : strings) {
+				writeString(out, s);
+			}
+			records.writeTo(out);
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Read a snapshot
+	 * @param file
+	 * @param key - what the caller expects the snapshot to hold, or null for any
+	 * @throws Exception - not a snapshot, another version, or another key
+	 */
+	public static OntologyInfo read(File file, String key) throws Exception {
+		return read(file, key, null);
+	}
+
+	/**
+	 * Read a snapshot
+	 * @param file
+	 * @param key - what the caller expects the snapshot to hold, or null for any
+	 * @param tripleCounts - the model graphs' triple counts now, or null to skip the check
+	 * @throws Exception - not a snapshot, another version, another key, or stale:  written from other triple counts
+	 */
+	public static OntologyInfo read(File file, String key, String tripleCounts) throws Exception {
+		ByteBuffer buf = map(file);
+		try {
+			String fileKey = readHeader(buf, file);
+			if (key != null && !key.equals(fileKey)) {
+				throw new Exception("Ontology snapshot " + file.getPath() + " is of " + fileKey + " not " + key);
+			}
+			String fileCounts = readString(buf);
+			if (tripleCounts != null && !tripleCounts.equals(fileCounts)) {
+				throw new Exception(String.format("Ontology snapshot %s is stale: triple counts were '%s', now '%s'", file.getPath(), fileCounts, tripleCounts));
+			}
+
+			String [] strings = new String[readLength(buf)];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString(buf);
+			}
+
+			OntologyInfo oInfo = new OntologyInfo();
+			OntologyProperty [] props = new OntologyProperty[readLength(buf)];
+			for (int i = 0; i < props.length; i++) {
+				props[i] = new OntologyProperty(readIndex(buf, strings), readIndex(buf, strings));
+				for (int n = readLength(buf); n > 0; n--) {
+					props[i].addAnnotationLabel(readIndex(buf, strings));
+				}
+				for (int n = readLength(buf); n > 0; n--) {
+					props[i].addAnnotationComment(readIndex(buf, strings));
+				}
+				oInfo.addProperty(props[i]);
+			}
+
+			for (int c = readLength(buf); c > 0; c--) {
+				OntologyClass oClass = new OntologyClass(readIndex(buf, strings), null);
+				for (int n = readLength(buf); n > 0; n--) {
+					oClass.addParentName(readIndex(buf, strings));
+				}
+				for (int n = readLength(buf); n > 0; n--) {
+					int p = buf.getInt();
+					if (p < 0 || p >= props.length) {
+						throw new Exception("Bad property index in ontology snapshot " + file.getPath());
+					}
+					oClass.addProperty(props[p]);
+				}
+				for (int n = readLength(buf); n > 0; n--) {
+					oClass.addAnnotationLabel(readIndex(buf, strings));
+				}
+				for (int n = readLength(buf); n > 0; n--) {
+					oClass.addAnnotationComment(readIndex(buf, strings));
+				}
+				oInfo.addClass(oClass);
+			}
+
+			for (int e = readLength(buf); e > 0; e--) {
+				String c = readIndex(buf, strings);
+				String [] values = new String[readLength(buf)];
+				String [] classes = new String[values.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = readIndex(buf, strings);
+					classes[i] = c;
+				}
+				oInfo.loadEnums(classes, values);
+			}
+			return oInfo;
+
+		} catch (BufferUnderflowException e) {
+			throw new Exception("Ontology snapshot is truncated: " + file.getPath());
+		}
+	}
+
+	/**
+	 * Read just the key of a snapshot
+	 */
+	public static String readKey(File file) throws Exception {
+		try {
+			return readHeader(map(file), file);
+		} catch (BufferUnderflowException e) {
+			throw new Exception("Ontology snapshot is truncated: " + file.getPath());
+		}
+	}
+
+	private static ByteBuffer map(File file) throws Exception {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static String readHeader(ByteBuffer buf, File file) throws Exception {
+		if (buf.getInt() != MAGIC) {
+			throw new Exception("Not an ontology snapshot: " + file.getPath());
+		}
+		int version = buf.getInt();
+		if (version != VERSION) {
+			throw new Exception(String.format("Ontology snapshot %s is version %d, expected %d", file.getPath(), version, VERSION));
+		}
+		return readString(buf);
+	}
+
+	private static void writeIndex(DataOutputStream out, String s, HashMap<String, Integer> stringIndex, ArrayList<String> strings) throws Exception {
+		Integer i = stringIndex.get(s);
+		if (i == null) {
+			i = strings.size();
+			stringIndex.put(s, i);
+			strings.add(s);
+		}
+		out.writeInt(i);
+	}
+
+	private static void writeIndexes(DataOutputStream out, ArrayList<String> list, HashMap<String, Integer> stringIndex, ArrayList<String> strings) throws Exception {
+		out.writeInt(list.size());
+		for (String s : list) {
+			writeIndex(out, s, stringIndex, strings);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws Exception {
+		byte [] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Read a list length:  each item is at least an int, so a longer list is a truncated file
+	 */
+	private static int readLength(ByteBuffer buf) throws Exception {
+		int len = buf.getInt();
+		if (len < 0 || len > buf.remaining() / 4) {
+			throw new BufferUnderflowException();
+		}
+		return len;
+	}
+
+	private static String readIndex(ByteBuffer buf, String [] strings) throws Exception {
+		int i = buf.getInt();
+		if (i < 0 || i >= strings.length) {
+			throw new Exception("Bad string index in ontology snapshot");
+		}
+		return strings[i];
+	}
+
+	private static String readString(ByteBuffer buf) throws Exception {
+		int len = buf.getInt();
+		if (len < 0 || len > buf.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte [] b = new byte[len];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,737 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.resultSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import com.ge.research.semtk.utility.Utility;
+
+/**
+ * A table of data stored by column.
+ *
+ * Each column is either dictionary-encoded (every distinct string is stored once, rows hold int codes)
+ * or, for numeric XSD column types, a primitive long[] or double[].
+ * Query results repeat the same URIs over and over, so this is several times smaller than Table,
+ * and sorts, filters and unique-value scans work on arrays instead of row objects.
+ *
+ * Same API as Table, with one difference:  getRows() and getRow() build read-only copies.
+ * Changing them throws UnsupportedOperationException, rather than silently not changing the table.
+ * Use getNumRows() and getCell() where a copy isn't needed.
+ */
+public class ColumnarTable extends Table {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// xsd local names stored as long[] or double[]
+	private static final HashSet<String> LONG_TYPES = new HashSet<String>(Arrays.asList(
+			"integer", "int", "long", "short", "byte",
+			"nonnegativeinteger", "positiveinteger", "negativeinteger", "nonpositiveinteger",
+			"unsignedint", "unsignedshort", "unsignedbyte", "unsignedlong"));
+	private static final HashSet<String> DOUBLE_TYPES = new HashSet<String>(Arrays.asList(
+			"decimal", "double", "float"));
+
+	private Column[] columns;
+	private int numRows = 0;
+
+	/**
+	 * Create an empty table with the given column names and column types.
+	 */
+	public ColumnarTable(String[] cols, String[] colTypes) throws Exception {
+		this(cols, colTypes, null);
+	}
+
+	/**
+	 * Create a table with the given column names, column types, and rows.
+	 */
+	public ColumnarTable(String[] cols, String[] colTypes, ArrayList<ArrayList<String>> rows) throws Exception {
+		super(cols, colTypes, null);
+		this.columns = new Column[cols.length];
+		for (int i = 0; i < cols.length; i++) {
+			this.columns[i] = newColumn(colTypes[i]);
+		}
+		if (rows != null) {
+			for (ArrayList<String> row : rows) {
+				if (row == null) {
+					throw new Exception("Cannot create a Table: row is null");
+				}
+				this.addRow(row);
+			}
+		}
+	}
+
+	/**
+	 * Create a columnar copy of any table
+	 */
+	public ColumnarTable(Table other) throws Exception {
+		this(other.getColumnNames(), other.getColumnTypes());
+		for (int i = 0; i < other.getNumRows(); i++) {
+			this.addRow(other.getRow(i));
+		}
+	}
+
+	private ColumnarTable(String[] cols, String[] colTypes, Column[] columns, int numRows) throws Exception {
+		super(cols, colTypes, null);
+		this.columns = columns;
+		this.numRows = numRows;
+	}
+
+	/**
+	 * Replace column types, e.g. when they are only known after the rows were read.
+	 * Columns are re-stored if the new type changes their storage.
+	 */
+	@Override
+	public void replaceColumnTypes(String[] newColumnTypes) throws Exception {
+		super.replaceColumnTypes(newColumnTypes);
+		for (int i = 0; i < this.columns.length; i++) {
+			Column c = newColumn(newColumnTypes[i]);
+			if (c.getClass() != this.columns[i].getClass()) {
+				for (int r = 0; r < this.numRows; r++) {
+					c.add(this.columns[i].get(r));
+				}
+				this.columns[i] = c.compact();
+			}
+		}
+	}
+
+	@Override
+	public int getNumRows() {
+		return this.numRows;
+	}
+
+	@Override
+	public String getCell(int row, int col) {
+		this.checkRow(row);
+		return this.columns[col].get(row);
+	}
+
+	/**
+	 * Build a read-only copy of a row
+	 */
+	@Override
+	public ArrayList<String> getRow(int rowNum) {
+		this.checkRow(rowNum);
+		String [] ret = new String[this.columns.length];
+		for (int i = 0; i < this.columns.length; i++) {
+			ret[i] = this.columns[i].get(rowNum);
+		}
+		return new ReadOnlyList<String>(Arrays.asList(ret));
+	}
+
+	/**
+	 * Build read-only copies of all the rows
+	 */
+	@Override
+	public ArrayList<ArrayList<String>> getRows() {
+		@SuppressWarnings("unchecked")
+		ArrayList<String> [] ret = new ArrayList[this.numRows];
+		for (int i = 0; i < this.numRows; i++) {
+			ret[i] = this.getRow(i);
+		}
+		return new ReadOnlyList<ArrayList<String>>(Arrays.asList(ret));
+	}
+
+	@Override
+	public void addRow(ArrayList<String> newRow) throws Exception {
+		if (newRow.size() != this.columns.length) {
+			throw new Exception("Incoming row has " + newRow.size() + " columns but " + this.columns.length + " were expected.");
+		}
+		for (int i = 0; i < this.columns.length; i++) {
+			this.addToColumn(i, newRow.get(i));
+		}
+		this.numRows++;
+	}
+
+	@Override
+	public void addRow(String [] newRow) throws Exception {
+		if (newRow.length != this.columns.length) {
+			throw new Exception("Incoming row has " + newRow.length + " columns but " + this.columns.length + " were expected.");
+		}
+		for (int i = 0; i < this.columns.length; i++) {
+			this.addToColumn(i, newRow[i]);
+		}
+		this.numRows++;
+	}
+
+	private void addToColumn(int col, String val) {
+		this.columns[col].add(val);
+		if (this.columns[col].isMostlyExceptions()) {
+			this.columns[col] = this.columns[col].toDictColumn();
+		}
+	}
+
+	@Override
+	public String[] getColumn(int index) {
+		Column c = this.columns[index];
+		String[] ret = new String[this.numRows];
+		for (int i = 0; i < this.numRows; i++) {
+			ret[i] = c.get(i);
+		}
+		return ret;
+	}
+
+	@Override
+	public String[] getColumnUniqueValues(int index) {
+		Column c = this.columns[index];
+		if (c instanceof DictColumn) {
+			// one pass over the codes, keeping first-seen order
+			DictColumn dc = (DictColumn) c;
+			boolean[] seen = new boolean[dc.dict.size()];
+			ArrayList<String> ret = new ArrayList<String>();
+			for (int i = 0; i < this.numRows; i++) {
+				int code = dc.codes[i];
+				if (!seen[code]) {
+					seen[code] = true;
+					ret.add(dc.dict.get(code));
+				}
+			}
+			return ret.toArray(new String[ret.size()]);
+
+		} else {
+			LinkedHashSet<String> ret = new LinkedHashSet<String>();
+			for (int i = 0; i < this.numRows; i++) {
+				ret.add(c.get(i));
+			}
+			return ret.toArray(new String[ret.size()]);
+		}
+	}
+
+	@Override
+	public Table slice(int offset, int size) throws Exception {
+		int upper;
+		// make sure upper limit is in bounds
+		if (size == 0 || offset + size > this.getNumRows()) {
+			upper = this.getNumRows();
+		} else {
+			upper = offset + size;
+		}
+		int [] rowNums = new int[Math.max(0, upper - offset)];
+		for (int i = 0; i < rowNums.length; i++) {
+			rowNums[i] = offset + i;
+		}
+		return this.select(this.getColumnNames(), this.getColumnTypes(), this.columns, rowNums);
+	}
+
+	@Override
+	public void truncate(int length) {
+		if (this.numRows > length) {
+			for (Column c : this.columns) {
+				c.truncate(length);
+			}
+			this.numRows = length;
+		}
+	}
+
+	@Override
+	public void clearRows() {
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i] = newColumn(this.getColumnTypes()[i]);
+		}
+		this.numRows = 0;
+	}
+
+	@Override
+	public Table getSubsetWhereMatches(String matchColName, String matchColValue, String[] returnColNames) throws Exception {
+
+		for (String s : returnColNames) {
+			if (!this.hasColumn(s)) {
+				throw new Exception("Requested return column \"" + s + "\" does not exist in the table");
+			}
+		}
+
+		// get return columns and types
+		String[] returnColTypes = new String[returnColNames.length];
+		Column[] returnCols = new Column[returnColNames.length];
+		for (int i = 0; i < returnColNames.length; i++) {
+			returnColTypes[i] = this.getColumnType(returnColNames[i]);
+			returnCols[i] = this.columns[this.getColumnIndex(returnColNames[i])];
+		}
+
+		// find matching rows
+		Column matchCol = this.columns[this.getColumnIndex(matchColName)];
+		int [] matches = new int[this.numRows];
+		int count = 0;
+		if (matchCol instanceof DictColumn) {
+			// compare int codes instead of strings
+			DictColumn dc = (DictColumn) matchCol;
+			Integer code = dc.codeHash.get(matchColValue);
+			if (code != null) {
+				for (int i = 0; i < this.numRows; i++) {
+					if (dc.codes[i] == code) {
+						matches[count++] = i;
+					}
+				}
+			}
+		} else {
+			for (int i = 0; i < this.numRows; i++) {
+				if (matchColValue.equals(matchCol.get(i))) {
+					matches[count++] = i;
+				}
+			}
+		}
+
+		return this.select(returnColNames, returnColTypes, returnCols, Arrays.copyOf(matches, count));
+	}
+
+	@Override
+	public Table getSubsetBySubstring(HashMap<String,String> filterMap) throws Exception {
+		int [] filterCols = new int[filterMap.size()];
+		String [] filterValues = new String[filterMap.size()];
+		int f = 0;
+		for (String filterKey : filterMap.keySet()) {
+			filterCols[f] = this.getColumnIndex(filterKey);
+			filterValues[f] = filterMap.get(filterKey).toLowerCase();
+			f++;
+		}
+
+		int [] matches = new int[this.numRows];
+		int count = 0;
+		for (int i = 0; i < this.numRows; i++) {
+			boolean failed = false;
+			for (f = 0; f < filterCols.length; f++) {
+				String val = this.columns[filterCols[f]].get(i);
+				if (val == null || !val.toLowerCase().contains(filterValues[f])) {
+					failed = true;
+					break;
+				}
+			}
+			if (!failed) {
+				matches[count++] = i;
+			}
+		}
+		return this.select(this.getColumnNames(), this.getColumnTypes(), this.columns, Arrays.copyOf(matches, count));
+	}
+
+	@Override
+	public void sortByColumnStr(String colName) {
+		Column c = this.columns[this.getColumnIndex(colName)];
+		if (c instanceof DictColumn) {
+			// sort the distinct values once, then sort rows by rank
+			DictColumn dc = (DictColumn) c;
+			Integer [] byValue = new Integer[dc.dict.size()];
+			for (int i = 0; i < byValue.length; i++) {
+				byValue[i] = i;
+			}
+			Arrays.sort(byValue, (Integer a, Integer b) -> dc.dict.get(a).compareTo(dc.dict.get(b)));
+			int [] rank = new int[byValue.length];
+			for (int i = 0; i < byValue.length; i++) {
+				// equal strings share a rank
+				rank[byValue[i]] = (i > 0 && dc.dict.get(byValue[i]).equals(dc.dict.get(byValue[i - 1]))) ? rank[byValue[i - 1]] : i;
+			}
+
+			// pack rank and row number into a long:  a primitive sort that is stable on row number
+			long [] keys = new long[this.numRows];
+			for (int i = 0; i < this.numRows; i++) {
+				keys[i] = ((long) rank[dc.codes[i]] << 32) | i;
+			}
+			Arrays.sort(keys);
+			int [] order = new int[this.numRows];
+			for (int i = 0; i < this.numRows; i++) {
+				order[i] = (int) keys[i];
+			}
+			this.reorder(order);
+
+		} else {
+			String [] vals = this.getColumn(this.getColumnIndex(colName));
+			this.reorder(this.sortedOrder((Integer a, Integer b) -> vals[a].compareTo(vals[b])));
+		}
+	}
+
+	@Override
+	public void sortByColumnInt(String colName) {
+		Column c = this.columns[this.getColumnIndex(colName)];
+		long [] vals = new long[this.numRows];
+		if (c instanceof LongColumn && ((LongColumn) c).exceptions.isEmpty()) {
+			vals = ((LongColumn) c).vals;
+		} else {
+			for (int i = 0; i < this.numRows; i++) {
+				vals[i] = Integer.parseInt(c.get(i));
+			}
+		}
+		final long [] v = vals;
+		this.reorder(this.sortedOrder((Integer a, Integer b) -> Long.compare(v[a], v[b])));
+	}
+
+	@Override
+	public void sortByColumnDouble(String colName) {
+		final double [] v = this.getDoubles(this.columns[this.getColumnIndex(colName)]);
+		this.reorder(this.sortedOrder((Integer a, Integer b) -> Double.compare(v[a], v[b])));
+	}
+
+	@Override
+	public void sortByColumnDoubleRev(String colName) {
+		final double [] v = this.getDoubles(this.columns[this.getColumnIndex(colName)]);
+		this.reorder(this.sortedOrder((Integer a, Integer b) -> Double.compare(v[b], v[a])));
+	}
+
+	/**
+	 * Merge multiple tables into a single ColumnarTable
+	 */
+	public static ColumnarTable merge(ArrayList<Table> tables) throws Exception {
+		if (tables == null || tables.size() == 0) {
+			throw new Exception("Cannot merge tables: no tables provided");
+		}
+		Table first = tables.get(0);
+		ColumnarTable ret = new ColumnarTable(first);
+		for (int i = 1; i < tables.size(); i++) {
+			Table t = tables.get(i);
+			if (!Utility.arraysSameMinusOrder(ret.getColumnNames(), t.getColumnNames())) {
+				throw new Exception("Cannot merge tables: column set is not the same");
+			}
+			if (!Utility.arraysSameMinusOrder(ret.getColumnTypes(), t.getColumnTypes())) {
+				throw new Exception("Cannot merge tables: column type set is not the same");
+			}
+			ret.append(t);
+		}
+		return ret;
+	}
+
+	// ------------------------------ helpers ------------------------------
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= this.numRows) {
+			throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + this.numRows);
+		}
+	}
+
+	private double[] getDoubles(Column c) {
+		if (c instanceof DoubleColumn && ((DoubleColumn) c).exceptions.isEmpty()) {
+			return ((DoubleColumn) c).vals;
+		}
+		double [] ret = new double[this.numRows];
+		for (int i = 0; i < this.numRows; i++) {
+			ret[i] = Double.parseDouble(c.get(i));
+		}
+		return ret;
+	}
+
+	/**
+	 * Stable sort of row numbers
+	 */
+	private int[] sortedOrder(Comparator<Integer> comparator) {
+		Integer [] order = new Integer[this.numRows];
+		for (int i = 0; i < this.numRows; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, comparator);
+		int [] ret = new int[this.numRows];
+		for (int i = 0; i < this.numRows; i++) {
+			ret[i] = order[i];
+		}
+		return ret;
+	}
+
+	private void reorder(int[] order) {
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i] = this.columns[i].select(order);
+		}
+	}
+
+	private ColumnarTable select(String[] cols, String[] colTypes, Column[] fromColumns, int[] rowNums) throws Exception {
+		Column[] newColumns = new Column[fromColumns.length];
+		for (int i = 0; i < fromColumns.length; i++) {
+			newColumns[i] = fromColumns[i].select(rowNums);
+		}
+		return new ColumnarTable(cols, colTypes, newColumns, rowNums.length);
+	}
+
+	private static Column newColumn(String colType) {
+		String localName = (colType == null) ? "" : colType.substring(colType.lastIndexOf('#') + 1).toLowerCase();
+		if (LONG_TYPES.contains(localName)) {
+			return new LongColumn(INITIAL_CAPACITY);
+		} else if (DOUBLE_TYPES.contains(localName)) {
+			return new DoubleColumn(INITIAL_CAPACITY);
+		} else {
+			return new DictColumn(INITIAL_CAPACITY);
+		}
+	}
+
+	/**
+	 * ArrayList whose contents can't be changed once built.
+	 * getRows() and getRow() must return ArrayLists, so this stands in for Collections.unmodifiableList().
+	 * Iterators and list iterators change the list only through the methods overridden here.
+	 */
+	private static class ReadOnlyList<T> extends ArrayList<T> {
+		private static final long serialVersionUID = 1L;
+
+		ReadOnlyList(Collection<? extends T> contents) {
+			super(contents);
+		}
+
+		private static UnsupportedOperationException readOnly() {
+			return new UnsupportedOperationException("ColumnarTable rows are read-only copies");
+		}
+
+		@Override public boolean add(T e) { throw readOnly(); }
+		@Override public void add(int index, T e) { throw readOnly(); }
+		@Override public boolean addAll(Collection<? extends T> c) { throw readOnly(); }
+		@Override public boolean addAll(int index, Collection<? extends T> c) { throw readOnly(); }
+		@Override public T set(int index, T e) { throw readOnly(); }
+		@Override public T remove(int index) { throw readOnly(); }
+		@Override public boolean remove(Object o) { throw readOnly(); }
+		@Override public boolean removeAll(Collection<?> c) { throw readOnly(); }
+		@Override public boolean retainAll(Collection<?> c) { throw readOnly(); }
+		@Override public boolean removeIf(Predicate<? super T> filter) { throw readOnly(); }
+		@Override public void replaceAll(UnaryOperator<T> operator) { throw readOnly(); }
+		@Override public void sort(Comparator<? super T> c) { throw readOnly(); }
+		@Override public void clear() { throw readOnly(); }
+		@Override public List<T> subList(int fromIndex, int toIndex) { return Collections.unmodifiableList(super.subList(fromIndex, toIndex)); }
+	}
+
+	// ------------------------------ column storage ------------------------------
+
+	private static abstract class Column {
+		protected int size = 0;
+
+		abstract void add(String val);
+		abstract String get(int row);
+
+		/** new column holding the given rows in the given order */
+		abstract Column select(int[] rowNums);
+
+		void truncate(int length) {
+			this.size = length;
+		}
+
+		/** true if too many values can't be stored in the column's native form */
+		boolean isMostlyExceptions() {
+			return false;
+		}
+
+		Column compact() {
+			return this.isMostlyExceptions() ? this.toDictColumn() : this;
+		}
+
+		DictColumn toDictColumn() {
+			DictColumn ret = new DictColumn(Math.max(this.size, INITIAL_CAPACITY));
+			for (int i = 0; i < this.size; i++) {
+				ret.add(this.get(i));
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Each distinct string is stored once.  Rows hold int codes.
+	 */
+	private static class DictColumn extends Column {
+		final ArrayList<String> dict;
+		final HashMap<String, Integer> codeHash;
+		int [] codes;
+
+		DictColumn(int capacity) {
+			this(new ArrayList<String>(), new HashMap<String, Integer>(), capacity);
+		}
+
+		private DictColumn(ArrayList<String> dict, HashMap<String, Integer> codeHash, int capacity) {
+			this.dict = dict;
+			this.codeHash = codeHash;
+			this.codes = new int[capacity];
+		}
+
+		@Override
+		void add(String val) {
+			Integer code = this.codeHash.get(val);
+			if (code == null) {
+				code = this.dict.size();
+				this.dict.add(val);
+				this.codeHash.put(val, code);
+			}
+			if (this.size == this.codes.length) {
+				this.codes = Arrays.copyOf(this.codes, this.size * 2);
+			}
+			this.codes[this.size++] = code;
+		}
+
+		@Override
+		String get(int row) {
+			return this.dict.get(this.codes[row]);
+		}
+
+		@Override
+		Column select(int[] rowNums) {
+			// copy the dictionary (small) so the two tables can grow independently
+			DictColumn ret = new DictColumn(new ArrayList<String>(this.dict), new HashMap<String, Integer>(this.codeHash), Math.max(rowNums.length, INITIAL_CAPACITY));
+			for (int i = 0; i < rowNums.length; i++) {
+				ret.codes[i] = this.codes[rowNums[i]];
+			}
+			ret.size = rowNums.length;
+			return ret;
+		}
+	}
+
+	/**
+	 * Base for numeric columns.
+	 * Values that would not print back exactly as given (e.g. "", "007", "1.50") are kept as strings in exceptions.
+	 */
+	private static abstract class NumericColumn extends Column {
+		HashMap<Integer, String> exceptions = new HashMap<Integer, String>();
+
+		@Override
+		void add(String val) {
+			if (val == null || !this.addNumber(val)) {
+				this.exceptions.put(this.size, val);
+				this.addNumber("0");
+			}
+		}
+
+		@Override
+		String get(int row) {
+			if (!this.exceptions.isEmpty() && this.exceptions.containsKey(row)) {
+				return this.exceptions.get(row);
+			}
+			return this.getNumberString(row);
+		}
+
+		@Override
+		void truncate(int length) {
+			if (!this.exceptions.isEmpty()) {
+				this.exceptions.keySet().removeIf((Integer row) -> row >= length);
+			}
+			super.truncate(length);
+		}
+
+		@Override
+		boolean isMostlyExceptions() {
+			return this.exceptions.size() > INITIAL_CAPACITY && this.exceptions.size() * 2 > this.size;
+		}
+
+		protected void selectExceptions(NumericColumn ret, int[] rowNums) {
+			if (!this.exceptions.isEmpty()) {
+				for (int i = 0; i < rowNums.length; i++) {
+					if (this.exceptions.containsKey(rowNums[i])) {
+						ret.exceptions.put(i, this.exceptions.get(rowNums[i]));
+					}
+				}
+			}
+		}
+
+		/** add val if it prints back exactly, else return false without adding */
+		abstract boolean addNumber(String val);
+		abstract String getNumberString(int row);
+	}
+
+	private static class LongColumn extends NumericColumn {
+		long [] vals;
+
+		LongColumn(int capacity) {
+			this.vals = new long[capacity];
+		}
+
+		@Override
+		boolean addNumber(String val) {
+			long v;
+			try {
+				v = Long.parseLong(val);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+			if (!Long.toString(v).equals(val)) {
+				return false;
+			}
+			if (this.size == this.vals.length) {
+				this.vals = Arrays.copyOf(this.vals, this.size * 2);
+			}
+			this.vals[this.size++] = v;
+			return true;
+		}
+
+		@Override
+		String getNumberString(int row) {
+			return Long.toString(this.vals[row]);
+		}
+
+		@Override
+		Column select(int[] rowNums) {
+			LongColumn ret = new LongColumn(Math.max(rowNums.length, INITIAL_CAPACITY));
+			for (int i = 0; i < rowNums.length; i++) {
+				ret.vals[i] = this.vals[rowNums[i]];
+			}
+			ret.size = rowNums.length;
+			this.selectExceptions(ret, rowNums);
+			return ret;
+		}
+	}
+
+	private static class DoubleColumn extends NumericColumn {
+		private static final long MAX_EXACT = 1L << 53;
+
+		double [] vals;
+		BitSet integral = new BitSet();    // value was written without a decimal point
+
+		DoubleColumn(int capacity) {
+			this.vals = new double[capacity];
+		}
+
+		@Override
+		boolean addNumber(String val) {
+			double v;
+			boolean isIntegral = val.indexOf('.') < 0 && val.indexOf('e') < 0 && val.indexOf('E') < 0;
+			try {
+				if (isIntegral) {
+					long l = Long.parseLong(val);
+					if (l > MAX_EXACT || l < -MAX_EXACT || !Long.toString(l).equals(val)) {
+						return false;
+					}
+					v = l;
+				} else {
+					v = Double.parseDouble(val);
+					if (!Double.toString(v).equals(val)) {
+						return false;
+					}
+				}
+			} catch (NumberFormatException e) {
+				return false;
+			}
+			if (this.size == this.vals.length) {
+				this.vals = Arrays.copyOf(this.vals, this.size * 2);
+			}
+			this.integral.set(this.size, isIntegral);
+			this.vals[this.size++] = v;
+			return true;
+		}
+
+		@Override
+		String getNumberString(int row) {
+			return this.integral.get(row) ? Long.toString((long) this.vals[row]) : Double.toString(this.vals[row]);
+		}
+
+		@Override
+		Column select(int[] rowNums) {
+			DoubleColumn ret = new DoubleColumn(Math.max(rowNums.length, INITIAL_CAPACITY));
+			for (int i = 0; i < rowNums.length; i++) {
+				ret.vals[i] = this.vals[rowNums[i]];
+				ret.integral.set(i, this.integral.get(rowNums[i]));
+			}
+			ret.size = rowNums.length;
+			this.selectExceptions(ret, rowNums);
+			return ret;
+		}
+	}
+}
@@ -29,6 +29,7 @@ public class RecordProcessResults extends GeneralResultSet{
 	
 	int recordsProcessed = 0;
 	int failuresEncountered = 0;
+	JSONObject loadSettings = null;	// batch size, worker threads, etc. the load ended with
 	
 	public RecordProcessResults(Boolean succeeded) {
 		super(succeeded);
@@ -49,6 +50,8 @@ public class RecordProcessResults extends GeneralResultSet{
 				this.failuresEncountered = ((Long) unwrapped.get("failuresEncountered")).intValue();}
 			if(unwrapped.containsKey("recordsProcessed")){
 				this.recordsProcessed = ((Long) unwrapped.get("recordsProcessed")).intValue();}
+			if(unwrapped.containsKey("loadSettings")){
+				this.loadSettings = (JSONObject) unwrapped.get("loadSettings");}
 		}
 	}
 	
@@ -73,6 +76,17 @@ public class RecordProcessResults extends GeneralResultSet{
 		this.failuresEncountered = failuresEncountered;
 	}
 	
+	public JSONObject getLoadSettings() {
+		return this.loadSettings;
+	}
+	
+	/**
+	 * Set before addResults() to be included
+	 */
+	public void setLoadSettings(JSONObject loadSettings){
+		this.loadSettings = loadSettings;
+	}
+	
 	@Override
 	public void addResultsJSON(JSONObject actualResults) {
 		// TODO Auto-generated method stub
@@ -80,7 +94,7 @@ public class RecordProcessResults extends GeneralResultSet{
 	}	
 	
 	public void addResults(Table table) throws Exception {
-		if(table.getRows().size() > 0){
+		if(table.getNumRows() > 0){
 			this.resultsContents = this.addPreamble(table.toJson());
 			this.addRationaleMessage("at least one error occurred. please check embedded error table for details");
 		}
@@ -94,6 +108,9 @@ public class RecordProcessResults extends GeneralResultSet{
 		
 		retval.put("recordsProcessed", this.recordsProcessed);
 		retval.put("failuresEncountered", this.failuresEncountered);
+		if(this.loadSettings != null){
+			retval.put("loadSettings", this.loadSettings);
+		}
 		if(resultsWithoutPreamble != null){
 			retval.put("errorTable", resultsWithoutPreamble);
 		}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.json.simple.JSONArray;
@@ -110,6 +111,19 @@ public class Table {
 		
 	}
 	
+	public void replaceColumnTypes(String [] newColumnTypes) throws Exception{
+		// same as replaceColumnNames, for types
+		
+		if(this.columnTypes.length != newColumnTypes.length){
+			throw new Exception("replaceColumnTypes: the incoming column type count (" + newColumnTypes.length + ") does not match the target column types count (" + this.columnTypes.length + ")");
+		}
+		
+		else{
+			this.columnTypes = newColumnTypes;
+		}
+		
+	}
+	
 	public int getNumRows(){
 		return rows.size();
 	}
@@ -189,11 +203,9 @@ public class Table {
 	 * Return the values for a particular column, removing duplicates
 	 */
 	public String[] getColumnUniqueValues(int index){
-		ArrayList<String> column = new ArrayList<String>();
+		LinkedHashSet<String> column = new LinkedHashSet<String>();  // enforce uniqueness, keep order
 		for(ArrayList<String> row : rows){
-			if(!column.contains(row.get(index))){  // enforce uniqueness
-				column.add(row.get(index));
-			}
+			column.add(row.get(index));
 		}
 		return column.toArray(new String[column.size()]);
 	}
@@ -429,7 +441,8 @@ public class Table {
 				counter++;
 			}
 			if(includeDataRows){
-				for (ArrayList<String> row : this.getRows()) {
+				for (int i = 0; i < this.getNumRows(); i++) {
+					ArrayList<String> row = this.getRow(i);
 					if(row != null){   // do not include null rows...
 						JSONArray currRow = new JSONArray();
 						for (Integer k : columnNumbersInOrderIwanted) {
@@ -441,7 +454,7 @@ public class Table {
 				}
 			}
 			else{
-				rowCount = this.getRows().size();
+				rowCount = this.getNumRows();
 			}
 		} catch(Exception e){
 			throw new Exception("Unable to collect row data for JSON table result set: " + e.getMessage());
@@ -495,6 +508,9 @@ public class Table {
 		if(tables.size() == 1){
 			return tables.get(0);  	// if only one table given, then pass it back
 		}
+		if(tables.get(0) instanceof ColumnarTable){
+			return ColumnarTable.merge(tables);
+		}
 		
 		String[] mergedTableCols = null;
 		String[] mergedTableColTypes = null;
@@ -609,7 +625,8 @@ public class Table {
 		boolean failed;
 		
 		// for each row
-		for(ArrayList<String> row : getRows()){
+		for(int i = 0; i < getNumRows(); i++){
+			ArrayList<String> row = getRow(i);
 			failed = false;
 			for(String filterKey : filterMap.keySet()){
 				index = getColumnIndex(filterKey);
@@ -33,6 +33,9 @@ public class TableResultSet extends GeneralResultSet{
 	
 	public static final String RESULTS_BLOCK_NAME = "table";
 	public final static String TABLE_JSONKEY = "@table";
+	
+	// table held directly (e.g. streamed from a triple store).  Json is only built if someone asks for it.
+	private Table table = null;
 
 	public TableResultSet(JSONObject encoded) throws EndpointNotFoundException {
 		super();
@@ -54,6 +57,9 @@ public class TableResultSet extends GeneralResultSet{
 	
 	@Override
 	public Table getResults() throws Exception {
+		if (this.table != null) {
+			return this.table;
+		}
 		Table table = Table.fromJson((JSONObject)this.resultsContents.get(TABLE_JSONKEY));
 		return table;
 	}
@@ -81,6 +87,60 @@ public class TableResultSet extends GeneralResultSet{
 		addResultsJSON(jsonObj);
 	}
 
+	/**
+	 * Add results as a Table object, without copying it to json.
+	 * The json is built only if the result set is serialized, so large tables
+	 * that are consumed in-process are never held twice.
+	 * Note that getTable() will then return this same Table object.  Changes made to it
+	 * are seen by later calls to toJson() and getResultsJSON(), which build the json afresh each time.
+	 */
+	public void setTable(Table table) {
+		this.table = table;
+		this.resultsContents = null;
+	}
+	
+	@Override
+	public void addResultsJSON(JSONObject results) {
+		this.table = null;
+		super.addResultsJSON(results);
+	}
+	
+	@Override
+	public JSONObject getResultsJSON() {
+		this.buildJsonFromTable();
+		return super.getResultsJSON();
+	}
+	
+	@Override
+	public JSONObject toJson() {
+		this.buildJsonFromTable();
+		return super.toJson();
+	}
+	
+	@Override
+	public void readJson(JSONObject jsonObj) throws EndpointNotFoundException {
+		this.table = null;
+		super.readJson(jsonObj);
+	}
+	
+	/**
+	 * If the table is being held directly, build its json.
+	 * Not cached:  the caller of getTable() may have changed the table since the last build.
+	 */
+	@SuppressWarnings("unchecked")
+	private void buildJsonFromTable() {
+		if (this.table != null) {
+			try {
+				JSONObject jsonObj = new JSONObject();
+				jsonObj.put(TABLE_JSONKEY, this.table.toJson());
+				this.resultsContents = jsonObj;
+			} catch (Exception e) {
+				// toJson() only re-throws problems with malformed rows
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 	protected void processConstructJson(JSONObject encoded) {	
 		if(encoded.get(getResultsBlockName()) != null){
 			this.resultsContents = (JSONObject) encoded.get(getResultsBlockName());
@@ -37,20 +37,13 @@ import org.apache.commons.codec.net.URLCodec;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.AuthCache;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.auth.DigestScheme;
-import org.apache.http.impl.client.BasicAuthCache;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -58,6 +51,8 @@ import org.json.simple.JSONValue;
 import org.json.simple.parser.JSONParser;
 
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
+import com.ge.research.semtk.load.utility.UriCache;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.NodeGroupResultSet;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
@@ -71,7 +66,6 @@ import com.ge.research.semtk.utility.LocalLogger;
  * Interface to SPARQL endpoint.
  * This is an abstract class - create a subclass per implementation (Virtuoso, etc)
  */
-@SuppressWarnings("deprecation")
 public abstract class SparqlEndpointInterface {
 
 	// NOTE: more than one thread cannot safely share a SparqlEndpointInterface.
@@ -200,6 +194,14 @@ public abstract class SparqlEndpointInterface {
 		SparqlEndpointInterface.handler = handler;
 	}
 
+	/**
+	 * Build the HttpHost for this endpoint's server and port
+	 */
+	protected HttpHost getTargetHost() {
+		String[] serverNoProtocol = this.server.split("://");
+		return new HttpHost(serverNoProtocol[1], Integer.valueOf(this.port), serverNoProtocol[0]);
+	}
+
 	/**
 	 * Set the username and password
 	 */
@@ -299,13 +301,145 @@ public abstract class SparqlEndpointInterface {
 		}
 		
 		// execute the query
-		JSONObject result = executeQuery(query, resultType); 			
-		resultSet.setSuccess(true);
-		resultSet.addResultsJSON(result);
+		if(resultType == SparqlResultTypes.TABLE){
+			// stream the response straight into a Table
+			((TableResultSet) resultSet).setTable(executeQueryToTable(query));
+			resultSet.setSuccess(true);
+			
+		}else{
+			JSONObject result = executeQuery(query, resultType); 			
+			resultSet.setSuccess(true);
+			resultSet.addResultsJSON(result);
+		}
 		
 		return resultSet;
 	}	
 	
+	/**
+	 * Execute a select query, decoding the response stream directly into a Table.
+	 * The response is never held as a String or JSON tree.
+	 * Retries like executeQuery(), but does not populate getResponse() or the get*ResultsColumn() methods.
+	 */
+	public Table executeQueryToTable(String query) throws Exception {
+		int tryCount = 0;
+		while (true) {
+			tryCount++;
+			try {
+				return executeQueryPostToTable(query);
+			} catch (Exception e) {
+				if (tryCount >= MAX_QUERY_TRIES) {
+					throw e;
+				} else {
+					LocalLogger.logToStdOut ("SPARQL query failed.  Sleeping 2 seconds and trying again...");
+					TimeUnit.SECONDS.sleep (2); // sleep 2 seconds and try again
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Execute a select query using POST and stream-decode the results
+	 */
+	private Table executeQueryPostToTable(String query) throws Exception {
+		TableCursor cursor = this.openTableCursor(query);
+		try {
+			return cursor.readAll();
+		} finally {
+			cursor.close();
+		}
+	}
+	
+	/**
+	 * Execute a select query, returning a cursor that yields rows while the response is still arriving.
+	 * Only opening the query (through reading the column names) is retried like executeQuery():
+	 * failures after rows have been handed out are thrown by TableCursor.next().
+	 * Caller must close() the cursor.
+	 */
+	public TableCursor executeQueryToCursor(String query) throws Exception {
+		int tryCount = 0;
+		while (true) {
+			tryCount++;
+			try {
+				return this.openTableCursor(query);
+			} catch (Exception e) {
+				if (tryCount >= MAX_QUERY_TRIES) {
+					throw e;
+				} else {
+					LocalLogger.logToStdOut ("SPARQL query failed.  Sleeping 2 seconds and trying again...");
+					TimeUnit.SECONDS.sleep (2); // sleep 2 seconds and try again
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Send a select query using POST and read up through the column names
+	 */
+	private TableCursor openTableCursor(String query) throws Exception {
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		HttpHost targetHost = this.getTargetHost();
+		boolean isAuth = this.userName != null && this.password != null;
+		HttpClientContext context = isAuth ? pool.createAuthContext(targetHost, this.userName, this.password) : pool.createContext();
+		HttpPost httppost = this.buildQueryPost(query, CONTENTTYPE_SPARQL_QUERY_RESULT_JSON);
+		
+		CloseableHttpResponse httpresponse = pool.getHttpClient().execute(targetHost, httppost, context);
+		if (isAuth) {
+			this.checkAuthResponse(pool, targetHost, httpresponse);
+		}
+		TableCursor cursor = null;
+		try {
+			SparqlResultsJsonDecoder decoder = new SparqlResultsJsonDecoder(httpresponse.getEntity().getContent());
+			cursor = new TableCursor(decoder, httppost, httpresponse);
+			if (!decoder.hasContent()) {
+				if (isAuth) {
+					handleEmptyResponse();  // implementation-specific behavior
+				}
+				throw new Exception("Sparql server returned an empty response");
+			}
+			cursor.getColumnNames();
+			return cursor;
+			
+		} catch (Exception e) {
+			if (cursor != null) {
+				cursor.close();
+			} else {
+				httppost.abort();
+				httpresponse.close();
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * If an auth request was refused, drop the cached digest state so the next request starts a fresh handshake
+	 */
+	private void checkAuthResponse(SparqlHttpClientPool pool, HttpHost targetHost, HttpResponse response) {
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+			pool.clearAuthCache(targetHost, this.userName);
+		}
+	}
+	
+	/**
+	 * Build a query POST with the standard headers and form params
+	 */
+	private HttpPost buildQueryPost(String query, String resultsFormat) throws Exception {
+		return this.buildQueryPost(new CharSequence [] { query }, resultsFormat);
+	}
+	
+	/**
+	 * Build a query POST with the standard headers and form params
+	 * @param queryParts - query in pieces, which are encoded straight into the request body
+	 */
+	private HttpPost buildQueryPost(CharSequence [] queryParts, String resultsFormat) throws Exception {
+		HttpPost httppost = new HttpPost(getPostURL());
+		httppost.addHeader("Accept", resultsFormat);
+		httppost.addHeader("X-Sparql-default-graph", this.dataset);
+
+		// add params:  query, format, default-graph-uri
+		httppost.setEntity(new SparqlQueryFormEntity(queryParts, resultsFormat, this.dataset));
+		return httppost;
+	}
+	
 	
 	/**
 	 * Execute a query. Uses http POST.  
@@ -322,33 +456,63 @@ public abstract class SparqlEndpointInterface {
 	 * @return a JSONObject wrapping the results
 	 */
 	public JSONObject executeQuery(String query, SparqlResultTypes resultType) throws Exception {
+		return this.executeQuery(new CharSequence [] { query }, resultType);
+	}
+	
+	/**
+	 * Execute a query given in pieces (e.g. from SparqlInsertWriter) without joining them into one string.
+	 * Otherwise the same as executeQuery(String, SparqlResultTypes)
+	 * @param queryParts - pieces that joined together make the whole query
+	 */
+	public JSONObject executeQuery(CharSequence [] queryParts, SparqlResultTypes resultType) throws Exception {
 
 		int tryCount = 0;
-		// Keep trying the query until it succeeds or reaches a 
-		// maximum number of tries, which is checked for in the 
-		// exception catch
-		while (true) {
-			tryCount++;
-			try {
-				if(this.userName !=null && this.password != null){
-					return executeQueryAuthPost(query, resultType);
-				}else{
-					if(resultType == SparqlResultTypes.CONFIRM){ 
-						throw new Exception("Username and password are required to execute a query with resultType " + resultType.toString());
+		try {
+			// Keep trying the query until it succeeds or reaches a 
+			// maximum number of tries, which is checked for in the 
+			// exception catch
+			while (true) {
+				tryCount++;
+				try {
+					if(this.userName !=null && this.password != null){
+						return executeQueryAuthPost(queryParts, resultType);
+					}else{
+						if(resultType == SparqlResultTypes.CONFIRM){ 
+							throw new Exception("Username and password are required to execute a query with resultType " + resultType.toString());
+						}
+						return executeQueryPost(queryParts, resultType);
+					}
+				} catch (Exception e) {
+					if (tryCount >= MAX_QUERY_TRIES) {
+						throw e;
+					} else {	// else unnecessary, but makes code easier to read
+						LocalLogger.logToStdOut ("SPARQL query failed.  Sleeping 2 seconds and trying again...");
+						TimeUnit.SECONDS.sleep (2); // sleep 2 seconds and try again
 					}
-					return executeQueryPost(query, resultType);
-				}
-			} catch (Exception e) {
-				if (tryCount >= MAX_QUERY_TRIES) {
-					throw e;
-				} else {	// else unnecessary, but makes code easier to read
-					LocalLogger.logToStdOut ("SPARQL query failed.  Sleeping 2 seconds and trying again...");
-					TimeUnit.SECONDS.sleep (2); // sleep 2 seconds and try again
 				}
 			}
+		} finally {
+			this.clearUriCacheIfDelete(queryParts);
+		}
+	}
+
+	/**
+	 * Empty the dataset's shared UriCache after a query that may have deleted triples, even if it failed part way
+	 */
+	private void clearUriCacheIfDelete(CharSequence [] queryParts) {
+		if (SparqlToXUtils.isDeleteQuery(queryParts)) {
+			UriCache.clearShared(this.getServerAndPort(), this.getDataset());
 		}
 	}
 
+	/**
+	 * Count the triples in the dataset
+	 */
+	public long executeCountTriples() throws Exception {
+		Table table = this.executeQueryToTable(SparqlToXUtils.generateCountTriplesQuery());
+		return Long.parseLong(table.getCell(0, 0));
+	}
+
 	public JSONObject executeTestQuery() throws Exception {
 		final String sparql = "select ?Concept where {[] a ?Concept} LIMIT 1";
 		try {
@@ -368,6 +532,15 @@ public abstract class SparqlEndpointInterface {
 	 * Sample graph output:
 	 */
 	public JSONObject executeQueryPost(String query, SparqlResultTypes resultType) throws Exception {
+		CharSequence [] queryParts = new CharSequence [] { query };
+		try {
+			return this.executeQueryPost(queryParts, resultType);
+		} finally {
+			this.clearUriCacheIfDelete(queryParts);
+		}
+	}
+	
+	private JSONObject executeQueryPost(CharSequence [] queryParts, SparqlResultTypes resultType) throws Exception {
 		
 		if(resultType == null){
 			resultType = getDefaultResultType();
@@ -377,22 +550,11 @@ public abstract class SparqlEndpointInterface {
 		// May throw Exceptions for various simple errors
 		String resultsFormat = this.getContentType(resultType);
 		
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-		String[] serverNoProtocol = this.server.split("://");
-		
-		HttpHost targetHost = new HttpHost(serverNoProtocol[1], Integer.valueOf(this.port), serverNoProtocol[0]);
-		HttpPost httppost = new HttpPost(getPostURL());
-		httppost.addHeader("Accept", resultsFormat);
-		httppost.addHeader("X-Sparql-default-graph", this.dataset);
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		HttpHost targetHost = this.getTargetHost();
+		HttpPost httppost = this.buildQueryPost(queryParts, resultsFormat);
 
-		// add params
-		List<NameValuePair> params = new ArrayList<>(3);
-		params.add(new BasicNameValuePair("query", query));
-		params.add(new BasicNameValuePair("format", resultsFormat));
-		params.add(new BasicNameValuePair("default-graph-uri", this.dataset));
-		httppost.setEntity(new UrlEncodedFormEntity(params, "UTF-8"));
-
-		HttpResponse httpresponse = httpclient.execute(targetHost, httppost);
+		HttpResponse httpresponse = pool.getHttpClient().execute(targetHost, httppost, pool.createContext());
 		HttpEntity entity = httpresponse.getEntity();
 		String responseTxt = EntityUtils.toString(entity, "UTF-8");
 		
@@ -422,49 +584,22 @@ public abstract class SparqlEndpointInterface {
 	 * @return a JSONObject wrapping the results. in the event the results were tabular, they can be obtained in the JsonArray "@Table". if the results were a graph, use "@Graph" for json-ld
 	 * @throws Exception
 	 */
-	private JSONObject executeQueryAuthPost(String query, SparqlResultTypes resultType) throws Exception{
+	private JSONObject executeQueryAuthPost(CharSequence [] queryParts, SparqlResultTypes resultType) throws Exception{
 		
 		if(resultType == null){
 			resultType = getDefaultResultType();
 		}
 		
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-
-		httpclient.getCredentialsProvider().setCredentials(
-				AuthScope.ANY,
-				new UsernamePasswordCredentials(this.userName, this.password));
+		// shared connection pool, with cached digest auth state for this host and user
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		HttpHost targetHost = this.getTargetHost();
+		HttpClientContext localcontext = pool.createAuthContext(targetHost, this.userName, this.password);
 
-		String[] serverNoProtocol = this.server.split("://");
-		//LocalLogger.logToStdErr("the new server name is: " + serverNoProtocol[1]);
-
-		HttpHost targetHost = new HttpHost(serverNoProtocol[1], Integer.valueOf(this.port), serverNoProtocol[0]);  //previous version assumes always http.
-
-		DigestScheme digestAuth = new DigestScheme();
-		AuthCache authCache = new BasicAuthCache();
-		digestAuth.overrideParamter("realm", "SPARQL");
-		// Suppose we already know the expected nonce value
-		digestAuth.overrideParamter("nonce", "whatever");
-		authCache.put(targetHost, digestAuth);
-		BasicHttpContext localcontext = new BasicHttpContext();
-		localcontext.setAttribute(ClientContext.AUTH_CACHE, authCache);
-
-		// add new stuff
-		HttpPost httppost = new HttpPost(getPostURL());
 		String resultsFormat = this.getContentType(resultType);
-		httppost.addHeader("Accept",resultsFormat);
-		httppost.addHeader("X-Sparql-default-graph", this.dataset);
-
-		// add params
-		List<NameValuePair> params = new ArrayList<NameValuePair>(3);
-		params.add(new BasicNameValuePair("query", query));
-		params.add(new BasicNameValuePair("format", resultsFormat));
-		params.add(new BasicNameValuePair("default-graph-uri", this.dataset));
-
-		httppost.setEntity(new UrlEncodedFormEntity(params, "UTF-8"));
+		HttpPost httppost = this.buildQueryPost(queryParts, resultsFormat);
 
-		// finish new stuff
-
-		HttpResponse response_http = httpclient.execute(targetHost, httppost, localcontext);
+		HttpResponse response_http = pool.getHttpClient().execute(targetHost, httppost, localcontext);
+		this.checkAuthResponse(pool, targetHost, response_http);
 		HttpEntity entity = response_http.getEntity();
 		String responseTxt = EntityUtils.toString(entity, "UTF-8");
 
@@ -508,26 +643,34 @@ public abstract class SparqlEndpointInterface {
 	 */
 
 	public JSONObject executeAuthUploadOwl(byte[] owl) throws Exception{
+		executeTestQuery();
+		JSONObject ret = this.executeAuthUpload(owl, null, null);
+		OntologyInfoCache.getShared().invalidate(this);
+		return ret;
+	}
+	
+	/**
+	 * Upload turtle (or n-triples) into the default graph, through the same upload path as owl.
+	 * Doesn't run a test query first, so bulk loads can send many of these:  call executeTestQuery() once beforehand.
+	 * @param ttl - UTF-8 turtle
+	 * @return SimpleResultSet json
+	 * @throws Exception
+	 */
+	public JSONObject executeAuthUploadTurtle(byte[] ttl) throws Exception{
+		return this.executeAuthUpload(ttl, ContentType.create("text/turtle", "UTF-8"), "load.ttl");
+	}
+	
+	/**
+	 * @param contents
+	 * @param contentType - or null for octet-stream
+	 * @param fileName - or null for none.  Some triple stores choose a parser by file extension.
+	 */
+	private JSONObject executeAuthUpload(byte[] contents, ContentType contentType, String fileName) throws Exception{
 		
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-
-		httpclient.getCredentialsProvider().setCredentials(
-				AuthScope.ANY,
-				new UsernamePasswordCredentials(this.userName, this.password));
-
-		String[] serverNoProtocol = this.server.split("://");
-		//LocalLogger.logToStdErr("the new server name is: " + serverNoProtocol[1]);
-
-		HttpHost targetHost = new HttpHost(serverNoProtocol[1], Integer.valueOf(this.port), serverNoProtocol[0]);
-
-		DigestScheme digestAuth = new DigestScheme();
-		AuthCache authCache = new BasicAuthCache();
-		digestAuth.overrideParamter("realm", "SPARQL");
-		// Suppose we already know the expected nonce value
-		digestAuth.overrideParamter("nonce", "whatever");
-		authCache.put(targetHost, digestAuth);
-		BasicHttpContext localcontext = new BasicHttpContext();
-		localcontext.setAttribute(ClientContext.AUTH_CACHE, authCache);
+		// shared connection pool, with cached digest auth state for this host and user
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		HttpHost targetHost = this.getTargetHost();
+		HttpClientContext localcontext = pool.createAuthContext(targetHost, this.userName, this.password);
 
 		// add new stuff
 		HttpPost httppost = new HttpPost(getUploadURL());
@@ -539,7 +682,11 @@ public abstract class SparqlEndpointInterface {
 		MultipartEntityBuilder builder = MultipartEntityBuilder.create();    
 	
 		builder.addTextBody("graph-uri", this.dataset);
-		builder.addBinaryBody("res-file", owl);
+		if (contentType == null) {
+			builder.addBinaryBody("res-file", contents);
+		} else {
+			builder.addBinaryBody("res-file", contents, contentType, fileName);
+		}
 		HttpEntity entity = builder.build();
 		httppost.setEntity(entity);
 		
@@ -570,9 +717,8 @@ public abstract class SparqlEndpointInterface {
 
 		 */
 		
-		executeTestQuery();
-
-		HttpResponse response_http = httpclient.execute(targetHost, httppost, localcontext);
+		HttpResponse response_http = pool.getHttpClient().execute(targetHost, httppost, localcontext);
+		this.checkAuthResponse(pool, targetHost, response_http);
 		HttpEntity resp_entity = response_http.getEntity();
 		// get response with HTML tags removed
 		String responseTxt = EntityUtils.toString(resp_entity, "UTF-8").replaceAll("\\<.*?>"," ");
@@ -584,7 +730,7 @@ public abstract class SparqlEndpointInterface {
 			ret.setSuccess(true);
 		} else {
 			ret.setSuccess(false);
-			ret.addRationaleMessage("SparqlEndpointInterface.executeAuthUploadOwl", responseTxt);
+			ret.addRationaleMessage("SparqlEndpointInterface.executeAuthUpload", responseTxt);
 		}
 		resp_entity.getContent().close();
 		return ret.toJson();
@@ -605,26 +751,37 @@ public abstract class SparqlEndpointInterface {
 		// encode the query and build a real URL
 		URLCodec encoder = new URLCodec();
 		String cleanURL = getGetURL() + encoder.encode(query);
-		URL url = new URL(null, cleanURL, handler);
-LocalLogger.logToStdOut ("URL: " + url);
-
-		// create an http GET connection and make the request
-		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-		
-		// set the type of output desired. this might not work....
 		String resultsFormat = this.getContentType(resultsType);
-		conn.setRequestProperty("Accept", resultsFormat);
+		String results;
 		
-		conn.setRequestMethod("GET");
-
-		// read the results
-		BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-		String results = "";
-		// get everythign from reader
-		String line;
-	    while ((line = rd.readLine()) != null) {
-	        results += line;
-	    }
+		if (handler != null) {
+			// unit tests supply their own handler: use a plain HttpURLConnection
+			URL url = new URL(null, cleanURL, handler);
+			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+			
+			// set the type of output desired. this might not work....
+			conn.setRequestProperty("Accept", resultsFormat);
+			conn.setRequestMethod("GET");
+	
+			// read the results
+			BufferedReader rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+			StringBuilder resultsBuilder = new StringBuilder();
+			String line;
+		    while ((line = rd.readLine()) != null) {
+		        resultsBuilder.append(line);
+		    }
+		    rd.close();   // close the reader
+		    results = resultsBuilder.toString();
+		    
+		} else {
+			// use the shared connection pool
+			SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+			HttpGet httpget = new HttpGet(cleanURL);
+			httpget.addHeader("Accept", resultsFormat);
+			
+			HttpResponse httpresponse = pool.getHttpClient().execute(this.getTargetHost(), httpget, pool.createContext());
+			results = EntityUtils.toString(httpresponse.getEntity(), "UTF-8");
+		}
 		
 		try{ 
 			this.response = (JSONObject) new JSONParser().parse(results);
@@ -633,7 +790,6 @@ LocalLogger.logToStdOut ("URL: " + url);
 		}
 	    
 		JSONObject interimObj = new JSONObject(this.response);
-		rd.close();   // close the reader
 
 		if (this.response == null) {
 			LocalLogger.logToStdErr("the response could not be transformed into json");
@@ -660,9 +816,6 @@ LocalLogger.logToStdOut ("URL: " + url);
 			resultType = getDefaultResultType();
 		}
 		
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-
-		//ResponseHandler<String> responseHandler = new BasicResponseHandler();
 
 		LocalLogger.logToStdErr("the server name was " + this.server);
 		LocalLogger.logToStdErr("the port id was " + this.port);
@@ -671,24 +824,10 @@ LocalLogger.logToStdOut ("URL: " + url);
 
 		LocalLogger.logToStdErr(queryAndUrl);
 
-		httpclient.getCredentialsProvider().setCredentials(
-				AuthScope.ANY,
-				new UsernamePasswordCredentials(this.userName, this.password));
-
-
-		String[] serverNoProtocol = this.server.split("://");
-		LocalLogger.logToStdErr("the new server name is: " + serverNoProtocol[1]);
-
-		HttpHost targetHost = new HttpHost(serverNoProtocol[1], Integer.valueOf(this.port), serverNoProtocol[0]);
-
-		DigestScheme digestAuth = new DigestScheme();
-		AuthCache authCache = new BasicAuthCache();
-		digestAuth.overrideParamter("realm", "SPARQL");
-		// Suppose we already know the expected nonce value
-		digestAuth.overrideParamter("nonce", "whatever");
-		authCache.put(targetHost, digestAuth);
-		BasicHttpContext localcontext = new BasicHttpContext();
-		localcontext.setAttribute(ClientContext.AUTH_CACHE, authCache);
+		// shared connection pool, with cached digest auth state for this host and user
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		HttpHost targetHost = this.getTargetHost();
+		HttpClientContext localcontext = pool.createAuthContext(targetHost, this.userName, this.password);
 
 		HttpGet httpget = new HttpGet(queryAndUrl);
 		String resultsFormat = this.getContentType(resultType);
@@ -697,7 +836,8 @@ LocalLogger.logToStdOut ("URL: " + url);
 		LocalLogger.logToStdOut("executing request" + httpget.getRequestLine());
 
 		//        String responseTxt = httpclient.execute(httpget, responseHandler);
-		HttpResponse response_http = httpclient.execute(targetHost, httpget, localcontext);
+		HttpResponse response_http = pool.getHttpClient().execute(targetHost, httpget, localcontext);
+		this.checkAuthResponse(pool, targetHost, response_http);
 		HttpEntity entity = response_http.getEntity();
 		String responseTxt = EntityUtils.toString(entity, "UTF-8");
 
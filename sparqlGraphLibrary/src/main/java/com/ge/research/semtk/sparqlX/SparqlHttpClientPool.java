@@ -0,0 +1,220 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.sparqlX;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.auth.DigestScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.ge.research.semtk.utility.LocalLogger;
+
+/**
+ * Shared, pooled HTTP transport for all SparqlEndpointInterfaces.
+ *
+ * Every SparqlEndpointInterface (and every copy()) in the JVM sends its requests through
+ * one keep-alive connection pool, so concurrent ingestion threads and dispatcher jobs
+ * multiplex over a bounded set of persistent connections to each triple store.
+ *
+ * Digest auth state is cached per host and user, so the challenge/response handshake
+ * is done once and then re-used by later requests.
+ *
+ * Services size the pool at startup with configure(), from these properties:
+ *     sparqlHttpPool.maxTotal, sparqlHttpPool.maxPerRoute, sparqlHttpPool.connectTimeoutMsec,
+ *     sparqlHttpPool.socketTimeoutMsec, sparqlHttpPool.idleEvictSec
+ */
+public class SparqlHttpClientPool {
+
+	public static final int DEFAULT_MAX_TOTAL = 100;
+	public static final int DEFAULT_MAX_PER_ROUTE = 20;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MSEC = 10 * 1000;
+	public static final int DEFAULT_SOCKET_TIMEOUT_MSEC = 30 * 60 * 1000;   // big queries can legitimately run a long time
+	public static final int DEFAULT_IDLE_EVICT_SEC = 60;
+
+	private static SparqlHttpClientPool instance = null;
+
+	private final PoolingHttpClientConnectionManager connManager;
+	private final CloseableHttpClient httpClient;
+	private final RequestConfig requestConfig;
+
+	// auth caches keyed by host and user.  BasicAuthCache hands out a copy of the scheme on each get(),
+	// so sharing one across threads is safe.
+	private final ConcurrentHashMap<String, AuthCache> authCacheHash = new ConcurrentHashMap<String, AuthCache>();
+
+	private SparqlHttpClientPool(int maxTotal, int maxPerRoute, int connectTimeoutMsec, int socketTimeoutMsec, int idleEvictSec) {
+		this.connManager = new PoolingHttpClientConnectionManager();
+		this.connManager.setMaxTotal(maxTotal);
+		this.connManager.setDefaultMaxPerRoute(maxPerRoute);
+
+		this.requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMsec)
+				.setConnectionRequestTimeout(connectTimeoutMsec)
+				.setSocketTimeout(socketTimeoutMsec)
+				.build();
+
+		this.httpClient = HttpClients.custom()
+				.setConnectionManager(this.connManager)
+				.setDefaultRequestConfig(this.requestConfig)
+				.evictExpiredConnections()
+				.evictIdleConnections((long) idleEvictSec, TimeUnit.SECONDS)
+				.build();
+	}
+
+	/**
+	 * Get the shared pool, creating it with default settings if needed.
+	 */
+	public static synchronized SparqlHttpClientPool getInstance() {
+		if (instance == null) {
+			instance = new SparqlHttpClientPool(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT_MSEC, DEFAULT_SOCKET_TIMEOUT_MSEC, DEFAULT_IDLE_EVICT_SEC);
+		}
+		return instance;
+	}
+
+	/**
+	 * Replace the shared pool with one using these settings, and close the old one.
+	 * Meant for service startup:  requests still in flight on the old pool are aborted.
+	 * @param maxTotal - max connections across all triple stores
+	 * @param maxPerRoute - max connections to any one host:port
+	 * @param connectTimeoutMsec - timeout for connecting, and for waiting on a free pooled connection
+	 * @param socketTimeoutMsec - read timeout
+	 * @param idleEvictSec - connections idle this long are closed
+	 */
+	public static synchronized void configure(int maxTotal, int maxPerRoute, int connectTimeoutMsec, int socketTimeoutMsec, int idleEvictSec) {
+		SparqlHttpClientPool old = instance;
+		instance = new SparqlHttpClientPool(maxTotal, maxPerRoute, connectTimeoutMsec, socketTimeoutMsec, idleEvictSec);
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/**
+	 * Configure the shared pool from service properties.  Unset properties keep their defaults.
+	 * If none are set, the pool is left as it is.
+	 * @param properties - property lookup, e.g. a Spring Environment's getProperty
+	 * @throws Exception - a property isn't an integer
+	 */
+	public static void configure(Function<String, String> properties) throws Exception {
+		String [] names = { "maxTotal", "maxPerRoute", "connectTimeoutMsec", "socketTimeoutMsec", "idleEvictSec" };
+		int [] values = { DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT_MSEC, DEFAULT_SOCKET_TIMEOUT_MSEC, DEFAULT_IDLE_EVICT_SEC };
+		boolean set = false;
+		for (int i = 0; i < names.length; i++) {
+			String value = properties.apply("sparqlHttpPool." + names[i]);
+			if (value != null && !value.trim().isEmpty()) {
+				try {
+					values[i] = Integer.parseInt(value.trim());
+				} catch (NumberFormatException e) {
+					throw new Exception("sparqlHttpPool." + names[i] + " is not an integer: " + value);
+				}
+				set = true;
+			}
+		}
+		if (set) {
+			configure(values[0], values[1], values[2], values[3], values[4]);
+			LocalLogger.logToStdOut(String.format("SparqlHttpClientPool: maxTotal=%d maxPerRoute=%d connectTimeoutMsec=%d socketTimeoutMsec=%d idleEvictSec=%d",
+					values[0], values[1], values[2], values[3], values[4]));
+		}
+	}
+
+	public CloseableHttpClient getHttpClient() {
+		return this.httpClient;
+	}
+
+	/**
+	 * Build a request context for a non-authenticated request
+	 */
+	public HttpClientContext createContext() {
+		HttpClientContext context = HttpClientContext.create();
+		context.setRequestConfig(this.requestConfig);
+		return context;
+	}
+
+	/**
+	 * Build a request context carrying credentials and the cached digest auth state for this host and user.
+	 */
+	public HttpClientContext createAuthContext(HttpHost targetHost, String user, String password) {
+		CredentialsProvider credsProvider = new BasicCredentialsProvider();
+		credsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user, password));
+
+		HttpClientContext context = this.createContext();
+		context.setCredentialsProvider(credsProvider);
+		context.setAuthCache(this.getAuthCache(targetHost, user));
+		return context;
+	}
+
+	/**
+	 * Forget cached auth state for a host and user, so the next request starts a new handshake (e.g. after an auth failure)
+	 */
+	public void clearAuthCache(HttpHost targetHost, String user) {
+		this.authCacheHash.remove(targetHost.toURI() + "|" + user);
+	}
+
+	private AuthCache getAuthCache(HttpHost targetHost, String user) {
+		String key = targetHost.toURI() + "|" + user;
+		AuthCache authCache = this.authCacheHash.get(key);
+		if (authCache == null) {
+			// pre-load a digest scheme so the first request doesn't need a round trip to get a challenge
+			DigestScheme digestAuth = new DigestScheme();
+			digestAuth.overrideParamter("realm", "SPARQL");
+			// Suppose we already know the expected nonce value
+			digestAuth.overrideParamter("nonce", "whatever");
+			authCache = new BasicAuthCache();
+			authCache.put(targetHost, digestAuth);
+
+			AuthCache prev = this.authCacheHash.putIfAbsent(key, authCache);
+			if (prev != null) {
+				authCache = prev;
+			}
+		}
+		return authCache;
+	}
+
+	/**
+	 * Close connections that are expired or idle
+	 */
+	public void closeIdle() {
+		this.connManager.closeExpiredConnections();
+		this.connManager.closeIdleConnections(0, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Close the client, its connections and its idle connection evictor
+	 */
+	private void close() {
+		try {
+			this.httpClient.close();
+		} catch (IOException e) {
+			LocalLogger.printStackTrace(e);
+		}
+		this.connManager.shutdown();
+	}
+}
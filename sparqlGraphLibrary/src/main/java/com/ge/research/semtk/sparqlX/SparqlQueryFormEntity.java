@@ -0,0 +1,215 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.sparqlX;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Form-encoded query POST body:  query=...&format=...&default-graph-uri=...
+ *
+ * Same bytes as a UrlEncodedFormEntity of the same params, but the query is encoded straight
+ * from its parts into the request as it is sent, instead of being joined and encoded into
+ * copies in memory first.  Matters for large inserts.
+ *
+ * Repeatable, so the request can be re-sent (e.g. for digest auth).
+ */
+public class SparqlQueryFormEntity extends AbstractHttpEntity {
+
+	private static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+	private static final char [] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final String [] names;
+	private final CharSequence [][] values;
+	private long contentLength = -1;
+
+	/**
+	 * @param queryParts - query, possibly in pieces
+	 * @param resultsFormat
+	 * @param dataset - default graph
+	 */
+	public SparqlQueryFormEntity(CharSequence [] queryParts, String resultsFormat, String dataset) {
+		this.names = new String [] { "query", "format", "default-graph-uri" };
+		this.values = new CharSequence [][] { queryParts, { resultsFormat }, { dataset } };
+		this.setContentType(CONTENT_TYPE);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		if (this.contentLength < 0) {
+			CountingOutputStream counter = new CountingOutputStream();
+			try {
+				this.writeTo(counter);
+			} catch (IOException e) {
+				return -1;   // can't happen
+			}
+			this.contentLength = counter.count;
+		}
+		return this.contentLength;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.writeTo(out);
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		Encoder enc = new Encoder(outstream);
+		boolean first = true;
+		for (int i=0; i < this.names.length; i++) {
+			// like URLEncodedUtils:  params with null value are "name" without "="
+			if (!first) {
+				enc.writeByte('&');
+			}
+			first = false;
+			enc.encode(this.names[i]);
+			enc.endValue();
+			if (this.values[i] != null && this.values[i][0] != null) {
+				enc.writeByte('=');
+				for (CharSequence part : this.values[i]) {
+					enc.encode(part);
+				}
+				enc.endValue();
+			}
+		}
+		enc.flush();
+	}
+
+	/**
+	 * application/x-www-form-urlencoded, UTF-8, buffered
+	 */
+	private static class Encoder {
+		private final OutputStream out;
+		private final byte [] buf = new byte[8192];
+		private int len = 0;
+		private char pendingHigh = 0;    // high surrogate carried over to the next part of the same value
+
+		Encoder(OutputStream out) {
+			this.out = out;
+		}
+
+		void encode(CharSequence s) throws IOException {
+			for (int i=0; i < s.length(); i++) {
+				char c = s.charAt(i);
+
+				if (this.pendingHigh != 0) {
+					char high = this.pendingHigh;
+					this.pendingHigh = 0;
+					if (Character.isLowSurrogate(c)) {
+						this.writeCodePoint(Character.toCodePoint(high, c));
+						continue;
+					}
+					this.writeEscaped('?');       // malformed, like String.getBytes()
+				}
+
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '*') {
+					this.writeByte(c);
+				} else if (c == ' ') {
+					this.writeByte('+');
+				} else if (c < 0x80) {
+					this.writeEscaped(c);
+				} else if (Character.isHighSurrogate(c)) {
+					this.pendingHigh = c;
+				} else if (Character.isLowSurrogate(c)) {
+					this.writeEscaped('?');
+				} else {
+					this.writeCodePoint(c);
+				}
+			}
+		}
+
+		private void writeCodePoint(int cp) throws IOException {
+			if (cp < 0x800) {
+				this.writeEscaped(0xC0 | (cp >> 6));
+				this.writeEscaped(0x80 | (cp & 0x3F));
+			} else if (cp < 0x10000) {
+				this.writeEscaped(0xE0 | (cp >> 12));
+				this.writeEscaped(0x80 | ((cp >> 6) & 0x3F));
+				this.writeEscaped(0x80 | (cp & 0x3F));
+			} else {
+				this.writeEscaped(0xF0 | (cp >> 18));
+				this.writeEscaped(0x80 | ((cp >> 12) & 0x3F));
+				this.writeEscaped(0x80 | ((cp >> 6) & 0x3F));
+				this.writeEscaped(0x80 | (cp & 0x3F));
+			}
+		}
+
+		private void writeEscaped(int b) throws IOException {
+			this.writeByte('%');
+			this.writeByte(HEX[(b >> 4) & 0xF]);
+			this.writeByte(HEX[b & 0xF]);
+		}
+
+		void writeByte(int b) throws IOException {
+			if (this.len == this.buf.length) {
+				this.out.write(this.buf, 0, this.len);
+				this.len = 0;
+			}
+			this.buf[this.len++] = (byte) b;
+		}
+
+		/**
+		 * A value ending in half a surrogate pair is malformed
+		 */
+		void endValue() throws IOException {
+			if (this.pendingHigh != 0) {
+				this.pendingHigh = 0;
+				this.writeEscaped('?');
+			}
+		}
+
+		void flush() throws IOException {
+			this.out.write(this.buf, 0, this.len);
+			this.len = 0;
+			this.out.flush();
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+
+		@Override
+		public void write(byte [] b, int off, int len) {
+			this.count += len;
+		}
+	}
+}
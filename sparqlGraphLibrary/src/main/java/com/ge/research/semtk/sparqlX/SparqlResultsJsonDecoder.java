@@ -0,0 +1,443 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.sparqlX;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import com.ge.research.semtk.resultSet.ColumnarTable;
+import com.ge.research.semtk.resultSet.Table;
+import com.ge.research.semtk.utility.JsonTokenizer;
+
+/**
+ * Streaming decoder for application/sparql-results+json.
+ *
+ * Tokenizes the response as it arrives and hands back one row at a time, so a select
+ * result never has to exist as a String or a json-simple tree.  Column types are
+ * inferred on the fly exactly as SparqlEndpointInterface always has:  the first type seen
+ * in a column wins, and a column with conflicting types becomes xsd:string.
+ *
+ * Sample input:
+ * {"head":{"vars":["Test","testnum"]},
+ *  "results":{"bindings":[
+ *     {"Test":{"type":"uri","value":"http://research.ge.com/dataset#Test_1"},"testnum":{"datatype":"http://www.w3.org/2001/XMLSchema#integer","type":"typed-literal","value":"1272"}}
+ *  ]}}
+ */
+public class SparqlResultsJsonDecoder implements Closeable {
+
+	public static final String TYPE_UNKNOWN = "unknown";
+	public static final String TYPE_MIXED = "http://www.w3.org/2001/XMLSchema#string";
+
+	private final JsonTokenizer json;
+
+	private String[] colNames = null;
+	private String[] colTypes = null;
+	private HashMap<String, Integer> colNumHash = null;
+
+	// bindings that arrived before "head" (legal, but unusual).  Held until the column names are known.
+	private LinkedList<HashMap<String, String[]>> earlyBindings = null;
+
+	private boolean started = false;
+	private boolean inBindings = false;
+	private boolean finished = false;
+	private boolean closed = false;
+
+	public SparqlResultsJsonDecoder(InputStream is) {
+		this(new InputStreamReader(is, StandardCharsets.UTF_8));
+	}
+
+	public SparqlResultsJsonDecoder(Reader reader) {
+		this.json = new JsonTokenizer(reader, "Cannot parse query result into JSON");
+	}
+
+	/**
+	 * Does the response contain anything other than whitespace
+	 */
+	public boolean hasContent() throws Exception {
+		return this.json.peekNonWs() != -1;
+	}
+
+	/**
+	 * Get column names.  Reads just far enough into the response to find them.
+	 */
+	public String[] getColumnNames() throws Exception {
+		this.advanceToColumns();
+		return this.colNames;
+	}
+
+	/**
+	 * Get column types inferred from the rows read so far.
+	 */
+	public String[] getColumnTypes() throws Exception {
+		this.advanceToColumns();
+		return this.colTypes;
+	}
+
+	/**
+	 * Read the next result row
+	 * @return cell values in column order (unbound cells are ""), or null when there are no more rows
+	 * @throws Exception
+	 */
+	public String[] nextRow() throws Exception {
+		this.advanceToColumns();
+
+		// any rows that arrived before the column names
+		if (this.earlyBindings != null && this.earlyBindings.size() > 0) {
+			return this.bindingToRow(this.earlyBindings.removeFirst());
+		}
+
+		if (!this.inBindings) {
+			return null;
+		}
+		String[] row = new String[this.colNames.length];
+		if (this.readBindingInto(row)) {
+			return row;
+		} else {
+			this.finishDocument();
+			return null;
+		}
+	}
+
+	/**
+	 * Read all remaining rows into a Table
+	 */
+	public Table decodeTable() throws Exception {
+		ColumnarTable table = newColumnarTable(this.getColumnNames());
+		String [] row;
+		while ((row = this.nextRow()) != null) {
+			table.addRow(row);
+		}
+		table.replaceColumnTypes(this.colTypes);
+		return table;
+	}
+
+	/**
+	 * Empty table to fill with rows before the column types are known.
+	 * Call replaceColumnTypes() once they are.
+	 */
+	static ColumnarTable newColumnarTable(String[] colNames) throws Exception {
+		String [] unknownTypes = new String[colNames.length];
+		Arrays.fill(unknownTypes, TYPE_UNKNOWN);
+		return new ColumnarTable(colNames, unknownTypes);
+	}
+
+	/**
+	 * Decode a whole response into a Table and close the stream.
+	 */
+	public static Table decodeTable(InputStream is) throws Exception {
+		SparqlResultsJsonDecoder decoder = new SparqlResultsJsonDecoder(is);
+		try {
+			return decoder.decodeTable();
+		} finally {
+			decoder.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			this.json.close();
+		}
+	}
+
+	// ------------------------------ document structure ------------------------------
+
+	/**
+	 * Walk top-level keys until the column names are known and we are positioned
+	 * at the first binding (or the document is done).
+	 */
+	private void advanceToColumns() throws Exception {
+		if (this.colNames != null && (this.inBindings || this.finished)) {
+			return;
+		}
+
+		if (!this.started) {
+			int c = this.json.peekNonWs();
+			if (c != '{') {
+				throw new Exception("Cannot parse query result into JSON: " + this.json.readErrorText());
+			}
+			this.json.next();
+			this.started = true;
+			if (this.json.atEnd('}')) {
+				this.finished = true;
+			}
+		}
+
+		while (!this.finished && !(this.colNames != null && this.inBindings)) {
+			if (this.inBindings) {
+				// bindings arrived before head: buffer them
+				this.bufferEarlyBindings();
+				continue;
+			}
+			String key = this.json.readString();
+			this.json.expect(':');
+			if (key.equals("head")) {
+				this.readHead();
+			} else if (key.equals("results")) {
+				this.enterBindings();
+				if (this.inBindings) {
+					continue;   // stay positioned inside the bindings array
+				}
+			} else {
+				this.json.skipValue();
+			}
+			if (!this.json.nextElement('}')) {
+				this.finished = true;
+			}
+		}
+
+		if (this.colNames == null) {
+			throw new Exception("Sparql server did not return a 'head' object");
+		}
+	}
+
+	private void readHead() throws Exception {
+		this.json.expect('{');
+		ArrayList<String> vars = null;
+		if (!this.json.atEnd('}')) {
+			do {
+				String key = this.json.readString();
+				this.json.expect(':');
+				if (key.equals("vars")) {
+					vars = new ArrayList<String>();
+					this.json.expect('[');
+					if (!this.json.atEnd(']')) {
+						do {
+							vars.add(this.json.readString());
+						} while (this.json.nextElement(']'));
+					}
+				} else {
+					this.json.skipValue();
+				}
+			} while (this.json.nextElement('}'));
+		}
+		if (vars == null) {
+			throw new Exception("Sparql server response 'head' did not include a 'vars' array of column names");
+		}
+
+		this.colNames = vars.toArray(new String[vars.size()]);
+		this.colTypes = new String[this.colNames.length];
+		this.colNumHash = new HashMap<String, Integer>();
+		for (int i=0; i < this.colNames.length; i++) {
+			this.colTypes[i] = TYPE_UNKNOWN;
+			this.colNumHash.put(this.colNames[i], i);
+		}
+	}
+
+	/**
+	 * Inside "results": skip to "bindings" and step into its array.
+	 * Leaves inBindings false if the array is empty or missing.
+	 */
+	private void enterBindings() throws Exception {
+		this.json.expect('{');
+		boolean found = false;
+		if (!this.json.atEnd('}')) {
+			do {
+				String key = this.json.readString();
+				this.json.expect(':');
+				if (key.equals("bindings")) {
+					found = true;
+					this.json.expect('[');
+					if (!this.json.atEnd(']')) {
+						this.inBindings = true;
+						return;
+					}
+				} else {
+					this.json.skipValue();
+				}
+			} while (this.json.nextElement('}'));
+		}
+		if (!found) {
+			throw new Exception("Sparql server response 'results' did not include a 'bindings' array of result rows");
+		}
+	}
+
+	/**
+	 * After the bindings array is done: close "results" and skip any remaining top-level members
+	 */
+	private void finishDocument() throws Exception {
+		this.inBindings = false;
+
+		// rest of the "results" object
+		while (this.json.nextElement('}')) {
+			this.json.readString();
+			this.json.expect(':');
+			this.json.skipValue();
+		}
+		// rest of the top-level object
+		while (this.json.nextElement('}')) {
+			String key = this.json.readString();
+			this.json.expect(':');
+			if (key.equals("head") && this.colNames == null) {
+				this.readHead();
+			} else {
+				this.json.skipValue();
+			}
+		}
+		this.finished = true;
+	}
+
+	private void bufferEarlyBindings() throws Exception {
+		if (this.earlyBindings == null) {
+			this.earlyBindings = new LinkedList<HashMap<String, String[]>>();
+		}
+		HashMap<String, String[]> binding;
+		while ((binding = this.readBindingAsHash()) != null) {
+			this.earlyBindings.add(binding);
+		}
+		this.inBindings = false;
+
+		// finish "results" then carry on looking for head
+		while (this.json.nextElement('}')) {
+			this.json.readString();
+			this.json.expect(':');
+			this.json.skipValue();
+		}
+		if (!this.json.nextElement('}')) {
+			this.finished = true;
+		}
+	}
+
+	private String[] bindingToRow(HashMap<String, String[]> binding) {
+		String[] row = new String[this.colNames.length];
+		for (int i=0; i < row.length; i++) {
+			String[] cell = binding.get(this.colNames[i]);
+			if (cell == null) {
+				row[i] = "";
+			} else {
+				row[i] = cell[0];
+				this.updateType(i, cell[1]);
+			}
+		}
+		return row;
+	}
+
+	// ------------------------------ bindings ------------------------------
+
+	/**
+	 * Read one binding object from the bindings array into row.
+	 * @return false if the array has ended
+	 */
+	private boolean readBindingInto(String[] row) throws Exception {
+		int c = this.json.peekNonWs();
+		if (c == ']') {
+			this.json.next();
+			return false;
+		}
+		this.json.expect('{');
+		for (int i=0; i < row.length; i++) {
+			row[i] = "";
+		}
+		if (!this.json.atEnd('}')) {
+			do {
+				String var = this.json.readString();
+				this.json.expect(':');
+				Integer col = this.colNumHash.get(var);
+				if (col == null) {
+					this.json.skipValue();
+				} else {
+					String [] cell = this.readCell();
+					row[col] = cell[0];
+					this.updateType(col, cell[1]);
+				}
+			} while (this.json.nextElement('}'));
+		}
+		this.endBinding();
+		return true;
+	}
+
+	private HashMap<String, String[]> readBindingAsHash() throws Exception {
+		int c = this.json.peekNonWs();
+		if (c == ']') {
+			this.json.next();
+			return null;
+		}
+		this.json.expect('{');
+		HashMap<String, String[]> ret = new HashMap<String, String[]>();
+		if (!this.json.atEnd('}')) {
+			do {
+				String var = this.json.readString();
+				this.json.expect(':');
+				ret.put(var, this.readCell());
+			} while (this.json.nextElement('}'));
+		}
+		this.endBinding();
+		return ret;
+	}
+
+	/**
+	 * Consume the comma after a binding, if any.  Leaves a closing ']' for the next read.
+	 */
+	private void endBinding() throws Exception {
+		int c = this.json.peekNonWs();
+		if (c == ',') {
+			this.json.next();
+		} else if (c != ']') {
+			throw this.json.syntaxError("',' or ']'");
+		}
+	}
+
+	/**
+	 * Read {"type":..., "value":..., "datatype":...}
+	 * @return { value, dataType } where dataType is the datatype for typed-literals, otherwise the type
+	 */
+	private String[] readCell() throws Exception {
+		String value = "";
+		String type = null;
+		String datatype = null;
+		this.json.expect('{');
+		if (!this.json.atEnd('}')) {
+			do {
+				String key = this.json.readString();
+				this.json.expect(':');
+				if (key.equals("value")) {
+					value = this.json.readString();
+				} else if (key.equals("type")) {
+					type = this.json.readString();
+				} else if (key.equals("datatype")) {
+					datatype = this.json.readString();
+				} else {
+					this.json.skipValue();
+				}
+			} while (this.json.nextElement('}'));
+		}
+		String valueDataType = "typed-literal".equals(type) ? datatype : type;  // e.g. "http://www.w3.org/2001/XMLSchema#integer", but only if type is "typed-literal"
+		return new String[] { value, valueDataType };
+	}
+
+	private void updateType(int col, String valueDataType) {
+		String curType = this.colTypes[col];
+		if (curType.equals(TYPE_MIXED)) {
+			// do nothing if cell is already MIXED
+		} else if (curType.equals(TYPE_UNKNOWN)) {
+			this.colTypes[col] = valueDataType;
+		} else if (!curType.equals(valueDataType)) {
+			this.colTypes[col] = TYPE_MIXED;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import com.ge.research.semtk.utility.LocalLogger;
 
 public class SparqlToXUtils {
 	static final Pattern PATTERN_BAD_FIRST_CHAR = Pattern.compile("#[^a-zA-Z0-9]");
+	static final Pattern PATTERN_DELETE_KEYWORD = Pattern.compile("delete|clear|drop|move|copy", Pattern.CASE_INSENSITIVE);
 	public static final String BLANK_NODE_PREFIX = "nodeID://";
 	
 	// check that the passed Sparql query references the appropriate manadate columns in the return.
@@ -150,6 +151,10 @@ public class SparqlToXUtils {
 
   }  
   
+  public static String generateCountTriplesQuery() {
+	  return "select (count(*) as ?count) where { ?s ?p ?o }";
+  }
+  
   public static String generateDeletePrefixQuery(String prefix) {
 	  // delete all triples containing any trace of the given prefix
 	  String sparql = String.format(
@@ -293,5 +298,105 @@ public class SparqlToXUtils {
 			return false;
 		}
 	}
-	
+
+	/**
+	 * Can a query remove triples:  does it use DELETE, CLEAR, DROP, MOVE or COPY as a keyword.
+	 * Literals, IRIs, comments, variables and prefixed names are skipped, so an insert of the text "delete" is not a delete.
+	 * @param queryParts - pieces that joined together make the whole query
+	 */
+	public static boolean isDeleteQuery(CharSequence... queryParts) {
+		JoinedParts query = new JoinedParts(queryParts);
+		int len = query.length();
+		int i = 0;
+		while (i < len) {
+			char c = query.charAt(i);
+			if (c == '"' || c == '\'') {
+				// literal, possibly long ("""...""")
+				boolean isLong = i + 2 < len && query.charAt(i + 1) == c && query.charAt(i + 2) == c;
+				i += isLong ? 3 : 1;
+				while (i < len) {
+					if (query.charAt(i) == '\\') {
+						i += 2;
+					} else if (query.charAt(i) == c && (!isLong || (i + 2 < len && query.charAt(i + 1) == c && query.charAt(i + 2) == c))) {
+						i += isLong ? 3 : 1;
+						break;
+					} else {
+						i++;
+					}
+				}
+			} else if (c == '#') {
+				// comment
+				while (i < len && query.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '<') {
+				// IRI, unless it is a less-than
+				int end = i + 1;
+				while (end < len && query.charAt(end) != '>' && !Character.isWhitespace(query.charAt(end))) {
+					end++;
+				}
+				i = (end < len && query.charAt(end) == '>') ? end + 1 : i + 1;
+			} else if (Character.isLetter(c) || c == '_') {
+				int start = i;
+				while (i < len && (Character.isLetterOrDigit(query.charAt(i)) || query.charAt(i) == '_' || query.charAt(i) == '-')) {
+					i++;
+				}
+				char before = (start == 0) ? ' ' : query.charAt(start - 1);
+				boolean isName = before == '?' || before == '$' || before == ':' || before == '@' || (i < len && query.charAt(i) == ':');
+				if (!isName && PATTERN_DELETE_KEYWORD.matcher(query.subSequence(start, i)).matches()) {
+					return true;
+				}
+			} else {
+				i++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Query parts read as one sequence without copying them:  fast for reading in order
+	 */
+	private static class JoinedParts implements CharSequence {
+		private final CharSequence [] parts;
+		private final int [] starts;
+		private final int length;
+		private int last = 0;		// part of the last charAt()
+
+		JoinedParts(CharSequence [] parts) {
+			this.parts = parts;
+			this.starts = new int[parts.length];
+			int len = 0;
+			for (int i = 0; i < parts.length; i++) {
+				this.starts[i] = len;
+				len += parts[i].length();
+			}
+			this.length = len;
+		}
+
+		@Override
+		public int length() {
+			return this.length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < this.starts[this.last]) {
+				this.last = 0;
+			}
+			while (this.last + 1 < this.parts.length && index >= this.starts[this.last + 1]) {
+				this.last++;
+			}
+			return this.parts[this.last].charAt(index - this.starts[this.last]);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			StringBuilder ret = new StringBuilder(end - start);
+			for (int i = start; i < end; i++) {
+				ret.append(this.charAt(i));
+			}
+			return ret;
+		}
+	}
+
 }
@@ -0,0 +1,177 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.sparqlX;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import com.ge.research.semtk.resultSet.ColumnarTable;
+import com.ge.research.semtk.resultSet.Table;
+
+/**
+ * Row-at-a-time cursor over a SPARQL select result.
+ *
+ * Rows are decoded from the HTTP response while it is still arriving.  Nothing is read
+ * ahead of the caller, so a slow consumer leaves data in the socket and TCP flow control
+ * holds back the triple store:  memory use stays constant no matter how big the result.
+ *
+ * Always close() the cursor.  Closing before the last row aborts the request instead of
+ * draining the rest of the response.
+ *
+ * Not thread-safe.
+ */
+public class TableCursor implements Closeable {
+
+	private final SparqlResultsJsonDecoder decoder;
+	private final HttpRequestBase request;          // null if not reading from http
+	private final CloseableHttpResponse response;   // null if not reading from http
+
+	private String[] columnNames = null;           // replacement names, or null to use the response's
+
+	private long rowsRead = 0;
+	private boolean exhausted = false;
+	private boolean closed = false;
+
+	/**
+	 * Cursor over a decoder that is not backed by an http request (e.g. a file)
+	 */
+	public TableCursor(SparqlResultsJsonDecoder decoder) throws Exception {
+		this(decoder, null, null);
+	}
+
+	TableCursor(SparqlResultsJsonDecoder decoder, HttpRequestBase request, CloseableHttpResponse response) throws Exception {
+		this.decoder = decoder;
+		this.request = request;
+		this.response = response;
+	}
+
+	public String[] getColumnNames() throws Exception {
+		return (this.columnNames != null) ? this.columnNames : this.decoder.getColumnNames();
+	}
+
+	/**
+	 * Rename the columns of all rows returned from now on
+	 */
+	public void replaceColumnNames(String[] newNames) throws Exception {
+		if (newNames.length != this.decoder.getColumnNames().length) {
+			throw new Exception("Wrong number of column names: " + newNames.length + " expected " + this.decoder.getColumnNames().length);
+		}
+		this.columnNames = newNames.clone();
+	}
+
+	/**
+	 * Column types inferred from the rows read so far.
+	 * Types are final only once the cursor is exhausted.
+	 */
+	public String[] getColumnTypes() throws Exception {
+		return this.decoder.getColumnTypes();
+	}
+
+	/**
+	 * Get the next row
+	 * @return the row, or null if there are no more rows
+	 */
+	public ArrayList<String> next() throws Exception {
+		String [] row = this.nextArray();
+		return (row == null) ? null : new ArrayList<String>(Arrays.asList(row));
+	}
+
+	private String[] nextArray() throws Exception {
+		if (this.exhausted) {
+			return null;
+		}
+		if (this.closed) {
+			throw new Exception("TableCursor is closed");
+		}
+		String [] row = this.decoder.nextRow();
+		if (row == null) {
+			this.exhausted = true;
+			this.close();
+			return null;
+		}
+		this.rowsRead++;
+		return row;
+	}
+
+	/**
+	 * Read up to maxRows rows into a Table
+	 * @return table, with zero rows once the cursor is exhausted
+	 */
+	public Table nextBatch(int maxRows) throws Exception {
+		ArrayList<ArrayList<String>> rows = new ArrayList<ArrayList<String>>();
+		ArrayList<String> row;
+		while (rows.size() < maxRows && (row = this.next()) != null) {
+			rows.add(row);
+		}
+		return new Table(this.getColumnNames().clone(), this.getColumnTypes().clone(), rows);
+	}
+
+	/**
+	 * Read all remaining rows into a (columnar) Table
+	 */
+	public Table readAll() throws Exception {
+		ColumnarTable table = SparqlResultsJsonDecoder.newColumnarTable(this.getColumnNames().clone());
+		String [] row;
+		while ((row = this.nextArray()) != null) {
+			table.addRow(row);
+		}
+		table.replaceColumnTypes(this.getColumnTypes().clone());
+		return table;
+	}
+
+	public boolean isExhausted() {
+		return this.exhausted;
+	}
+
+	public long getRowsRead() {
+		return this.rowsRead;
+	}
+
+	/**
+	 * Release the response.  If rows remain, the request is aborted rather than drained.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		if (!this.exhausted && this.request != null) {
+			this.request.abort();
+		}
+		try {
+			this.decoder.close();
+		} catch (IOException e) {
+			// aborted streams may complain on close
+			if (this.exhausted) {
+				throw e;
+			}
+		} finally {
+			if (this.response != null) {
+				this.response.close();
+			}
+		}
+	}
+}
@@ -33,6 +33,7 @@ import com.ge.research.semtk.edc.client.ResultsClient;
 import com.ge.research.semtk.edc.client.StatusClient;
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.NodeGroupResultSet;
 import com.ge.research.semtk.resultSet.Table;
@@ -40,6 +41,7 @@ import com.ge.research.semtk.resultSet.TableResultSet;
 import com.ge.research.semtk.sparqlX.SparqlConnection;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
 import com.ge.research.semtk.sparqlX.SparqlResultTypes;
+import com.ge.research.semtk.sparqlX.TableCursor;
 import com.ge.research.semtk.sparqlX.client.SparqlQueryAuthClientConfig;
 import com.ge.research.semtk.sparqlX.client.SparqlQueryClient;
 import com.ge.research.semtk.sparqlX.client.SparqlQueryClientConfig;
@@ -87,7 +89,7 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 			LocalLogger.logToStdErr("Dispatcher exec config WAS an instance of the auth query client");
 			
 			SparqlQueryAuthClientConfig old = (SparqlQueryAuthClientConfig)queryClient.getConfig();
-			this.oInfo = new OntologyInfo(old, nodegroupConn);
+			this.oInfo = OntologyInfoCache.getShared().get(old, nodegroupConn);
 			
 			SparqlQueryAuthClientConfig config = new SparqlQueryAuthClientConfig(	
 					old.getServiceProtocol(),
@@ -105,7 +107,7 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 		else{
 			LocalLogger.logToStdErr("Dispatcher exec config WAS NOT an instance of the auth query client");
 			
-			this.oInfo = new OntologyInfo(queryClient.getConfig(), nodegroupConn);
+			this.oInfo = OntologyInfoCache.getShared().get(queryClient.getConfig(), nodegroupConn);
 			
 			SparqlQueryClientConfig config = new SparqlQueryClientConfig(	
 				queryClient.getConfig().getServiceProtocol(),
@@ -152,36 +154,10 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 	 * @throws ConnectException 
 	 */
 	protected void sendResultsToService(TableResultSet currResults) throws ConnectException, EndpointNotFoundException, Exception{
-				
-		HashMap<String, Integer> colInstCounter = new HashMap<String, Integer>();
 			
 		try{
-			
-			// repair column headers in the event that a duplicate header is encountered. by convention (established and existing only here), the first instance of a column name 
-			// will remain unchanged, all future instances will be postfixed with "[X]" where X is the count encountered so far. this count will start at 1. 
 			Table resTable = currResults.getTable();
-			String[] unModColnames = resTable.getColumnNames(); 	// pre-modification column names
-			String[] modColnames = new String[unModColnames.length];
-			
-			int posCount = 0;
-			for(String uCol : unModColnames){
-				if(colInstCounter.containsKey( uCol.toLowerCase() )){
-					// seen this one already. update the counter and add it to the new header list.
-					int update = colInstCounter.get( uCol.toLowerCase() ) + 1;
-					colInstCounter.put( uCol.toLowerCase() , update);
-					
-					modColnames[posCount] = uCol + "[" + update + "]";
-				}
-				else{
-					// never seen this column.
-					modColnames[posCount] = uCol;
-					// add to the hash
-					colInstCounter.put( uCol.toLowerCase(), 0 );
-				}
-				
-				posCount+=1;
-			}
-			resTable.replaceColumnNames(modColnames);
+			resTable.replaceColumnNames(repairColumnNames(resTable.getColumnNames()));
 			
 			this.resultsClient.execStoreTableResults(this.jobID, resTable);
 		}
@@ -192,6 +168,70 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 		}
 	}
 	
+	/**
+	 * send results to the results service as they are read from the triple store, in constant memory.
+	 * closes the cursor.
+	 * @return number of rows sent
+	 */
+	protected long sendResultsToService(TableCursor cursor) throws ConnectException, EndpointNotFoundException, Exception{
+		
+		try{
+			cursor.replaceColumnNames(repairColumnNames(cursor.getColumnNames()));
+			
+			return this.resultsClient.execStoreTableResults(this.jobID, cursor);
+		}
+		catch(Exception e){
+			cursor.close();
+			this.statusClient.execSetFailure("Failed to write results: " + e.getMessage());
+			LocalLogger.printStackTrace(e);
+			throw new Exception("Unable to write results");
+		}
+	}
+	
+	/**
+	 * Endpoint for the retrieval client's triple store, so table results can be streamed rather than
+	 * buffered whole by the query service
+	 */
+	private SparqlEndpointInterface getRetrievalEndpoint() throws Exception {
+		SparqlQueryClientConfig config = this.retrievalClient.getConfig();
+		if (config instanceof SparqlQueryAuthClientConfig) {
+			SparqlQueryAuthClientConfig authConfig = (SparqlQueryAuthClientConfig) config;
+			return SparqlEndpointInterface.getInstance(config.getSparqlServerType(), config.getSparqlServerAndPort(), config.getSparqlDataset(),
+					authConfig.getSparqlServerUser(), authConfig.getSparqlServerPassword());
+		} else {
+			return SparqlEndpointInterface.getInstance(config.getSparqlServerType(), config.getSparqlServerAndPort(), config.getSparqlDataset());
+		}
+	}
+	
+	/**
+	 * repair column headers in the event that a duplicate header is encountered. by convention (established and existing only here), the first instance of a column name 
+	 * will remain unchanged, all future instances will be postfixed with "[X]" where X is the count encountered so far. this count will start at 1. 
+	 */
+	private static String[] repairColumnNames(String[] unModColnames){
+		HashMap<String, Integer> colInstCounter = new HashMap<String, Integer>();
+		String[] modColnames = new String[unModColnames.length];
+		
+		int posCount = 0;
+		for(String uCol : unModColnames){
+			if(colInstCounter.containsKey( uCol.toLowerCase() )){
+				// seen this one already. update the counter and add it to the new header list.
+				int update = colInstCounter.get( uCol.toLowerCase() ) + 1;
+				colInstCounter.put( uCol.toLowerCase() , update);
+				
+				modColnames[posCount] = uCol + "[" + update + "]";
+			}
+			else{
+				// never seen this column.
+				modColnames[posCount] = uCol;
+				// add to the hash
+				colInstCounter.put( uCol.toLowerCase(), 0 );
+			}
+			
+			posCount+=1;
+		}
+		return modColnames;
+	}
+	
 	
 	private void sendResultsToService(NodeGroupResultSet preRet)  throws ConnectException, EndpointNotFoundException, Exception{
 		try{
@@ -260,6 +300,11 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 	
 	public abstract String[] getConstraintVariableNames() throws Exception;
 	
+	/**
+	 * Run a query and send its results to the results service.
+	 * Table results are streamed from the triple store to the results service as they arrive, and are not returned:
+	 * the returned TableResultSet only carries success.
+	 */
 	public TableResultSet executePlainSparqlQuery(String sparqlQuery, DispatcherSupportedQueryTypes supportedQueryType) throws Exception{
 		TableResultSet retval = null;
 		SparqlQueryClient nodegroupQueryClient = this.retrievalClient;
@@ -272,37 +317,29 @@ public abstract class AsynchronousNodeGroupBasedQueryDispatcher {
 			LocalLogger.logToStdErr("Sparql Query to execute: ");
 			LocalLogger.logToStdErr(sparqlQuery);
 			
-			// run the actual query and get a result. 
-			GeneralResultSet preRet = null;
-			
 			if(supportedQueryType == DispatcherSupportedQueryTypes.CONSTRUCT || supportedQueryType == DispatcherSupportedQueryTypes.CONSTRUCT_FOR_INSTANCE_DATA_MANIPULATION){
 				// constructs require particular support for a different result set.
-				preRet = nodegroupQueryClient.execute(sparqlQuery, SparqlResultTypes.GRAPH_JSONLD);
-				retval = new TableResultSet(true);
-			}
-			else{
-				// all other types
-				preRet = nodegroupQueryClient.execute(sparqlQuery, SparqlResultTypes.TABLE);
-				retval = (TableResultSet) preRet;
-			}
-
-			
-			if (retval.getSuccess()) {
+				GeneralResultSet preRet = nodegroupQueryClient.execute(sparqlQuery, SparqlResultTypes.GRAPH_JSONLD);
+				retval = new TableResultSet(preRet.getSuccess());
 				
-				LocalLogger.logToStdErr("about to write results for " + this.jobID);
-				if(supportedQueryType == DispatcherSupportedQueryTypes.CONSTRUCT || supportedQueryType == DispatcherSupportedQueryTypes.CONSTRUCT_FOR_INSTANCE_DATA_MANIPULATION){
+				if (preRet.getSuccess()) {
 					// constructs require particular support in the results client and the results service. this support would start here.
+					LocalLogger.logToStdErr("about to write results for " + this.jobID);
 					this.sendResultsToService((NodeGroupResultSet) preRet);
+					this.updateStatus(100);		// work's done
 				}
 				else {
-					// all other types
-					LocalLogger.logToStdErr("Query returned " + retval.getTable().getNumRows() + " results.");
-					this.sendResultsToService(retval);
+					this.updateStatusToFailed("Query client returned error to dispatch client: \n" + preRet.getRationaleAsString("\n"));
 				}
-				this.updateStatus(100);		// work's done
 			}
-			else {
-				this.updateStatusToFailed("Query client returned error to dispatch client: \n" + retval.getRationaleAsString("\n"));
+			else{
+				// all other types:  pipe rows from the triple store to the results service in constant memory
+				TableCursor cursor = this.getRetrievalEndpoint().executeQueryToCursor(sparqlQuery);
+				LocalLogger.logToStdErr("about to write results for " + this.jobID);
+				long rows = this.sendResultsToService(cursor);
+				LocalLogger.logToStdErr("Query returned " + rows + " results.");
+				retval = new TableResultSet(true);
+				this.updateStatus(100);		// work's done
 			}
 			
 			cal = Calendar.getInstance();
@@ -21,6 +21,8 @@ package com.ge.research.semtk.sparqlX.client;
 import org.json.simple.JSONObject;
 
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
+import com.ge.research.semtk.load.utility.UriCache;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.NodeGroupResultSet;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
@@ -29,6 +31,7 @@ import com.ge.research.semtk.services.client.RestClient;
 import com.ge.research.semtk.sparqlX.SparqlConnection;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
 import com.ge.research.semtk.sparqlX.SparqlResultTypes;
+import com.ge.research.semtk.sparqlX.SparqlToXUtils;
 
 /**
  * Client to call the SparqlQueryService
@@ -88,6 +91,8 @@ public class SparqlQueryClient extends RestClient {
 		JSONObject resultJSON = (JSONObject)super.execute();
 		SimpleResultSet retval = new SimpleResultSet(true);
 		retval.readJson(resultJSON);
+		UriCache.clearShared(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
+		OntologyInfoCache.getShared().invalidate(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
 		return retval;
 	}
 	
@@ -102,6 +107,8 @@ public class SparqlQueryClient extends RestClient {
 		JSONObject resultJSON = (JSONObject)super.execute();
 		SimpleResultSet retval = new SimpleResultSet(true);
 		retval.readJson(resultJSON);
+		UriCache.clearShared(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
+		OntologyInfoCache.getShared().invalidate(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
 		return retval;
 	}
 	
@@ -112,6 +119,7 @@ public class SparqlQueryClient extends RestClient {
 		JSONObject resultJSON = (JSONObject)super.execute();
 		SimpleResultSet retval = new SimpleResultSet(true);
 		retval.readJson(resultJSON);
+		OntologyInfoCache.getShared().invalidate(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
 		return retval;
 	}
 
@@ -124,7 +132,15 @@ public class SparqlQueryClient extends RestClient {
 		parametersJSON.put("resultType", resultType.toString());  // the resultType string here is "TABLE", "CONFIRM", etc
 		GeneralResultSet retval = null;
 		
-		JSONObject resultJSON = (JSONObject)super.execute();	
+		JSONObject resultJSON;
+		try {
+			resultJSON = (JSONObject)super.execute();
+		} finally {
+			// the service clears its own cache:  this clears the caller's
+			if (SparqlToXUtils.isDeleteQuery(query)) {
+				UriCache.clearShared(this.getConfig().getSparqlServerAndPort(), this.getConfig().getSparqlDataset());
+			}
+		}
 				
 		// TODO parse these based on results block name, instead of query type?
 		
@@ -188,7 +188,8 @@ public class SparqlParallelQueries extends RecursiveTask<Void> {
 			if ((resultsTable != null) && (resultsTable.getNumRows() != 0)) {
 				LocalLogger.logToStdOut("Query " + suffix + " has " + resultsTable.getNumRows() + " rows");
 				ArrayList<String> columnsInResponse = subquery.getColumnNamesInResponse();
-				for (ArrayList<String> row : resultsTable.getRows()) {
+				for (int r = 0; r < resultsTable.getNumRows(); r++) {
+					ArrayList<String> row = resultsTable.getRow(r);
 					// Compose the lookup key from the columns to fuse on
 					sb.setLength(0);
 					for (String column : columnsToFuseOn) {
@@ -31,6 +31,8 @@ import com.ge.research.semtk.load.DataLoader;
 import com.ge.research.semtk.load.dataset.CSVDataset;
 import com.ge.research.semtk.load.dataset.Dataset;
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
+import com.ge.research.semtk.load.utility.UriCache;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.resultSet.Table;
@@ -123,6 +125,8 @@ public class TestGraph {
 	public static void clearGraph() throws Exception {
 		SparqlEndpointInterface sei = getSei();
 		GeneralResultSet resultSet = sei.executeQueryAndBuildResultSet("clear all", SparqlResultTypes.CONFIRM);
+		OntologyInfoCache.getShared().invalidate(sei);
+		UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 		if (!resultSet.getSuccess()) {
 			throw new Exception(resultSet.getRationaleAsString(" "));
 		}
@@ -134,6 +138,8 @@ public class TestGraph {
 	public static void dropGraph() throws Exception {
 		SparqlEndpointInterface sei = getSei();
 		GeneralResultSet resultSet = sei.executeQueryAndBuildResultSet("drop graph <" + TestGraph.getDataset() + ">", SparqlResultTypes.CONFIRM);
+		OntologyInfoCache.getShared().invalidate(sei);
+		UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 		if (!resultSet.getSuccess()) {
 			throw new Exception(resultSet.getRationaleAsString(" "));
 		}
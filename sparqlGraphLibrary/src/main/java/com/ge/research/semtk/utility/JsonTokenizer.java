@@ -0,0 +1,226 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull tokenizer for json arriving on a Reader, for streaming decoders
+ * that walk a known document shape without building a json-simple tree.
+ *
+ * Not thread-safe.
+ */
+public class JsonTokenizer implements Closeable {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int MAX_ERROR_TEXT = 4096;
+
+	private final Reader reader;
+	private final String errorPrefix;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int bufPos = 0;
+	private int bufLen = 0;
+	private final StringBuilder sb = new StringBuilder();
+
+	/**
+	 * @param errorPrefix start of syntax error messages, e.g. "Cannot parse query result into JSON"
+	 */
+	public JsonTokenizer(Reader reader, String errorPrefix) {
+		this.reader = reader;
+		this.errorPrefix = errorPrefix;
+	}
+
+	public int peek() throws IOException {
+		if (this.bufPos >= this.bufLen) {
+			this.bufLen = this.reader.read(this.buf, 0, this.buf.length);
+			this.bufPos = 0;
+			if (this.bufLen <= 0) {
+				this.bufLen = 0;
+				return -1;
+			}
+		}
+		return this.buf[this.bufPos];
+	}
+
+	public int next() throws IOException {
+		int c = this.peek();
+		if (c != -1) {
+			this.bufPos++;
+		}
+		return c;
+	}
+
+	public int peekNonWs() throws IOException {
+		int c = this.peek();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+			this.bufPos++;
+			c = this.peek();
+		}
+		return c;
+	}
+
+	public void expect(char expected) throws Exception {
+		if (this.peekNonWs() != expected) {
+			throw this.syntaxError("'" + expected + "'");
+		}
+		this.next();
+	}
+
+	/**
+	 * Just inside '{' or '[': consume the closing char if the container is empty.
+	 */
+	public boolean atEnd(char close) throws Exception {
+		if (this.peekNonWs() == close) {
+			this.next();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * After an element: consume ',' and return true, or consume close and return false.
+	 */
+	public boolean nextElement(char close) throws Exception {
+		int c = this.peekNonWs();
+		if (c == ',') {
+			this.next();
+			return true;
+		} else if (c == close) {
+			this.next();
+			return false;
+		} else {
+			throw this.syntaxError("',' or '" + close + "'");
+		}
+	}
+
+	public String readString() throws Exception {
+		if (this.peekNonWs() != '"') {
+			throw this.syntaxError("string");
+		}
+		this.next();
+		this.sb.setLength(0);
+
+		while (true) {
+			// fast path: copy runs of plain chars straight out of the buffer
+			if (this.bufPos >= this.bufLen && this.peek() == -1) {
+				throw this.syntaxError("end of string");
+			}
+			int start = this.bufPos;
+			while (this.bufPos < this.bufLen) {
+				char ch = this.buf[this.bufPos];
+				if (ch == '"' || ch == '\\') {
+					break;
+				}
+				this.bufPos++;
+			}
+			this.sb.append(this.buf, start, this.bufPos - start);
+			if (this.bufPos >= this.bufLen) {
+				continue;
+			}
+
+			char ch = this.buf[this.bufPos++];
+			if (ch == '"') {
+				return this.sb.toString();
+			}
+
+			// escape
+			int e = this.next();
+			switch (e) {
+			case '"':  this.sb.append('"'); break;
+			case '\\': this.sb.append('\\'); break;
+			case '/':  this.sb.append('/'); break;
+			case 'b':  this.sb.append('\b'); break;
+			case 'f':  this.sb.append('\f'); break;
+			case 'n':  this.sb.append('\n'); break;
+			case 'r':  this.sb.append('\r'); break;
+			case 't':  this.sb.append('\t'); break;
+			case 'u':
+				int code = 0;
+				for (int i=0; i < 4; i++) {
+					int h = Character.digit(this.next(), 16);
+					if (h < 0) {
+						throw this.syntaxError("hex digit");
+					}
+					code = (code << 4) + h;
+				}
+				this.sb.append((char) code);
+				break;
+			default:
+				throw this.syntaxError("escape character");
+			}
+		}
+	}
+
+	/**
+	 * Skip any json value
+	 */
+	public void skipValue() throws Exception {
+		int c = this.peekNonWs();
+		if (c == '"') {
+			this.readString();
+		} else if (c == '{') {
+			this.next();
+			if (!this.atEnd('}')) {
+				do {
+					this.readString();
+					this.expect(':');
+					this.skipValue();
+				} while (this.nextElement('}'));
+			}
+		} else if (c == '[') {
+			this.next();
+			if (!this.atEnd(']')) {
+				do {
+					this.skipValue();
+				} while (this.nextElement(']'));
+			}
+		} else if (c == -1) {
+			throw this.syntaxError("value");
+		} else {
+			// number, true, false, null
+			while (c != -1 && c != ',' && c != '}' && c != ']' && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+				this.next();
+				c = this.peek();
+			}
+		}
+	}
+
+	public Exception syntaxError(String expected) throws IOException {
+		return new Exception(this.errorPrefix + ": expected " + expected + " but found: " + this.readErrorText());
+	}
+
+	/**
+	 * Read some of the remaining text for an error message (e.g. a triple store error that isn't json)
+	 */
+	public String readErrorText() throws IOException {
+		StringBuilder ret = new StringBuilder();
+		int c;
+		while (ret.length() < MAX_ERROR_TEXT && (c = this.next()) != -1) {
+			ret.append((char) c);
+		}
+		return ret.toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+}
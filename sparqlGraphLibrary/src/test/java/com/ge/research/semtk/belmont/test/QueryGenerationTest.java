@@ -30,6 +30,8 @@ import com.ge.research.semtk.belmont.NoValidSparqlException;
 import com.ge.research.semtk.belmont.Node;
 import com.ge.research.semtk.belmont.NodeGroup;
 import com.ge.research.semtk.belmont.PropertyItem;
+import com.ge.research.semtk.belmont.SparqlInsertWriter;
+import com.ge.research.semtk.belmont.TurtleWriter;
 import com.ge.research.semtk.belmont.runtimeConstraints.RuntimeConstrainedItems;
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
@@ -126,6 +128,122 @@ public class QueryGenerationTest {
 		assertEquals(insertQuery.replaceAll("\\s+",""),(expected.replaceAll("\\s+",""))); // ignore whitespace
 	}
 	
+	private NodeGroup buildInstanceNodegroup(String instance) throws Exception {
+		NodeGroup ng = new NodeGroup();
+		PropertyItem prop = new PropertyItem("testProperty", "int", "foo", "http://knowledge.ge.com/bar#foo");
+		prop.setSparqlID("?foo");
+		prop.addInstanceValue("2");
+		prop.addInstanceValue("3");
+		ArrayList<PropertyItem> props = new ArrayList<PropertyItem>();
+		props.add(prop);
+		Node node = new Node("testNode", props, null, "http://knowledge.ge.com/bar", ng);
+		node.setInstanceValue("http://knowledge.ge.com/bar#" + instance);
+		ng.addOneNode(node, null, null, null);
+		return ng;
+	}
+	
+	@Test
+	public void generateCombinedInsertWithWriter() throws Exception {
+		OntologyInfo oInfo = new OntologyInfo();
+		
+		ArrayList<NodeGroup> ngList = new ArrayList<NodeGroup>();
+		ngList.add(this.buildInstanceNodegroup("one"));
+		ngList.add(this.buildInstanceNodegroup("two"));
+		String combined = NodeGroup.generateCombinedSparqlInsert(ngList, oInfo);
+		
+		String expected = "prefix generateSparqlInsert:<belmont/generateSparqlInsert#>" +
+				"prefix XMLSchema:<http://www.w3.org/2001/XMLSchema#>" +
+				"prefix bar:<http://knowledge.ge.com/bar#>" +
+				"INSERT {" +
+				"?testNode__0 a http://knowledge.ge.com/bar ." +
+				"?testNode__0 bar:foo \"2\"^^XMLSchema:int ." +
+				"?testNode__0 bar:foo \"3\"^^XMLSchema:int ." +
+				"?testNode__1 a http://knowledge.ge.com/bar ." +
+				"?testNode__1 bar:foo \"2\"^^XMLSchema:int ." +
+				"?testNode__1 bar:foo \"3\"^^XMLSchema:int ." +
+				"} WHERE {" +
+				"BIND (bar:one AS ?testNode__0)." +
+				"BIND (bar:two AS ?testNode__1)." +
+				"}";
+		assertEquals(expected.replaceAll("\\s+",""), combined.replaceAll("\\s+",""));
+		
+		// writer stops at the triple budget, and its parts join into the same query
+		SparqlInsertWriter writer = new SparqlInsertWriter(oInfo);
+		writer.add(this.buildInstanceNodegroup("one"));
+		assertEquals(3, writer.getTripleCount());
+		assertFalse(writer.isFull(0, 4));
+		writer.add(this.buildInstanceNodegroup("two"));
+		assertTrue(writer.isFull(0, 4));
+		assertTrue(writer.isFull(writer.getLength(), 0));
+		assertFalse(writer.isFull(0, 0));
+		
+		StringBuilder joined = new StringBuilder();
+		for (CharSequence part : writer.getQueryParts()) {
+			joined.append(part);
+		}
+		assertEquals(writer.getQuery().toString(), joined.toString());
+		assertEquals(combined.replaceAll("\\s+",""), joined.toString().replaceAll("\\s+",""));
+		
+		writer.reset();
+		assertEquals(0, writer.getNodeGroupCount());
+		assertEquals(0, writer.getLength());
+	}
+	
+	@Test
+	public void generateTurtle() throws Exception {
+		OntologyInfo oInfo = new OntologyInfo();
+		
+		TurtleWriter writer = new TurtleWriter(oInfo);
+		writer.add(this.buildInstanceNodegroup("one"));
+		writer.add(this.buildInstanceNodegroup("two"));
+		
+		String expected = 
+				"<http://knowledge.ge.com/bar#one> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://knowledge.ge.com/bar> .\n" +
+				"<http://knowledge.ge.com/bar#one> <http://knowledge.ge.com/bar#foo> \"2\"^^<http://www.w3.org/2001/XMLSchema#int> .\n" +
+				"<http://knowledge.ge.com/bar#one> <http://knowledge.ge.com/bar#foo> \"3\"^^<http://www.w3.org/2001/XMLSchema#int> .\n" +
+				"<http://knowledge.ge.com/bar#two> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://knowledge.ge.com/bar> .\n" +
+				"<http://knowledge.ge.com/bar#two> <http://knowledge.ge.com/bar#foo> \"2\"^^<http://www.w3.org/2001/XMLSchema#int> .\n" +
+				"<http://knowledge.ge.com/bar#two> <http://knowledge.ge.com/bar#foo> \"3\"^^<http://www.w3.org/2001/XMLSchema#int> .\n";
+		assertEquals(expected, writer.getTurtle());
+		assertEquals(2, writer.getNodeGroupCount());
+		assertEquals(6, writer.getTripleCount());
+		assertTrue(writer.isFull(0, 6));
+		
+		// blank node constrained by its properties must be looked up by an insert's WHERE clause
+		NodeGroup constrained = this.buildInstanceNodegroup("three");
+		Node node = constrained.getNodeList().get(0);
+		node.setInstanceValue(null);
+		node.getPropertyItems().get(0).addConstraint("FILTER (?foo = 2)");
+		assertFalse(writer.canWrite(constrained));
+		
+		// blank node gets the same absolute URI form as an insert's iri(concat(...))
+		writer.reset();
+		NodeGroup blank = this.buildInstanceNodegroup("five");
+		blank.getNodeList().get(0).setInstanceValue(null);
+		assertTrue(blank.generateSparqlInsert(oInfo).contains("BIND (iri(concat(\"generateSparqlInsert:\", \""));
+		writer.add(blank);
+		assertTrue(writer.getTurtle(), writer.getTurtle().startsWith("<generateSparqlInsert:"));
+		assertTrue(writer.getTurtle(), writer.getTurtle().matches("(<generateSparqlInsert:[-0-9a-f]{36}> [^\n]*\\.\n){3}"));
+		
+		// value without a namespace:  the insert's URI is relative, so it is left to the insert
+		NodeGroup relative = this.buildInstanceNodegroup("six");
+		relative.getNodeList().get(0).setInstanceValue("six");
+		String insert = relative.generateSparqlInsert(oInfo);
+		assertTrue(insert.contains("prefix generateSparqlInsert:<belmont/generateSparqlInsert#>"));
+		assertTrue(insert.contains("BIND (generateSparqlInsert:six AS ?testNode)"));
+		assertEquals("belmont/generateSparqlInsert#six", NodeGroup.getInsertUri("six"));
+		assertFalse(writer.canWrite(relative));
+		try {
+			writer.add(relative);
+			fail("Relative instance URI was written as turtle");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("relative"));
+		}
+		
+		writer.reset();
+		assertEquals(0, writer.getLength());
+	}
+	
 	@Test
 	public void generateInsertQueryWithEnumInstanceValues() throws Exception {
 		System.out.println("Insert query generation where enums are used.");
@@ -0,0 +1,158 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.edc.client.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ge.research.semtk.edc.client.ResultsClient;
+import com.ge.research.semtk.edc.client.ResultsClientConfig;
+import com.ge.research.semtk.resultSet.SimpleResultSet;
+import com.ge.research.semtk.resultSet.TableResultSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs ResultsClient against a stand-in results service
+ */
+public class ResultsClientTest {
+
+	private static final String TABLE_START =
+			"{\"message\":\"operations succeeded.\",\"table\":{\"@table\":{\"row_count\" : 2,\"col_count\" : 1," +
+			"\"col_names\" : [\"colA\"],\"col_type\" : [\"String\"],\"rows\" : [[\"a1\"],[\"a2\"]";
+	private static final String TABLE_END = "]}},\"status\":\"success\"}";
+
+	private HttpServer server;
+	private ResultsClient client;
+
+	// what the stand-in service returns from getTableResultsJson
+	private int jsonStatusCode;
+	private String jsonBody;
+	private int jsonDelayMsec = 0;
+
+	@Before
+	public void startServer() throws Exception {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/results/getTableResultsRowCount", exchange -> {
+			SimpleResultSet res = new SimpleResultSet(true);
+			res.addResult("rowCount", 2);
+			this.respond(exchange, 200, res.toJson().toJSONString());
+		});
+		this.server.createContext("/results/getTableResultsJson", exchange -> {
+			try {
+				Thread.sleep(this.jsonDelayMsec);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.respond(exchange, this.jsonStatusCode, this.jsonBody);
+		});
+		this.server.start();
+		this.client = new ResultsClient(new ResultsClientConfig("http", "localhost", this.server.getAddress().getPort()));
+	}
+
+	@After
+	public void stopServer() {
+		this.server.stop(0);
+	}
+
+	private void respond(HttpExchange exchange, int statusCode, String body) throws java.io.IOException {
+		byte [] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Test
+	public void testTableResultsJson() throws Exception {
+		this.jsonStatusCode = 200;
+		this.jsonBody = TABLE_START + TABLE_END;
+		TableResultSet res = this.client.execTableResultsJson("job1", null);
+		assertEquals(2, res.getTable().getNumRows());
+		assertEquals("a2", res.getTable().getCell(1, 0));
+	}
+
+	@Test
+	public void testHttpError() throws Exception {
+		this.jsonStatusCode = 500;
+		this.jsonBody = "{\"error\":\"Internal Server Error\"}";
+		try {
+			this.client.execTableResultsJson("job1", null);
+			fail("HTTP 500 was decoded as results");
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("HTTP 500"));
+		}
+	}
+
+	@Test
+	public void testSocketTimeout() throws Exception {
+		// streamed on connections set up from the ResultsClientConfig
+		ResultsClientConfig conf = new ResultsClientConfig("http", "localhost", this.server.getAddress().getPort());
+		conf.setSocketTimeoutMsec(100);
+		this.jsonStatusCode = 200;
+		this.jsonBody = TABLE_START + TABLE_END;
+		this.jsonDelayMsec = 1000;
+		try {
+			new ResultsClient(conf).execTableResultsJson("job1", null);
+			fail("Slow response didn't time out");
+		} catch (Exception e) {
+			Throwable cause = e;
+			while (cause != null && !(cause instanceof SocketTimeoutException)) {
+				cause = cause.getCause();
+			}
+			assertTrue(e.toString(), cause != null);
+		}
+	}
+
+	@Test
+	public void testMissingStatus() throws Exception {
+		// service stopped writing before the status
+		this.jsonStatusCode = 200;
+		this.jsonBody = TABLE_START + "]}}}";
+		try {
+			this.client.execTableResultsJson("job1", null);
+			fail("Response without a status was decoded as results");
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("job1"));
+		}
+	}
+
+	@Test
+	public void testMissingRows() throws Exception {
+		// fewer rows than getTableResultsRowCount promised
+		this.jsonStatusCode = 200;
+		this.jsonBody = TABLE_START.replace(",[\"a2\"]", "") + TABLE_END;
+		try {
+			this.client.execTableResultsJson("job1", null);
+			fail("Short range was decoded as results");
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("expected 2 rows, got 1"));
+		}
+	}
+}
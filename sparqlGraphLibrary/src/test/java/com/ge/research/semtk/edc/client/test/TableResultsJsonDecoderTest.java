@@ -0,0 +1,88 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.edc.client.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.edc.client.TableResultsJsonDecoder;
+import com.ge.research.semtk.resultSet.Table;
+
+public class TableResultsJsonDecoderTest {
+
+	// as written by the results service getTableResultsJson
+	private static final String RESPONSE =
+			"{\"message\":\"operations succeeded.\",\"table\":{\"@table\":{\"row_count\" : 3,\"col_count\" : 2," +
+			"\"col_names\" : [\"colA\",\"colB\"],\"col_type\" : [\"String\",\"int\"],\"rows\" : [" +
+			"[\"a1\",\"1\"],[\"say \\\"hi\\\"\",\"2\"],[\"line\\nbreak\",\"3\"]]}},\"status\":\"success\"}";
+
+	@Test
+	public void testRowAtATime() throws Exception {
+		TableResultsJsonDecoder decoder = new TableResultsJsonDecoder(new StringReader(RESPONSE));
+		assertArrayEquals(new String[] {"colA", "colB"}, decoder.getColumnNames());
+		assertArrayEquals(new String[] {"String", "int"}, decoder.getColumnTypes());
+		assertArrayEquals(new String[] {"a1", "1"}, decoder.nextRow());
+		assertArrayEquals(new String[] {"say \"hi\"", "2"}, decoder.nextRow());
+		assertArrayEquals(new String[] {"line\nbreak", "3"}, decoder.nextRow());
+		assertNull(decoder.nextRow());
+		assertEquals("success", decoder.getStatus());
+		decoder.close();
+	}
+
+	@Test
+	public void testDecodeTable() throws Exception {
+		Table table = new TableResultsJsonDecoder(new StringReader(RESPONSE)).decodeTable();
+		assertEquals(3, table.getNumRows());
+		assertEquals("int", table.getColumnType("colB"));
+		assertEquals("line\nbreak", table.getCell(2, 0));
+
+		// no rows
+		String empty = "{\"message\":\"operations succeeded.\",\"table\":{\"@table\":{\"row_count\" : 0,\"col_count\" : 1," +
+				"\"col_names\" : [\"colA\"],\"col_type\" : [\"String\"],\"rows\" : []}},\"status\":\"success\"}";
+		table = new TableResultsJsonDecoder(new StringReader(empty)).decodeTable();
+		assertEquals(0, table.getNumRows());
+		assertEquals(1, table.getNumColumns());
+	}
+
+	@Test
+	public void testBadResponses() throws Exception {
+		// the service writes nothing if it fails
+		try {
+			new TableResultsJsonDecoder(new StringReader("")).decodeTable();
+			fail("decoded an empty response");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().startsWith("Cannot parse table results into JSON"));
+		}
+
+		// row with the wrong number of cells
+		try {
+			new TableResultsJsonDecoder(new StringReader(RESPONSE.replace("[\"a1\",\"1\"]", "[\"a1\"]"))).decodeTable();
+			fail("decoded a short row");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("expected 2"));
+		}
+	}
+}
@@ -18,10 +18,14 @@
 
 package com.ge.research.semtk.edc.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.PrintWriter;
 import java.net.URL;
 import java.util.ArrayList;
@@ -32,8 +36,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.ge.research.semtk.edc.resultsStorage.TableResultsBinaryFile;
+import com.ge.research.semtk.edc.resultsStorage.TableResultsIndex;
 import com.ge.research.semtk.edc.resultsStorage.TableResultsSerializer;
 import com.ge.research.semtk.edc.resultsStorage.TableResultsStorage;
+import com.ge.research.semtk.edc.resultsStorage.TableResultsStorage.TableResultsStorageTypes;
 import com.ge.research.semtk.load.dataset.CSVDataset;
 import com.ge.research.semtk.resultSet.Table;
 
@@ -188,4 +195,155 @@ public class TableResultsStorageTest {
 		}
 	}
 	
+	@Test
+	public void testPagingWithRowIndex() throws Exception {
+		TableResultsStorage rs = new TableResultsStorage(tempFolder.getRoot().getPath());
+		String jobId = "paging";
+		String[] colNames = {"colA","colB"};
+		String[] colTypes = {"String","String"};
+		
+		// write more rows than one index entry covers, in uneven batches
+		int numRows = TableResultsIndex.ROWS_PER_ENTRY * 3 + 17;
+		Table tblForHeader = new Table(colNames, colTypes);
+		JSONObject headerInfo = tblForHeader.getHeaderJson();
+		headerInfo.put(Table.JSON_KEY_ROW_COUNT, numRows);
+		rs.storeTableResultsJsonInitialize(jobId, headerInfo);	
+		
+		StringBuilder batch = new StringBuilder();
+		for (int i = 0; i < numRows; i++) {
+			if (batch.length() > 0) { batch.append("\n"); }
+			batch.append("[\"a" + i + "\",\"b\u00e9" + i + "\"]");    // multi-byte chars shift byte offsets
+			if (i % 777 == 776 || i == numRows - 1) {
+				rs.storeTableResultsJsonAddIncremental(jobId, batch.toString());
+				batch = new StringBuilder();
+			}
+		}
+		URL fullJsonUrl = rs.storeTableResultsJsonFinalize(jobId);
+		
+		String dataFileLocation = tempFolder.getRoot().getPath() + File.separator + "results_" + jobId + "_data.dat";
+		assertEquals(numRows, TableResultsIndex.getRowCount(TableResultsIndex.getIndexFile(dataFileLocation)));
+		
+		// page deep into the file
+		for (int startRow : new int[] {0, 999, 1000, 2345, numRows - 2}) {
+			TableResultsSerializer tss = rs.getJsonTable(fullJsonUrl, 2, startRow);
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			PrintWriter pw = new PrintWriter(baos);
+			tss.writeToStream(pw);
+			
+			Table table = Table.fromJson((JSONObject) (new JSONParser().parse(baos.toString())));
+			assertEquals(2, table.getNumRows());
+			assertEquals("a" + startRow, table.getCell(0, 0));
+			assertEquals("b\u00e9" + (startRow + 1), table.getCell(1, 1));
+		}
+	}
+	
+	@Test
+	public void testRowIndex() throws Exception {
+		File indexFile = tempFolder.newFile("test.index");
+		indexFile.delete();
+		
+		assertEquals(-1, TableResultsIndex.getRowCount(indexFile));
+		assertNull(TableResultsIndex.seek(indexFile, 0));
+		
+		// rows of 10 bytes each, plus newline
+		long offset = 0;
+		for (int batch = 0; batch < 3; batch++) {
+			StringBuilder contents = new StringBuilder();
+			for (int i = 0; i < 700; i++) {
+				if (i > 0) { contents.append("\n"); }
+				contents.append("0123456789");
+			}
+			TableResultsIndex.addRows(indexFile, offset, contents.toString().getBytes());
+			offset += contents.length() + 1;
+		}
+		
+		assertEquals(2100, TableResultsIndex.getRowCount(indexFile));
+		assertArrayEquals(new long[] {0, 0}, TableResultsIndex.seek(indexFile, 999));
+		assertArrayEquals(new long[] {11000, 1000}, TableResultsIndex.seek(indexFile, 1000));
+		assertArrayEquals(new long[] {22000, 2000}, TableResultsIndex.seek(indexFile, 2099));
+		assertNull(TableResultsIndex.seek(indexFile, 2100));
+	}
+	
+@Test
+	public void testBinaryFormat() throws Exception {
+		String jsonDir = tempFolder.newFolder("json").getPath();
+		String binaryDir = tempFolder.newFolder("binary").getPath();
+		TableResultsStorage jsonStorage = new TableResultsStorage(jsonDir);
+		TableResultsStorage binaryStorage = new TableResultsStorage(binaryDir, TableResultsStorageTypes.BINARY);
+		String jobId = "binary";
+		int numRows = 2500;
+		
+		for (TableResultsStorage rs : new TableResultsStorage[] {jsonStorage, binaryStorage}) {
+			Table tblForHeader = new Table(new String[] {"colA","colB","colC"}, new String[] {"String","String","String"});
+			JSONObject headerInfo = tblForHeader.getHeaderJson();
+			headerInfo.put(Table.JSON_KEY_ROW_COUNT, numRows);
+			rs.storeTableResultsJsonInitialize(jobId, headerInfo);
+			
+			StringBuilder batch = new StringBuilder();
+			for (int i = 0; i < numRows; i++) {
+				if (batch.length() > 0) { batch.append("\n"); }
+				if (i == 1234) {
+					batch.append("[\"odd\", \"spacing\",\"row\"]");                          // not in the usual form
+				} else {
+					batch.append("[\"a" + i + "\",\"q\\\"uote,\\\"" + (i % 3) + "\",\"c" + (i % 50) + "\"]");   // escaped quotes and commas
+				}
+				if (i % 600 == 599 || i == numRows - 1) {
+					rs.storeTableResultsJsonAddIncremental(jobId, batch.toString());
+					batch = new StringBuilder();
+				}
+			}
+			rs.storeTableResultsJsonFinalize(jobId);
+		}
+		
+		File binaryDataFile = new File(binaryDir, "results_" + jobId + "_data.dat");
+		assertTrue(TableResultsBinaryFile.isBinaryFile(binaryDataFile));
+		assertEquals(numRows, TableResultsBinaryFile.countRows(binaryDataFile));
+		assertTrue(binaryDataFile.length() < new File(jsonDir, "results_" + jobId + "_data.dat").length());
+		
+		// binary storage serves exactly what json storage serves
+		URL url = new URL("file:////results_" + jobId + "_metadata.json");
+		for (int startRow : new int[] {0, 599, 600, 1233, 1234, numRows - 3}) {
+			assertEquals(serialize(jsonStorage.getJsonTable(url, 5, startRow)), serialize(binaryStorage.getJsonTable(url, 5, startRow)));
+			assertEquals(serialize(jsonStorage.getCsvTable(url, 5, startRow)), serialize(binaryStorage.getCsvTable(url, 5, startRow)));
+		}
+		assertEquals(serialize(jsonStorage.getCsvTable(url)), serialize(binaryStorage.getCsvTable(url)));
+	}
+	
+@Test
+	public void testSegmentsStoredInOrder() throws Exception {
+		TableResultsStorage rs = new TableResultsStorage(tempFolder.getRoot().getPath());
+		String jobId = "segments";
+		Table tblForHeader = new Table(new String[] {"colA"}, new String[] {"String"});
+		JSONObject headerInfo = tblForHeader.getHeaderJson();
+		headerInfo.put(Table.JSON_KEY_ROW_COUNT, 8);
+		rs.storeTableResultsJsonInitialize(jobId, headerInfo);
+		
+		// segments arrive out of order
+		for (int segment : new int[] {2, 0, 3, 1}) {
+			rs.storeTableResultsJsonAddIncremental(jobId, "[\"" + (segment * 2) + "\"]\n[\"" + (segment * 2 + 1) + "\"]", segment);
+		}
+		URL url = rs.storeTableResultsJsonFinalize(jobId);
+		assertEquals("colA\n0\n1\n2\n3\n4\n5\n6\n7", serialize(rs.getCsvTable(url)).replace("\"", ""));
+		
+		// a segment never arrives
+		String jobId2 = "missing";
+		rs.storeTableResultsJsonInitialize(jobId2, headerInfo);
+		rs.storeTableResultsJsonAddIncremental(jobId2, "[\"0\"]", 0);
+		rs.storeTableResultsJsonAddIncremental(jobId2, "[\"2\"]", 2);
+		try {
+			rs.storeTableResultsJsonFinalize(jobId2);
+			fail("finalize succeeded with a missing segment");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("missing segment 1"));
+		}
+	}
+	
+		private String serialize(TableResultsSerializer tss) throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintWriter pw = new PrintWriter(baos);
+		tss.writeToStream(pw);
+		pw.flush();
+		return baos.toString("UTF-8");
+	}
+	
 }
@@ -23,6 +23,7 @@ import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -137,6 +138,76 @@ public class CSVDatasetTest {
 	}
 	
 	
+	@Test
+	public void testCSVDatasetFromPath_Streamed() throws Exception{
+		File tempFile = File.createTempFile("CSVDatasetTest", ".csv");
+		try {
+			String content = "cell,lot\ncell1,lotA\ncell2,lotB\ncell3,lotC\n";
+			Files.write(tempFile.toPath(), content.getBytes());
+			
+			CSVDataset csvDataset = new CSVDataset(tempFile.getPath(), false);
+			assertEquals("cell", csvDataset.getColumnNamesinOrder().get(0));
+			
+			ArrayList<ArrayList<String>> records = csvDataset.getNextRecords(2);
+			assertEquals(2, records.size());
+			assertEquals("cell1", records.get(0).get(0));
+			records = csvDataset.getNextRecords(2);
+			assertEquals(1, records.size());
+			assertEquals("lotC", records.get(0).get(1));
+			
+			// reset re-opens the file
+			csvDataset.reset();
+			records = csvDataset.getNextRecords(10);
+			assertEquals(3, records.size());
+			assertEquals("cell1", records.get(0).get(0));
+			csvDataset.close();
+		} finally {
+			tempFile.delete();
+		}
+	}
+	
+	@Test
+	public void testCSVDatasetFromPath_ParallelParsing() throws Exception{
+		File tempFile = File.createTempFile("CSVDatasetTest", ".csv");
+		try {
+			// quoted newlines, commas, doubled quotes, escapes and empty lines
+			StringBuilder content = new StringBuilder("id,Name,note\r\n");
+			for (int i=0; i < 200; i++) {
+				content.append(i).append(",\"name ").append(i).append("\nsecond line\",");
+				content.append((i % 3 == 0) ? "\"a, \"\"quoted\"\" b\"" : "plain \\\" escaped").append("\r\n");
+				if (i % 17 == 0) {
+					content.append("\n");
+				}
+			}
+			Files.write(tempFile.toPath(), content.toString().getBytes());
+			String[] headers = {"note","id"};
+			
+			CSVDataset sequential = new CSVDataset(tempFile.getPath(), headers);
+			ArrayList<ArrayList<String>> expected = sequential.getNextRecords(1000);
+			assertEquals(200, expected.size());
+			sequential.close();
+			
+			// chunks smaller than a record, and a few records each
+			for (int chunkBytes : new int [] {1, 10, 100, 1000}) {
+				CSVDataset parallel = new CSVDataset(tempFile.getPath(), headers);
+				parallel.setParallelParsing(4, chunkBytes);
+				ArrayList<ArrayList<String>> actual = new ArrayList<ArrayList<String>>();
+				ArrayList<ArrayList<String>> batch = parallel.getNextRecords(7);
+				while (batch.size() > 0) {
+					actual.addAll(batch);
+					batch = parallel.getNextRecords(7);
+				}
+				assertEquals(expected, actual);
+				
+				parallel.reset();
+				assertEquals(expected.subList(0, 7), parallel.getNextRecords(7));
+				parallel.close();
+			}
+		} finally {
+			tempFile.delete();
+		}
+	}
+	
 	@Test
 	public void testCSVDatasetFromString() throws Exception{
 		
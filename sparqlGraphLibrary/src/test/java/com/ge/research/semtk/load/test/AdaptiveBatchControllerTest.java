@@ -0,0 +1,81 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.load.test;
+
+import static org.junit.Assert.*;
+
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import com.ge.research.semtk.load.AdaptiveBatchController;
+
+public class AdaptiveBatchControllerTest {
+
+	private static final long MSEC = 1000000L;
+
+	@Test
+	public void testGrowsWhenFast() throws Exception {
+		AdaptiveBatchController c = new AdaptiveBatchController(100, 1000, 4, 1000);
+
+		// 100 records in 10 msec:  1000 msec would fit 10000
+		c.reportInsert(100, 5000, 10 * MSEC);
+		assertEquals(200, c.getBatchSize());		// at most doubles
+
+		for (int i=0; i < 20; i++) {
+			c.reportInsert(c.getBatchSize(), 5000, c.getBatchSize() / 10 * MSEC);
+		}
+		assertEquals(1000, c.getBatchSize());		// capped at max
+	}
+
+	@Test
+	public void testShrinksWhenSlow() throws Exception {
+		AdaptiveBatchController c = new AdaptiveBatchController(1000, 4, 1000);
+
+		// 1000 records in 10 sec:  1000 msec fits 100
+		c.reportInsert(1000, 5000, 10000 * MSEC);
+		assertEquals(550, c.getBatchSize());
+
+		for (int i=0; i < 20; i++) {
+			c.reportInsert(c.getBatchSize(), 5000, c.getBatchSize() * 10 * MSEC);
+		}
+		assertTrue(c.getBatchSize() >= 100 && c.getBatchSize() <= 101);
+		assertTrue(c.getConcurrency() >= 1 && c.getConcurrency() <= 4);
+	}
+
+	@Test
+	public void testFailureBacksOff() throws Exception {
+		AdaptiveBatchController c = new AdaptiveBatchController(400, 8, 1000);
+		assertEquals(4, c.getConcurrency());
+
+		c.reportFailure();
+		assertEquals(200, c.getBatchSize());
+		assertEquals(2, c.getConcurrency());
+		assertEquals(1, c.getFailures());
+
+		// new batches wait out the back-off
+		long start = System.currentTimeMillis();
+		c.acquire();
+		assertTrue(System.currentTimeMillis() - start >= 900);
+		c.release();
+
+		JSONObject json = c.toJson();
+		assertEquals(true, json.get("adaptive"));
+		assertEquals(200, json.get("batchSize"));
+		assertEquals(1L, json.get("insertFailures"));
+	}
+}
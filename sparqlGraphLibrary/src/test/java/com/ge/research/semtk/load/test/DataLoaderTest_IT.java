@@ -69,6 +69,31 @@ public class DataLoaderTest_IT {
 		assertEquals(dl.getTotalRecordsProcessed(), 3);
 	}	
 	
+	@Test
+	public void testProgressListener() throws Exception {
+		Dataset ds = new CSVDataset("src/test/resources/testTransforms.csv", false);
+
+		// setup
+		TestGraph.clearGraph();
+		TestGraph.uploadOwl("src/test/resources/testTransforms.owl");
+		SparqlGraphJson sgJson = TestGraph.getSparqlGraphJsonFromFile("src/test/resources/testTransforms.json");
+
+		// test:  each phase reports when it ends, and the load knows the preflight's count
+		ArrayList<long[]> reports = new ArrayList<long[]>();
+		DataLoader dl = new DataLoader(sgJson, 2, ds, TestGraph.getUsername(), TestGraph.getPassword());
+		dl.setProgressListener((preflight, records, expected, recordsPerSec) -> {
+			reports.add(new long[] { preflight ? 1 : 0, records, expected });
+		}, 60000);
+		dl.importData(true);
+		
+		assertEquals(2, reports.size());
+		assertEquals(1, reports.get(0)[0]);
+		assertEquals(3, reports.get(0)[1]);
+		assertEquals(0, reports.get(1)[0]);
+		assertEquals(3, reports.get(1)[1]);
+		assertEquals(3, reports.get(1)[2]);
+	}	
+	
 	@Test
 	public void testTransforms() throws Exception {
 		// Paul
@@ -400,6 +425,43 @@ public class DataLoaderTest_IT {
 		
 	}
 	
+	@Test
+	public void testLookupBatteryIdMissing() throws Exception {
+		// setup
+		TestGraph.clearGraph();
+
+		// ==== pre set some data =====
+		TestGraph.uploadOwl("src/test/resources/loadTestDuraBattery.owl");
+		SparqlGraphJson sgJson0 = TestGraph.getSparqlGraphJsonFromFile("src/test/resources/loadTestDuraBattery.json");
+		Dataset ds0 = new CSVDataset("src/test/resources/loadTestDuraBatteryShortData.csv", false);
+
+		DataLoader dl0 = new DataLoader(sgJson0, 2, ds0, TestGraph.getUsername(), TestGraph.getPassword());
+		dl0.importData(true);
+
+		Table err0 = dl0.getLoadingErrorReport();
+		if (err0.getNumRows() > 0) {
+			fail(err0.toCSVString());
+		}
+
+		// lookups are batched:  each missing id should still fail its own row
+		SparqlGraphJson sgJson = TestGraph.getSparqlGraphJsonFromFile("src/test/resources/lookupBatteryIdAddDesc.json");
+		String contents = "description,batt_ID\n" +
+							"description for id_733344685,id_733344685\n" +
+							"missing one,id_missing1\n" +
+							"description for id_372942307,id_372942307\n" +
+							"missing two,id_missing2\n";
+		Dataset ds = new CSVDataset(contents, true);
+
+		DataLoader dl = new DataLoader(sgJson, 4, ds, TestGraph.getUsername(), TestGraph.getPassword());
+		dl.importData(false);
+
+		Table err = dl.getLoadingErrorReport();
+		assertEquals(2, err.getNumRows());
+		assertEquals("id_missing1", err.getCell(0, err.getColumnIndex("batt_id")));
+		assertEquals("id_missing2", err.getCell(1, err.getColumnIndex("batt_id")));
+		assertEquals("URI lookup failed.", err.getCell(0, err.getColumnIndex(DataLoader.FAILURE_CAUSE_COLUMN_NAME)));
+	}
+
 	private void queryAndCheckResults(NodeGroup ng, String expectedFileName) throws Exception {
 		// get all the answers, changing "\r\n" to simply "\n"
 		String query = ng.generateSparql(AutoGeneratedQueryTypes.QUERY_DISTINCT, false, 0, null);		
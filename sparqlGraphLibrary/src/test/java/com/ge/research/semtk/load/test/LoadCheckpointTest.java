@@ -0,0 +1,127 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.load.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.load.LoadCheckpoint;
+
+public class LoadCheckpointTest {
+
+	private static String runs(ArrayList<int[]> runs) {
+		String ret = "";
+		for (int [] run : runs) {
+			ret += "[" + run[0] + "," + run[1] + "]";
+		}
+		return ret;
+	}
+
+	@Test
+	public void testUncommitted() throws Exception {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			LoadCheckpoint checkpoint = new LoadCheckpoint(dir, "load1", "abc");
+			assertEquals("[1,100]", runs(checkpoint.getUncommitted(1, 100)));
+
+			checkpoint.commit(11, 10);	// 11-20
+			checkpoint.commit(31, 10);	// 31-40
+			assertEquals("[1,10][21,10][41,60]", runs(checkpoint.getUncommitted(1, 100)));
+			assertEquals("", runs(checkpoint.getUncommitted(12, 5)));
+			assertEquals("[21,4]", runs(checkpoint.getUncommitted(15, 10)));
+
+			// adjacent and overlapping ranges merge
+			checkpoint.commit(21, 10);
+			checkpoint.commit(1, 12);
+			assertEquals("[41,60]", runs(checkpoint.getUncommitted(1, 100)));
+			assertEquals(40, checkpoint.getCommittedRecordCount());
+			assertEquals(1, ((org.json.simple.JSONArray) checkpoint.toJson().get("committed")).size());
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			assertFalse(LoadCheckpoint.exists(dir, "load2"));
+			LoadCheckpoint checkpoint = new LoadCheckpoint(dir, "load2", "abc");
+			checkpoint.commit(1, 50);
+			checkpoint.commit(101, 50);
+			assertTrue(LoadCheckpoint.exists(dir, "load2"));
+
+			// a restart reads what was committed
+			LoadCheckpoint resumed = new LoadCheckpoint(dir, "load2", "abc");
+			assertEquals(100, resumed.getCommittedRecordCount());
+			assertEquals("[51,50][151,50]", runs(resumed.getUncommitted(1, 200)));
+
+			// different template or data
+			try {
+				new LoadCheckpoint(dir, "load2", "xyz");
+				fail("Expected fingerprint mismatch");
+			} catch (Exception e) {
+				assertTrue(e.getMessage().contains("different template or data"));
+			}
+
+			resumed.delete();
+			assertFalse(LoadCheckpoint.exists(dir, "load2"));
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void testFingerprint() throws Exception {
+		File data = File.createTempFile("checkpoint", ".csv");
+		try {
+			Files.write(data.toPath(), "a,b\n1,2\n".getBytes("UTF-8"));
+			String f = LoadCheckpoint.fingerprint("{\"template\":1}", data);
+			assertEquals(64, f.length());
+			assertEquals(f, LoadCheckpoint.fingerprint("{\"template\":1}", data));
+			assertNotEquals(f, LoadCheckpoint.fingerprint("{\"template\":2}", data));
+
+			// same size, different data
+			Files.write(data.toPath(), "a,b\n1,3\n".getBytes("UTF-8"));
+			assertNotEquals(f, LoadCheckpoint.fingerprint("{\"template\":1}", data));
+		} finally {
+			data.delete();
+		}
+	}
+
+	@Test
+	public void testBadLoadId() throws Exception {
+		try {
+			new LoadCheckpoint(new File(System.getProperty("java.io.tmpdir")), "../x", "abc");
+			fail("Expected invalid load id");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("Invalid load id"));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.load.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.load.StagedBatches;
+
+public class StagedBatchesTest {
+
+	private static ArrayList<String[][]> batch(int first, int size) {
+		ArrayList<String[][]> ret = new ArrayList<String[][]>();
+		for (int i=first; i < first + size; i++) {
+			ret.add(new String[][] { { "http://research.ge.com/test#node" + i, null }, { "value " + i + " \u00e9\u6f22", "", null } });
+		}
+		return ret;
+	}
+
+	private static void assertSameBatch(ArrayList<String[][]> expected, ArrayList<String[][]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i < expected.size(); i++) {
+			assertTrue(Arrays.deepEquals(expected.get(i), actual.get(i)));
+		}
+	}
+
+	@Test
+	public void testInMemory() throws Exception {
+		StagedBatches staged = new StagedBatches(100);
+		staged.add(batch(0, 10));
+		staged.add(batch(10, 10));
+		staged.finishStaging();
+		assertEquals(20, staged.getRecordCount());
+		assertEquals(0, staged.getSpilledBatchCount());
+
+		assertSameBatch(batch(0, 10), staged.next());
+		assertSameBatch(batch(10, 10), staged.next());
+		assertNull(staged.next());
+		staged.close();
+	}
+
+	@Test
+	public void testSpill() throws Exception {
+		StagedBatches staged = new StagedBatches(15);
+		staged.add(batch(0, 10));
+		staged.add(batch(10, 10));	// over the limit:  this and the rest go to disk
+		staged.add(batch(20, 3));
+		staged.add(batch(23, 0));
+		staged.finishStaging();
+		assertEquals(23, staged.getRecordCount());
+		assertEquals(3, staged.getSpilledBatchCount());
+
+		assertSameBatch(batch(0, 10), staged.next());
+		assertSameBatch(batch(10, 10), staged.next());
+		assertSameBatch(batch(20, 3), staged.next());
+		assertSameBatch(batch(23, 0), staged.next());
+		assertNull(staged.next());
+		staged.close();
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.load.utility.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import com.ge.research.semtk.belmont.Node;
+import com.ge.research.semtk.belmont.NodeGroup;
+import com.ge.research.semtk.load.utility.ImportSpecHandler;
+import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.utility.Utility;
+
+public class ImportSpecHandlerTest {
+
+	private static final String HEADERS = "description_opt,batt_ID,assembly_date_opt,cell1_ID_opt, cell1_color, cell2_ID_opt, cell2_color, cell3_ID_opt,cell3_color,cell4_ID_opt,cell4_color";
+	private static final String COLOR = "http://kdl.ge.com/durabattery#Color";
+
+	/**
+	 * Handler for loadTestDuraBattery.json, without a triple store: colors are the only enumeration
+	 */
+	private ImportSpecHandler getHandler() throws Exception {
+		JSONObject sgJson = Utility.getJSONObjectFromFilePath("src/test/resources/loadTestDuraBattery.json");
+		OntologyInfo oInfo = new OntologyInfo();
+		oInfo.loadEnums(new String[] {COLOR, COLOR, COLOR},
+				        new String[] {"http://kdl.ge.com/durabattery#red", "http://kdl.ge.com/durabattery#white", "http://kdl.ge.com/durabattery#blue"});
+
+		ArrayList<String> headers = new ArrayList<String>();
+		for (String h : HEADERS.split(",")) {
+			headers.add(h.toLowerCase());
+		}
+		return new ImportSpecHandler((JSONObject) sgJson.get("importSpec"), headers, (JSONObject) sgJson.get("sNodeGroup"), oInfo);
+	}
+
+	private static ArrayList<String> record(String csv) {
+		return new ArrayList<String>(Arrays.asList(csv.split(",", -1)));
+	}
+
+	@Test
+	public void testBuildImportNodegroup() throws Exception {
+		ImportSpecHandler handler = this.getHandler();
+
+		NodeGroup ng = handler.buildImportNodegroup(record("normal battery,full,2017-03-23T10:23:00,A,red,B,white,C,blue,D,red"), false);
+		assertEquals(9, ng.getNodeCount());
+
+		Node battery = ng.getNodeBySparqlID("?DuraBattery");
+		assertTrue(battery.getInstanceValue().endsWith("full"));
+		assertEquals("normal battery", battery.getPropertyByURIRelation("http://kdl.ge.com/durabattery#batteryDesc").getInstanceValues().get(0));
+		assertEquals(4, battery.getConnectedNodes().size());
+
+		assertEquals("http://kdl.ge.com/durabattery#white", ng.getNodeBySparqlID("?Color_2").getInstanceValue());
+
+		// blank nodes still get a URI
+		for (Node n : ng.getNodeList()) {
+			assertNotNull(n.getInstanceValue());
+		}
+	}
+
+	@Test
+	public void testBuildImportNodegroupPrunes() throws Exception {
+		ImportSpecHandler handler = this.getHandler();
+
+		// cell4 has no data
+		NodeGroup ng = handler.buildImportNodegroup(record("three cell,three,2017-03-23T10:23:00,A1,red,B1,white,C1,blue,,"), false);
+		assertEquals(7, ng.getNodeCount());
+		assertNull(ng.getNodeBySparqlID("?Cell4"));
+		assertNull(ng.getNodeBySparqlID("?Color_4"));
+		assertEquals(3, ng.getNodeBySparqlID("?DuraBattery").getConnectedNodes().size());
+	}
+
+	@Test
+	public void testBuildImportNodegroupIndependent() throws Exception {
+		ImportSpecHandler handler = this.getHandler();
+
+		// nodegroups built from the same handler share nothing
+		NodeGroup ng1 = handler.buildImportNodegroup(record("first,one,2017-03-23T10:23:00,A,red,B,white,C,blue,D,red"), false);
+		NodeGroup ng2 = handler.buildImportNodegroup(record("second,two,2017-03-23T10:23:00,A,red,B,white,C,blue,,"), false);
+
+		assertEquals(9, ng1.getNodeCount());
+		assertEquals(7, ng2.getNodeCount());
+		assertTrue(ng1.getNodeBySparqlID("?DuraBattery").getInstanceValue().endsWith("one"));
+		assertTrue(ng2.getNodeBySparqlID("?DuraBattery").getInstanceValue().endsWith("two"));
+		assertNotSame(ng1.getNodeBySparqlID("?Cell1"), ng2.getNodeBySparqlID("?Cell1"));
+	}
+}
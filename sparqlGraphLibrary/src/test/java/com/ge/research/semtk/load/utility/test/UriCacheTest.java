@@ -0,0 +1,121 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.load.utility.test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.load.utility.UriCache;
+import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
+import com.ge.research.semtk.sparqlX.SparqlResultTypes;
+import com.ge.research.semtk.sparqlX.VirtuosoSparqlEndpointInterface;
+import com.sun.net.httpserver.HttpServer;
+
+public class UriCacheTest {
+
+	@Test
+	public void testHitsAndMisses() throws Exception {
+		UriCache cache = new UriCache();
+		assertNull(cache.get("a"));
+		cache.put("a", "http://uri#a");
+		assertEquals("http://uri#a", cache.get("a"));
+		assertTrue(cache.contains("a"));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		UriCache cache = new UriCache(2, UriCache.DEFAULT_TTL_MSEC);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("a"));
+		assertTrue(cache.contains("c"));
+	}
+
+	@Test
+	public void testExpires() throws Exception {
+		UriCache cache = new UriCache(10, 50);
+		cache.put("a", "1");
+		Thread.sleep(100);
+
+		assertFalse(cache.contains("a"));
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getExpirations());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testShared() throws Exception {
+		UriCache c1 = UriCache.getShared("http://server:2420", "http://graph1");
+		assertSame(c1, UriCache.getShared("http://server:2420", "http://graph1"));
+		assertNotSame(c1, UriCache.getShared("http://server:2420", "http://graph2"));
+
+		c1.put("a", "1");
+		UriCache.clearShared();
+		assertEquals(0, c1.size());
+
+		// one graph
+		UriCache c2 = UriCache.getShared("http://server:2420", "http://graph2");
+		c1.put("a", "1");
+		c2.put("b", "2");
+		UriCache.clearShared("http://server:2420", "http://graph1");
+		assertEquals(0, c1.size());
+		assertEquals(1, c2.size());
+		UriCache.clearShared("http://server:2420", "http://never-shared");
+	}
+
+	@Test
+	public void testClearedByDelete() throws Exception {
+		// stand-in triple store:  every query succeeds with no rows
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			byte [] body = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":[]}}".getBytes("UTF-8");
+			exchange.getResponseHeaders().add("Content-Type", "application/sparql-results+json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		try {
+			SparqlEndpointInterface sei = new VirtuosoSparqlEndpointInterface("http://localhost:" + server.getAddress().getPort(), "http://graph");
+			UriCache cache = UriCache.getShared(sei.getServerAndPort(), sei.getDataset());
+			cache.put("a", "1");
+
+			sei.executeQuery("insert { ?x <http://a#b> \"delete\" } where { ?x <http://a#c> ?y }", SparqlResultTypes.TABLE);
+			assertEquals(1, cache.size());
+
+			sei.executeQuery("delete where { ?x <http://a#c> ?y }", SparqlResultTypes.TABLE);
+			assertEquals(0, cache.size());
+		} finally {
+			server.stop(0);
+		}
+	}
+}
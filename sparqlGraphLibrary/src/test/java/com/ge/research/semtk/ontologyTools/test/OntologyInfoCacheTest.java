@@ -0,0 +1,265 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.ontologyTools.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
+import com.ge.research.semtk.sparqlX.SparqlConnection;
+import com.ge.research.semtk.utility.Utility;
+
+public class OntologyInfoCacheTest {
+
+	private static final String BATTERY = "http://kdl.ge.com/durabattery#Battery";
+
+	private SparqlConnection getConn(String dataset) throws Exception {
+		SparqlConnection conn = new SparqlConnection();
+		conn.setDomain("http://kdl.ge.com");
+		conn.addModelInterface("virtuoso", "http://localhost:2420", dataset);
+		return conn;
+	}
+
+	private OntologyInfo load(AtomicInteger loads) throws Exception {
+		loads.incrementAndGet();
+		return new OntologyInfo(Utility.getJSONObjectFromFilePath("src/test/resources/sampleBatteryOInfo.json"));
+	}
+
+	@Test
+	public void testHitIsShared() throws Exception {
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+
+		OntologyInfo oInfo1 = cache.get(conn, () -> this.load(loads));
+		OntologyInfo oInfo2 = cache.get(conn, () -> this.load(loads));
+
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertSame(oInfo1, oInfo2);
+		assertEquals(4, oInfo2.getClassNames().size());
+		assertTrue(oInfo2.getClass(BATTERY) != null);
+
+		// another graph is another entry
+		cache.get(this.getConn("http://model2"), () -> this.load(loads));
+		assertEquals(2, loads.get());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+		SparqlConnection conn2 = this.getConn("http://model2");
+
+		cache.get(conn, () -> this.load(loads));
+		cache.get(conn2, () -> this.load(loads));
+		cache.invalidate(conn.getModelInterface(0));
+		assertEquals(1, cache.size());
+
+		cache.get(conn, () -> this.load(loads));
+		cache.get(conn2, () -> this.load(loads));
+		assertEquals(3, loads.get());
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		cache.get(conn2, () -> this.load(loads));
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+		OntologyInfoCache cache = new OntologyInfoCache(0);
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+
+		cache.get(conn, () -> this.load(loads));
+		cache.get(conn, () -> this.load(loads));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testModelChanged() throws Exception {
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		AtomicInteger loads = new AtomicInteger();
+		AtomicInteger counts = new AtomicInteger();
+		AtomicInteger triples = new AtomicInteger(100);
+		Callable<String> counter = () -> { counts.incrementAndGet(); return String.valueOf(triples.get()); };
+		SparqlConnection conn = this.getConn("http://model");
+
+		// not checked again within the interval
+		OntologyInfo oInfo1 = cache.get(conn, () -> this.load(loads), counter);
+		triples.set(200);
+		assertSame(oInfo1, cache.get(conn, () -> this.load(loads), counter));
+		assertEquals(1, counts.get());
+
+		// another process changed the model
+		cache.setCheckInterval(0);
+		OntologyInfo oInfo2 = cache.get(conn, () -> this.load(loads), counter);
+		assertNotSame(oInfo1, oInfo2);
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.getModelChanges());
+
+		// unchanged
+		assertSame(oInfo2, cache.get(conn, () -> this.load(loads), counter));
+		assertEquals(2, loads.get());
+
+		// a failed count keeps the cached model
+		assertSame(oInfo2, cache.get(conn, () -> this.load(loads), () -> { throw new Exception("triple store is down"); }));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testConfigureShared() throws Exception {
+		HashMap<String, String> props = new HashMap<String, String>();
+		props.put("oInfoCache.ttlSec", "soon");
+		try {
+			OntologyInfoCache.configureShared(props::get);
+			fail("Bad property was accepted");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("oInfoCache.ttlSec"));
+		}
+
+		File parent = Files.createTempDirectory("oInfoCache").toFile();
+		File dir = new File(parent, "snapshots");
+		props.clear();
+		props.put("oInfoCache.snapshotDir", dir.getPath());
+		try {
+			OntologyInfoCache.configureShared(props::get);
+			assertTrue(dir.isDirectory());
+		} finally {
+			OntologyInfoCache.configureShared(new HashMap<String, String>()::get);
+			dir.delete();
+			parent.delete();
+		}
+	}
+
+	@Test
+	public void testFailedLoadNotCached() throws Exception {
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+
+		try {
+			cache.get(conn, () -> { throw new Exception("triple store is down"); });
+			fail("Load failure was not thrown");
+		} catch (Exception e) {
+			assertEquals("triple store is down", e.getMessage());
+		}
+		assertEquals(0, cache.size());
+
+		cache.get(conn, () -> this.load(loads));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		File dir = Files.createTempDirectory("oinfoSnapshots").toFile();
+		dir.deleteOnExit();
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+
+		// a load is saved
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		cache.setSnapshotDir(dir);
+		cache.get(conn, () -> this.load(loads));
+		assertEquals(1, loads.get());
+		assertEquals(1, dir.listFiles().length);
+
+		// a new process starts from it, and loads again in the background
+		OntologyInfoCache cache2 = new OntologyInfoCache(60000);
+		cache2.setSnapshotDir(dir);
+		CountDownLatch refreshing = new CountDownLatch(1);
+		OntologyInfo oInfo = cache2.get(conn, () -> { refreshing.await(); return this.load(loads); });
+		assertEquals(1, cache2.getWarmStarts());
+		assertEquals(1, loads.get());
+		assertTrue(oInfo.getClass(BATTERY) != null);
+		refreshing.countDown();
+		cache2.awaitRefreshes();		// refresh replaces the entry and saves the snapshot
+		assertEquals(2, loads.get());
+
+		// the refreshed entry is used
+		cache2.get(conn, () -> this.load(loads));
+		assertEquals(2, loads.get());
+
+		// invalidate removes the snapshot
+		cache2.invalidate(conn.getModelInterface(0));
+		assertEquals(0, dir.listFiles().length);
+		OntologyInfoCache cache3 = new OntologyInfoCache(60000);
+		cache3.setSnapshotDir(dir);
+		cache3.get(conn, () -> this.load(loads));
+		assertEquals(0, cache3.getWarmStarts());
+		assertEquals(3, loads.get());
+
+		cache3.invalidateAll();
+		assertEquals(0, dir.listFiles().length);
+		dir.delete();
+	}
+
+	@Test
+	public void testStaleSnapshot() throws Exception {
+		File dir = Files.createTempDirectory("oinfoSnapshots").toFile();
+		dir.deleteOnExit();
+		AtomicInteger loads = new AtomicInteger();
+		SparqlConnection conn = this.getConn("http://model");
+		String [] counts = { "100 " };
+
+		OntologyInfoCache cache = new OntologyInfoCache(60000);
+		cache.setSnapshotDir(dir);
+		cache.get(conn, () -> this.load(loads), () -> counts[0]);
+		assertEquals(1, loads.get());
+
+		// same triple counts:  warm start
+		OntologyInfoCache cache2 = new OntologyInfoCache(60000);
+		cache2.setSnapshotDir(dir);
+		cache2.get(conn, () -> this.load(loads), () -> counts[0]);
+		assertEquals(1, cache2.getWarmStarts());
+		cache2.awaitRefreshes();
+		assertEquals(2, loads.get());
+
+		// another process changed the model:  snapshot is not used, and is replaced
+		counts[0] = "101 ";
+		OntologyInfoCache cache3 = new OntologyInfoCache(60000);
+		cache3.setSnapshotDir(dir);
+		cache3.get(conn, () -> this.load(loads), () -> counts[0]);
+		assertEquals(0, cache3.getWarmStarts());
+		assertEquals(3, loads.get());
+
+		// triple store can't count:  snapshot is used unchecked
+		OntologyInfoCache cache4 = new OntologyInfoCache(60000);
+		cache4.setSnapshotDir(dir);
+		cache4.get(conn, () -> this.load(loads), () -> { throw new Exception("triple store is down"); });
+		assertEquals(1, cache4.getWarmStarts());
+
+		cache4.awaitRefreshes();
+		cache4.invalidateAll();
+		dir.delete();
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.ontologyTools.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.ontologyTools.OntologyClass;
+import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyInfoSnapshot;
+import com.ge.research.semtk.ontologyTools.OntologyProperty;
+import com.ge.research.semtk.utility.Utility;
+
+public class OntologyInfoSnapshotTest {
+
+	// every class with its parents, properties, labels and comments, and every enumeration:  in a stable order
+	private ArrayList<String> describe(OntologyInfo oInfo) {
+		ArrayList<String> ret = new ArrayList<String>();
+		for (String c : oInfo.getClassNames()) {
+			OntologyClass oClass = oInfo.getClass(c);
+			ArrayList<String> parents = oClass.getParentNameStrings(false);
+			Collections.sort(parents);
+			ret.add(c + " parents " + parents + " labels " + oClass.getAnnotationLabels() + " comments " + oClass.getAnnotationComments());
+			for (OntologyProperty p : oClass.getProperties()) {
+				ret.add(c + " prop " + p.getNameStr() + " " + p.getRangeStr() + " labels " + p.getAnnotationLabels() + " comments " + p.getAnnotationComments());
+			}
+			if (oInfo.classIsEnumeration(c)) {
+				ret.add(c + " enum " + oInfo.getEnumerationStrings(c));
+			}
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		File file = File.createTempFile("oinfo", ".bin");
+		file.deleteOnExit();
+
+		for (String path : new String [] { "src/test/resources/sampleBatteryOInfo.json", "src/test/resources/annotationBatteryOInfo.json" }) {
+			OntologyInfo oInfo = new OntologyInfo(Utility.getJSONObjectFromFilePath(path));
+			OntologyInfoSnapshot.write(oInfo, "key \u00e9", file);
+
+			assertEquals("key \u00e9", OntologyInfoSnapshot.readKey(file));
+			OntologyInfo oInfo2 = OntologyInfoSnapshot.read(file, "key \u00e9");
+			assertEquals(describe(oInfo), describe(oInfo2));
+			assertEquals(oInfo.getNumberOfProperties(), oInfo2.getNumberOfProperties());
+			assertEquals(oInfo.getNumberOfEnum(), oInfo2.getNumberOfEnum());
+		}
+
+		// empty
+		OntologyInfoSnapshot.write(new OntologyInfo(), "empty", file);
+		assertEquals(0, OntologyInfoSnapshot.read(file, null).getNumberOfClasses());
+	}
+
+	@Test
+	public void testBadFiles() throws Exception {
+		File file = File.createTempFile("oinfo", ".bin");
+		file.deleteOnExit();
+		OntologyInfo oInfo = new OntologyInfo(Utility.getJSONObjectFromFilePath("src/test/resources/sampleBatteryOInfo.json"));
+
+		// another key
+		OntologyInfoSnapshot.write(oInfo, "model1", file);
+		try {
+			OntologyInfoSnapshot.read(file, "model2");
+			fail("Snapshot of another key was read");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("model2"));
+		}
+
+		// written from other triple counts
+		OntologyInfoSnapshot.write(oInfo, "model1", "100 ", file);
+		assertEquals(describe(oInfo), describe(OntologyInfoSnapshot.read(file, "model1", "100 ")));
+		try {
+			OntologyInfoSnapshot.read(file, "model1", "101 ");
+			fail("Stale snapshot was read");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("stale"));
+		}
+
+		// truncated
+		long length = file.length();
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.getChannel().truncate(length - 3);
+		}
+		try {
+			OntologyInfoSnapshot.read(file, "model1");
+			fail("Truncated snapshot was read");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("truncated"));
+		}
+
+		// not a snapshot
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("{ \"version\": 2 }".getBytes());
+		}
+		try {
+			OntologyInfoSnapshot.read(file, null);
+			fail("Json was read as a snapshot");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("Not an ontology snapshot"));
+		}
+	}
+}
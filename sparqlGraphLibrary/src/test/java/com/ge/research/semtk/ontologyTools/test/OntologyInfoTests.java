@@ -10,6 +10,7 @@ import org.junit.Test;
 import com.ge.research.semtk.load.utility.SparqlGraphJson;
 import com.ge.research.semtk.ontologyTools.OntologyClass;
 import com.ge.research.semtk.ontologyTools.OntologyInfo;
+import com.ge.research.semtk.ontologyTools.OntologyPath;
 import com.ge.research.semtk.ontologyTools.OntologyProperty;
 import com.ge.research.semtk.utility.Utility;
 
@@ -136,4 +137,94 @@ public class OntologyInfoTests {
 
 	}
 
+	@Test
+	public void getMatchingEnumeration() throws Exception {
+		String color = "http://kdl.ge.com/durabattery#Color";
+		OntologyInfo oInfo = new OntologyInfo();
+		oInfo.loadEnums(new String[] {color, color, color},
+				        new String[] {"http://kdl.ge.com/durabattery#red", "http://kdl.ge.com/durabattery#white", "http://other.com/colors#red"});
+		
+		// fragment:  first value wins
+		assertEquals("http://kdl.ge.com/durabattery#red", oInfo.getMatchingEnumeration(color, "red"));
+		assertEquals("http://kdl.ge.com/durabattery#white", oInfo.getMatchingEnumeration(color, "white"));
+		
+		// full uri
+		assertEquals("http://other.com/colors#red", oInfo.getMatchingEnumeration(color, "http://other.com/colors#red"));
+		
+		// misses
+		assertNull(oInfo.getMatchingEnumeration(color, "blue"));
+		assertNull(oInfo.getMatchingEnumeration(color, "http://kdl.ge.com/durabattery#blue"));
+		assertNull(oInfo.getMatchingEnumeration(color, "durabattery#red"));
+		assertNull(oInfo.getMatchingEnumeration("http://kdl.ge.com/durabattery#Battery", "red"));
+	}
+	
+	@Test
+	public void hierarchyIndexes() throws Exception {
+		String battery = "http://kdl.ge.com/durabattery#Battery";
+		String duraBattery = "http://kdl.ge.com/durabattery#DuraBattery";
+		String superBattery = "http://kdl.ge.com/durabattery#SuperDuraBattery";
+		String cell = "http://kdl.ge.com/durabattery#Cell";
+		OntologyInfo oInfo = new OntologyInfo(Utility.getJSONObjectFromFilePath("src/test/resources/sampleBatteryOInfo.json"));
+		
+		assertTrue(oInfo.classIsA(oInfo.getClass(duraBattery), oInfo.getClass(battery)));
+		assertFalse(oInfo.classIsA(oInfo.getClass(battery), oInfo.getClass(duraBattery)));
+		assertEquals(1, oInfo.getSubclassNames(battery).size());
+		int cellConnections = oInfo.getConnList(cell).size();
+		
+		// returned lists are copies
+		oInfo.getSubclassNames(battery).clear();
+		oInfo.getInheritedProperties(oInfo.getClass(duraBattery)).clear();
+		assertEquals(1, oInfo.getSubclassNames(battery).size());
+		assertEquals(7, oInfo.getInheritedProperties(oInfo.getClass(duraBattery)).size());
+		
+		// adding a class updates the indexes
+		oInfo.loadSuperSubClasses(new String[] {superBattery}, new String[] {duraBattery});
+		assertTrue(oInfo.classIsA(oInfo.getClass(superBattery), oInfo.getClass(battery)));
+		assertEquals(2, oInfo.getSubclassNames(battery).size());
+		assertEquals(2, oInfo.getSuperclassNames(superBattery).size());
+		assertEquals(7, oInfo.getInheritedProperties(oInfo.getClass(superBattery)).size());
+		
+		// adding a property:  Cell is now had by SuperDuraBattery's spareCell and its four inherited cells
+		oInfo.loadProperties(new String[] {superBattery}, new String[] {"http://kdl.ge.com/durabattery#spareCell"}, new String[] {cell});
+		assertEquals(8, oInfo.getInheritedProperties(oInfo.getClass(superBattery)).size());
+		assertEquals(cellConnections + 5, oInfo.getConnList(cell).size());
+	}
+	
+	@Test
+	public void findAllPaths() throws Exception {
+		String battery = "http://kdl.ge.com/durabattery#Battery";
+		String duraBattery = "http://kdl.ge.com/durabattery#DuraBattery";
+		String cell = "http://kdl.ge.com/durabattery#Cell";
+		String color = "http://kdl.ge.com/durabattery#Color";
+		OntologyInfo oInfo = new OntologyInfo(Utility.getJSONObjectFromFilePath("src/test/resources/sampleBatteryOInfo.json"));
+		ArrayList<String> targets = new ArrayList<String>();
+		targets.add(duraBattery);
+		
+		// Color <- color - Cell <- cellN - DuraBattery:  shortest first
+		ArrayList<String> warnings = new ArrayList<String>();
+		ArrayList<OntologyPath> paths = oInfo.findAllPaths(color, targets, "http://kdl.ge.com", warnings);
+		assertEquals(4, paths.size());
+		assertEquals(2, paths.get(0).getLength());
+		assertEquals(color, paths.get(0).getStartClassName());
+		assertEquals(duraBattery, paths.get(0).getEndClassName());
+		assertEquals("Cell.color Color DuraBattery.cell1 Cell ", paths.get(0).asString());
+		assertTrue(warnings.isEmpty());
+		
+		// remembered, and returned as copies
+		paths.get(0).addTriple(duraBattery, "http://kdl.ge.com/durabattery#cell1", cell);
+		paths = oInfo.findAllPaths(color, targets, "http://kdl.ge.com", warnings);
+		assertEquals(4, paths.size());
+		assertEquals(2, paths.get(0).getLength());
+		assertTrue(warnings.isEmpty());
+		
+		// outside the domain
+		assertEquals(0, oInfo.findAllPaths(color, targets, "http://other.com").size());
+		
+		// forgotten when the ontology changes
+		oInfo.loadProperties(new String[] {battery}, new String[] {"http://kdl.ge.com/durabattery#trimColor"}, new String[] {color});
+		paths = oInfo.findAllPaths(color, targets, "http://kdl.ge.com");
+		assertEquals(1, paths.get(0).getLength());
+		assertEquals("DuraBattery.trimColor Color ", paths.get(0).asString());
+	}
+
 }
@@ -0,0 +1,155 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.resultSet.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.resultSet.ColumnarTable;
+import com.ge.research.semtk.resultSet.Table;
+
+public class ColumnarTableTest {
+
+	private static final String XSD_INT = "http://www.w3.org/2001/XMLSchema#integer";
+	private static final String XSD_DOUBLE = "http://www.w3.org/2001/XMLSchema#double";
+
+	private ColumnarTable buildTable() throws Exception {
+		String[] cols = {"uri", "num", "dbl"};
+		String[] colTypes = {"uri", XSD_INT, XSD_DOUBLE};
+		ColumnarTable table = new ColumnarTable(cols, colTypes);
+		table.addRow(new String[] {"http://a", "3", "2.5"});
+		table.addRow(new String[] {"http://b", "007", "10"});      // 007 doesn't print back as a long
+		table.addRow(new String[] {"http://a", "", "1.50"});       // neither do "" or 1.50
+		table.addRow(new String[] {"http://c", "-12", "-0.25"});
+		return table;
+	}
+
+	@Test
+	public void testCellsKeepExactText() throws Exception {
+		ColumnarTable table = buildTable();
+		assertEquals(4, table.getNumRows());
+		assertArrayEquals(new String[] {"3", "007", "", "-12"}, table.getColumn("num"));
+		assertArrayEquals(new String[] {"2.5", "10", "1.50", "-0.25"}, table.getColumn("dbl"));
+		assertEquals("http://a", table.getCell(2, 0));
+
+		// rows are read-only copies
+		try {
+			table.getRow(0).set(0, "changed");
+			fail("Row copy was changed");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			table.getRows().remove(0);
+			fail("Rows copy was changed");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			table.getRows().iterator().next().iterator().remove();
+			fail("Row copy was changed through an iterator");
+		} catch (IllegalStateException | UnsupportedOperationException e) {
+		}
+		assertEquals("http://a", table.getCell(0, 0));
+		assertEquals(4, table.getNumRows());
+
+		HashMap<String, String> filter = new HashMap<String, String>();
+		filter.put("uri", "A");
+		Table subset = table.getSubsetBySubstring(filter);
+		assertEquals(2, subset.getNumRows());
+		assertArrayEquals(new String[] {"3", ""}, subset.getColumn("num"));
+
+		assertArrayEquals(new String[] {"http://a", "http://b", "http://c"}, table.getColumnUniqueValues("uri"));
+	}
+
+	@Test
+	public void testSorts() throws Exception {
+		ColumnarTable table = buildTable();
+
+		table.sortByColumnStr("uri");
+		assertArrayEquals(new String[] {"http://a", "http://a", "http://b", "http://c"}, table.getColumn("uri"));
+		assertArrayEquals(new String[] {"3", "", "007", "-12"}, table.getColumn("num"));   // stable
+
+		table.sortByColumnDouble("dbl");
+		assertArrayEquals(new String[] {"-0.25", "1.50", "2.5", "10"}, table.getColumn("dbl"));
+
+		table.sortByColumnDoubleRev("dbl");
+		assertArrayEquals(new String[] {"10", "2.5", "1.50", "-0.25"}, table.getColumn("dbl"));
+
+		table.truncate(2);
+		table.sortByColumnInt("num");
+		assertArrayEquals(new String[] {"3", "007"}, table.getColumn("num"));
+	}
+
+	@Test
+	public void testSubsetSliceMerge() throws Exception {
+		ColumnarTable table = buildTable();
+
+		Table subset = table.getSubsetWhereMatches("uri", "http://a", new String[] {"dbl", "uri"});
+		assertEquals(2, subset.getNumRows());
+		assertArrayEquals(new String[] {"2.5", "1.50"}, subset.getColumn("dbl"));
+		assertEquals(0, table.getSubsetWhereMatches("uri", "http://none").getNumRows());
+
+		Table slice = table.slice(1, 2);
+		assertArrayEquals(new String[] {"007", ""}, slice.getColumn("num"));
+
+		// merge with a row-based table whose columns are in a different order
+		ArrayList<ArrayList<String>> rows = new ArrayList<ArrayList<String>>();
+		ArrayList<String> row = new ArrayList<String>();
+		row.add("5.0");
+		row.add("http://d");
+		row.add("99");
+		rows.add(row);
+		Table other = new Table(new String[] {"dbl", "uri", "num"}, new String[] {XSD_DOUBLE, "uri", XSD_INT}, rows);
+		ArrayList<Table> tables = new ArrayList<Table>();
+		tables.add(table);
+		tables.add(other);
+		Table merged = Table.merge(tables);
+		assertTrue(merged instanceof ColumnarTable);
+		assertEquals(5, merged.getNumRows());
+		assertEquals("http://d", merged.getCell(4, 0));
+		assertEquals("5.0", merged.getCell(4, 2));
+	}
+
+	@Test
+	public void testReplaceColumnTypes() throws Exception {
+		// rows arrive before types are known
+		ColumnarTable table = new ColumnarTable(new String[] {"a"}, new String[] {"unknown"});
+		for (int i = 0; i < 100; i++) {
+			table.addRow(new String[] {String.valueOf(i)});
+		}
+		table.addRow(new String[] {"oops"});
+		table.replaceColumnTypes(new String[] {XSD_INT});
+		assertEquals(XSD_INT, table.getColumnType("a"));
+		assertEquals("42", table.getCell(42, 0));
+		assertEquals("oops", table.getCell(100, 0));
+
+		// mostly non-numeric values still work
+		ColumnarTable bad = new ColumnarTable(new String[] {"a"}, new String[] {XSD_INT});
+		for (int i = 0; i < 100; i++) {
+			bad.addRow(new String[] {"x" + i});
+		}
+		assertEquals("x99", bad.getCell(99, 0));
+	}
+}
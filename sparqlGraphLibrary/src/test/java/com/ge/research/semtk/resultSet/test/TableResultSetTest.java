@@ -55,6 +55,22 @@ public class TableResultSetTest {
 	}
 	
 	
+	@Test
+	public void testSetTable() throws Exception{
+		Table table = new Table(new String[] {"colA"}, new String[] {"String"});
+		table.addRow(new String[] {"apple"});
+		TableResultSet tableResultSet = new TableResultSet(true);
+		tableResultSet.setTable(table);
+		assertEquals(1, new TableResultSet(tableResultSet.toJson()).getTable().getNumRows());
+		
+		// changes to the held table are serialized
+		tableResultSet.getTable().addRow(new String[] {"banana"});
+		TableResultSet rehydrated = new TableResultSet(tableResultSet.toJson());
+		assertEquals(2, rehydrated.getTable().getNumRows());
+		assertEquals("banana", rehydrated.getTable().getCell(1, 0));
+	}
+	
+	
 	@Test
 	public void testMerge() throws Exception {
 			
@@ -0,0 +1,133 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+
+package com.ge.research.semtk.sparqlX.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ge.research.semtk.sparqlX.SparqlHttpClientPool;
+import com.sun.net.httpserver.HttpServer;
+
+public class SparqlHttpClientPoolTest {
+
+	private HttpServer server;
+	private HttpHost host;
+	private Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+	@Before
+	public void startServer() throws Exception {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/", exchange -> {
+			this.clientPorts.add(exchange.getRemoteAddress().getPort());
+			byte [] body = "ok".getBytes();
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		this.server.start();
+		this.host = new HttpHost("localhost", this.server.getAddress().getPort(), "http");
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		this.server.stop(0);
+		SparqlHttpClientPool.configure(SparqlHttpClientPool.DEFAULT_MAX_TOTAL, SparqlHttpClientPool.DEFAULT_MAX_PER_ROUTE,
+				SparqlHttpClientPool.DEFAULT_CONNECT_TIMEOUT_MSEC, SparqlHttpClientPool.DEFAULT_SOCKET_TIMEOUT_MSEC, SparqlHttpClientPool.DEFAULT_IDLE_EVICT_SEC);
+	}
+
+	private String get(SparqlHttpClientPool pool) throws Exception {
+		try (CloseableHttpResponse response = pool.getHttpClient().execute(this.host, new HttpGet("/"), pool.createContext())) {
+			return EntityUtils.toString(response.getEntity());
+		}
+	}
+
+	@Test
+	public void testKeepAlive() throws Exception {
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		for (int i = 0; i < 10; i++) {
+			assertEquals("ok", this.get(pool));
+		}
+		// every request went over the one pooled connection
+		assertEquals(1, this.clientPorts.size());
+	}
+
+	@Test
+	public void testAuthCache() throws Exception {
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		AuthCache cache1 = pool.createAuthContext(this.host, "user", "pass").getAuthCache();
+		AuthCache cache2 = pool.createAuthContext(this.host, "user", "pass").getAuthCache();
+		AuthCache cacheOther = pool.createAuthContext(this.host, "other", "pass").getAuthCache();
+		assertTrue(cache1 == cache2);
+		assertTrue(cache1 != cacheOther);
+		assertTrue(cache1.get(this.host) != null);
+
+		pool.clearAuthCache(this.host, "user");
+		assertTrue(pool.createAuthContext(this.host, "user", "pass").getAuthCache() != cache1);
+		assertTrue(pool.createAuthContext(this.host, "other", "pass").getAuthCache() == cacheOther);
+	}
+
+	@Test
+	public void testConfigure() throws Exception {
+		SparqlHttpClientPool old = SparqlHttpClientPool.getInstance();
+		this.get(old);
+
+		// nothing set:  pool is unchanged
+		SparqlHttpClientPool.configure(name -> null);
+		assertTrue(SparqlHttpClientPool.getInstance() == old);
+
+		HashMap<String, String> props = new HashMap<String, String>();
+		props.put("sparqlHttpPool.maxPerRoute", "2");
+		SparqlHttpClientPool.configure(props::get);
+		SparqlHttpClientPool pool = SparqlHttpClientPool.getInstance();
+		assertTrue(pool != old);
+		assertEquals("ok", this.get(pool));
+
+		// old pool is closed
+		try {
+			this.get(old);
+			fail("Closed pool sent a request");
+		} catch (IllegalStateException e) {
+		}
+
+		props.put("sparqlHttpPool.maxTotal", "lots");
+		try {
+			SparqlHttpClientPool.configure(props::get);
+			fail("Bad property was accepted");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("sparqlHttpPool.maxTotal"));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.sparqlX.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.ge.research.semtk.sparqlX.SparqlQueryFormEntity;
+
+public class SparqlQueryFormEntityTest {
+
+	private static final String FORMAT = "application/sparql-results+json";
+	private static final String GRAPH = "http://research.ge.com/test#graph 1";
+
+	private static byte [] urlEncodedForm(String query) throws Exception {
+		List<NameValuePair> params = new ArrayList<NameValuePair>();
+		params.add(new BasicNameValuePair("query", query));
+		params.add(new BasicNameValuePair("format", FORMAT));
+		params.add(new BasicNameValuePair("default-graph-uri", GRAPH));
+		return EntityUtils.toByteArray(new UrlEncodedFormEntity(params, "UTF-8"));
+	}
+
+	private static void assertSameAsUrlEncodedForm(String query, CharSequence [] parts) throws Exception {
+		byte [] expected = urlEncodedForm(query);
+		SparqlQueryFormEntity entity = new SparqlQueryFormEntity(parts, FORMAT, GRAPH);
+
+		assertTrue(Arrays.equals(expected, EntityUtils.toByteArray(entity)));
+		assertEquals(expected.length, entity.getContentLength());
+		assertTrue(entity.isRepeatable());
+		assertTrue(Arrays.equals(expected, EntityUtils.toByteArray(entity)));
+	}
+
+	@Test
+	public void testAscii() throws Exception {
+		String query = "prefix bar:<http://knowledge.ge.com/bar#>\n INSERT { ?x bar:foo \"a b&c=d+e%f\"^^XMLSchema:string . } WHERE { BIND (bar:one AS ?x). } ";
+		assertSameAsUrlEncodedForm(query, new CharSequence [] { query });
+	}
+
+	@Test
+	public void testParts() throws Exception {
+		String query = "prefix bar:<http://knowledge.ge.com/bar#>\n INSERT { ?x bar:foo \"\u00e9t\u00e9 \u6f22\u5b57 \ud83d\ude00\" . } WHERE { } ";
+
+		// split anywhere, including between the two halves of a surrogate pair
+		for (int i=0; i <= query.length(); i++) {
+			assertSameAsUrlEncodedForm(query, new CharSequence [] { query.substring(0, i), new StringBuilder(query.substring(i)) });
+		}
+	}
+
+	@Test
+	public void testMalformed() throws Exception {
+		// lone surrogates
+		String query = "a\ud83db\ude00c\ud83d";
+		assertSameAsUrlEncodedForm(query, new CharSequence [] { query });
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.sparqlX.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.resultSet.Table;
+import com.ge.research.semtk.sparqlX.SparqlResultsJsonDecoder;
+
+public class SparqlResultsJsonDecoderTest {
+
+	private static final String XSD_INT = "http://www.w3.org/2001/XMLSchema#integer";
+
+	private static final String SELECT_JSON =
+			"{ \"head\": { \"link\": [], \"vars\": [\"Test\", \"testnum\", \"note\"] },\n" +
+			"  \"results\": { \"distinct\": false, \"ordered\": true, \"bindings\": [\n" +
+			"    { \"Test\": { \"type\": \"uri\", \"value\": \"http:\\/\\/research.ge.com\\/dataset#Test_1\" }, \"testnum\": { \"type\": \"typed-literal\", \"datatype\": \"" + XSD_INT + "\", \"value\": \"1272\" }},\n" +
+			"    { \"Test\": { \"type\": \"uri\", \"value\": \"http://research.ge.com/dataset#Test_2\" }, \"testnum\": { \"type\": \"typed-literal\", \"datatype\": \"" + XSD_INT + "\", \"value\": \"1274\" }, \"note\": { \"type\": \"literal\", \"value\": \"say \\\"hi\\\"\\u00e9\\n\" }},\n" +
+			"    { \"Test\": { \"type\": \"literal\", \"value\": \"oops\" }, \"testnum\": { \"type\": \"typed-literal\", \"datatype\": \"" + XSD_INT + "\", \"value\": \"1276\" }}\n" +
+			"  ] } }";
+
+	@Test
+	public void testDecodeTable() throws Exception {
+		Table table = SparqlResultsJsonDecoder.decodeTable(new ByteArrayInputStream(SELECT_JSON.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(3, table.getNumColumns());
+		assertEquals(3, table.getNumRows());
+		assertEquals("http://research.ge.com/dataset#Test_1", table.getCell(0, 0));
+		assertEquals("1274", table.getCell(1, 1));
+		assertEquals("say \"hi\"é\n", table.getCell(1, 2));
+		assertEquals("", table.getCell(0, 2));         // unbound
+
+		// types:  mixed uri and literal becomes string
+		assertEquals(SparqlResultsJsonDecoder.TYPE_MIXED, table.getColumnType("Test"));
+		assertEquals(XSD_INT, table.getColumnType("testnum"));
+		assertEquals("literal", table.getColumnType("note"));
+	}
+
+	@Test
+	public void testRowAtATime() throws Exception {
+		SparqlResultsJsonDecoder decoder = new SparqlResultsJsonDecoder(new StringReader(SELECT_JSON));
+		assertEquals("testnum", decoder.getColumnNames()[1]);
+
+		int count = 0;
+		String [] row;
+		while ((row = decoder.nextRow()) != null) {
+			assertEquals(3, row.length);
+			count++;
+		}
+		assertEquals(3, count);
+		decoder.close();
+	}
+
+	@Test
+	public void testEmptyAndOutOfOrder() throws Exception {
+		// no rows
+		Table table = SparqlResultsJsonDecoder.decodeTable(new ByteArrayInputStream("{\"head\":{\"vars\":[\"a\",\"b\"]},\"results\":{\"bindings\":[]}}".getBytes()));
+		assertEquals(2, table.getNumColumns());
+		assertEquals(0, table.getNumRows());
+		assertEquals(SparqlResultsJsonDecoder.TYPE_UNKNOWN, table.getColumnTypes()[0]);
+
+		// results before head
+		String json = "{\"results\":{\"bindings\":[{\"b\":{\"type\":\"literal\",\"value\":\"B\"}},{\"a\":{\"type\":\"uri\",\"value\":\"A\"}}]},\"head\":{\"vars\":[\"a\",\"b\"]}}";
+		table = SparqlResultsJsonDecoder.decodeTable(new ByteArrayInputStream(json.getBytes()));
+		assertEquals(2, table.getNumRows());
+		assertEquals("B", table.getCell(0, 1));
+		assertEquals("A", table.getCell(1, 0));
+		assertEquals("uri", table.getColumnType("a"));
+	}
+
+	@Test
+	public void testNotJson() throws Exception {
+		try {
+			SparqlResultsJsonDecoder.decodeTable(new ByteArrayInputStream("Virtuoso 37000 Error SP030: SPARQL compiler".getBytes()));
+			fail("Missing exception on non-json response");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("Virtuoso 37000 Error"));
+		}
+	}
+}
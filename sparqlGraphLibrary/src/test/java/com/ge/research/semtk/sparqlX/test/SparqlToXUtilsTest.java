@@ -46,6 +46,20 @@ public class SparqlToXUtilsTest {
 		assertFalse(SparqlToXUtils.isLegalURI("http://tree:05/hi/ther\u0006re"));      // bad char		
 	}
 	
+	@Test
+	public void testIsDeleteQuery() throws Exception {
+		assertTrue(SparqlToXUtils.isDeleteQuery(SparqlToXUtils.generateDeleteURIQuery("http://a#b")));
+		assertTrue(SparqlToXUtils.isDeleteQuery("prefix x:<http://x#> DELETE { ?s ?p ?o } INSERT { ?s ?p 1 } WHERE { ?s ?p ?o }"));
+		assertTrue(SparqlToXUtils.isDeleteQuery("CLEAR GRAPH <http://g>"));
+		assertTrue(SparqlToXUtils.isDeleteQuery("insert data { <http://a#b> <http://a#c> 1 } ; drop silent graph <http://g>"));
+		assertTrue(SparqlToXUtils.isDeleteQuery("insert { ?x <http://a#c> 1 } where { ?x <http://a#d> ?y filter(?y < 2) } ; ", "delete where { ?x ?y ?z }"));
+
+		assertFalse(SparqlToXUtils.isDeleteQuery("select ?delete where { ?delete <http://a#drop> ?copy }"));
+		assertFalse(SparqlToXUtils.isDeleteQuery("prefix delete:<http://delete#> insert data { delete:move <http://x/clear> \"delete me\"^^<http://www.w3.org/2001/XMLSchema#string> }"));
+		assertFalse(SparqlToXUtils.isDeleteQuery("insert data { <http://a#b> <http://a#c> \"\"\"long \" delete\n text\"\"\" . <http://a#b> <http://a#c> 'it\\'s drop' } # clear later"));
+		assertFalse(SparqlToXUtils.isDeleteQuery("insert data { <http://a#b> <http://a#c> 1 }", ""));
+	}
+
 	@Test
 	public void testDeleteModel() throws Exception {
 		ArrayList<String> prefixes = new ArrayList<String>();
@@ -0,0 +1,82 @@
+/**
+ ** Copyright 2017 General Electric Company
+ **
+ **
+ ** Licensed under the Apache License, Version 2.0 (the "License");
+ ** you may not use this file except in compliance with the License.
+ ** You may obtain a copy of the License at
+ **
+ **     http://www.apache.org/licenses/LICENSE-2.0
+ **
+ ** Unless required by applicable law or agreed to in writing, software
+ ** distributed under the License is distributed on an "AS IS" BASIS,
+ ** WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ** See the License for the specific language governing permissions and
+ ** limitations under the License.
+ */
+
+package com.ge.research.semtk.sparqlX.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.ge.research.semtk.resultSet.Table;
+import com.ge.research.semtk.sparqlX.SparqlResultsJsonDecoder;
+import com.ge.research.semtk.sparqlX.TableCursor;
+
+public class TableCursorTest {
+
+	private static TableCursor buildCursor(int numRows) throws Exception {
+		StringBuilder json = new StringBuilder("{\"head\":{\"vars\":[\"a\",\"b\"]},\"results\":{\"bindings\":[");
+		for (int i = 0; i < numRows; i++) {
+			if (i > 0) json.append(",");
+			json.append("{\"a\":{\"type\":\"literal\",\"value\":\"a" + i + "\"},\"b\":{\"type\":\"uri\",\"value\":\"b" + i + "\"}}");
+		}
+		json.append("]}}");
+		return new TableCursor(new SparqlResultsJsonDecoder(new StringReader(json.toString())));
+	}
+
+	@Test
+	public void testBatches() throws Exception {
+		TableCursor cursor = buildCursor(25);
+		cursor.replaceColumnNames(new String[] {"a", "a[1]"});
+
+		Table batch = cursor.nextBatch(10);
+		assertEquals(10, batch.getNumRows());
+		assertEquals("a[1]", batch.getColumnNames()[1]);
+		assertEquals("uri", batch.getColumnType("a[1]"));
+		assertEquals("a9", batch.getCell(9, 0));
+
+		assertEquals(10, cursor.nextBatch(10).getNumRows());
+		batch = cursor.nextBatch(10);
+		assertEquals(5, batch.getNumRows());
+		assertEquals("b24", batch.getCell(4, 1));
+		assertTrue(cursor.isExhausted());
+
+		assertEquals(0, cursor.nextBatch(10).getNumRows());
+		assertNull(cursor.next());
+		assertEquals(25, cursor.getRowsRead());
+		cursor.close();
+	}
+
+	@Test
+	public void testEarlyClose() throws Exception {
+		TableCursor cursor = buildCursor(5);
+		assertEquals("a0", cursor.next().get(0));
+		cursor.close();
+		cursor.close();
+		try {
+			cursor.next();
+			fail("Missing exception reading closed cursor");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("closed"));
+		}
+		assertEquals(1, cursor.getRowsRead());
+	}
+}
@@ -31,6 +31,7 @@ public class ResultsProperties {
 	private int sampleLines = 1;
 	private Boolean cleanUpThreadEnabled = true;
 	private Integer cleanUpThreadFrequency;
+	private String storageFormat = "JSON";	// JSON or BINARY
 	
 	public String getBaseURL() {
 		return baseURL;
@@ -62,4 +63,10 @@ public class ResultsProperties {
 	public void setCleanUpThreadFrequency(Integer cleanUpThreadFrequency) {
 		this.cleanUpThreadFrequency = cleanUpThreadFrequency;
 	}
+	public String getStorageFormat() {
+		return storageFormat;
+	}
+	public void setStorageFormat(String storageFormat) {
+		this.storageFormat = storageFormat;
+	}
 }
@@ -17,9 +17,14 @@
 
 package com.ge.research.semtk.services.results;
 
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
 public class ResultsRequestBodyFinalizeTableResultsJson extends ResultsRequestBody {
 
 	private int rowCount;
+	private String jsonRenderedHeader = null;   // optional: replaces the header sent to initialize
 
 	public int getRowCount() {
 		return rowCount;
@@ -28,5 +33,20 @@ public class ResultsRequestBodyFinalizeTableResultsJson extends ResultsRequestBo
 	public void setRowCount(int rowCount) {
 		this.rowCount = rowCount;
 	}
+	
+	public boolean hasJsonRenderedHeader() {
+		return jsonRenderedHeader != null;
+	}
+	
+	public JSONObject getJsonRenderedHeader() throws ParseException {
+		
+		JSONParser jParse = new JSONParser();
+		
+		return (JSONObject) jParse.parse(jsonRenderedHeader);
+	}
+
+	public void setJsonRenderedHeader(String jsonRenderedHeader) {
+		this.jsonRenderedHeader = jsonRenderedHeader;
+	}
 		
 }
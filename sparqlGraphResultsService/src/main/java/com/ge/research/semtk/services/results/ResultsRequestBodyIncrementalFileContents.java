@@ -18,9 +18,10 @@
 package com.ge.research.semtk.services.results;
 
 public class ResultsRequestBodyIncrementalFileContents extends ResultsRequestBodyFileExtContents {
-	public int segmentNumber;
+	public Integer segmentNumber;	// optional: segments are stored in this order, however they arrive
 	
-	public void setSegmentNumber(int segmentNumber){ this.segmentNumber = segmentNumber;}
-	public int  getSegmentNumber(){ return this.segmentNumber; }
+	public void setSegmentNumber(Integer segmentNumber){ this.segmentNumber = segmentNumber;}
+	public Integer getSegmentNumber(){ return this.segmentNumber; }
+	public boolean hasSegmentNumber(){ return this.segmentNumber != null; }
 
 }
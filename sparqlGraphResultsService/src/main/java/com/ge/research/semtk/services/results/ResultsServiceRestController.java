@@ -52,6 +52,7 @@ import com.ge.research.semtk.edc.resultsStorage.JsonLdResultsSerializer;
 import com.ge.research.semtk.edc.resultsStorage.JsonLdResultsStorage;
 import com.ge.research.semtk.edc.resultsStorage.TableResultsSerializer;
 import com.ge.research.semtk.edc.resultsStorage.TableResultsStorage;
+import com.ge.research.semtk.edc.resultsStorage.TableResultsStorage.TableResultsStorageTypes;
 import com.ge.research.semtk.logging.easyLogger.LoggerRestClient;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.utility.LocalLogger;
@@ -189,6 +190,7 @@ public class ResultsServiceRestController {
 	 * The input data ("contents") must:
 	 * 		1) be ZLIB compressed, using Utility.compress() or other
 	 * 		2) omit tailing comma for the last row of the last call
+	 * Optional segmentNumber (0, 1, 2...) lets batches be sent concurrently:  they are stored in segment order.
 	 * 
 	 * Sample input (decompressed):
 	 * ["a1","b1","c1"],
@@ -197,7 +199,7 @@ public class ResultsServiceRestController {
 	 */
 	@CrossOrigin
 	@RequestMapping(value="/storeTableResultsJsonAddIncremental", method=RequestMethod.POST)
-	public JSONObject storeTableResultsJsonAddIncremental(@RequestBody ResultsRequestBodyFileExtContents requestBody){
+	public JSONObject storeTableResultsJsonAddIncremental(@RequestBody ResultsRequestBodyIncrementalFileContents requestBody){
 
 		// logging
 		LoggerRestClient logger = LoggerRestClient.loggerConfigInitialization(log_prop);	 
@@ -206,7 +208,12 @@ public class ResultsServiceRestController {
 
 		SimpleResultSet res = new SimpleResultSet();
 		try{
-			getTableResultsStorage().storeTableResultsJsonAddIncremental(requestBody.jobId, Utility.decompress(requestBody.getContents()));
+			if (requestBody.hasSegmentNumber()) {
+				// segments may be sent concurrently:  storage puts them back in order
+				getTableResultsStorage().storeTableResultsJsonAddIncremental(requestBody.jobId, Utility.decompress(requestBody.getContents()), requestBody.getSegmentNumber());
+			} else {
+				getTableResultsStorage().storeTableResultsJsonAddIncremental(requestBody.jobId, Utility.decompress(requestBody.getContents()));
+			}
 		    res.setSuccess(true);
 		}
 		catch(Exception e){
@@ -221,6 +228,7 @@ public class ResultsServiceRestController {
 	/**
 	 * Call 3 of 3 for storing JSON results.
 	 * Writes row count and JSON end.
+	 * If jsonRenderedHeader is given, it replaces the header sent to initialize.
 	 */
 	@CrossOrigin
 	@RequestMapping(value="/storeTableResultsJsonFinalize", method=RequestMethod.POST)
@@ -233,7 +241,13 @@ public class ResultsServiceRestController {
 
 		SimpleResultSet res = new SimpleResultSet();
 		try{
-			URL url = getTableResultsStorage().storeTableResultsJsonFinalize(requestBody.jobId); 
+			URL url;
+			if (requestBody.hasJsonRenderedHeader()) {
+				// streamed results: header is only final now
+				url = getTableResultsStorage().storeTableResultsJsonFinalize(requestBody.jobId, requestBody.getJsonRenderedHeader());
+			} else {
+				url = getTableResultsStorage().storeTableResultsJsonFinalize(requestBody.jobId);
+			}
 		    getJobTracker().setJobResultsURL(requestBody.jobId, url);  // store URL with the job		
 		    res.setSuccess(true);
 		} catch(Exception e){
@@ -436,7 +450,7 @@ public class ResultsServiceRestController {
 	}
 	
 	private TableResultsStorage getTableResultsStorage() throws Exception {
-		return new TableResultsStorage(prop.getFileLocation());
+		return new TableResultsStorage(prop.getFileLocation(), TableResultsStorageTypes.valueOf(prop.getStorageFormat().trim().toUpperCase()));
 	}
 
 	private JsonLdResultsStorage getJsonLdResultsStorage() throws Exception {
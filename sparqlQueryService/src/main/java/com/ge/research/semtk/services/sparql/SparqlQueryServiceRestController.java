@@ -31,6 +31,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.json.simple.JSONObject;
 
+import com.ge.research.semtk.load.utility.UriCache;
+import com.ge.research.semtk.ontologyTools.OntologyInfoCache;
 import com.ge.research.semtk.resultSet.GeneralResultSet;
 import com.ge.research.semtk.resultSet.SimpleResultSet;
 import com.ge.research.semtk.sparqlX.SparqlEndpointInterface;
@@ -186,6 +188,8 @@ public class SparqlQueryServiceRestController {
 			sei = SparqlEndpointInterface.getInstance(requestBody.serverType, requestBody.serverAndPort, requestBody.dataset, requestBody.user, requestBody.password);	
 			String dropGraphQuery = "drop graph <" + requestBody.dataset + ">";  // drop query
 			resultSet = sei.executeQueryAndBuildResultSet(dropGraphQuery, SparqlResultTypes.CONFIRM);
+			OntologyInfoCache.getShared().invalidate(sei);
+			UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 			
 		} catch (Exception e) {			
 			LocalLogger.printStackTrace(e);	
@@ -283,6 +287,8 @@ public class SparqlQueryServiceRestController {
 			query = SparqlToXUtils.generateDeletePrefixQuery(requestBody.prefix);
 			sei = SparqlEndpointInterface.getInstance(requestBody.serverType, requestBody.serverAndPort, requestBody.dataset, requestBody.user, requestBody.password);	
 			resultSet = sei.executeQueryAndBuildResultSet(query, SparqlResultTypes.CONFIRM);
+			OntologyInfoCache.getShared().invalidate(sei);
+			UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 			
 		} catch (Exception e) {			
 			LocalLogger.printStackTrace(e);
@@ -341,6 +347,8 @@ public class SparqlQueryServiceRestController {
 			String query = SparqlToXUtils.generateDeleteModelTriplesQuery(requestBody.prefixes, deleteBlankNodes);
 			sei = SparqlEndpointInterface.getInstance(requestBody.serverType, requestBody.serverAndPort, requestBody.dataset, requestBody.user, requestBody.password);	
 			resultSet = sei.executeQueryAndBuildResultSet(query, SparqlResultTypes.CONFIRM);
+			OntologyInfoCache.getShared().invalidate(sei);
+			UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 			
 		} catch (Exception e) {			
 			LocalLogger.printStackTrace(e);
@@ -377,6 +385,8 @@ public class SparqlQueryServiceRestController {
 			sei = SparqlEndpointInterface.getInstance(requestBody.serverType, requestBody.serverAndPort, requestBody.dataset, requestBody.user, requestBody.password);	
 			String query = SparqlToXUtils.genereateClearAllQuery();
 			resultSet = sei.executeQueryAndBuildResultSet(query, SparqlResultTypes.CONFIRM);
+			OntologyInfoCache.getShared().invalidate(sei);
+			UriCache.clearShared(sei.getServerAndPort(), sei.getDataset());
 		} catch (Exception e) {			
 			LocalLogger.printStackTrace(e);
 			resultSet = new SimpleResultSet();
@@ -424,7 +434,7 @@ public class SparqlQueryServiceRestController {
 			if (password == null || password.trim().isEmpty() ) throw new Exception("password is empty.");
 
 			sei = SparqlEndpointInterface.getInstance(serverType, serverAndPort, dataset, user, password);
-			simpleResultSetJson = sei.executeAuthUploadOwl(owlFile.getBytes());
+			simpleResultSetJson = sei.executeAuthUploadOwl(owlFile.getBytes());		// invalidates cached ontologies of the graph
 			 
 		} catch (Exception e) {			
 			LocalLogger.printStackTrace(e);
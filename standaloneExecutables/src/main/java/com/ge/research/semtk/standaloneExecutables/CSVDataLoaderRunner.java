@@ -180,7 +180,9 @@ public class CSVDataLoaderRunner {
 		// open the dataset, using the needed column names
 		Dataset dataset = null;
 		try{
-			dataset = new CSVDataset(dataCSVFilePath, colNamesToIngest);
+			CSVDataset csvDataset = new CSVDataset(dataCSVFilePath, colNamesToIngest);
+			csvDataset.setParallelParsing(Runtime.getRuntime().availableProcessors());
+			dataset = csvDataset;
 		}catch(Exception e){
 			throw new Exception("Could not instantiate CSV dataset: " + e.getMessage());
 		}